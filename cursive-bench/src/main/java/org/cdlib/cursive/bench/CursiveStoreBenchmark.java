@@ -0,0 +1,132 @@
+package org.cdlib.cursive.bench;
+
+import io.vavr.collection.Vector;
+import org.apache.tinkerpop.gremlin.tinkergraph.structure.TinkerGraph;
+import org.cdlib.cursive.core.Store;
+import org.cdlib.cursive.core.Workspace;
+import org.cdlib.cursive.pcdm.PcdmCollection;
+import org.cdlib.cursive.pcdm.PcdmObject;
+import org.cdlib.cursive.store.graph.GraphIndexer;
+import org.cdlib.cursive.store.graph.GraphStore;
+import org.cdlib.cursive.store.memory.MemoryStore;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Baseline benchmarks for the {@code cursive-store} {@link Store} implementations.
+ * Each trial starts from a store pre-populated with a single workspace and a
+ * collection tree of the parameterized shape, with one object in each collection.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CursiveStoreBenchmark {
+
+  // ------------------------------------------------------------
+  // Parameters
+
+  @Param({"memory", "tinkergraph", "tinkergraph-unindexed"})
+  String backend;
+
+  @Param({"2", "4"})
+  int depth;
+
+  @Param({"4", "16"})
+  int fanOut;
+
+  // ------------------------------------------------------------
+  // Fixture
+
+  Store store;
+  Vector<PcdmCollection> collections;
+  Vector<PcdmObject> objects;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    store = newStore(backend);
+
+    Workspace ws = store.createWorkspace();
+    var all = Vector.<PcdmCollection>empty();
+    var level = Vector.<PcdmCollection>empty();
+    for (var i = 0; i < fanOut; i++) {
+      level = level.append(ws.createCollection());
+    }
+    all = all.appendAll(level);
+    for (var d = 1; d < depth; d++) {
+      var next = Vector.<PcdmCollection>empty();
+      for (var parent : level) {
+        for (var i = 0; i < fanOut; i++) {
+          next = next.append(parent.createCollection());
+        }
+      }
+      all = all.appendAll(next);
+      level = next;
+    }
+    collections = all;
+    objects = all.map(PcdmCollection::createObject);
+  }
+
+  // ------------------------------------------------------------
+  // Benchmarks
+
+  @Benchmark
+  public Workspace createWorkspace() {
+    return store.createWorkspace();
+  }
+
+  @Benchmark
+  public PcdmCollection createCollection() {
+    return randomCollection().createCollection();
+  }
+
+  @Benchmark
+  public PcdmObject createObject() {
+    return randomCollection().createObject();
+  }
+
+  @Benchmark
+  public Object find() {
+    return store.find(randomObject().id());
+  }
+
+  @Benchmark
+  public void memberCollections(Blackhole bh) {
+    randomCollection().memberCollections().forEach(bh::consume);
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.SampleTime)
+  public int allObjects() {
+    return store.allObjects().size();
+  }
+
+  // ------------------------------------------------------------
+  // Helper methods
+
+  private PcdmCollection randomCollection() {
+    return collections.get(ThreadLocalRandom.current().nextInt(collections.size()));
+  }
+
+  private PcdmObject randomObject() {
+    return objects.get(ThreadLocalRandom.current().nextInt(objects.size()));
+  }
+
+  private static Store newStore(String backend) {
+    switch (backend) {
+      case "memory":
+        return new MemoryStore();
+      case "tinkergraph":
+        return new GraphStore(TinkerGraph.open(), GraphIndexer.DEFAULT);
+      case "tinkergraph-unindexed":
+        return new GraphStore(TinkerGraph.open(), GraphIndexer.NONE);
+      default:
+        throw new IllegalArgumentException("Unknown backend: " + backend);
+    }
+  }
+}
@@ -0,0 +1,66 @@
+package org.cdlib.cursive.bench;
+
+import org.cdlib.cursive.util.ids.IdGenerator;
+import org.cdlib.cursive.util.ids.SecureRandomIdGenerator;
+import org.cdlib.cursive.util.ids.SplitRandomIdGenerator;
+import org.cdlib.cursive.util.ids.TimeOrderedIdGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost per ID of each {@link IdGenerator} strategy, uncontended and with
+ * several threads minting at once (which matters for the time-ordered
+ * generator's shared counter).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IdGeneratorBenchmark {
+
+  // ------------------------------------------------------------
+  // Parameters
+
+  @Param({"secureRandom", "splitRandom", "timeOrdered"})
+  String strategy;
+
+  // ------------------------------------------------------------
+  // Fixture
+
+  IdGenerator generator;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    switch (strategy) {
+      case "secureRandom":
+        generator = new SecureRandomIdGenerator();
+        break;
+      case "splitRandom":
+        generator = new SplitRandomIdGenerator();
+        break;
+      case "timeOrdered":
+        generator = new TimeOrderedIdGenerator();
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown strategy: " + strategy);
+    }
+  }
+
+  // ------------------------------------------------------------
+  // Benchmarks
+
+  @Benchmark
+  public UUID generate() {
+    return generator.generate();
+  }
+
+  @Benchmark
+  @Threads(4)
+  public UUID generateContended() {
+    return generator.generate();
+  }
+}
@@ -0,0 +1,98 @@
+package org.cdlib.cursive.bench;
+
+import org.cdlib.cursive.pcdm.PcdmCollection;
+import org.cdlib.cursive.pcdm.PcdmObject;
+import org.cdlib.cursive.store.memory.MemoryStore;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Create throughput of the {@code cursive-store} {@link MemoryStore} as writer
+ * threads are added. Writes never retry or wait for each other; each create
+ * costs one identifier-index insert and one {@code getAndIncrement()} per
+ * log it appends to. The {@code createObjectInOwnCollection} benchmarks
+ * give each thread its own parent, so writers share only the store-wide
+ * object registry's counter, and per-thread throughput should hold roughly
+ * steady as threads are added. {@code createObject} benchmarks add no
+ * member appends. {@code createObjectInSharedCollection8} also has every
+ * writer appending to the same member list, which is the worst case.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MemoryStoreContentionBenchmark {
+
+  // ------------------------------------------------------------
+  // Fixture
+
+  MemoryStore store;
+  PcdmCollection shared;
+
+  @Setup(Level.Iteration)
+  public void setUp() {
+    store = new MemoryStore();
+    shared = store.createWorkspace().createCollection();
+  }
+
+  /**
+   * Each thread's own collection, created in the store under test.
+   */
+  @State(Scope.Thread)
+  public static class Writer {
+    PcdmCollection parent;
+
+    @Setup(Level.Iteration)
+    public void setUp(MemoryStoreContentionBenchmark bench) {
+      parent = bench.store.createCollection();
+    }
+  }
+
+  // ------------------------------------------------------------
+  // Benchmarks
+
+  @Benchmark
+  @Threads(1)
+  public PcdmObject createObject1() {
+    return store.createObject();
+  }
+
+  @Benchmark
+  @Threads(4)
+  public PcdmObject createObject4() {
+    return store.createObject();
+  }
+
+  @Benchmark
+  @Threads(8)
+  public PcdmObject createObject8() {
+    return store.createObject();
+  }
+
+  @Benchmark
+  @Threads(1)
+  public PcdmObject createObjectInOwnCollection1(Writer writer) {
+    return writer.parent.createObject();
+  }
+
+  @Benchmark
+  @Threads(4)
+  public PcdmObject createObjectInOwnCollection4(Writer writer) {
+    return writer.parent.createObject();
+  }
+
+  @Benchmark
+  @Threads(8)
+  public PcdmObject createObjectInOwnCollection8(Writer writer) {
+    return writer.parent.createObject();
+  }
+
+  @Benchmark
+  @Threads(8)
+  public PcdmObject createObjectInSharedCollection8() {
+    return shared.createObject();
+  }
+}
@@ -0,0 +1,108 @@
+package org.cdlib.kufi.bench;
+
+import org.cdlib.kufi.Collection;
+import org.cdlib.kufi.Workspace;
+import org.cdlib.kufi.memory.IndexBackend;
+import org.cdlib.kufi.memory.MemoryStore;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Baseline benchmarks for {@link MemoryStore}. Each trial starts from a store
+ * pre-populated with a single workspace and a collection tree of the
+ * parameterized shape.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class KufiMemoryStoreBenchmark {
+
+  // ------------------------------------------------------------
+  // Parameters
+
+  @Param({"HASH_MAP", "PRIMITIVE_TRIE"})
+  IndexBackend backend;
+
+  @Param({"2", "4"})
+  int depth;
+
+  @Param({"4", "16"})
+  int fanOut;
+
+  // ------------------------------------------------------------
+  // Fixture
+
+  MemoryStore store;
+  Trees.Tree tree;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    store = new MemoryStore(backend);
+    tree = Trees.build(store, depth, fanOut);
+  }
+
+  /**
+   * Fresh subtree for each recursive delete, so the delete always sees
+   * the full parameterized shape.
+   */
+  @State(Scope.Thread)
+  public static class Subtree {
+    MemoryStore store;
+    Collection root;
+
+    @Setup(Level.Invocation)
+    public void setUp(KufiMemoryStoreBenchmark bench) {
+      store = new MemoryStore(bench.backend);
+      Workspace ws = store.createWorkspace().blockingGet();
+      root = Trees.buildSubtree(store, ws, bench.depth, bench.fanOut);
+    }
+  }
+
+  // ------------------------------------------------------------
+  // Benchmarks
+
+  @Benchmark
+  public Workspace createWorkspace() {
+    return store.createWorkspace().blockingGet();
+  }
+
+  @Benchmark
+  public Collection createCollection() {
+    return store.createCollection(randomCollection()).blockingGet();
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.SampleTime)
+  public Collection deleteCollectionRecursive(Subtree subtree) {
+    return subtree.store.deleteCollection(subtree.root, true).blockingGet();
+  }
+
+  @Benchmark
+  public Object find() {
+    return store.find(randomId()).blockingGet();
+  }
+
+  @Benchmark
+  public void linksFrom(Blackhole bh) {
+    store.linksFrom(randomId()).blockingForEach(bh::consume);
+  }
+
+  // ------------------------------------------------------------
+  // Helper methods
+
+  private Collection randomCollection() {
+    var collections = tree.collections;
+    return collections.get(ThreadLocalRandom.current().nextInt(collections.size()));
+  }
+
+  private UUID randomId() {
+    return randomCollection().id();
+  }
+}
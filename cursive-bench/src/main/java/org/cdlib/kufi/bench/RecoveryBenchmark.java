@@ -0,0 +1,93 @@
+package org.cdlib.kufi.bench;
+
+import org.cdlib.kufi.Workspace;
+import org.cdlib.kufi.memory.IndexBackend;
+import org.cdlib.kufi.memory.MemoryStore;
+import org.cdlib.kufi.memory.SyncPolicy;
+import org.cdlib.kufi.memory.TransactionLog;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to recover a logged {@link MemoryStore} of roughly one or ten million
+ * collections on restart, either by replaying the whole log ({@code log}),
+ * or by reading a {@linkplain MemoryStore#checkpoint(Path) checkpoint}
+ * ({@code snapshot}). The store is written once per trial (outside the
+ * measurement) as a two-level tree under a single workspace.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx16g"})
+public class RecoveryBenchmark {
+
+  // ------------------------------------------------------------
+  // Constants
+
+  private static final int BATCH_SIZE = 10_000;
+
+  // ------------------------------------------------------------
+  // Parameters
+
+  @Param({"1000000", "10000000"})
+  int resources;
+
+  @Param({"log", "snapshot"})
+  String source;
+
+  @Param({"HASH_MAP", "PRIMITIVE_TRIE"})
+  IndexBackend backend;
+
+  // ------------------------------------------------------------
+  // Fixture
+
+  Path logFile;
+  Path snapshotFile;
+  TransactionLog log;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    logFile = Files.createTempFile(getClass().getSimpleName(), ".log");
+    snapshotFile = Files.createTempFile(getClass().getSimpleName(), ".snapshot");
+    Files.delete(logFile);
+    Files.delete(snapshotFile);
+    try (var log = TransactionLog.open(logFile, SyncPolicy.never())) {
+      var store = new MemoryStore(backend, log);
+      Workspace ws = store.createWorkspace().blockingGet();
+      var fanOut = (int) Math.ceil(Math.sqrt(resources));
+      Trees.buildSubtreeBatched(store, ws, 3, fanOut, BATCH_SIZE);
+      if (source.equals("snapshot")) {
+        store.checkpoint(snapshotFile).blockingGet();
+      }
+    }
+  }
+
+  @TearDown(Level.Iteration)
+  public void closeLog() throws IOException {
+    if (log != null) {
+      log.close();
+      log = null;
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    Files.deleteIfExists(logFile);
+    Files.deleteIfExists(snapshotFile);
+  }
+
+  // ------------------------------------------------------------
+  // Benchmarks
+
+  @Benchmark
+  public MemoryStore recover() throws IOException {
+    log = TransactionLog.open(logFile, SyncPolicy.never());
+    return new MemoryStore(backend, snapshotFile, log);
+  }
+}
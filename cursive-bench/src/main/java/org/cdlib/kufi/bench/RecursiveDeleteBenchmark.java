@@ -0,0 +1,81 @@
+package org.cdlib.kufi.bench;
+
+import org.cdlib.kufi.Collection;
+import org.cdlib.kufi.Workspace;
+import org.cdlib.kufi.memory.IndexBackend;
+import org.cdlib.kufi.memory.MemoryStore;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Recursive delete of a single subtree of roughly one million collections.
+ * Each iteration builds a fresh subtree (outside the measurement) and
+ * deletes it once.
+ *
+ * Shapes are chosen to stress breadth ({@code wide}: 1,000 × 1,000),
+ * a balanced tree ({@code bushy}: 100 × 100 × 100) and depth
+ * ({@code deep}: a single chain, which overflows the stack with a
+ * recursive implementation).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g", "-Xss512k"})
+public class RecursiveDeleteBenchmark {
+
+  // ------------------------------------------------------------
+  // Constants
+
+  private static final int BATCH_SIZE = 10_000;
+
+  // ------------------------------------------------------------
+  // Parameters
+
+  @Param({"HASH_MAP", "PRIMITIVE_TRIE"})
+  IndexBackend backend;
+
+  @Param({"wide", "bushy", "deep"})
+  String shape;
+
+  // ------------------------------------------------------------
+  // Fixture
+
+  MemoryStore store;
+  Collection root;
+
+  @Setup(Level.Iteration)
+  public void setUp() {
+    store = new MemoryStore(backend, 0);
+    Workspace ws = store.createWorkspace().blockingGet();
+    switch (shape) {
+      case "wide":
+        root = Trees.buildSubtreeBatched(store, ws, 3, 1_000, BATCH_SIZE);
+        break;
+      case "bushy":
+        root = Trees.buildSubtreeBatched(store, ws, 4, 100, BATCH_SIZE);
+        break;
+      case "deep":
+        root = Trees.buildSubtreeBatched(store, ws, 1_000_000, 1, BATCH_SIZE);
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown shape: " + shape);
+    }
+  }
+
+  @TearDown(Level.Iteration)
+  public void tearDown() {
+    store = null;
+    root = null;
+  }
+
+  // ------------------------------------------------------------
+  // Benchmarks
+
+  @Benchmark
+  public Collection deleteCollectionRecursive() {
+    return store.deleteCollection(root, true).blockingGet();
+  }
+}
@@ -0,0 +1,68 @@
+package org.cdlib.kufi.bench;
+
+import org.cdlib.kufi.Collection;
+import org.cdlib.kufi.Version;
+import org.cdlib.kufi.Workspace;
+import org.cdlib.kufi.memory.IndexBackend;
+import org.cdlib.kufi.memory.MemoryStore;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.cdlib.kufi.ResourceType.COLLECTION;
+
+/**
+ * Allocation per operation for creating children under a single parent,
+ * where every create also bumps the parent's version, and for reading a
+ * resource's version. Run with the GC profiler (as the {@code jmh} task
+ * does) and compare {@code gc.alloc.rate.norm}, which reports bytes
+ * allocated per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResourceFootprintBenchmark {
+
+  // ------------------------------------------------------------
+  // Parameters
+
+  @Param({"HASH_MAP", "PRIMITIVE_TRIE"})
+  IndexBackend backend;
+
+  // ------------------------------------------------------------
+  // Fixture
+
+  MemoryStore store;
+  Workspace ws;
+  Collection parent;
+
+  @Setup(Level.Iteration)
+  public void setUp() {
+    store = new MemoryStore(backend, 0);
+    ws = store.createWorkspace().blockingGet();
+    parent = store.createCollection(ws).blockingGet();
+  }
+
+  @TearDown(Level.Iteration)
+  public void tearDown() {
+    store = null;
+    ws = null;
+    parent = null;
+  }
+
+  // ------------------------------------------------------------
+  // Benchmarks
+
+  @Benchmark
+  public Collection createChild() {
+    return store.createCollection(parent).blockingGet();
+  }
+
+  @Benchmark
+  public Version findAndReadVersion() {
+    return store.find(parent.id(), COLLECTION).blockingGet().currentVersion();
+  }
+}
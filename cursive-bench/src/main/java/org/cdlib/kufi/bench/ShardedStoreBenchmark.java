@@ -0,0 +1,89 @@
+package org.cdlib.kufi.bench;
+
+import org.cdlib.kufi.Collection;
+import org.cdlib.kufi.Store;
+import org.cdlib.kufi.Workspace;
+import org.cdlib.kufi.memory.MemoryStore;
+import org.cdlib.kufi.memory.ShardedMemoryStore;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write scaling of {@link ShardedMemoryStore} against a single
+ * {@link MemoryStore}. Each benchmark thread creates collections under its
+ * own workspace, so the writers never touch the same resources; with one
+ * store they still contend for its single commit path, while with the
+ * sharded store they only contend when their workspaces hash to the same
+ * partition. Compare throughput across the thread counts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ShardedStoreBenchmark {
+
+  // ------------------------------------------------------------
+  // Parameters
+
+  @Param({"memory", "sharded"})
+  String storeType;
+
+  @Param({"8"})
+  int partitions;
+
+  // ------------------------------------------------------------
+  // Fixture
+
+  Store store;
+
+  @Setup(Level.Iteration)
+  public void setUp() {
+    switch (storeType) {
+      case "memory":
+        store = new MemoryStore();
+        break;
+      case "sharded":
+        store = new ShardedMemoryStore(partitions);
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown store type: " + storeType);
+    }
+  }
+
+  /**
+   * Each thread's own workspace, created in the store under test.
+   */
+  @State(Scope.Thread)
+  public static class Writer {
+    Workspace ws;
+
+    @Setup(Level.Iteration)
+    public void setUp(ShardedStoreBenchmark bench) {
+      ws = bench.store.createWorkspace().blockingGet();
+    }
+  }
+
+  // ------------------------------------------------------------
+  // Benchmarks
+
+  @Benchmark
+  @Threads(1)
+  public Collection createCollection1(Writer writer) {
+    return store.createCollection(writer.ws).blockingGet();
+  }
+
+  @Benchmark
+  @Threads(4)
+  public Collection createCollection4(Writer writer) {
+    return store.createCollection(writer.ws).blockingGet();
+  }
+
+  @Benchmark
+  @Threads(8)
+  public Collection createCollection8(Writer writer) {
+    return store.createCollection(writer.ws).blockingGet();
+  }
+}
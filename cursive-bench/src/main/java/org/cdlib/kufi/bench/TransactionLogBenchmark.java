@@ -0,0 +1,81 @@
+package org.cdlib.kufi.bench;
+
+import org.cdlib.kufi.Collection;
+import org.cdlib.kufi.Workspace;
+import org.cdlib.kufi.memory.MemoryStore;
+import org.cdlib.kufi.memory.SyncPolicy;
+import org.cdlib.kufi.memory.TransactionLog;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sustained commit throughput for a {@link MemoryStore} backed by a
+ * {@link TransactionLog}, under each {@link SyncPolicy}. Run with
+ * {@code -t} to measure how group commit amortizes syncs across threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransactionLogBenchmark {
+
+  // ------------------------------------------------------------
+  // Parameters
+
+  @Param({"groupCommit", "periodic", "never"})
+  String syncPolicy;
+
+  // ------------------------------------------------------------
+  // Fixture
+
+  Path logFile;
+  TransactionLog log;
+  MemoryStore store;
+  Workspace workspace;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    logFile = Files.createTempFile(getClass().getSimpleName(), ".log");
+    Files.delete(logFile);
+    log = TransactionLog.open(logFile, newSyncPolicy(syncPolicy));
+    store = new MemoryStore(log);
+    workspace = store.createWorkspace().blockingGet();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    log.close();
+    Files.deleteIfExists(logFile);
+  }
+
+  // ------------------------------------------------------------
+  // Benchmarks
+
+  @Benchmark
+  public Collection createCollection() {
+    return store.createCollection(workspace).blockingGet();
+  }
+
+  // ------------------------------------------------------------
+  // Helper methods
+
+  private static SyncPolicy newSyncPolicy(String name) {
+    switch (name) {
+      case "groupCommit":
+        return SyncPolicy.groupCommit();
+      case "periodic":
+        return SyncPolicy.periodic(Duration.ofMillis(10));
+      case "never":
+        return SyncPolicy.never();
+      default:
+        throw new IllegalArgumentException("Unknown sync policy: " + name);
+    }
+  }
+}
@@ -0,0 +1,103 @@
+package org.cdlib.kufi.bench;
+
+import io.vavr.collection.Vector;
+import org.cdlib.kufi.Collection;
+import org.cdlib.kufi.Store;
+import org.cdlib.kufi.Workspace;
+
+/**
+ * Builds collection trees of a given shape for benchmarking.
+ */
+class Trees {
+
+  /**
+   * Creates a workspace with {@code fanOut} child collections, each of which
+   * has {@code fanOut} children of its own, down to {@code depth} levels.
+   *
+   * @return The workspace and every collection created under it, in breadth-first order.
+   */
+  static Tree build(Store store, int depth, int fanOut) {
+    var ws = store.createWorkspace().blockingGet();
+    var all = Vector.<Collection>empty();
+    var level = Vector.<Collection>empty();
+    for (var i = 0; i < fanOut; i++) {
+      level = level.append(store.createCollection(ws).blockingGet());
+    }
+    all = all.appendAll(level);
+    for (var d = 1; d < depth; d++) {
+      var next = Vector.<Collection>empty();
+      for (var parent : level) {
+        for (var i = 0; i < fanOut; i++) {
+          next = next.append(store.createCollection(parent).blockingGet());
+        }
+      }
+      all = all.appendAll(next);
+      level = next;
+    }
+    return new Tree(ws, all);
+  }
+
+  /**
+   * Creates a single collection under {@code ws} with a subtree of the given shape below it.
+   *
+   * @return The root of the subtree.
+   */
+  static Collection buildSubtree(Store store, Workspace ws, int depth, int fanOut) {
+    var root = store.createCollection(ws).blockingGet();
+    var level = Vector.of(root);
+    for (var d = 1; d < depth; d++) {
+      var next = Vector.<Collection>empty();
+      for (var parent : level) {
+        for (var i = 0; i < fanOut; i++) {
+          next = next.append(store.createCollection(parent).blockingGet());
+        }
+      }
+      level = next;
+    }
+    return root;
+  }
+
+  /**
+   * Like {@link #buildSubtree(Store, Workspace, int, int)}, but creates each
+   * level in batches of up to {@code batchSize} collections, for building
+   * very large trees quickly.
+   *
+   * @return The root of the subtree.
+   */
+  static Collection buildSubtreeBatched(Store store, Workspace ws, int depth, int fanOut, int batchSize) {
+    var root = store.createCollection(ws).blockingGet();
+    var level = Vector.of(root);
+    for (var d = 1; d < depth; d++) {
+      var next = Vector.<Collection>empty();
+      var batch = store.batch();
+      var pending = 0;
+      for (var parent : level) {
+        for (var i = 0; i < fanOut; i++) {
+          batch = batch.createCollection(parent);
+          if (++pending == batchSize) {
+            next = next.appendAll(batch.commit().map(Collection.class::cast).toList().blockingGet());
+            batch = store.batch();
+            pending = 0;
+          }
+        }
+      }
+      next = next.appendAll(batch.commit().map(Collection.class::cast).toList().blockingGet());
+      level = next;
+    }
+    return root;
+  }
+
+  static final class Tree {
+    final Workspace workspace;
+    final Vector<Collection> collections;
+
+    private Tree(Workspace workspace, Vector<Collection> collections) {
+      this.workspace = workspace;
+      this.collections = collections;
+    }
+  }
+
+  private Trees() {
+    // private to prevent instantiation
+  }
+}
@@ -1,5 +1,6 @@
 package org.cdlib.cursive.core;
 
+import io.vavr.collection.Stream;
 import io.vavr.collection.Traversable;
 import io.vavr.control.Option;
 import org.cdlib.cursive.pcdm.PcdmCollection;
@@ -28,6 +29,16 @@ public interface Store {
 
   Option<Resource> find(UUID id);
 
+  /**
+   * Finds all the resources with the specified IDs. Stores that can look up
+   * many IDs at once more cheaply than one at a time should override this.
+   *
+   * @return The resources found, in no particular order. IDs not found are skipped.
+   */
+  default Traversable<Resource> findAll(Iterable<UUID> ids) {
+    return Stream.ofAll(ids).distinct().flatMap(this::find);
+  }
+
   default String path() {
     return "/";
   }
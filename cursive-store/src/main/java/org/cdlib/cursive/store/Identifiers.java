@@ -1,21 +1,17 @@
 package org.cdlib.cursive.store;
 
-import com.fasterxml.uuid.Generators;
-import com.fasterxml.uuid.NoArgGenerator;
+import org.cdlib.cursive.util.ids.IdGenerator;
+import org.cdlib.cursive.util.ids.IdGenerators;
 
-import java.security.SecureRandom;
 import java.util.UUID;
 
 public class Identifiers {
 
   /**
-   * Separate SecureRandom instance per thread to avoid contention
+   * Mints an identifier with the {@linkplain IdGenerators#defaultGenerator() default}
+   * {@link IdGenerator}.
    */
-  private static final ThreadLocal<NoArgGenerator> generator = ThreadLocal.withInitial(
-    () -> Generators.randomBasedGenerator(new SecureRandom())
-  );
-
   public static UUID mintIdentifier() {
-    return generator.get().generate();
+    return IdGenerators.defaultGenerator().generate();
   }
 }
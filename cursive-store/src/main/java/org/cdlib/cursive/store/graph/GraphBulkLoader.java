@@ -0,0 +1,321 @@
+package org.cdlib.cursive.store.graph;
+
+import org.apache.tinkerpop.gremlin.structure.Graph;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.cdlib.cursive.core.ResourceType;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Loads {@linkplain ResourceTree trees of resources} into a {@link GraphStore}
+ * in batches, committing a transaction after each batch if the graph supports
+ * transactions, rather than one per write.
+ *
+ * The trees are read one at a time, so the input can be generated lazily.
+ * The store must be indexed, since the loader looks resources up by ID.
+ * Each tree's IDs are checked against each other in memory. Uniqueness
+ * against the rest of the input and the store is left to the store's unique
+ * ID index, without reading anything back, if the index enforces it
+ * ({@link GraphIndexer#enforcesUniqueness(Graph)}); otherwise, as with
+ * TinkerGraph, each ID is looked up before it's written.
+ *
+ * Relations are written after all the resources, so they can refer to
+ * resources anywhere in the input. Their endpoints are resolved from the
+ * object vertices written by the load, so only endpoints already in the
+ * store are looked up, with one batched lookup per batch of relations.
+ * Relations whose endpoints aren't objects are skipped, and counted in
+ * {@link #unresolvedRelationCount()}.
+ *
+ * If loading fails, the current batch is rolled back, but earlier batches
+ * stay committed. Since relations are only written once all the resources
+ * are, the relations of already-committed resources may not have been
+ * written; they're discarded, and counted in {@link #droppedRelationCount()}.
+ *
+ * The loader doesn't change how the graph itself is configured. For large
+ * loads into JanusGraph, open the graph with {@code storage.batch-loading}
+ * enabled, and a larger {@code ids.block-size}; but note that batch loading
+ * turns off JanusGraph's uniqueness checks, so the input must then be known
+ * not to repeat IDs, within itself or from the store.
+ *
+ * Loaders aren't thread-safe, but their metrics can be read from any thread.
+ */
+public class GraphBulkLoader {
+
+  // ------------------------------------------------------
+  // Constants
+
+  public static final int DEFAULT_BATCH_SIZE = 10_000;
+
+  // ------------------------------------------------------
+  // Fields
+
+  private final GraphStore store;
+  private final Graph graph;
+  private final int batchSize;
+  private final Consumer<GraphBulkLoader> onBatch;
+  private final boolean transactional;
+  private final boolean uniqueIds;
+
+  /** The object vertices written by the current load, by ID, to resolve relations from */
+  private final Map<UUID, Vertex> objects = new HashMap<>();
+
+  private final ArrayList<UUID> relationFromIds = new ArrayList<>();
+  private final ArrayList<UUID> relationToIds = new ArrayList<>();
+
+  /** The number of relations, from the start of the lists, already committed */
+  private int relationsCommitted;
+
+  /** Writes since the last commit */
+  private int pending;
+
+  // ------------------------------------------------------
+  // Metrics
+
+  // Only written by the loading thread, so they don't need to be atomic
+
+  private volatile long resourceCount;
+  private volatile long relationCount;
+  private volatile long unresolvedRelationCount;
+  private volatile long droppedRelationCount;
+  private volatile long batchCount;
+  private volatile long loadNanos;
+  private volatile long startedAt;
+
+  // ------------------------------------------------------
+  // Constructor
+
+  /**
+   * @param batchSize The number of writes per transaction
+   * @param onBatch   Called after each batch is committed, e.g. to report progress
+   */
+  GraphBulkLoader(GraphStore store, Graph graph, int batchSize, Consumer<GraphBulkLoader> onBatch) {
+    if (batchSize <= 0) {
+      throw new IllegalArgumentException("Batch size must be > 0: " + batchSize);
+    }
+    if (!store.isIndexed()) {
+      // every ID lookup would walk the whole store
+      throw new IllegalStateException("Bulk loading requires a store whose ID, type and store properties are indexed");
+    }
+    this.store = store;
+    this.graph = graph;
+    this.batchSize = batchSize;
+    this.onBatch = onBatch;
+    transactional = graph.features().graph().supportsTransactions();
+    uniqueIds = store.enforcesUniqueIds();
+  }
+
+  // ------------------------------------------------------
+  // Loading
+
+  /**
+   * Loads the specified trees, as members of the store root.
+   *
+   * If loading fails, any relations not yet written are discarded, and
+   * added to {@link #droppedRelationCount()}.
+   *
+   * @throws IllegalArgumentException if a tree is a file, since files can
+   *                                  only be members of objects, or if a
+   *                                  resource ID appears more than once in
+   *                                  a tree, or (if the store's ID index
+   *                                  doesn't enforce uniqueness itself) in
+   *                                  the input or the store
+   */
+  public void load(Iterable<ResourceTree> trees) {
+    long start = System.nanoTime();
+    startedAt = start;
+    relationsCommitted = 0;
+    try {
+      Set<UUID> treeIds = new HashSet<>();
+      for (ResourceTree tree : trees) {
+        if (tree.type() == ResourceType.FILE) {
+          throw new IllegalArgumentException("Files can only be loaded as members of objects: " + tree.id());
+        }
+        checkIds(tree, treeIds);
+        treeIds.clear();
+        loadTree(store.root(), tree);
+      }
+      commitBatch();
+      loadRelations();
+    } catch (RuntimeException e) {
+      rollbackBatch();
+      droppedRelationCount += relationFromIds.size() - relationsCommitted;
+      throw e;
+    } finally {
+      objects.clear();
+      relationFromIds.clear();
+      relationToIds.clear();
+      loadNanos += System.nanoTime() - start;
+      startedAt = 0;
+    }
+  }
+
+  // ------------------------------------------------------
+  // Metrics
+
+  /**
+   * @return The number of resources written, including any in the current,
+   * uncommitted batch.
+   */
+  public long resourceCount() {
+    return resourceCount;
+  }
+
+  /**
+   * @return The number of relations written, including any in the current,
+   * uncommitted batch.
+   */
+  public long relationCount() {
+    return relationCount;
+  }
+
+  /**
+   * @return The number of relations skipped because one of their endpoints
+   * wasn't an object in the store.
+   */
+  public long unresolvedRelationCount() {
+    return unresolvedRelationCount;
+  }
+
+  /**
+   * @return The number of relations discarded without being written because
+   * a load failed.
+   */
+  public long droppedRelationCount() {
+    return droppedRelationCount;
+  }
+
+  /**
+   * @return The number of batches committed.
+   */
+  public long batchCount() {
+    return batchCount;
+  }
+
+  /**
+   * @return The total time spent loading, including any load in progress.
+   */
+  public long elapsedNanos() {
+    long started = startedAt;
+    return loadNanos + (started == 0 ? 0 : System.nanoTime() - started);
+  }
+
+  /**
+   * @return The number of resources and relations written per second of loading.
+   */
+  public double writesPerSecond() {
+    long elapsed = elapsedNanos();
+    return elapsed == 0 ? 0 : (resourceCount + relationCount) * 1e9 / elapsed;
+  }
+
+  // ------------------------------------------------------
+  // Private methods
+
+  /**
+   * Checks the IDs of the resources in the specified tree before any of them
+   * are written, adding them to the specified set.
+   *
+   * @throws IllegalArgumentException if any of them is already in the set,
+   *                                  or (if the store's ID index doesn't
+   *                                  enforce uniqueness) in the store
+   */
+  private void checkIds(ResourceTree tree, Set<UUID> ids) {
+    UUID id = tree.id();
+    if (!ids.add(id)) {
+      throw new IllegalArgumentException("Resource ID appears more than once in the input: " + id);
+    }
+    if (!uniqueIds && store.vertexWithId(id).isDefined()) {
+      throw new IllegalArgumentException("Resource ID already in the store: " + id);
+    }
+    for (ResourceTree member : tree.members()) {
+      checkIds(member, ids);
+    }
+  }
+
+  private void loadTree(Vertex parent, ResourceTree tree) {
+    Vertex vertex = store.createChild(parent, tree.type(), tree.id());
+    resourceCount++;
+    if (tree.type() == ResourceType.OBJECT) {
+      objects.put(tree.id(), vertex);
+    }
+    for (UUID toId : tree.relatedIds()) {
+      relationFromIds.add(tree.id());
+      relationToIds.add(toId);
+    }
+    if (++pending >= batchSize) {
+      commitBatch();
+    }
+    for (ResourceTree member : tree.members()) {
+      loadTree(vertex, member);
+    }
+  }
+
+  private void loadRelations() {
+    int total = relationFromIds.size();
+    for (int start = 0; start < total; start += batchSize) {
+      int end = Math.min(start + batchSize, total);
+      findStoredObjects(start, end);
+      for (int i = start; i < end; i++) {
+        Vertex fromVertex = objects.get(relationFromIds.get(i));
+        Vertex toVertex = objects.get(relationToIds.get(i));
+        if (fromVertex == null || toVertex == null) {
+          unresolvedRelationCount++;
+          continue;
+        }
+        fromVertex.addEdge(Labels.RELATION, toVertex);
+        relationCount++;
+        pending++;
+      }
+      commitBatch();
+      relationsCommitted = end;
+    }
+  }
+
+  /**
+   * Adds to {@link #objects} any object vertices already in the store that
+   * are endpoints of the relations in the specified range, with one batched
+   * lookup. Endpoints written by this load are already there.
+   */
+  private void findStoredObjects(int start, int end) {
+    Set<UUID> missing = new HashSet<>();
+    for (int i = start; i < end; i++) {
+      addIfMissing(relationFromIds.get(i), missing);
+      addIfMissing(relationToIds.get(i), missing);
+    }
+    for (Vertex vertex : store.verticesWithIds(missing)) {
+      if (GraphResourceUtils.isObject(vertex)) {
+        objects.put(store.getId(vertex), vertex);
+      }
+    }
+  }
+
+  private void addIfMissing(UUID id, Set<UUID> missing) {
+    if (!objects.containsKey(id)) {
+      missing.add(id);
+    }
+  }
+
+  private void commitBatch() {
+    if (pending == 0) {
+      return;
+    }
+    if (transactional) {
+      graph.tx().commit();
+    }
+    pending = 0;
+    batchCount++;
+    onBatch.accept(this);
+  }
+
+  private void rollbackBatch() {
+    if (transactional && graph.tx().isOpen()) {
+      graph.tx().rollback();
+    }
+    pending = 0;
+  }
+}
@@ -0,0 +1,71 @@
+package org.cdlib.cursive.store.graph;
+
+import org.apache.tinkerpop.gremlin.process.traversal.P;
+import org.apache.tinkerpop.gremlin.structure.Graph;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.apache.tinkerpop.gremlin.tinkergraph.structure.TinkerGraph;
+
+/**
+ * Creates indexes on vertex properties for a {@link GraphStore}. TinkerPop
+ * has no standard API for this, so each backend needs its own: e.g.
+ * {@code TinkerGraph.createIndex()}, or a composite index built with
+ * JanusGraph's management API.
+ *
+ * If any of its properties can't be indexed, the store doesn't look them up,
+ * but walks its containment tree from the root instead.
+ */
+@FunctionalInterface
+public interface GraphIndexer {
+
+  /**
+   * Creates no indexes.
+   */
+  GraphIndexer NONE = (graph, key, dataType, unique) -> false;
+
+  /**
+   * Indexes {@link TinkerGraph}s with {@link TinkerGraph#createIndex(String, Class)},
+   * and creates no indexes in any other graph.
+   */
+  GraphIndexer DEFAULT = (graph, key, dataType, unique) -> {
+    if (graph instanceof TinkerGraph) {
+      ((TinkerGraph) graph).createIndex(key, Vertex.class);
+      return true;
+    }
+    return false;
+  };
+
+  /**
+   * Indexes the specified vertex property key for equality lookups, if it
+   * isn't already indexed.
+   *
+   * @param dataType The type of the property's values
+   * @param unique   Whether each value identifies at most one vertex
+   * @return true if the property is now indexed, false if this indexer
+   * can't index it in the specified graph
+   */
+  boolean indexVertexProperty(Graph graph, String key, Class<?> dataType, boolean unique);
+
+  /**
+   * Whether the indexes this indexer creates in the specified graph also
+   * serve {@link P#within} lookups, so that a set of IDs can be resolved in
+   * one query rather than one query per ID.
+   *
+   * By default, true for any graph but a {@link TinkerGraph}, whose indexes
+   * only serve equality.
+   */
+  default boolean indexesServeWithin(Graph graph) {
+    return !(graph instanceof TinkerGraph);
+  }
+
+  /**
+   * Whether the indexes this indexer creates in the specified graph with
+   * {@code unique} set reject a second vertex with the same value, so that
+   * writers can rely on them rather than checking first.
+   *
+   * By default, true for any graph but a {@link TinkerGraph}, whose indexes
+   * don't enforce uniqueness.
+   */
+  default boolean enforcesUniqueness(Graph graph) {
+    return !(graph instanceof TinkerGraph);
+  }
+}
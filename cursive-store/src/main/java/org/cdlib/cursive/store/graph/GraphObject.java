@@ -68,7 +68,7 @@ class GraphObject extends AbstractGraphResource implements PcdmObject {
   @Override
   public Traversable<PcdmObject> relatedObjects() {
     Iterator<Edge> edges = vertex().edges(Direction.OUT, Labels.RELATION);
-    return Stream.ofAll(() -> edges).map(Edge::inVertex).map(v -> new GraphObject(store(), v));
+    return Stream.ofAll(() -> edges).map(Edge::inVertex).map(store()::object);
   }
 
   @Override
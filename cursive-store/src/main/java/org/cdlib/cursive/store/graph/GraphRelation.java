@@ -19,12 +19,12 @@ class GraphRelation implements PcdmRelation {
 
   @Override
   public PcdmObject fromObject() {
-    return new GraphObject(store, edge.outVertex());
+    return store.object(edge.outVertex());
   }
 
   @Override
   public PcdmObject toObject() {
-    return new GraphObject(store, edge.inVertex());
+    return store.object(edge.inVertex());
   }
 
   @Override
@@ -14,10 +14,10 @@ class GraphResourceUtils {
   // Class fields
 
   private static final Map<ResourceType, BiFunction<GraphStore, Vertex, AbstractGraphResource>> adapters = HashMap.of(
-    ResourceType.WORKSPACE, GraphWorkspace::new,
-    ResourceType.COLLECTION, GraphCollection::new,
-    ResourceType.OBJECT, GraphObject::new,
-    ResourceType.FILE, GraphFile::new
+    ResourceType.WORKSPACE, GraphStore::workspace,
+    ResourceType.COLLECTION, GraphStore::collection,
+    ResourceType.OBJECT, GraphStore::object,
+    ResourceType.FILE, GraphStore::file
   );
 
   // ------------------------------------------------------
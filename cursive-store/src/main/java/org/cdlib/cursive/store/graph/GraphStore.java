@@ -1,9 +1,14 @@
 package org.cdlib.cursive.store.graph;
 
+import io.vavr.collection.HashSet;
 import io.vavr.collection.Stream;
 import io.vavr.collection.Traversable;
 import io.vavr.control.Option;
+import org.apache.tinkerpop.gremlin.process.traversal.P;
+import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.GraphTraversal;
+import org.apache.tinkerpop.gremlin.structure.Edge;
 import org.apache.tinkerpop.gremlin.structure.Graph;
+import org.apache.tinkerpop.gremlin.structure.T;
 import org.apache.tinkerpop.gremlin.structure.Vertex;
 import org.cdlib.cursive.core.Resource;
 import org.cdlib.cursive.core.ResourceType;
@@ -13,36 +18,93 @@ import org.cdlib.cursive.pcdm.PcdmCollection;
 import org.cdlib.cursive.pcdm.PcdmFile;
 import org.cdlib.cursive.pcdm.PcdmObject;
 import org.cdlib.cursive.pcdm.PcdmRelation;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import org.cdlib.cursive.store.Identifiers;
 
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Consumer;
 
+import static org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.__.out;
 import static org.cdlib.cursive.store.graph.Labels.PARENT_CHILD;
 import static org.cdlib.cursive.store.graph.VertexUtils.childrenOf;
-import static org.cdlib.cursive.store.graph.VertexUtils.descendantsOf;
 
 public class GraphStore implements Store {
 
-  // ------------------------------------------------------
-  // Constants
-
-  private static final Logger log = LoggerFactory.getLogger(GraphStore.class);
-
   // ------------------------------------------------------
   // Fields
 
   private final Graph graph;
   private final Vertex root;
-  private final long rootId;
+  private final UUID storeId;
+  private final ResourceCache cache;
+
+  /** Whether the ID, type and store properties are all indexed */
+  private final boolean indexed;
+
+  /** Whether those indexes also serve {@link P#within} lookups */
+  private final boolean indexesServeWithin;
+
+  /** Whether the ID index rejects duplicate IDs */
+  private final boolean enforcesUniqueIds;
 
   // ------------------------------------------------------
-  // Constructor
+  // Constructors
 
+  /**
+   * Creates a store indexed with {@link GraphIndexer#DEFAULT}.
+   */
   public GraphStore(Graph graph) {
+    this(graph, GraphIndexer.DEFAULT);
+  }
+
+  public GraphStore(Graph graph, GraphIndexer indexer) {
+    this(graph, indexer, ResourceCache.DEFAULT_CAPACITY);
+  }
+
+  /**
+   * Creates a store indexed with {@link GraphIndexer#DEFAULT}.
+   *
+   * @param cacheCapacity The number of resource wrappers to cache; 0 disables caching.
+   */
+  public GraphStore(Graph graph, int cacheCapacity) {
+    this(graph, GraphIndexer.DEFAULT, cacheCapacity);
+  }
+
+  /**
+   * @param indexer       Creates the indexes the store's lookups use. If it
+   *                      can't index them all, the store walks its containment
+   *                      tree instead.
+   * @param cacheCapacity The number of resource wrappers to cache; 0 disables caching.
+   */
+  public GraphStore(Graph graph, GraphIndexer indexer, int cacheCapacity) {
     this.graph = graph;
-    root = graph.addVertex(Labels.STORE);
-    rootId = (long) root.id();
+    cache = new ResourceCache(cacheCapacity);
+    // & rather than &&, so every property is offered to the indexer
+    indexed = indexer.indexVertexProperty(graph, Keys.ID, UUID.class, true)
+      & indexer.indexVertexProperty(graph, Keys.TYPE, String.class, false)
+      & indexer.indexVertexProperty(graph, Keys.STORE, UUID.class, false);
+    indexesServeWithin = indexed && indexer.indexesServeWithin(graph);
+    enforcesUniqueIds = indexed && indexer.enforcesUniqueness(graph);
+    // a UUID rather than the root's vertex ID, whose type depends on the backend
+    storeId = Identifiers.mintIdentifier();
+    root = graph.addVertex(T.label, Labels.STORE, Keys.STORE, storeId);
+  }
+
+  // ------------------------------------------------------
+  // Metrics
+
+  /**
+   * @return The number of times a vertex was wrapped using a cached wrapper.
+   */
+  public long cacheHitCount() {
+    return cache.hitCount();
+  }
+
+  /**
+   * @return The number of times a vertex was wrapped by creating a new wrapper.
+   */
+  public long cacheMissCount() {
+    return cache.missCount();
   }
 
   // ------------------------------------------------------
@@ -50,84 +112,184 @@ public class GraphStore implements Store {
 
   GraphFile createFile(Vertex parent) {
     Vertex v = createChild(parent, ResourceType.FILE);
-    return new GraphFile(this, v);
+    return file(v);
   }
 
   GraphCollection createCollection(Vertex parent) {
     Vertex v = createChild(parent, ResourceType.COLLECTION);
-    return new GraphCollection(this, v);
+    return collection(v);
   }
 
   GraphObject createObject(Vertex parent) {
     Vertex v = createChild(parent, ResourceType.OBJECT);
-    return new GraphObject(this, v);
+    return object(v);
   }
 
   private Vertex createChild(Vertex parent, ResourceType type) {
+    return createChild(parent, type, Identifiers.mintIdentifier());
+  }
+
+  Vertex createChild(Vertex parent, ResourceType type, UUID id) {
     Graph graph = parent.graph();
-    Vertex child = graph.addVertex(Labels.labelFor(type));
+    String label = Labels.labelFor(type);
+    Vertex child = graph.addVertex(
+      T.label, label,
+      Keys.ID, id,
+      Keys.TYPE, label,
+      Keys.STORE, storeId
+    );
     parent.addEdge(PARENT_CHILD, child);
     return child;
   }
 
+  Vertex root() {
+    return root;
+  }
+
+  boolean isIndexed() {
+    return indexed;
+  }
+
+  boolean enforcesUniqueIds() {
+    return enforcesUniqueIds;
+  }
+
+  // ------------------------------------------------------
+  // Bulk loading
+
+  public GraphBulkLoader bulkLoader() {
+    return bulkLoader(GraphBulkLoader.DEFAULT_BATCH_SIZE);
+  }
+
+  /**
+   * @param batchSize The number of writes per transaction
+   */
+  public GraphBulkLoader bulkLoader(int batchSize) {
+    return bulkLoader(batchSize, loader -> {
+    });
+  }
+
+  /**
+   * @param batchSize The number of writes per transaction
+   * @param onBatch   Called after each batch is committed, e.g. to report progress
+   * @throws IllegalStateException if the store isn't indexed
+   */
+  public GraphBulkLoader bulkLoader(int batchSize, Consumer<GraphBulkLoader> onBatch) {
+    return new GraphBulkLoader(this, graph, batchSize, onBatch);
+  }
+
+  // ------------------------------------------------------
+  // Wrapper methods
+
+  // All vertices are wrapped through these, so that hot vertices only have
+  // their labels checked and their wrappers built once.
+
+  GraphWorkspace workspace(Vertex v) {
+    return cache.get(v, ResourceType.WORKSPACE, vertex -> new GraphWorkspace(this, vertex));
+  }
+
+  GraphCollection collection(Vertex v) {
+    return cache.get(v, ResourceType.COLLECTION, vertex -> new GraphCollection(this, vertex));
+  }
+
+  GraphObject object(Vertex v) {
+    return cache.get(v, ResourceType.OBJECT, vertex -> new GraphObject(this, vertex));
+  }
+
+  GraphFile file(Vertex v) {
+    return cache.get(v, ResourceType.FILE, vertex -> new GraphFile(this, vertex));
+  }
+
   // ------------------------------------------------------
   // Finder methods
 
   Stream<PcdmObject> findObjects(Stream<Vertex> vertices) {
-    return vertices.filter(GraphResourceUtils::isObject).map((Vertex v) -> new GraphObject(this, v));
+    return vertices.filter(GraphResourceUtils::isObject).map(this::object);
   }
 
   Option<PcdmObject> findFirstObject(Stream<Vertex> vertices) {
-    return vertices.find(GraphResourceUtils::isObject).map((Vertex v) -> new GraphObject(this, v));
+    return vertices.find(GraphResourceUtils::isObject).map(this::object);
   }
 
   Option<PcdmCollection> findFirstCollection(Stream<Vertex> vertices) {
-    return vertices.find(GraphResourceUtils::isCollection).map((Vertex v) -> new GraphCollection(this, v));
+    return vertices.find(GraphResourceUtils::isCollection).map(this::collection);
   }
 
   Option<Workspace> findFirstWorkspace(Stream<Vertex> vertices) {
-    return vertices.find(GraphResourceUtils::isWorkspace).map((Vertex v) -> new GraphWorkspace(this, v));
+    return vertices.find(GraphResourceUtils::isWorkspace).map(this::workspace);
   }
 
   Stream<PcdmFile> findFiles(Stream<Vertex> vertices) {
-    return vertices.filter(GraphResourceUtils::isFile).map((Vertex v) -> new GraphFile(this, v));
+    return vertices.filter(GraphResourceUtils::isFile).map(this::file);
   }
 
   Traversable<PcdmCollection> memberCollections(Vertex parent) {
     return childrenOf(parent, Labels.labelFor(ResourceType.COLLECTION))
-      .map((Vertex v) -> new GraphCollection(this, v));
+      .map(this::collection);
   }
 
   Traversable<PcdmObject> memberObjects(Vertex parent) {
     return childrenOf(parent, Labels.labelFor(ResourceType.OBJECT))
-      .map((Vertex v) -> new GraphObject(this, v));
+      .map(this::object);
   }
 
-  // ------------------------------------------------------
-  // UUIDs
+  /**
+   * @return All of this store's vertices of the specified type, read lazily.
+   */
+  private Stream<Vertex> verticesOfType(ResourceType type) {
+    GraphTraversal<Vertex, Vertex> traversal = verticesWith(Keys.TYPE, P.eq(Labels.labelFor(type)));
+    return Stream.ofAll(() -> traversal);
+  }
 
   /**
-   * Hack to convert long IDs to fake UUIDs.
-   *
-   * @param vertex The vertex
-   * @return A "UUID" where the least significant bits are the ID of the root vertex, and the most
-   * significant bits are the ID of the specified vertex.
+   * @return A traversal of this store's vertices with the specified property:
+   * an indexed lookup if the store is indexed, otherwise a walk of the store's
+   * containment tree from the root.
    */
-  UUID getId(Vertex vertex) {
-    // TODO: use native UUID IDs if the graph implementation supports them
-    long vertexId = (long) vertex.id();
-    return new UUID(vertexId, rootId);
+  private GraphTraversal<Vertex, Vertex> verticesWith(String key, P<?> predicate) {
+    if (indexed) {
+      // the property being looked up goes first, since TinkerGraph only
+      // uses the index of the first indexed property it's given
+      return graph.traversal().V()
+        .has(key, predicate)
+        .has(Keys.STORE, storeId);
+    }
+    return graph.traversal().V(root)
+      .repeat(out(PARENT_CHILD))
+      .emit()
+      .has(key, predicate);
   }
 
-  private long toVertexId(UUID uuid) {
-    if (invalid(uuid)) {
-      throw new IllegalArgumentException("UUID " + uuid + " does not appear to belong to this graph");
+  /**
+   * @return This store's vertex with the specified ID, if any.
+   */
+  Option<Vertex> vertexWithId(UUID id) {
+    GraphTraversal<Vertex, Vertex> traversal = verticesWith(Keys.ID, P.eq(id));
+    return Stream.ofAll(() -> traversal).headOption();
+  }
+
+  /**
+   * @return This store's vertices with the specified IDs, read lazily. All
+   * the IDs are resolved in one query (an indexed {@link P#within} lookup,
+   * or one walk of the containment tree), unless the store's indexes only
+   * serve equality, as TinkerGraph's do; then each ID is looked up in turn.
+   */
+  Stream<Vertex> verticesWithIds(Set<UUID> ids) {
+    if (ids.isEmpty()) {
+      return Stream.empty();
     }
-    return uuid.getMostSignificantBits();
+    if (indexed && !indexesServeWithin) {
+      return Stream.ofAll(ids).flatMap(this::vertexWithId);
+    }
+    GraphTraversal<Vertex, Vertex> traversal = verticesWith(Keys.ID, P.within(ids));
+    return Stream.ofAll(() -> traversal);
   }
 
-  private boolean invalid(UUID uuid) {
-    return uuid.getLeastSignificantBits() != rootId;
+  // ------------------------------------------------------
+  // UUIDs
+
+  UUID getId(Vertex vertex) {
+    return vertex.value(Keys.ID);
   }
 
   // ------------------------------------------------------
@@ -136,13 +298,13 @@ public class GraphStore implements Store {
   @Override
   public Traversable<Workspace> workspaces() {
     // Workspaces can only exist at the root
-    return childrenOf(root, Labels.labelFor(ResourceType.WORKSPACE)).map(v -> new GraphWorkspace(this, v));
+    return childrenOf(root, Labels.labelFor(ResourceType.WORKSPACE)).map(this::workspace);
   }
 
   @Override
   public GraphWorkspace createWorkspace() {
     Vertex v = createChild(root, ResourceType.WORKSPACE);
-    return new GraphWorkspace(this, v);
+    return workspace(v);
   }
 
   // ------------------------------------------------------
@@ -150,7 +312,7 @@ public class GraphStore implements Store {
 
   @Override
   public Traversable<PcdmCollection> allCollections() {
-    return descendantsOf(root, Labels.labelFor(ResourceType.COLLECTION)).map(v -> new GraphCollection(this, v));
+    return verticesOfType(ResourceType.COLLECTION).map(this::collection);
   }
 
   @Override
@@ -163,7 +325,7 @@ public class GraphStore implements Store {
 
   @Override
   public Traversable<PcdmObject> allObjects() {
-    return descendantsOf(root, Labels.labelFor(ResourceType.OBJECT)).map(v -> new GraphObject(this, v));
+    return verticesOfType(ResourceType.OBJECT).map(this::object);
   }
 
   @Override
@@ -176,7 +338,7 @@ public class GraphStore implements Store {
 
   @Override
   public Traversable<PcdmFile> allFiles() {
-    return findFiles(descendantsOf(root));
+    return verticesOfType(ResourceType.FILE).map(this::file);
   }
 
   // ------------------------------------------------------
@@ -184,8 +346,9 @@ public class GraphStore implements Store {
 
   @Override
   public Traversable<PcdmRelation> allRelations() {
-    // TODO: is there a faster graph-native way to do this?
-    return allObjects().flatMap(PcdmObject::outgoingRelations);
+    GraphTraversal<Vertex, Edge> traversal = verticesWith(Keys.TYPE, P.eq(Labels.labelFor(ResourceType.OBJECT)))
+      .outE(Labels.RELATION);
+    return Stream.ofAll(() -> traversal).map(edge -> new GraphRelation(this, edge));
   }
 
   // ------------------------------------------------------
@@ -193,14 +356,19 @@ public class GraphStore implements Store {
 
   @Override
   public Option<Resource> find(UUID id) {
-    if (invalid(id)) {
-      log.warn("ID {} does not appear to belong to this graph", id);
-      return Option.none();
-    }
-    long vertexId = toVertexId(id);
-    Stream<Vertex> vertices = Stream.ofAll(() -> graph.vertices(vertexId));
-    return vertices.headOption()
-      .flatMap(v -> GraphResourceUtils.toResource(this, v));
+    return vertexWithId(id).flatMap(v -> GraphResourceUtils.toResource(this, v));
+  }
+
+  /**
+   * Finds all the resources with the specified IDs in one query where the
+   * backend allows it, rather than one query per ID.
+   *
+   * @see #verticesWithIds(Set)
+   */
+  @Override
+  public Traversable<Resource> findAll(Iterable<UUID> ids) {
+    Set<UUID> idSet = HashSet.ofAll(ids).toJavaSet();
+    return verticesWithIds(idSet).flatMap(v -> GraphResourceUtils.toResource(this, v));
   }
 
 }
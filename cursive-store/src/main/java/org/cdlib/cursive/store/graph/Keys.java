@@ -0,0 +1,20 @@
+package org.cdlib.cursive.store.graph;
+
+/**
+ * Vertex property keys.
+ */
+class Keys {
+
+  /** The resource's UUID */
+  static final String ID = "cursive_id";
+
+  /** The resource type label, duplicated as a property so it can be indexed */
+  static final String TYPE = "cursive_type";
+
+  /** The UUID of the store, on its root and on every resource, so stores sharing a graph can tell their vertices apart */
+  static final String STORE = "cursive_store";
+
+  private Keys() {
+    // private to prevent instantiation
+  }
+}
@@ -0,0 +1,97 @@
+package org.cdlib.cursive.store.graph;
+
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.cdlib.cursive.core.ResourceType;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Bounded cache of resource wrappers, keyed by vertex ID, so that navigating
+ * to the same vertex again returns the same wrapper rather than checking its
+ * label and building a new one.
+ *
+ * The cache is a fixed-size, direct-mapped table: each vertex ID hashes to
+ * exactly one slot, and a miss simply overwrites whatever was there. There's
+ * no eviction bookkeeping and no locking, so a lookup costs one array read
+ * and an ID comparison. Two vertices that collide on a slot evict each other;
+ * that only costs an extra wrapper, since wrappers for the same vertex are
+ * equal to each other anyway.
+ */
+class ResourceCache {
+
+  // ------------------------------------------------------
+  // Constants
+
+  static final int DEFAULT_CAPACITY = 1 << 14;
+
+  // ------------------------------------------------------
+  // Fields
+
+  private final AtomicReferenceArray<AbstractGraphResource> slots;
+  private final int mask;
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+
+  // ------------------------------------------------------
+  // Constructor
+
+  /**
+   * @param capacity The maximum number of wrappers to keep, rounded up to a
+   *                 power of two; 0 disables caching.
+   */
+  ResourceCache(int capacity) {
+    if (capacity < 0) {
+      throw new IllegalArgumentException("Cache capacity must be >= 0: " + capacity);
+    }
+    int size = capacity <= 1 ? capacity : Integer.highestOneBit(capacity - 1) << 1;
+    slots = new AtomicReferenceArray<>(size);
+    mask = size - 1;
+  }
+
+  // ------------------------------------------------------
+  // Package-local methods
+
+  /**
+   * @return The cached wrapper for the vertex, if there is one and it has the
+   * specified type; otherwise a new wrapper from {@code create}, which is
+   * cached in its place.
+   */
+  @SuppressWarnings("unchecked")
+  <R extends AbstractGraphResource> R get(Vertex vertex, ResourceType type, Function<Vertex, R> create) {
+    if (mask < 0) {
+      misses.increment();
+      return create.apply(vertex);
+    }
+    Object vertexId = vertex.id();
+    int slot = slotFor(vertexId);
+    AbstractGraphResource cached = slots.get(slot);
+    if (cached != null && cached.type() == type && cached.vertex().id().equals(vertexId)) {
+      hits.increment();
+      // each resource type has exactly one wrapper class
+      return (R) cached;
+    }
+    misses.increment();
+    R resource = create.apply(vertex);
+    slots.set(slot, resource);
+    return resource;
+  }
+
+  long hitCount() {
+    return hits.sum();
+  }
+
+  long missCount() {
+    return misses.sum();
+  }
+
+  // ------------------------------------------------------
+  // Private methods
+
+  private int slotFor(Object vertexId) {
+    int h = vertexId.hashCode() * 0x9E3779B9;
+    return (h ^ (h >>> 16)) & mask;
+  }
+}
@@ -0,0 +1,126 @@
+package org.cdlib.cursive.store.graph;
+
+import io.vavr.collection.HashMap;
+import io.vavr.collection.HashSet;
+import io.vavr.collection.Map;
+import io.vavr.collection.Set;
+import io.vavr.collection.Vector;
+import org.cdlib.cursive.core.ResourceType;
+
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Immutable description of a resource, its members, and its outgoing
+ * relations, for loading with a {@link GraphBulkLoader}. Resources keep the
+ * IDs given here, so relations can refer to resources in other trees, or
+ * already in the store.
+ */
+public final class ResourceTree {
+
+  // ------------------------------------------------------
+  // Constants
+
+  private static final Map<ResourceType, Set<ResourceType>> MEMBER_TYPES = HashMap.of(
+    ResourceType.WORKSPACE, HashSet.of(ResourceType.COLLECTION),
+    ResourceType.COLLECTION, HashSet.of(ResourceType.COLLECTION, ResourceType.OBJECT),
+    ResourceType.OBJECT, HashSet.of(ResourceType.OBJECT, ResourceType.FILE),
+    ResourceType.FILE, HashSet.empty()
+  );
+
+  // ------------------------------------------------------
+  // Fields
+
+  private final ResourceType type;
+  private final UUID id;
+  private final Vector<ResourceTree> members;
+  private final Vector<UUID> relatedIds;
+
+  // ------------------------------------------------------
+  // Factory methods
+
+  public static ResourceTree workspace(UUID id) {
+    return new ResourceTree(ResourceType.WORKSPACE, id, Vector.empty(), Vector.empty());
+  }
+
+  public static ResourceTree collection(UUID id) {
+    return new ResourceTree(ResourceType.COLLECTION, id, Vector.empty(), Vector.empty());
+  }
+
+  public static ResourceTree object(UUID id) {
+    return new ResourceTree(ResourceType.OBJECT, id, Vector.empty(), Vector.empty());
+  }
+
+  public static ResourceTree file(UUID id) {
+    return new ResourceTree(ResourceType.FILE, id, Vector.empty(), Vector.empty());
+  }
+
+  // ------------------------------------------------------
+  // Constructor
+
+  private ResourceTree(ResourceType type, UUID id, Vector<ResourceTree> members, Vector<UUID> relatedIds) {
+    this.type = Objects.requireNonNull(type);
+    this.id = Objects.requireNonNull(id);
+    this.members = members;
+    this.relatedIds = relatedIds;
+  }
+
+  // ------------------------------------------------------
+  // Builder methods
+
+  /**
+   * @return A copy of this tree with the specified members added.
+   * @throws IllegalArgumentException if this type of resource can't have
+   *                                  members of the specified types
+   */
+  public ResourceTree withMembers(ResourceTree... members) {
+    Vector<ResourceTree> newMembers = Vector.of(members);
+    for (ResourceTree member : newMembers) {
+      if (!MEMBER_TYPES.get(type).get().contains(member.type)) {
+        throw new IllegalArgumentException("A " + type + " can't have a " + member.type + " member: " + member.id);
+      }
+    }
+    return new ResourceTree(type, id, this.members.appendAll(newMembers), relatedIds);
+  }
+
+  /**
+   * @return A copy of this tree with a relation to the specified object.
+   * @throws IllegalStateException if this tree isn't an object
+   */
+  public ResourceTree withRelationTo(UUID toId) {
+    if (type != ResourceType.OBJECT) {
+      throw new IllegalStateException("Only objects can have relations; " + id + " is a " + type);
+    }
+    return new ResourceTree(type, id, members, relatedIds.append(Objects.requireNonNull(toId)));
+  }
+
+  // ------------------------------------------------------
+  // Accessors
+
+  public ResourceType type() {
+    return type;
+  }
+
+  public UUID id() {
+    return id;
+  }
+
+  public Vector<ResourceTree> members() {
+    return members;
+  }
+
+  /**
+   * @return The IDs of the objects this object is related to.
+   */
+  public Vector<UUID> relatedIds() {
+    return relatedIds;
+  }
+
+  // ------------------------------------------------------
+  // Object
+
+  @Override
+  public String toString() {
+    return getClass().getSimpleName() + "<" + type + ", " + id + ">";
+  }
+}
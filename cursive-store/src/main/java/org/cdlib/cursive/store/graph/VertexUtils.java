@@ -5,9 +5,6 @@ import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.GraphTraversal;
 import org.apache.tinkerpop.gremlin.structure.Direction;
 import org.apache.tinkerpop.gremlin.structure.Vertex;
 
-import java.util.stream.StreamSupport;
-
-import static org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.__.out;
 import static org.cdlib.cursive.store.graph.Labels.PARENT_CHILD;
 
 class VertexUtils {
@@ -27,23 +24,6 @@ class VertexUtils {
     return Stream.ofAll(() -> traversal);
   }
 
-  static Stream<Vertex> descendantsOf(Vertex parent) {
-    GraphTraversal<Vertex, Vertex> traversal = parent.graph().traversal().V(parent)
-      .repeat(out(PARENT_CHILD))
-      .emit();
-    return Stream.ofAll(() -> traversal);
-  }
-
-  // TODO: benchmark this vs. adding type nodes & relating all vertices of type to those nodes
-  static Stream<Vertex> descendantsOf(Vertex parent, String label) {
-    GraphTraversal<Vertex, Vertex> traversal = parent.graph().traversal().V(parent)
-      .repeat(out(PARENT_CHILD))
-      .emit()
-      .hasLabel(label);
-    StreamSupport.stream(((Iterable<Vertex>) () -> traversal).spliterator(), false);
-    return Stream.ofAll(() -> traversal);
-  }
-
   // ------------------------------------------------------
   // Constructor
 
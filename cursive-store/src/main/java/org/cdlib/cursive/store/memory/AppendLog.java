@@ -0,0 +1,127 @@
+package org.cdlib.cursive.store.memory;
+
+import io.vavr.collection.Vector;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Append-only list of resources or relations, whose entries become visible
+ * when the {@link MemoryStore} write that appended them is
+ * {@linkplain Publishable#publish() published}.
+ *
+ * Appends never copy, retry or wait: a writer reserves an index with one
+ * {@code getAndIncrement()} and stores its value into a chunk of an array.
+ * Chunks double in size (16, 32, 64...) and are allocated on first use, so
+ * nothing is ever moved. Writers appending to different logs share nothing;
+ * writers appending to the same log only share the reservation counter.
+ *
+ * Readers get an immutable {@link Vector} snapshot of the published entries,
+ * in index order. A reserved index may not be filled yet, or its write may
+ * still be pending; such entries are skipped. The snapshot up to the first
+ * of them is kept and extended by later reads, so each read only rescans the
+ * writes still in flight.
+ */
+class AppendLog<T extends Publishable> {
+
+  // --------------------
+  // Constants
+
+  private static final int FIRST_CHUNK_BITS = 4;
+  private static final int FIRST_CHUNK_SIZE = 1 << FIRST_CHUNK_BITS;
+  private static final int MAX_CHUNKS = Integer.SIZE - 1 - FIRST_CHUNK_BITS;
+  private static final int MAX_SIZE = Integer.MAX_VALUE - FIRST_CHUNK_SIZE + 1;
+
+  // --------------------
+  // Fields
+
+  private final AtomicReferenceArray<AtomicReferenceArray<T>> chunks = new AtomicReferenceArray<>(MAX_CHUNKS);
+  private final AtomicInteger reserved = new AtomicInteger();
+
+  /** The published entries below the first index whose write hasn't settled */
+  private volatile Settled<T> settled = new Settled<>(Vector.empty(), 0);
+
+  // --------------------
+  // Methods
+
+  /**
+   * Appends a pending value, to become visible when it's published.
+   */
+  void append(T value) {
+    int index = reserved.getAndIncrement();
+    if (index < 0 || index >= MAX_SIZE) {
+      throw new IllegalStateException("AppendLog full");
+    }
+    chunkFor(index).set(offsetOf(index), value);
+  }
+
+  /**
+   * @return The entries published so far.
+   */
+  Vector<T> snapshot() {
+    Settled<T> base = settled;
+    int end = reserved.get();
+    if (end < 0 || end > MAX_SIZE) {
+      // appends past the end have failed
+      end = MAX_SIZE;
+    }
+
+    Vector<T> entries = base.entries;
+    Settled<T> next = base;
+    for (int i = base.end; i < end; i++) {
+      T value = get(i);
+      if (value != null && value.isPublished()) {
+        entries = entries.append(value);
+      }
+      if (next.end == i && value != null && value.isSettled()) {
+        next = new Settled<>(entries, i + 1);
+      }
+    }
+    if (next.end > base.end && settled == base) {
+      // a racing reader may have settled further; keeping either is safe
+      settled = next;
+    }
+    return entries;
+  }
+
+  // --------------------
+  // Private methods
+
+  private T get(int index) {
+    AtomicReferenceArray<T> chunk = chunks.get(chunkIndexOf(index));
+    return chunk == null ? null : chunk.get(offsetOf(index));
+  }
+
+  private AtomicReferenceArray<T> chunkFor(int index) {
+    int chunkIndex = chunkIndexOf(index);
+    AtomicReferenceArray<T> chunk = chunks.get(chunkIndex);
+    if (chunk == null) {
+      AtomicReferenceArray<T> allocated = new AtomicReferenceArray<>(FIRST_CHUNK_SIZE << chunkIndex);
+      chunk = chunks.compareAndSet(chunkIndex, null, allocated) ? allocated : chunks.get(chunkIndex);
+    }
+    return chunk;
+  }
+
+  private static int chunkIndexOf(int index) {
+    int pos = index + FIRST_CHUNK_SIZE;
+    return (Integer.SIZE - 1 - Integer.numberOfLeadingZeros(pos)) - FIRST_CHUNK_BITS;
+  }
+
+  private static int offsetOf(int index) {
+    int pos = index + FIRST_CHUNK_SIZE;
+    return pos - Integer.highestOneBit(pos);
+  }
+
+  // --------------------
+  // Helper classes
+
+  private static final class Settled<T> {
+    final Vector<T> entries;
+    final int end;
+
+    Settled(Vector<T> entries, int end) {
+      this.entries = entries;
+      this.end = end;
+    }
+  }
+}
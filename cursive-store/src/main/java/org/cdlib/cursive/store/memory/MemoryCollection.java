@@ -1,6 +1,5 @@
 package org.cdlib.cursive.store.memory;
 
-import io.vavr.Lazy;
 import io.vavr.collection.Traversable;
 import io.vavr.collection.Vector;
 import io.vavr.control.Option;
@@ -10,7 +9,6 @@ import org.cdlib.cursive.pcdm.PcdmObject;
 
 import java.util.Objects;
 import java.util.UUID;
-import java.util.concurrent.atomic.AtomicReference;
 
 class MemoryCollection extends ResourceImpl implements PcdmCollection {
 
@@ -22,8 +20,8 @@ class MemoryCollection extends ResourceImpl implements PcdmCollection {
   private Option<Workspace> parentWorkspace;
   private Option<PcdmCollection> parentCollection;
 
-  private final AtomicReference<Vector<PcdmCollection>> memberCollections = new AtomicReference<>(Vector.empty());
-  private final AtomicReference<Vector<PcdmObject>> memberObjects = new AtomicReference<>(Vector.empty());
+  private final AppendLog<MemoryCollection> memberCollections = new AppendLog<>();
+  private final AppendLog<MemoryObject> memberObjects = new AppendLog<>();
 
   // --------------------
   // Constructors
@@ -70,14 +68,16 @@ class MemoryCollection extends ResourceImpl implements PcdmCollection {
 
   @Override
   public Traversable<PcdmObject> memberObjects() {
-    return memberObjects.get();
+    return Vector.narrow(memberObjects.snapshot());
   }
 
   @Override
   public PcdmObject createObject() {
-    Lazy<PcdmObject> newObject = Lazy.of(() -> store.createObject(this));
-    memberObjects.updateAndGet(v -> v.append(newObject.get()));
-    return newObject.get();
+    return store.createObject(this);
+  }
+
+  void addMember(MemoryObject object) {
+    memberObjects.append(object);
   }
 
   // --------------------
@@ -85,13 +85,15 @@ class MemoryCollection extends ResourceImpl implements PcdmCollection {
 
   @Override
   public Traversable<PcdmCollection> memberCollections() {
-    return memberCollections.get();
+    return Vector.narrow(memberCollections.snapshot());
   }
 
   @Override
   public PcdmCollection createCollection() {
-    Lazy<PcdmCollection> newCollection = Lazy.of(() -> store.createCollection(this));
-    memberCollections.updateAndGet(v -> v.append(newCollection.get()));
-    return newCollection.get();
+    return store.createCollection(this);
+  }
+
+  void addMember(MemoryCollection collection) {
+    memberCollections.append(collection);
   }
 }
@@ -1,6 +1,5 @@
 package org.cdlib.cursive.store.memory;
 
-import io.vavr.Lazy;
 import io.vavr.collection.Traversable;
 import io.vavr.collection.Vector;
 import io.vavr.control.Option;
@@ -11,7 +10,6 @@ import org.cdlib.cursive.pcdm.PcdmRelation;
 
 import java.util.Objects;
 import java.util.UUID;
-import java.util.concurrent.atomic.AtomicReference;
 
 class MemoryObject extends ResourceImpl implements PcdmObject {
 
@@ -23,11 +21,10 @@ class MemoryObject extends ResourceImpl implements PcdmObject {
   private final Option<PcdmCollection> parentCollection;
   private final Option<PcdmObject> parentObject;
 
-  private final AtomicReference<Vector<PcdmObject>> memberObjects = new AtomicReference<>(Vector.empty());
-  private final AtomicReference<Vector<PcdmFile>> memberFiles = new AtomicReference<>(Vector.empty());
-
-  private final AtomicReference<Vector<PcdmRelation>> incomingRelations = new AtomicReference<>(Vector.empty());
-  private final AtomicReference<Vector<PcdmRelation>> outgoingRelations = new AtomicReference<>(Vector.empty());
+  private final AppendLog<MemoryFile> memberFiles = new AppendLog<>();
+  private final AppendLog<MemoryObject> memberObjects = new AppendLog<>();
+  private final AppendLog<MemoryRelation> outgoingRelations = new AppendLog<>();
+  private final AppendLog<MemoryRelation> incomingRelations = new AppendLog<>();
 
   // --------------------
   // Constructors
@@ -74,14 +71,16 @@ class MemoryObject extends ResourceImpl implements PcdmObject {
 
   @Override
   public Traversable<PcdmFile> memberFiles() {
-    return memberFiles.get();
+    return Vector.narrow(memberFiles.snapshot());
   }
 
   @Override
   public PcdmFile createFile() {
-    Lazy<PcdmFile> newFile = Lazy.of(() -> store.createFile(this));
-    memberFiles.updateAndGet(v -> v.append(newFile.get()));
-    return newFile.get();
+    return store.createFile(this);
+  }
+
+  void addMember(MemoryFile file) {
+    memberFiles.append(file);
   }
 
   // --------------------
@@ -89,14 +88,16 @@ class MemoryObject extends ResourceImpl implements PcdmObject {
 
   @Override
   public Traversable<PcdmObject> memberObjects() {
-    return memberObjects.get();
+    return Vector.narrow(memberObjects.snapshot());
   }
 
   @Override
   public PcdmObject createObject() {
-    Lazy<PcdmObject> newObject = Lazy.of(() -> store.createObject(this));
-    memberObjects.updateAndGet(v -> v.append(newObject.get()));
-    return newObject.get();
+    return store.createObject(this);
+  }
+
+  void addMember(MemoryObject object) {
+    memberObjects.append(object);
   }
 
   // --------------------
@@ -104,17 +105,17 @@ class MemoryObject extends ResourceImpl implements PcdmObject {
 
   @Override
   public Traversable<PcdmObject> relatedObjects() {
-    return outgoingRelations.get().map(PcdmRelation::toObject);
+    return outgoingRelations.snapshot().map(PcdmRelation::toObject);
   }
 
   @Override
   public Traversable<PcdmRelation> outgoingRelations() {
-    return outgoingRelations.get();
+    return Vector.narrow(outgoingRelations.snapshot());
   }
 
   @Override
   public Traversable<PcdmRelation> incomingRelations() {
-    return incomingRelations.get();
+    return Vector.narrow(incomingRelations.snapshot());
   }
 
   @Override
@@ -127,19 +128,15 @@ class MemoryObject extends ResourceImpl implements PcdmObject {
       throw new IllegalArgumentException(String.format("Related object <%s> must be from the same store as <%s>", toObject, this));
     }
 
-    Lazy<MemoryRelation> newRelation = Lazy.of(() -> new MemoryRelation(this, toObj));
-    outgoingRelations.updateAndGet(v -> v.append(newRelation.get()));
-    MemoryRelation relation = newRelation.get();
-    toObj.addIncomingRelation(relation);
-    store.recordRelation(relation);
-    return relation;
+    return store.relate(this, toObj);
   }
 
-  private void addIncomingRelation(MemoryRelation relation) {
-    if (!equals(relation.toObject())) {
-      throw new IllegalArgumentException(String.format("Incoming relation points to wrong object: expected %s, was %s", this, relation.toObject()));
-    }
-    incomingRelations.updateAndGet(v -> v.append(relation));
+  void addOutgoing(MemoryRelation relation) {
+    outgoingRelations.append(relation);
+  }
+
+  void addIncoming(MemoryRelation relation) {
+    incomingRelations.append(relation);
   }
 
 }
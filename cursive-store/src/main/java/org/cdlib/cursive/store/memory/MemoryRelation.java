@@ -3,7 +3,7 @@ package org.cdlib.cursive.store.memory;
 import org.cdlib.cursive.pcdm.PcdmObject;
 import org.cdlib.cursive.pcdm.PcdmRelation;
 
-class MemoryRelation implements PcdmRelation {
+class MemoryRelation extends Publishable implements PcdmRelation {
 
   // --------------------
   // Fields
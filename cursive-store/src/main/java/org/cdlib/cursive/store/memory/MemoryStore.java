@@ -1,8 +1,5 @@
 package org.cdlib.cursive.store.memory;
 
-import io.vavr.Lazy;
-import io.vavr.collection.HashMap;
-import io.vavr.collection.Map;
 import io.vavr.collection.Traversable;
 import io.vavr.collection.Vector;
 import io.vavr.control.Option;
@@ -14,41 +11,88 @@ import org.cdlib.cursive.pcdm.PcdmFile;
 import org.cdlib.cursive.pcdm.PcdmObject;
 import org.cdlib.cursive.pcdm.PcdmRelation;
 import org.cdlib.cursive.store.Identifiers;
+import org.cdlib.cursive.util.ids.IdGenerator;
 
+import java.util.Objects;
 import java.util.UUID;
-import java.util.concurrent.atomic.AtomicReference;
-
-// TODO: compare performance with mutable fastutil collections
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory {@link Store}.
+ *
+ * The store-wide registries, and each resource's members and relations, are
+ * {@link AppendLog}s, and the identifier index is a {@link ConcurrentHashMap}.
+ * A write (a create or a relate) registers its resource or relation in the
+ * index, appends it to every log it belongs in, and then
+ * {@linkplain Publishable#publish() publishes} it with one volatile write.
+ * Readers skip anything unpublished, so a write is either wholly visible (in
+ * the registries, in its parent's members, and to {@link #find(UUID)}) or not
+ * visible at all, and a write that fails partway through is abandoned.
+ *
+ * No writer ever retries or waits for another. Appends to a log share only
+ * its reservation counter, and the index locks only the bin being updated,
+ * so writers under different parents touch no common state except the
+ * store-wide registries' counters.
+ */
 public class MemoryStore implements Store {
 
   // ------------------------------------------------------------
-  // Data
+  // Fields
+
+  private final IdGenerator ids;
+
+  private final AppendLog<MemoryWorkspace> workspaces = new AppendLog<>();
+  private final AppendLog<MemoryCollection> collections = new AppendLog<>();
+  private final AppendLog<MemoryObject> objects = new AppendLog<>();
+  private final AppendLog<MemoryFile> files = new AppendLog<>();
+  private final AppendLog<MemoryRelation> relations = new AppendLog<>();
 
-  private final AtomicReference<Vector<Workspace>> workspaces = new AtomicReference<>(Vector.empty());
-  private final AtomicReference<Vector<PcdmCollection>> collections = new AtomicReference<>(Vector.empty());
-  private final AtomicReference<Vector<PcdmObject>> objects = new AtomicReference<>(Vector.empty());
-  private final AtomicReference<Vector<PcdmFile>> files = new AtomicReference<>(Vector.empty());
-  private final AtomicReference<Vector<PcdmRelation>> relations = new AtomicReference<>(Vector.empty());
+  private final ConcurrentHashMap<UUID, ResourceImpl> identifiers = new ConcurrentHashMap<>();
 
-  private final AtomicReference<Map<UUID, Resource>> identifiers = new AtomicReference<>(HashMap.empty());
+  private final LongAdder commits = new LongAdder();
+  private final LongAdder abandoned = new LongAdder();
 
   // ------------------------------------------------------------
-  // Store
+  // Constructors
 
-  private UUID mintIdentifier() {
-    return Identifiers.mintIdentifier();
+  public MemoryStore() {
+    this(Identifiers::mintIdentifier);
+  }
+
+  MemoryStore(IdGenerator ids) {
+    this.ids = Objects.requireNonNull(ids);
+  }
+
+  // ------------------------------------------------------------
+  // Metrics
+
+  /**
+   * @return The number of writes published.
+   */
+  public long commitCount() {
+    return commits.sum();
+  }
+
+  /**
+   * @return The number of writes that failed partway through, and were
+   * never published.
+   */
+  public long abandonedCount() {
+    return abandoned.sum();
   }
 
-  private <T extends Resource> void register(AtomicReference<Vector<T>> registry, Lazy<T> lazyValue) {
-    registry.updateAndGet(v -> v.append(lazyValue.get()));
-    T value = lazyValue.get();
-    UUID identifier = value.id();
-    identifiers.updateAndGet(m -> m.put(identifier, value));
+  // ------------------------------------------------------------
+  // Store
+
+  private UUID mintIdentifier() {
+    return ids.generate();
   }
 
   @Override
   public Option<Resource> find(UUID id) {
-    return identifiers.get().get(id);
+    ResourceImpl resource = identifiers.get(id);
+    return resource != null && resource.isPublished() ? Option.some(resource) : Option.none();
   }
 
   // --------------------
@@ -56,14 +100,14 @@ public class MemoryStore implements Store {
 
   @Override
   public Traversable<Workspace> workspaces() {
-    return workspaces.get();
+    return Vector.narrow(workspaces.snapshot());
   }
 
   @Override
   public Workspace createWorkspace() {
-    Lazy<Workspace> newWorkspace = Lazy.of(() -> new MemoryWorkspace(this, mintIdentifier()));
-    register(workspaces, newWorkspace);
-    return newWorkspace.get();
+    MemoryWorkspace workspace = new MemoryWorkspace(this, mintIdentifier());
+    create(workspace, () -> workspaces.append(workspace));
+    return workspace;
   }
 
   // --------------------
@@ -71,26 +115,32 @@ public class MemoryStore implements Store {
 
   @Override
   public Traversable<PcdmCollection> allCollections() {
-    return collections.get();
+    return Vector.narrow(collections.snapshot());
   }
 
   @Override
   public PcdmCollection createCollection() {
-    Lazy<PcdmCollection> newCollection = Lazy.of(() -> new MemoryCollection(this, mintIdentifier()));
-    register(collections, newCollection);
-    return newCollection.get();
+    MemoryCollection collection = new MemoryCollection(this, mintIdentifier());
+    create(collection, () -> collections.append(collection));
+    return collection;
   }
 
   PcdmCollection createCollection(MemoryWorkspace parent) {
-    Lazy<PcdmCollection> newCollection = Lazy.of(() -> new MemoryCollection(this, mintIdentifier(), parent));
-    register(collections, newCollection);
-    return newCollection.get();
+    MemoryCollection collection = new MemoryCollection(this, mintIdentifier(), parent);
+    create(collection, () -> {
+      collections.append(collection);
+      parent.addMember(collection);
+    });
+    return collection;
   }
 
   PcdmCollection createCollection(MemoryCollection parent) {
-    Lazy<PcdmCollection> newCollection = Lazy.of(() -> new MemoryCollection(this, mintIdentifier(), parent));
-    register(collections, newCollection);
-    return newCollection.get();
+    MemoryCollection collection = new MemoryCollection(this, mintIdentifier(), parent);
+    create(collection, () -> {
+      collections.append(collection);
+      parent.addMember(collection);
+    });
+    return collection;
   }
 
   // --------------------
@@ -98,26 +148,32 @@ public class MemoryStore implements Store {
 
   @Override
   public Traversable<PcdmObject> allObjects() {
-    return objects.get();
+    return Vector.narrow(objects.snapshot());
   }
 
   @Override
   public PcdmObject createObject() {
-    Lazy<PcdmObject> newObject = Lazy.of(() -> new MemoryObject(this, mintIdentifier()));
-    register(objects, newObject);
-    return newObject.get();
+    MemoryObject object = new MemoryObject(this, mintIdentifier());
+    create(object, () -> objects.append(object));
+    return object;
   }
 
   PcdmObject createObject(MemoryObject parent) {
-    Lazy<PcdmObject> newObject = Lazy.of(() -> new MemoryObject(this, mintIdentifier(), parent));
-    register(objects, newObject);
-    return newObject.get();
+    MemoryObject object = new MemoryObject(this, mintIdentifier(), parent);
+    create(object, () -> {
+      objects.append(object);
+      parent.addMember(object);
+    });
+    return object;
   }
 
   PcdmObject createObject(MemoryCollection parent) {
-    Lazy<PcdmObject> newObject = Lazy.of(() -> new MemoryObject(this, mintIdentifier(), parent));
-    register(objects, newObject);
-    return newObject.get();
+    MemoryObject object = new MemoryObject(this, mintIdentifier(), parent);
+    create(object, () -> {
+      objects.append(object);
+      parent.addMember(object);
+    });
+    return object;
   }
 
   // --------------------
@@ -125,14 +181,17 @@ public class MemoryStore implements Store {
 
   @Override
   public Traversable<PcdmFile> allFiles() {
-    return files.get();
+    return Vector.narrow(files.snapshot());
   }
 
   // TODO: create files in objects, replace this with recordFile() or similar
   PcdmFile createFile(MemoryObject parent) {
-    Lazy<PcdmFile> newFile = Lazy.of(() -> new MemoryFile(parent, mintIdentifier()));
-    register(files, newFile);
-    return newFile.get();
+    MemoryFile file = new MemoryFile(parent, mintIdentifier());
+    create(file, () -> {
+      files.append(file);
+      parent.addMember(file);
+    });
+    return file;
   }
 
   // --------------------
@@ -140,11 +199,57 @@ public class MemoryStore implements Store {
 
   @Override
   public Traversable<PcdmRelation> allRelations() {
-    return relations.get();
+    return Vector.narrow(relations.snapshot());
   }
 
-  void recordRelation(MemoryRelation relation) {
-    relations.updateAndGet(v -> v.append(relation));
+  PcdmRelation relate(MemoryObject fromObject, MemoryObject toObject) {
+    MemoryRelation relation = new MemoryRelation(fromObject, toObject);
+    commit(relation, () -> {
+      relations.append(relation);
+      fromObject.addOutgoing(relation);
+      toObject.addIncoming(relation);
+    });
+    return relation;
+  }
+
+  // --------------------
+  // Writes
+
+  /**
+   * Registers a new resource in the identifier index, then appends it to the
+   * logs it belongs in and publishes it.
+   *
+   * @throws IllegalStateException if the resource's identifier is already in use
+   */
+  private void create(ResourceImpl resource, Runnable append) {
+    UUID id = resource.id();
+    ResourceImpl existing = identifiers.putIfAbsent(id, resource);
+    if (existing != null) {
+      throw new IllegalStateException(String.format("Can't register %s; identifier %s already in use by %s", resource, id, existing));
+    }
+    try {
+      commit(resource, append);
+    } catch (Throwable e) {
+      identifiers.remove(id, resource);
+      throw e;
+    }
+  }
+
+  /**
+   * Appends a resource or relation to the logs it belongs in, and publishes
+   * it; or, if that fails, abandons it, so that any entries already
+   * appended stay invisible.
+   */
+  private void commit(Publishable value, Runnable append) {
+    try {
+      append.run();
+    } catch (Throwable e) {
+      value.abandon();
+      abandoned.increment();
+      throw e;
+    }
+    value.publish();
+    commits.increment();
   }
 
 }
@@ -1,6 +1,5 @@
 package org.cdlib.cursive.store.memory;
 
-import io.vavr.Lazy;
 import io.vavr.collection.Traversable;
 import io.vavr.collection.Vector;
 import org.cdlib.cursive.core.Workspace;
@@ -8,7 +7,6 @@ import org.cdlib.cursive.pcdm.PcdmCollection;
 
 import java.util.Objects;
 import java.util.UUID;
-import java.util.concurrent.atomic.AtomicReference;
 
 class MemoryWorkspace extends ResourceImpl implements Workspace {
 
@@ -16,8 +14,8 @@ class MemoryWorkspace extends ResourceImpl implements Workspace {
   // Fields
 
   private final MemoryStore store;
-  private final AtomicReference<Vector<PcdmCollection>> memberCollections = new AtomicReference<>(Vector.empty());
 
+  private final AppendLog<MemoryCollection> memberCollections = new AppendLog<>();
 
   // --------------------
   // Constructors
@@ -33,13 +31,15 @@ class MemoryWorkspace extends ResourceImpl implements Workspace {
 
   @Override
   public Traversable<PcdmCollection> memberCollections() {
-    return memberCollections.get();
+    return Vector.narrow(memberCollections.snapshot());
   }
 
   @Override
   public PcdmCollection createCollection() {
-    Lazy<PcdmCollection> newCollection = Lazy.of(() -> store.createCollection(this));
-    memberCollections.updateAndGet(v -> v.append(newCollection.get()));
-    return newCollection.get();
+    return store.createCollection(this);
+  }
+
+  void addMember(MemoryCollection collection) {
+    memberCollections.append(collection);
   }
 }
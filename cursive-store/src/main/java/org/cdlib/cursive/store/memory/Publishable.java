@@ -0,0 +1,46 @@
+package org.cdlib.cursive.store.memory;
+
+/**
+ * Something a {@link MemoryStore} write adds to one or more
+ * {@link AppendLog}s: a resource or a relation. It starts out pending, and
+ * the write ends by either publishing it or abandoning it, with a single
+ * volatile write. Readers of every log (and of the identifier index) skip
+ * anything not yet published, so the write becomes visible everywhere at
+ * once, or, if it fails partway through, nowhere.
+ */
+abstract class Publishable {
+
+  // --------------------
+  // Constants
+
+  private static final int PENDING = 0;
+  private static final int PUBLISHED = 1;
+  private static final int ABANDONED = 2;
+
+  // --------------------
+  // Fields
+
+  private volatile int state = PENDING;
+
+  // --------------------
+  // Methods
+
+  boolean isPublished() {
+    return state == PUBLISHED;
+  }
+
+  /**
+   * @return true if the write has finished, whether or not it succeeded.
+   */
+  boolean isSettled() {
+    return state != PENDING;
+  }
+
+  void publish() {
+    state = PUBLISHED;
+  }
+
+  void abandon() {
+    state = ABANDONED;
+  }
+}
@@ -7,7 +7,7 @@ import org.cdlib.cursive.core.Resource;
 import java.util.Objects;
 import java.util.UUID;
 
-abstract class ResourceImpl implements Resource {
+abstract class ResourceImpl extends Publishable implements Resource {
   private final UUID identifier;
   private final Lazy<String> stringVal = Lazy.of(() -> getClass().getName() + "<" + id() + ">");
 
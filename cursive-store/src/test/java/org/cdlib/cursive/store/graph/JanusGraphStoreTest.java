@@ -1,8 +1,12 @@
 package org.cdlib.cursive.store.graph;
 
+import org.apache.tinkerpop.gremlin.structure.Graph;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
 import org.cdlib.cursive.store.AbstractStoreTest;
 import org.janusgraph.core.JanusGraph;
 import org.janusgraph.core.JanusGraphFactory;
+import org.janusgraph.core.PropertyKey;
+import org.janusgraph.core.schema.JanusGraphManagement;
 import org.junit.jupiter.api.Disabled;
 
 @Disabled("JanusGraphStoreTest disabled pending fix for https://github.com/JanusGraph/janusgraph/issues/867")
@@ -11,6 +15,25 @@ public class JanusGraphStoreTest extends AbstractStoreTest<GraphStore> {
   @Override
   protected GraphStore newStore() {
     JanusGraph graph = JanusGraphFactory.build().set("storage.backend", "inmemory").open();
-    return new GraphStore(graph);
+    return new GraphStore(graph, JanusGraphStoreTest::compositeIndex);
+  }
+
+  private static boolean compositeIndex(Graph graph, String key, Class<?> dataType, boolean unique) {
+    JanusGraphManagement mgmt = ((JanusGraph) graph).openManagement();
+    String indexName = "by_" + key;
+    if (mgmt.containsGraphIndex(indexName)) {
+      mgmt.rollback();
+      return true;
+    }
+    PropertyKey propertyKey = mgmt.containsPropertyKey(key)
+      ? mgmt.getPropertyKey(key)
+      : mgmt.makePropertyKey(key).dataType(dataType).make();
+    JanusGraphManagement.IndexBuilder index = mgmt.buildIndex(indexName, Vertex.class).addKey(propertyKey);
+    if (unique) {
+      index.unique();
+    }
+    index.buildCompositeIndex();
+    mgmt.commit();
+    return true;
   }
 }
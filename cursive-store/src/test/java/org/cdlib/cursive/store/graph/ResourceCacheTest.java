@@ -0,0 +1,81 @@
+package org.cdlib.cursive.store.graph;
+
+import org.apache.tinkerpop.gremlin.tinkergraph.structure.TinkerGraph;
+import org.cdlib.cursive.core.ResourceType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+class ResourceCacheTest {
+
+  private GraphStore store;
+  private GraphObject object1;
+  private GraphObject object2;
+
+  @BeforeEach
+  void setUp() {
+    // the store's own cache is disabled so only the cache under test keeps wrappers
+    store = new GraphStore(TinkerGraph.open(), 0);
+    object1 = store.createObject();
+    object2 = store.createObject();
+  }
+
+  @Test
+  void hitsReturnTheCachedWrapper() {
+    ResourceCache cache = new ResourceCache(16);
+    GraphObject first = get(cache, object1);
+    GraphObject second = get(cache, object1);
+
+    assertThat(second).isSameAs(first);
+    assertThat(cache.missCount()).isEqualTo(1);
+    assertThat(cache.hitCount()).isEqualTo(1);
+  }
+
+  @Test
+  void differentVerticesGetDifferentWrappers() {
+    ResourceCache cache = new ResourceCache(16);
+    GraphObject first = get(cache, object1);
+    GraphObject second = get(cache, object2);
+
+    assertThat(second).isNotSameAs(first);
+    assertThat(second).isEqualTo(object2);
+    assertThat(cache.missCount()).isEqualTo(2);
+    assertThat(cache.hitCount()).isEqualTo(0);
+  }
+
+  @Test
+  void collidingVerticesEvictEachOther() {
+    // with one slot, every vertex collides
+    ResourceCache cache = new ResourceCache(1);
+    GraphObject first = get(cache, object1);
+    get(cache, object2);
+    GraphObject third = get(cache, object1);
+
+    assertThat(third).isNotSameAs(first);
+    assertThat(third).isEqualTo(first);
+    assertThat(cache.missCount()).isEqualTo(3);
+    assertThat(cache.hitCount()).isEqualTo(0);
+  }
+
+  @Test
+  void zeroCapacityNeverCaches() {
+    ResourceCache cache = new ResourceCache(0);
+    GraphObject first = get(cache, object1);
+    GraphObject second = get(cache, object1);
+
+    assertThat(second).isNotSameAs(first);
+    assertThat(cache.missCount()).isEqualTo(2);
+    assertThat(cache.hitCount()).isEqualTo(0);
+  }
+
+  @Test
+  void negativeCapacityIsRejected() {
+    assertThatIllegalArgumentException().isThrownBy(() -> new ResourceCache(-1));
+  }
+
+  private GraphObject get(ResourceCache cache, GraphObject object) {
+    return cache.get(object.vertex(), ResourceType.OBJECT, vertex -> new GraphObject(store, vertex));
+  }
+}
@@ -1,11 +1,287 @@
 package org.cdlib.cursive.store.graph;
 
+import io.vavr.collection.List;
+import org.apache.commons.configuration.BaseConfiguration;
+import org.apache.commons.configuration.Configuration;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
 import org.apache.tinkerpop.gremlin.tinkergraph.structure.TinkerGraph;
+import org.cdlib.cursive.core.Workspace;
+import org.cdlib.cursive.pcdm.PcdmCollection;
+import org.cdlib.cursive.pcdm.PcdmObject;
 import org.cdlib.cursive.store.AbstractStoreTest;
+import org.cdlib.cursive.store.Identifiers;
+import org.cdlib.cursive.util.TestUtils;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 public class TinkerGraphStoreTest extends AbstractStoreTest<GraphStore> {
   @Override
   protected GraphStore newStore() {
     return new GraphStore(TinkerGraph.open());
   }
+
+  @Nested
+  @SuppressWarnings("unused")
+  class Indexing {
+    @Test
+    void createsIndexesByDefault() {
+      TinkerGraph graph = TinkerGraph.open();
+      new GraphStore(graph);
+      assertThat(graph.getIndexedKeys(Vertex.class)).contains(Keys.ID, Keys.TYPE, Keys.STORE);
+    }
+
+    @Test
+    void unindexedStoresOnlySeeTheirOwnResources() {
+      TinkerGraph graph = TinkerGraph.open();
+      GraphStore store1 = new GraphStore(graph, GraphIndexer.NONE);
+      GraphStore store2 = new GraphStore(graph, GraphIndexer.NONE);
+      PcdmObject object1 = store1.createObject();
+      PcdmObject object2 = store2.createObject();
+      object1.relateTo(object1.createObject());
+      object1.createFile();
+
+      assertThat(graph.getIndexedKeys(Vertex.class)).isEmpty();
+      assertThat(store1.allObjects()).hasSize(2).contains(object1);
+      assertThat(store1.allFiles()).hasSize(1);
+      assertThat(store2.allObjects()).containsExactly(object2);
+      assertThat(store2.allFiles()).isEmpty();
+      assertThat(store1.allRelations()).hasSize(1);
+      assertThat(store2.allRelations()).isEmpty();
+      assertThat(store1.find(object1.id())).contains(object1);
+      assertThat(store2.find(object1.id())).isEmpty();
+      assertThat(store2.findAll(List.of(object1.id(), object2.id()))).containsExactly(object2);
+    }
+
+    @Test
+    void worksWithNonLongVertexIds() {
+      Configuration config = new BaseConfiguration();
+      config.setProperty(TinkerGraph.GREMLIN_TINKERGRAPH_VERTEX_ID_MANAGER, TinkerGraph.DefaultIdManager.UUID.name());
+      GraphStore store = new GraphStore(TinkerGraph.open(config));
+      PcdmObject object = store.createObject();
+      PcdmObject member = object.createObject();
+
+      assertThat(store.allObjects()).containsExactlyInAnyOrder(object, member);
+      assertThat(store.find(member.id())).contains(member);
+      assertThat(store.findAll(List.of(object.id(), member.id()))).containsExactlyInAnyOrder(object, member);
+    }
+
+    @Test
+    void storesSharingAGraphOnlySeeTheirOwnResources() {
+      TinkerGraph graph = TinkerGraph.open();
+      GraphStore store1 = new GraphStore(graph);
+      GraphStore store2 = new GraphStore(graph);
+      PcdmObject object1 = store1.createObject();
+      PcdmObject object2 = store2.createObject();
+      object1.relateTo(object1.createObject());
+
+      assertThat(store1.allObjects()).hasSize(2).contains(object1);
+      assertThat(store2.allObjects()).containsExactly(object2);
+      assertThat(store1.allRelations()).hasSize(1);
+      assertThat(store2.allRelations()).isEmpty();
+      assertThat(store2.find(object1.id())).isEmpty();
+      assertThat(store2.findAll(List.of(object1.id(), object2.id()))).containsExactly(object2);
+    }
+  }
+
+  @Nested
+  @SuppressWarnings("unused")
+  class Caching {
+    @Test
+    void navigationReturnsCachedWrappers() {
+      GraphStore store = newStore();
+      GraphObject parent = store.createObject();
+      PcdmObject child = parent.createObject();
+      long misses = store.cacheMissCount();
+
+      assertThat(parent.memberObjects().head()).isSameAs(child);
+      assertThat(child.parentObject().get()).isSameAs(parent);
+      assertThat(store.find(child.id()).get()).isSameAs(child);
+      assertThat(store.cacheHitCount()).isEqualTo(3);
+      assertThat(store.cacheMissCount()).isEqualTo(misses);
+    }
+
+    @Test
+    void relationsReturnCachedWrappers() {
+      GraphStore store = newStore();
+      GraphObject from = store.createObject();
+      GraphObject to = store.createObject();
+      from.relateTo(to);
+
+      assertThat(from.outgoingRelations().head().toObject()).isSameAs(to);
+      assertThat(to.incomingRelations().head().fromObject()).isSameAs(from);
+    }
+
+    @Test
+    void disabledCacheCreatesNewWrappers() {
+      GraphStore store = new GraphStore(TinkerGraph.open(), 0);
+      GraphObject parent = store.createObject();
+      PcdmObject child = parent.createObject();
+
+      PcdmObject found = parent.memberObjects().head();
+      assertThat(found).isEqualTo(child);
+      assertThat(found).isNotSameAs(child);
+      assertThat(store.cacheHitCount()).isEqualTo(0);
+    }
+  }
+
+  @Nested
+  @SuppressWarnings("unused")
+  class BulkLoading {
+    @Test
+    void loadsTrees() {
+      GraphStore store = newStore();
+      UUID workspaceId = Identifiers.mintIdentifier();
+      UUID collectionId = Identifiers.mintIdentifier();
+      UUID objectId = Identifiers.mintIdentifier();
+      UUID fileId = Identifiers.mintIdentifier();
+      UUID relatedId = Identifiers.mintIdentifier();
+
+      GraphBulkLoader loader = store.bulkLoader();
+      loader.load(List.of(
+        ResourceTree.workspace(workspaceId).withMembers(
+          ResourceTree.collection(collectionId).withMembers(
+            ResourceTree.object(objectId).withRelationTo(relatedId).withMembers(
+              ResourceTree.file(fileId)
+            )
+          )
+        ),
+        ResourceTree.object(relatedId)
+      ));
+
+      Workspace workspace = (Workspace) store.find(workspaceId).get();
+      assertThat(workspace.memberCollections()).hasSize(1);
+      PcdmCollection collection = workspace.memberCollections().head();
+      assertThat(collection.id()).isEqualTo(collectionId);
+      assertThat(collection.memberObjects()).hasSize(1);
+      PcdmObject object = collection.memberObjects().head();
+      assertThat(object.id()).isEqualTo(objectId);
+      assertThat(object.memberFiles().head().id()).isEqualTo(fileId);
+      assertThat(object.relatedObjects().head().id()).isEqualTo(relatedId);
+
+      assertThat(store.workspaces()).containsExactly(workspace);
+      assertThat(store.allObjects()).hasSize(2);
+      assertThat(loader.resourceCount()).isEqualTo(5);
+      assertThat(loader.relationCount()).isEqualTo(1);
+    }
+
+    @Test
+    void commitsInBatches() {
+      GraphStore store = newStore();
+      ArrayList<Long> progress = new ArrayList<>();
+      GraphBulkLoader loader = store.bulkLoader(2, l -> progress.add(l.resourceCount() + l.relationCount()));
+
+      UUID firstId = Identifiers.mintIdentifier();
+      loader.load(List.of(
+        ResourceTree.object(firstId),
+        ResourceTree.object(Identifiers.mintIdentifier()).withRelationTo(firstId),
+        ResourceTree.object(Identifiers.mintIdentifier()).withRelationTo(firstId)
+      ));
+
+      assertThat(progress).containsExactly(2L, 3L, 5L);
+      assertThat(loader.batchCount()).isEqualTo(3);
+      assertThat(loader.elapsedNanos()).isGreaterThan(0);
+      assertThat(loader.writesPerSecond()).isGreaterThan(0);
+      assertThat(store.allRelations()).hasSize(2);
+    }
+
+    @Test
+    void skipsUnresolvedRelations() {
+      GraphStore store = newStore();
+      UUID collectionId = Identifiers.mintIdentifier();
+      GraphBulkLoader loader = store.bulkLoader();
+      loader.load(List.of(
+        ResourceTree.collection(collectionId),
+        ResourceTree.object(Identifiers.mintIdentifier())
+          .withRelationTo(collectionId)
+          .withRelationTo(TestUtils.badUUID())
+      ));
+
+      assertThat(store.allRelations()).isEmpty();
+      assertThat(loader.relationCount()).isEqualTo(0);
+      assertThat(loader.unresolvedRelationCount()).isEqualTo(2);
+    }
+
+    @Test
+    void resolvesRelationsToObjectsAlreadyInTheStore() {
+      GraphStore store = newStore();
+      PcdmObject existing = store.createObject();
+      GraphBulkLoader loader = store.bulkLoader();
+      loader.load(List.of(ResourceTree.object(Identifiers.mintIdentifier()).withRelationTo(existing.id())));
+
+      assertThat(existing.incomingRelations()).hasSize(1);
+      assertThat(loader.relationCount()).isEqualTo(1);
+      assertThat(loader.unresolvedRelationCount()).isEqualTo(0);
+    }
+
+    @Test
+    void rejectsUnindexedStores() {
+      GraphStore store = new GraphStore(TinkerGraph.open(), GraphIndexer.NONE);
+      assertThatThrownBy(store::bulkLoader).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void rejectsIdsRepeatedInTheInput() {
+      GraphStore store = newStore();
+      UUID id = Identifiers.mintIdentifier();
+
+      assertThatThrownBy(() -> store.bulkLoader().load(List.of(
+        ResourceTree.object(id).withMembers(ResourceTree.object(id))
+      ))).isInstanceOf(IllegalArgumentException.class);
+      assertThat(store.allObjects()).isEmpty();
+    }
+
+    @Test
+    void rejectsIdsAlreadyInTheStore() {
+      GraphStore store = newStore();
+      UUID loadedId = Identifiers.mintIdentifier();
+      UUID createdId = store.createObject().id();
+      store.bulkLoader().load(List.of(ResourceTree.object(loadedId)));
+
+      assertThatThrownBy(() -> store.bulkLoader().load(List.of(ResourceTree.object(loadedId))))
+        .isInstanceOf(IllegalArgumentException.class);
+      assertThatThrownBy(() -> store.bulkLoader().load(List.of(ResourceTree.object(createdId))))
+        .isInstanceOf(IllegalArgumentException.class);
+      assertThat(store.allObjects()).hasSize(2);
+    }
+
+    @Test
+    void countsRelationsDroppedByAFailedLoad() {
+      GraphStore store = newStore();
+      UUID fromId = Identifiers.mintIdentifier();
+      UUID toId = Identifiers.mintIdentifier();
+      GraphBulkLoader loader = store.bulkLoader(1);
+
+      assertThatThrownBy(() -> loader.load(List.of(
+        ResourceTree.object(fromId).withRelationTo(toId),
+        ResourceTree.object(toId),
+        ResourceTree.object(fromId)
+      ))).isInstanceOf(IllegalArgumentException.class);
+
+      assertThat(store.allObjects()).hasSize(2);
+      assertThat(store.allRelations()).isEmpty();
+      assertThat(loader.relationCount()).isEqualTo(0);
+      assertThat(loader.droppedRelationCount()).isEqualTo(1);
+    }
+
+    @Test
+    void rejectsInvalidTrees() {
+      GraphStore store = newStore();
+      UUID id = Identifiers.mintIdentifier();
+
+      assertThatThrownBy(() -> ResourceTree.workspace(id).withMembers(ResourceTree.object(id)))
+        .isInstanceOf(IllegalArgumentException.class);
+      assertThatThrownBy(() -> ResourceTree.collection(id).withRelationTo(id))
+        .isInstanceOf(IllegalStateException.class);
+      assertThatThrownBy(() -> store.bulkLoader().load(List.of(ResourceTree.file(id))))
+        .isInstanceOf(IllegalArgumentException.class);
+      assertThatThrownBy(() -> store.bulkLoader(0))
+        .isInstanceOf(IllegalArgumentException.class);
+    }
+  }
 }
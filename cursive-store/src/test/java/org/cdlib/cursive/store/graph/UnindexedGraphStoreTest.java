@@ -0,0 +1,12 @@
+package org.cdlib.cursive.store.graph;
+
+import org.apache.tinkerpop.gremlin.tinkergraph.structure.TinkerGraph;
+import org.cdlib.cursive.store.AbstractStoreTest;
+
+public class UnindexedGraphStoreTest extends AbstractStoreTest<GraphStore> {
+
+  @Override
+  protected GraphStore newStore() {
+    return new GraphStore(TinkerGraph.open(), GraphIndexer.NONE);
+  }
+}
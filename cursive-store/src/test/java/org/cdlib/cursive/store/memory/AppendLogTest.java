@@ -0,0 +1,84 @@
+package org.cdlib.cursive.store.memory;
+
+import io.vavr.collection.Vector;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AppendLogTest {
+
+  @Test
+  void appendsAreSnapshottedInOrderAcrossChunks() {
+    AppendLog<Entry> log = new AppendLog<>();
+    Vector<Entry> entries = Vector.range(0, 1000).map(Entry::new);
+    for (Entry entry : entries) {
+      log.append(entry);
+      entry.publish();
+    }
+    assertThat(log.snapshot()).containsExactlyElementsOf(entries);
+  }
+
+  @Test
+  void snapshotsOnlyIncludePublishedEntries() {
+    AppendLog<Entry> log = new AppendLog<>();
+    Entry a = new Entry(0);
+    Entry b = new Entry(1);
+    Entry c = new Entry(2);
+    log.append(a);
+    log.append(b);
+    log.append(c);
+    assertThat(log.snapshot()).isEmpty();
+
+    // a later write can publish before an earlier one
+    c.publish();
+    assertThat(log.snapshot()).containsExactly(c);
+    a.publish();
+    assertThat(log.snapshot()).containsExactly(a, c);
+    b.publish();
+    assertThat(log.snapshot()).containsExactly(a, b, c);
+  }
+
+  @Test
+  void abandonedEntriesAreNeverVisible() {
+    AppendLog<Entry> log = new AppendLog<>();
+    Entry a = new Entry(0);
+    Entry b = new Entry(1);
+    log.append(a);
+    log.append(b);
+    a.abandon();
+    b.publish();
+    assertThat(log.snapshot()).containsExactly(b);
+    assertThat(log.snapshot()).containsExactly(b);
+  }
+
+  @Test
+  void snapshotsAreUnaffectedByLaterAppends() {
+    AppendLog<Entry> log = new AppendLog<>();
+    Entry a = new Entry(0);
+    log.append(a);
+    a.publish();
+    Vector<Entry> before = log.snapshot();
+
+    Entry b = new Entry(1);
+    log.append(b);
+    b.publish();
+    Vector<Entry> after = log.snapshot();
+
+    assertThat(before).containsExactly(a);
+    assertThat(after).containsExactly(a, b);
+    assertThat(log.snapshot()).isSameAs(after);
+  }
+
+  private static final class Entry extends Publishable {
+    private final int value;
+
+    Entry(int value) {
+      this.value = value;
+    }
+
+    @Override
+    public String toString() {
+      return "Entry(" + value + ")";
+    }
+  }
+}
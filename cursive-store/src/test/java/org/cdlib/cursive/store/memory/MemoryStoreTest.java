@@ -1,10 +1,178 @@
 package org.cdlib.cursive.store.memory;
 
+import io.vavr.collection.Iterator;
+import io.vavr.collection.List;
+import io.vavr.collection.Traversable;
+import org.cdlib.cursive.pcdm.PcdmCollection;
+import org.cdlib.cursive.pcdm.PcdmObject;
 import org.cdlib.cursive.store.AbstractStoreTest;
+import org.cdlib.cursive.store.Identifiers;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
 
 public class MemoryStoreTest extends AbstractStoreTest<MemoryStore> {
   @Override
   protected MemoryStore newStore() {
     return new MemoryStore();
   }
+
+  @Nested
+  @SuppressWarnings("unused")
+  class Concurrency {
+    @Test
+    void concurrentCreatesAreAllRegistered() throws Exception {
+      MemoryStore store = new MemoryStore();
+      PcdmCollection parent = store.createCollection();
+      int threads = 8;
+      int perThread = 1000;
+
+      ExecutorService executor = Executors.newFixedThreadPool(threads);
+      try {
+        Callable<Void> task = () -> {
+          for (int i = 0; i < perThread; i++) {
+            parent.createObject();
+          }
+          return null;
+        };
+        for (Future<Void> future : executor.invokeAll(List.fill(threads, () -> task).toJavaList())) {
+          future.get();
+        }
+      } finally {
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+      }
+
+      assertThat(parent.memberObjects()).hasSize(threads * perThread);
+      // concurrent creates have no order, so the registry and the members can differ in it
+      assertThat(store.allObjects()).containsExactlyInAnyOrderElementsOf(parent.memberObjects());
+    }
+
+    @Test
+    void contendedWritesAreNotLost() throws Exception {
+      MemoryStore store = new MemoryStore();
+      PcdmCollection parent = store.createCollection();
+      int threads = 8;
+      int perThread = 1000;
+      // start all the writers at once, so they race for the same logs
+      CyclicBarrier start = new CyclicBarrier(threads);
+
+      ExecutorService executor = Executors.newFixedThreadPool(threads);
+      try {
+        Callable<Void> task = () -> {
+          start.await();
+          for (int i = 0; i < perThread; i++) {
+            parent.createObject();
+          }
+          return null;
+        };
+        for (Future<Void> future : executor.invokeAll(List.fill(threads, () -> task).toJavaList())) {
+          future.get();
+        }
+      } finally {
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+      }
+
+      assertThat(store.commitCount()).isEqualTo(1 + threads * perThread);
+      assertThat(parent.memberObjects()).hasSize(threads * perThread);
+      assertThat(store.allObjects()).hasSize(threads * perThread);
+      for (PcdmObject object : parent.memberObjects()) {
+        assertThat(store.find(object.id())).contains(object);
+      }
+    }
+
+    @Test
+    void readersNeverSeeHalfRegisteredResources() throws Exception {
+      MemoryStore store = new MemoryStore();
+      PcdmCollection parent = store.createCollection();
+      int writers = 4;
+      int perWriter = 1000;
+      AtomicBoolean done = new AtomicBoolean();
+
+      ExecutorService executor = Executors.newFixedThreadPool(writers + 1);
+      try {
+        Future<Integer> reader = executor.submit(() -> {
+          int checks = 0;
+          while (!done.get()) {
+            // every member must already be in the registry and the index
+            Traversable<PcdmObject> members = parent.memberObjects();
+            for (PcdmObject member : members) {
+              assertThat(store.find(member.id())).contains(member);
+            }
+            assertThat(store.allObjects().size()).isGreaterThanOrEqualTo(members.size());
+            checks++;
+          }
+          return checks;
+        });
+
+        Callable<Void> writer = () -> {
+          for (int i = 0; i < perWriter; i++) {
+            PcdmObject object = parent.createObject();
+            object.relateTo(object.createObject());
+          }
+          return null;
+        };
+        for (Future<Void> future : executor.invokeAll(List.fill(writers, () -> writer).toJavaList())) {
+          future.get();
+        }
+        done.set(true);
+        assertThat(reader.get()).isGreaterThan(0);
+      } finally {
+        done.set(true);
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+      }
+
+      assertThat(store.allObjects()).hasSize(2 * writers * perWriter);
+      assertThat(store.allRelations()).hasSize(writers * perWriter);
+      for (PcdmObject object : parent.memberObjects()) {
+        assertThat(object.outgoingRelations()).hasSize(1);
+        assertThat(object.relatedObjects().head().incomingRelations()).hasSize(1);
+      }
+    }
+  }
+
+  @Nested
+  @SuppressWarnings("unused")
+  class FailedWrites {
+    @Test
+    void failedWritesAreNotVisible() {
+      UUID id = Identifiers.mintIdentifier();
+      // every resource gets the same ID, so registering the second one fails
+      MemoryStore store = new MemoryStore(() -> id);
+      PcdmCollection parent = store.createCollection();
+
+      assertThatIllegalStateException().isThrownBy(parent::createObject);
+      assertThat(store.allObjects()).isEmpty();
+      assertThat(parent.memberObjects()).isEmpty();
+      assertThat(store.find(id)).contains(parent);
+      assertThat(store.commitCount()).isEqualTo(1);
+    }
+
+    @Test
+    void storeIsWritableAfterAFailedWrite() {
+      UUID id = Identifiers.mintIdentifier();
+      Iterator<UUID> ids = Iterator.of(id, id).concat(Iterator.continually(Identifiers::mintIdentifier));
+      MemoryStore store = new MemoryStore(ids::next);
+      PcdmCollection parent = store.createCollection();
+      assertThatIllegalStateException().isThrownBy(parent::createObject);
+
+      PcdmObject object = parent.createObject();
+      assertThat(parent.memberObjects()).containsExactly(object);
+      assertThat(store.allObjects()).containsExactly(object);
+      assertThat(store.find(object.id())).contains(object);
+    }
+  }
 }
@@ -1,7 +1,9 @@
 package org.cdlib.cursive.store;
 
 import io.vavr.collection.Array;
+import io.vavr.collection.List;
 import io.vavr.collection.Traversable;
+import org.cdlib.cursive.core.Resource;
 import org.cdlib.cursive.core.Store;
 import org.cdlib.cursive.core.Workspace;
 import org.cdlib.cursive.pcdm.PcdmCollection;
@@ -242,6 +244,31 @@ public abstract class AbstractStoreTest<S extends Store> {
     void findFindsNothing() {
       assertThat(store.find(TestUtils.badUUID())).isEmpty();
     }
+
+    @Test
+    void findAllFindsEverything() {
+      Workspace workspace = store.createWorkspace();
+      PcdmCollection collection = workspace.createCollection();
+      PcdmObject object = collection.createObject();
+      PcdmFile file = object.createFile();
+
+      Traversable<Resource> found = store.findAll(List.of(
+        workspace.id(), collection.id(), object.id(), file.id(), object.id()
+      ));
+      assertThat(found).containsExactlyInAnyOrder(workspace, collection, object, file);
+    }
+
+    @Test
+    void findAllSkipsMissingIds() {
+      PcdmObject object = store.createObject();
+      Traversable<Resource> found = store.findAll(List.of(TestUtils.badUUID(), object.id()));
+      assertThat(found).containsExactly(object);
+    }
+
+    @Test
+    void findAllFindsNothing() {
+      assertThat(store.findAll(List.empty())).isEmpty();
+    }
   }
 
 }
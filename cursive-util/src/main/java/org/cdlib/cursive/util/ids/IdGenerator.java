@@ -0,0 +1,23 @@
+package org.cdlib.cursive.util.ids;
+
+import java.util.UUID;
+
+/**
+ * Strategy for minting resource identifiers. Implementations must be
+ * thread-safe.
+ *
+ * The default for the whole process can be chosen by registering an
+ * implementation with a public no-argument constructor as a
+ * {@link java.util.ServiceLoader service} (e.g., listing
+ * {@link TimeOrderedIdGenerator} in
+ * {@code META-INF/services/org.cdlib.cursive.util.ids.IdGenerator});
+ * see {@link IdGenerators#defaultGenerator()}.
+ */
+@FunctionalInterface
+public interface IdGenerator {
+
+  /**
+   * @return A new identifier, distinct from any previously returned.
+   */
+  UUID generate();
+}
@@ -0,0 +1,33 @@
+package org.cdlib.cursive.util.ids;
+
+import java.util.ServiceLoader;
+
+/**
+ * Access to the process-wide default {@link IdGenerator}.
+ */
+public class IdGenerators {
+
+  // ------------------------------------------------------------
+  // Class methods
+
+  /**
+   * @return The first {@link IdGenerator} registered with {@link ServiceLoader},
+   * or a {@link SecureRandomIdGenerator} if there is none.
+   */
+  public static IdGenerator defaultGenerator() {
+    return DefaultHolder.DEFAULT;
+  }
+
+  // ------------------------------------------------------------
+  // Helper classes
+
+  private static final class DefaultHolder {
+    private static final IdGenerator DEFAULT = ServiceLoader.load(IdGenerator.class)
+      .findFirst()
+      .orElseGet(SecureRandomIdGenerator::new);
+  }
+
+  private IdGenerators() {
+    // private to prevent instantiation
+  }
+}
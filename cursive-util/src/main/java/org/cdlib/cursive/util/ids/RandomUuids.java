@@ -0,0 +1,20 @@
+package org.cdlib.cursive.util.ids;
+
+import java.util.UUID;
+
+class RandomUuids {
+
+  /**
+   * @return A version 4 (random) UUID from the specified random bits, with the
+   * version and variant fields overwritten.
+   */
+  static UUID fromBits(long msb, long lsb) {
+    msb = (msb & ~0xf000L) | 0x4000L;
+    lsb = (lsb & ~(0xc000000000000000L)) | 0x8000000000000000L;
+    return new UUID(msb, lsb);
+  }
+
+  private RandomUuids() {
+    // private to prevent instantiation
+  }
+}
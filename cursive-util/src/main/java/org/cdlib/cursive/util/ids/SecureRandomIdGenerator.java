@@ -0,0 +1,23 @@
+package org.cdlib.cursive.util.ids;
+
+import java.security.SecureRandom;
+import java.util.UUID;
+
+/**
+ * Random (version 4) UUIDs from a cryptographically strong generator. IDs are
+ * unpredictable, but minting is relatively expensive and, depending on the
+ * platform, may block on entropy.
+ */
+public class SecureRandomIdGenerator implements IdGenerator {
+
+  /**
+   * Separate SecureRandom instance per thread to avoid contention
+   */
+  private final ThreadLocal<SecureRandom> random = ThreadLocal.withInitial(SecureRandom::new);
+
+  @Override
+  public UUID generate() {
+    var r = random.get();
+    return RandomUuids.fromBits(r.nextLong(), r.nextLong());
+  }
+}
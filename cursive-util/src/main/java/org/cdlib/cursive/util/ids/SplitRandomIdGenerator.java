@@ -0,0 +1,31 @@
+package org.cdlib.cursive.util.ids;
+
+import java.security.SecureRandom;
+import java.util.SplittableRandom;
+import java.util.UUID;
+
+/**
+ * Random (version 4) UUIDs from per-thread {@link SplittableRandom}s, all split
+ * from a single securely seeded root. Much cheaper than
+ * {@link SecureRandomIdGenerator} and never blocks, but IDs are predictable
+ * to anyone who can observe enough of them, so they shouldn't be used where
+ * an ID doubles as a secret.
+ */
+public class SplitRandomIdGenerator implements IdGenerator {
+
+  private final SplittableRandom root = new SplittableRandom(new SecureRandom().nextLong());
+  private final ThreadLocal<SplittableRandom> random = ThreadLocal.withInitial(this::split);
+
+  @Override
+  public UUID generate() {
+    var r = random.get();
+    return RandomUuids.fromBits(r.nextLong(), r.nextLong());
+  }
+
+  private SplittableRandom split() {
+    // SplittableRandom isn't thread-safe
+    synchronized (root) {
+      return root.split();
+    }
+  }
+}
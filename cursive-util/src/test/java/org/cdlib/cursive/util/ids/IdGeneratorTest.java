@@ -0,0 +1,84 @@
+package org.cdlib.cursive.util.ids;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.HashSet;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IdGeneratorTest {
+
+  static Stream<Arguments> generators() {
+    return Stream.of(
+      Arguments.of(new SecureRandomIdGenerator(), 4),
+      Arguments.of(new SplitRandomIdGenerator(), 4),
+      Arguments.of(new TimeOrderedIdGenerator(), 7)
+    );
+  }
+
+  @ParameterizedTest
+  @MethodSource("generators")
+  void setsVersionAndVariant(IdGenerator generator, int version) {
+    for (var i = 0; i < 100; i++) {
+      var id = generator.generate();
+      assertThat(id.version()).isEqualTo(version);
+      assertThat(id.variant()).isEqualTo(2);
+    }
+  }
+
+  @ParameterizedTest
+  @MethodSource("generators")
+  void generatesDistinctIds(IdGenerator generator, int version) {
+    var ids = new HashSet<UUID>();
+    for (var i = 0; i < 10_000; i++) {
+      ids.add(generator.generate());
+    }
+    assertThat(ids).hasSize(10_000);
+  }
+
+  @Test
+  void timeOrderedIdsIncrease() {
+    var generator = new TimeOrderedIdGenerator();
+    var prev = generator.generate();
+    for (var i = 0; i < 10_000; i++) {
+      var next = generator.generate();
+      assertThat(next.compareTo(prev)).isPositive();
+      assertThat(next.toString().compareTo(prev.toString())).isPositive();
+      prev = next;
+    }
+  }
+
+  @Test
+  void timeOrderedIdsEmbedTimestamp() {
+    var generator = new TimeOrderedIdGenerator(() -> 0x0123456789abL);
+    var id = generator.generate();
+    assertThat(id.getMostSignificantBits() >>> 16).isEqualTo(0x0123456789abL);
+  }
+
+  @Test
+  void timeOrderedIdsSurviveSequenceOverflowAndClockSkew() {
+    var millis = new AtomicLong(1_000_000);
+    var generator = new TimeOrderedIdGenerator(millis::get);
+
+    var prev = generator.generate();
+    for (var i = 0; i < 10_000; i++) {
+      if (i == 5_000) {
+        millis.set(999_000);
+      }
+      var next = generator.generate();
+      assertThat(next.compareTo(prev)).isPositive();
+      prev = next;
+    }
+  }
+
+  @Test
+  void defaultGeneratorIsSecureRandomWithoutService() {
+    assertThat(IdGenerators.defaultGenerator()).isInstanceOf(SecureRandomIdGenerator.class);
+  }
+}
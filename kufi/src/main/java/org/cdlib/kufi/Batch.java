@@ -0,0 +1,40 @@
+package org.cdlib.kufi;
+
+import io.reactivex.Observable;
+
+/**
+ * Builder for a group of mutations to be applied to a {@link Store} atomically,
+ * at a single transaction. Each parent is versioned at most once per batch,
+ * no matter how many children are created under it.
+ *
+ * Operations can only refer to resources that already exist in the store
+ * when the batch is committed.
+ */
+public interface Batch {
+
+  Batch createWorkspace();
+
+  Batch createCollection(Workspace parent);
+
+  Batch createCollection(Collection parent);
+
+  default Batch deleteWorkspace(Workspace ws) {
+    return deleteWorkspace(ws, false);
+  }
+
+  Batch deleteWorkspace(Workspace ws, boolean recursive);
+
+  default Batch deleteCollection(Collection coll) {
+    return deleteCollection(coll, false);
+  }
+
+  Batch deleteCollection(Collection coll, boolean recursive);
+
+  /**
+   * Applies all operations in this batch. If any operation fails, none are applied.
+   *
+   * @return The resource created or deleted by each operation, in the order the
+   * operations were added.
+   */
+  Observable<Resource<?>> commit();
+}
@@ -0,0 +1,138 @@
+package org.cdlib.kufi;
+
+import io.vavr.control.Option;
+
+import java.util.Objects;
+
+import static io.vavr.control.Option.none;
+import static io.vavr.control.Option.some;
+
+/**
+ * A single effect of a committed transaction, as delivered by
+ * {@link Store#changes(long)}: a resource created, versioned or tombstoned,
+ * or a link created or deleted. A transaction usually produces several
+ * changes; e.g. creating a collection creates the collection, versions its
+ * parent, and creates the links between them.
+ */
+public final class Change {
+
+  // ------------------------------------------------------------
+  // Types
+
+  public enum Type {
+    CREATED,
+    VERSIONED,
+    TOMBSTONED,
+    LINK_CREATED,
+    LINK_DELETED
+  }
+
+  // ------------------------------------------------------------
+  // Fields
+
+  private final Type type;
+  private final Transaction transaction;
+  private final Option<Resource<?>> resource;
+  private final Option<Link> link;
+
+  // ------------------------------------------------------------
+  // Factory methods
+
+  public static Change created(Resource<?> resource) {
+    return of(Type.CREATED, resource);
+  }
+
+  public static Change versioned(Resource<?> resource) {
+    return of(Type.VERSIONED, resource);
+  }
+
+  public static Change tombstoned(Resource<?> resource) {
+    return of(Type.TOMBSTONED, resource);
+  }
+
+  public static Change linkCreated(Link link) {
+    return new Change(Type.LINK_CREATED, link.createdAt(), none(), some(link));
+  }
+
+  /**
+   * @throws IllegalArgumentException if the link isn't deleted
+   */
+  public static Change linkDeleted(Link link) {
+    var deletedAt = link.deletedAt().getOrElseThrow(() -> new IllegalArgumentException("Link not deleted: " + link));
+    return new Change(Type.LINK_DELETED, deletedAt, none(), some(link));
+  }
+
+  private static Change of(Type type, Resource<?> resource) {
+    return new Change(type, resource.currentVersion().transaction(), some(resource), none());
+  }
+
+  // ------------------------------------------------------------
+  // Constructor
+
+  private Change(Type type, Transaction transaction, Option<Resource<?>> resource, Option<Link> link) {
+    this.type = type;
+    this.transaction = Objects.requireNonNull(transaction);
+    this.resource = resource;
+    this.link = link;
+  }
+
+  // ------------------------------------------------------------
+  // Accessors
+
+  public Type type() {
+    return type;
+  }
+
+  /**
+   * @return The transaction that made the change.
+   */
+  public Transaction transaction() {
+    return transaction;
+  }
+
+  /**
+   * @return The new version of the resource, for resource changes.
+   */
+  public Option<Resource<?>> resource() {
+    return resource;
+  }
+
+  /**
+   * @return The new or deleted link, for link changes.
+   */
+  public Option<Link> link() {
+    return link;
+  }
+
+  public boolean isLinkChange() {
+    return link.isDefined();
+  }
+
+  // ------------------------------------------------------------
+  // Object
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    var change = (Change) o;
+    return type == change.type
+      && transaction.equals(change.transaction)
+      && resource.equals(change.resource)
+      && link.equals(change.link);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(type, transaction, resource, link);
+  }
+
+  @Override
+  public String toString() {
+    return "Change(" + type + ", " + transaction + ", " + (resource.isDefined() ? resource.get() : link.get()) + ")";
+  }
+}
@@ -0,0 +1,17 @@
+package org.cdlib.kufi;
+
+public class ChangesNotRetainedException extends RuntimeException {
+  private final long txid;
+
+  public ChangesNotRetainedException(long txid) {
+    super("Changes from transaction " + txid + " are no longer retained");
+    this.txid = txid;
+  }
+
+  /**
+   * @return The first transaction whose changes couldn't be read.
+   */
+  public long txid() {
+    return txid;
+  }
+}
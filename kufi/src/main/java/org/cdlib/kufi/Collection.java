@@ -1,5 +1,6 @@
 package org.cdlib.kufi;
 
+import io.reactivex.Flowable;
 import io.reactivex.Observable;
 import io.reactivex.Single;
 import io.vavr.control.Either;
@@ -8,4 +9,9 @@ public interface Collection extends Resource<Collection> {
   Single<Either<Workspace, Collection>> parent();
 
   Observable<Collection> childCollections();
+
+  /**
+   * Like {@link #childCollections()}, but honors backpressure.
+   */
+  Flowable<Collection> streamChildCollections();
 }
@@ -0,0 +1,119 @@
+package org.cdlib.kufi;
+
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Position in a paged child listing. Children are listed in creation order,
+ * and a cursor identifies a child by its creation transaction and ID, so a
+ * cursor stays valid, and pages don't shift, when children are created or
+ * deleted between requests.
+ *
+ * Cursors can be passed to clients as opaque {@linkplain #token() tokens}
+ * and {@linkplain #parse(String) parsed} back.
+ */
+public final class Cursor {
+
+  // ------------------------------------------------------------
+  // Constants
+
+  /** Position before the first child. */
+  public static final Cursor START = new Cursor(-1L, new UUID(0L, 0L));
+
+  private static final char SEPARATOR = '~';
+
+  // ------------------------------------------------------------
+  // Fields
+
+  private final long txid;
+  private final UUID id;
+
+  // ------------------------------------------------------------
+  // Constructor
+
+  /**
+   * @return The position just after the child with the specified ID, created at the specified transaction.
+   */
+  public static Cursor after(long txid, UUID id) {
+    if (txid < 0) {
+      throw new IllegalArgumentException("Invalid cursor transaction: " + txid);
+    }
+    return new Cursor(txid, Objects.requireNonNull(id));
+  }
+
+  /**
+   * @throws IllegalArgumentException if the token wasn't produced by {@link #token()}
+   */
+  public static Cursor parse(String token) {
+    if (token.isEmpty()) {
+      return START;
+    }
+    var sep = token.indexOf(SEPARATOR);
+    if (sep < 0) {
+      throw new IllegalArgumentException("Invalid cursor: " + token);
+    }
+    try {
+      return after(Long.parseUnsignedLong(token.substring(0, sep), 16), UUID.fromString(token.substring(sep + 1)));
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("Invalid cursor: " + token, e);
+    }
+  }
+
+  private Cursor(long txid, UUID id) {
+    this.txid = txid;
+    this.id = id;
+  }
+
+  // ------------------------------------------------------------
+  // Accessors
+
+  public boolean isStart() {
+    return this == START;
+  }
+
+  public long txid() {
+    return txid;
+  }
+
+  public UUID id() {
+    return id;
+  }
+
+  /**
+   * @return A string form of this cursor, suitable for passing to clients; empty for {@link #START}.
+   */
+  public String token() {
+    if (isStart()) {
+      return "";
+    }
+    return Long.toHexString(txid) + SEPARATOR + id;
+  }
+
+  // ------------------------------------------------------------
+  // Object
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+
+    var that = (Cursor) o;
+    return txid == that.txid && id.equals(that.id);
+  }
+
+  @Override
+  public int hashCode() {
+    var result = (int) (txid ^ (txid >>> 32));
+    result = 31 * result + id.hashCode();
+    return result;
+  }
+
+  @Override
+  public String toString() {
+    return "Cursor(" + token() + ")";
+  }
+}
@@ -0,0 +1,52 @@
+package org.cdlib.kufi;
+
+import io.vavr.collection.Seq;
+import io.vavr.control.Option;
+
+import java.util.Objects;
+
+/**
+ * One page of a paged listing.
+ */
+public final class Page<T> {
+
+  // ------------------------------------------------------------
+  // Fields
+
+  private final Seq<T> items;
+  private final Option<Cursor> next;
+
+  // ------------------------------------------------------------
+  // Constructor
+
+  public Page(Seq<T> items, Option<Cursor> next) {
+    this.items = Objects.requireNonNull(items);
+    this.next = Objects.requireNonNull(next);
+  }
+
+  // ------------------------------------------------------------
+  // Accessors
+
+  public Seq<T> items() {
+    return items;
+  }
+
+  /**
+   * @return The cursor for the following page, or none if this is the last page.
+   */
+  public Option<Cursor> next() {
+    return next;
+  }
+
+  public boolean isLast() {
+    return next.isEmpty();
+  }
+
+  // ------------------------------------------------------------
+  // Object
+
+  @Override
+  public String toString() {
+    return "Page(" + items + ", " + next + ")";
+  }
+}
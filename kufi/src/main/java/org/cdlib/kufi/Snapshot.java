@@ -0,0 +1,19 @@
+package org.cdlib.kufi;
+
+/**
+ * {@link StoreView} fixed at a single past or present {@link Transaction},
+ * unaffected by later writes. The version stays pinned in memory until the
+ * snapshot is closed.
+ *
+ * Finders and links are consistent as of the snapshot's transaction; note
+ * that navigating from a returned resource (e.g. to its children) reads the
+ * live store.
+ */
+public interface Snapshot extends StoreView, AutoCloseable {
+
+  /**
+   * Releases the pinned version. Idempotent.
+   */
+  @Override
+  void close();
+}
@@ -1,17 +1,45 @@
 package org.cdlib.kufi;
 
-import io.reactivex.Maybe;
-import io.reactivex.Observable;
+import io.reactivex.Flowable;
 import io.reactivex.Single;
 
-import java.util.UUID;
+public interface Store extends StoreView {
 
-public interface Store {
+  // ------------------------------------------------------------
+  // Snapshots
+
+  /**
+   * Opens a read-only view of the store as of the specified transaction,
+   * which must be the current transaction or a recent one still retained
+   * by the store.
+   *
+   * @return The snapshot, or {@link VersionNotRetainedException} if the
+   * state at that transaction is no longer available.
+   */
+  Single<Snapshot> at(Transaction tx);
+
+  // ------------------------------------------------------------
+  // Changes
+
+  /**
+   * Streams the changes made by each transaction from {@code fromTxid}
+   * (inclusive) onward, in transaction order, and then by each transaction
+   * as it's committed. The stream doesn't complete on its own; cancel the
+   * subscription to stop it. Changes are delivered asynchronously, never on
+   * the thread that committed them.
+   *
+   * Changes are delivered only as fast as they're requested. A subscriber
+   * that falls too far behind, or that starts from a transaction the store
+   * no longer holds in memory, is caught up from the store's transaction
+   * log, if it has one; otherwise the stream fails with
+   * {@link ChangesNotRetainedException}.
+   */
+  Flowable<Change> changes(long fromTxid);
 
   // ------------------------------------------------------------
-  // State
+  // Batches
 
-  Single<Transaction> transaction();
+  Batch batch();
 
   // ------------------------------------------------------------
   // Workspaces
@@ -24,6 +52,15 @@ public interface Store {
 
   Single<Workspace> deleteWorkspace(Workspace ws, boolean recursive);
 
+  /**
+   * Deletes the workspace only if it's still at the expected version. The
+   * check and the delete are atomic.
+   *
+   * @return The deleted workspace, or {@link VersionConflictException} if
+   * the workspace has changed since {@code expectedVersion}.
+   */
+  Single<Workspace> deleteWorkspace(Workspace ws, boolean recursive, Version expectedVersion);
+
   // ------------------------------------------------------------
   // Collections
 
@@ -31,24 +68,28 @@ public interface Store {
 
   Single<Collection> createCollection(Collection parent);
 
+  /**
+   * Creates a collection only if the parent is still at the expected
+   * version. The check and the create are atomic.
+   *
+   * @return The new collection, or {@link VersionConflictException} if the
+   * parent has changed since {@code expectedVersion}.
+   */
+  Single<Collection> createCollection(Workspace parent, Version expectedVersion);
+
+  /**
+   * @see #createCollection(Workspace, Version)
+   */
+  Single<Collection> createCollection(Collection parent, Version expectedVersion);
+
   default Single<Collection> deleteCollection(Collection ws) {
     return deleteCollection(ws, false);
   }
 
   Single<Collection> deleteCollection(Collection ws, boolean recursive);
 
-  // ------------------------------------------------------------
-  // Finders
-
-  Maybe<Resource<?>> find(UUID id);
-
-  Maybe<Resource<?>> findTombstone(UUID id);
-
-  <R extends Resource<R>> Maybe<R> find(UUID id, ResourceType<R> type);
-
-  <R extends Resource<R>> Maybe<R> findTombstone(UUID id, ResourceType<R> type);
-
-  Observable<Link> linksFrom(UUID id);
-
-  Observable<Link> linksTo(UUID id);
+  /**
+   * @see #deleteWorkspace(Workspace, boolean, Version)
+   */
+  Single<Collection> deleteCollection(Collection coll, boolean recursive, Version expectedVersion);
 }
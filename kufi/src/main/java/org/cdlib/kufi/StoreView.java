@@ -0,0 +1,86 @@
+package org.cdlib.kufi;
+
+import io.reactivex.Flowable;
+import io.reactivex.Maybe;
+import io.reactivex.Observable;
+import io.reactivex.Single;
+
+import java.util.UUID;
+
+/**
+ * Read-only view of the resources and links in a {@link Store}.
+ */
+public interface StoreView {
+
+  // ------------------------------------------------------------
+  // State
+
+  Single<Transaction> transaction();
+
+  // ------------------------------------------------------------
+  // Finders
+
+  Maybe<Resource<?>> find(UUID id);
+
+  Maybe<Resource<?>> findTombstone(UUID id);
+
+  <R extends Resource<R>> Maybe<R> find(UUID id, ResourceType<R> type);
+
+  <R extends Resource<R>> Maybe<R> findTombstone(UUID id, ResourceType<R> type);
+
+  /**
+   * Finds the parent, grandparent, etc. of the specified resource, up to and
+   * including its workspace.
+   *
+   * @return The current version of each ancestor, nearest first; empty if
+   * the resource doesn't exist or has no parent.
+   */
+  Observable<Resource<?>> ancestorsOf(UUID id);
+
+  Observable<Link> linksFrom(UUID id);
+
+  Observable<Link> linksTo(UUID id);
+
+  // ------------------------------------------------------------
+  // Streaming finders
+
+  /**
+   * Like {@link #linksFrom(UUID)}, but honors backpressure: links are read
+   * lazily from the state as of this call, as downstream requests them.
+   */
+  Flowable<Link> streamLinksFrom(UUID id);
+
+  /**
+   * Like {@link #linksTo(UUID)}, but honors backpressure: links are read
+   * lazily from the state as of this call, as downstream requests them.
+   */
+  Flowable<Link> streamLinksTo(UUID id);
+
+  /**
+   * Streams the live children of the specified type of the specified
+   * resource, read lazily from the state as of this call, as downstream
+   * requests them.
+   *
+   * @return The children, in no particular order; empty if the resource
+   * doesn't exist or has no children of that type.
+   */
+  <R extends Resource<R>> Flowable<R> streamChildren(UUID parentId, ResourceType<R> type);
+
+  // ------------------------------------------------------------
+  // Paged finders
+
+  /**
+   * Lists a page of the live children of the specified type of the specified
+   * resource, in creation order. Reading a page costs O(limit + log n) in the
+   * number of children, and cursors stay valid across concurrent writes:
+   * children created later appear on later pages, and deleting a child
+   * doesn't shift the pages after it.
+   *
+   * @param after The position to start after; {@link Cursor#START} for the first page.
+   * @param limit The maximum number of children to return; must be positive.
+   * @return The page, whose {@link Page#next()} cursor is defined if there may be more
+   *   children; an empty last page if the resource doesn't exist or has no children
+   *   of that type.
+   */
+  <R extends Resource<R>> Single<Page<R>> children(UUID parentId, ResourceType<R> type, Cursor after, int limit);
+}
@@ -1,30 +1,46 @@
 package org.cdlib.kufi;
 
+import org.cdlib.kufi.util.MonotonicClock;
 import org.cdlib.kufi.util.Ordered;
 import org.cdlib.kufi.util.TimeUtil;
+import org.cdlib.kufi.util.TransactionClock;
 
 import java.time.ZonedDateTime;
 
-import static org.cdlib.kufi.util.TimeUtil.utcNow;
-
 public final class Transaction implements Ordered<Transaction> {
 
   // ------------------------------------------------------------
   // Fields
 
   private final long txid;
-  private final ZonedDateTime timestamp;
+  private final long epochNanos;
+
+  /**
+   * Materialized from {@link #epochNanos} on first use. Unsynchronized, since
+   * a {@code ZonedDateTime} is immutable and racing threads compute equal values.
+   */
+  private ZonedDateTime timestamp;
 
   // ------------------------------------------------------------
   // Constructor
 
   public static Transaction initTransaction() {
-    return new Transaction(0L, utcNow());
+    return new Transaction(0L, MonotonicClock.system().epochNanos());
   }
 
+  /**
+   * @throws ArithmeticException if the timestamp is too far from the epoch to
+   *   represent in nanoseconds (i.e., before 1677 or after 2262)
+   */
   public Transaction(long txid, ZonedDateTime timestamp) {
     this.txid = txid;
-    this.timestamp = TimeUtil.requireUTC(timestamp);
+    this.epochNanos = TimeUtil.epochNanos(TimeUtil.requireUTC(timestamp).toInstant());
+    this.timestamp = timestamp;
+  }
+
+  public Transaction(long txid, long epochNanos) {
+    this.txid = txid;
+    this.epochNanos = epochNanos;
   }
 
   // ------------------------------------------------------------
@@ -34,12 +50,35 @@ public final class Transaction implements Ordered<Transaction> {
     return txid;
   }
 
+  /**
+   * @return The timestamp of this transaction, in nanoseconds since the epoch.
+   */
+  public long epochNanos() {
+    return epochNanos;
+  }
+
   public ZonedDateTime timestamp() {
-    return timestamp;
+    var ts = timestamp;
+    if (ts == null) {
+      timestamp = ts = TimeUtil.utcDateTime(epochNanos);
+    }
+    return ts;
   }
 
+  /**
+   * @return The next transaction, timestamped from the {@linkplain MonotonicClock#system() system clock}.
+   * Stores timestamp their transactions from their own clocks instead.
+   */
   public Transaction next() {
-    return new Transaction(txid + 1, utcNow());
+    return next(MonotonicClock.system());
+  }
+
+  /**
+   * @return The next transaction, timestamped from the specified clock, or one
+   *   nanosecond after this transaction if the clock reads earlier than that.
+   */
+  public Transaction next(TransactionClock clock) {
+    return new Transaction(txid + 1, Math.max(clock.epochNanos(), epochNanos + 1));
   }
 
   // ------------------------------------------------------------
@@ -47,14 +86,11 @@ public final class Transaction implements Ordered<Transaction> {
 
   @Override
   public int compareTo(Transaction o) {
-    if (o == this) {
-      return 0;
-    }
     var order = Long.compare(txid, o.txid);
     if (order != 0) {
       return order;
     }
-    return timestamp.compareTo(o.timestamp);
+    return Long.compare(epochNanos, o.epochNanos);
   }
 
   // ------------------------------------------------------------
@@ -70,25 +106,18 @@ public final class Transaction implements Ordered<Transaction> {
     }
 
     var that = (Transaction) o;
-    if (txid != that.txid) {
-      return false;
-    }
-    return timestamp.equals(that.timestamp);
+    return txid == that.txid && epochNanos == that.epochNanos;
   }
 
   @Override
   public int hashCode() {
     var result = (int) (txid ^ (txid >>> 32));
-    result = 31 * result + timestamp.hashCode();
+    result = 31 * result + (int) (epochNanos ^ (epochNanos >>> 32));
     return result;
   }
 
   @Override
   public String toString() {
-    return "Transaction(" + txid + ", " + timestamp.toInstant() + ")";
+    return "Transaction(" + txid + ", " + timestamp().toInstant() + ")";
   }
-
-  // ------------------------------------------------------------
-  // Private class methods
-
 }
@@ -0,0 +1,42 @@
+package org.cdlib.kufi;
+
+import java.util.UUID;
+
+/**
+ * Thrown (or emitted) by a conditional mutation when the resource it's
+ * conditional on is no longer at the expected version.
+ */
+public class VersionConflictException extends RuntimeException {
+  private final UUID id;
+  private final ResourceType<?> type;
+  private final Version expected;
+  private final Version actual;
+
+  public VersionConflictException(UUID id, ResourceType<?> type, Version expected, Version actual) {
+    super("Expected resource " + type + " with ID " + id + " to be at " + expected + ", but was " + actual);
+    this.id = id;
+    this.type = type;
+    this.expected = expected;
+    this.actual = actual;
+  }
+
+  public UUID id() {
+    return id;
+  }
+
+  public ResourceType<?> type() {
+    return type;
+  }
+
+  public Version expected() {
+    return expected;
+  }
+
+  /**
+   * @return The resource's current version. If the resource has been
+   * deleted, this is the version of its tombstone.
+   */
+  public Version actual() {
+    return actual;
+  }
+}
@@ -0,0 +1,14 @@
+package org.cdlib.kufi;
+
+public class VersionNotRetainedException extends RuntimeException {
+  private final Transaction transaction;
+
+  public VersionNotRetainedException(Transaction transaction) {
+    super("Store state at transaction " + transaction + " is no longer retained");
+    this.transaction = transaction;
+  }
+
+  public Transaction transaction() {
+    return transaction;
+  }
+}
@@ -1,7 +1,13 @@
 package org.cdlib.kufi;
 
+import io.reactivex.Flowable;
 import io.reactivex.Observable;
 
 public interface Workspace extends Resource<Workspace> {
   Observable<Collection> childCollections();
+
+  /**
+   * Like {@link #childCollections()}, but honors backpressure.
+   */
+  Flowable<Collection> streamChildCollections();
 }
@@ -0,0 +1,12 @@
+package org.cdlib.kufi.memory;
+
+import org.cdlib.kufi.Transaction;
+
+/**
+ * A single operation in a {@link MemoryBatch}, applied to the state produced
+ * by the previous operation.
+ */
+@FunctionalInterface
+interface BatchOp {
+  StoreUpdate<?> apply(StoreState state, Transaction txNext);
+}
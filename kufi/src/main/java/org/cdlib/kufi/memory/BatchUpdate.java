@@ -0,0 +1,52 @@
+package org.cdlib.kufi.memory;
+
+import io.vavr.collection.Seq;
+import org.cdlib.kufi.Change;
+
+class BatchUpdate {
+
+  // ------------------------------------------------------------
+  // Instance fields
+
+  private final Seq<MemoryResource<?>> resources;
+  private final Seq<Mutation> mutations;
+  private final Iterable<Change> changes;
+  private final StoreState stateNext;
+
+  // ------------------------------------------------------------
+  // Factory method
+
+  static BatchUpdate of(Seq<MemoryResource<?>> resources, Seq<Mutation> mutations, Iterable<Change> changes, StoreState stateNext) {
+    return new BatchUpdate(resources, mutations, changes, stateNext);
+  }
+
+  // ------------------------------------------------------------
+  // Constructor
+
+  private BatchUpdate(Seq<MemoryResource<?>> resources, Seq<Mutation> mutations, Iterable<Change> changes, StoreState stateNext) {
+    this.resources = resources;
+    this.mutations = mutations;
+    this.changes = changes;
+    this.stateNext = stateNext;
+  }
+
+  // ------------------------------------------------------------
+  // Accessors
+
+  Seq<MemoryResource<?>> resources() {
+    return resources;
+  }
+
+  Seq<Mutation> mutations() {
+    return mutations;
+  }
+
+  Iterable<Change> changes() {
+    return changes;
+  }
+
+  StoreState stateNext() {
+    return stateNext;
+  }
+
+}
@@ -0,0 +1,270 @@
+package org.cdlib.kufi.memory;
+
+import io.reactivex.Flowable;
+import io.reactivex.Scheduler;
+import io.reactivex.exceptions.Exceptions;
+import io.reactivex.plugins.RxJavaPlugins;
+import org.cdlib.kufi.ChangesNotRetainedException;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.LongSupplier;
+
+import static org.cdlib.kufi.util.Preconditions.require;
+
+/**
+ * The {@link ChangeSet}s of recently committed transactions, for
+ * {@link MemoryStore#changes(long)}.
+ *
+ * Like {@link VersionHistory}, change sets are kept in a fixed-size ring:
+ * the changes for txid {@code t} live in slot {@code t % capacity} until a
+ * later transaction's changes overwrite them, and each slot only ever moves forward.
+ * Each subscriber reads the ring at its own pace, one change set per unit of
+ * demand, on its own worker of the feed's scheduler; recording a set only
+ * signals subscribers to wake up, so a slow subscriber never holds up the
+ * writer that recorded it. Nothing is buffered per subscriber. A subscriber that asks for changes that have already been
+ * overwritten, or that were committed before the feed started, fails with
+ * {@link ChangesNotRetainedException}, so the store can catch it up from
+ * somewhere else.
+ */
+final class ChangeFeed {
+
+  // ------------------------------------------------------------
+  // Instance fields
+
+  private final AtomicReferenceArray<ChangeSet> ring;
+  private final LongSupplier committedTxid;
+  private final Scheduler scheduler;
+
+  /** The first txid recorded, or -1 if nothing has been committed since the feed was created */
+  private final AtomicLong firstTxid = new AtomicLong(-1L);
+  private final List<ChangeSubscription> subscriptions = new CopyOnWriteArrayList<>();
+
+  // ------------------------------------------------------------
+  // Constructor
+
+  /**
+   * @param committedTxid Gets the txid of the most recent state the store's
+   *                      readers can see.
+   * @param scheduler     Provides the worker each subscriber is delivered to on.
+   */
+  ChangeFeed(int capacity, LongSupplier committedTxid, Scheduler scheduler) {
+    require(capacity > 0, () -> "Retained change count must be > 0: " + capacity);
+    ring = new AtomicReferenceArray<>(capacity);
+    this.committedTxid = committedTxid;
+    this.scheduler = scheduler;
+  }
+
+  // ------------------------------------------------------------
+  // Package-private
+
+  int capacity() {
+    return ring.length();
+  }
+
+  int subscriberCount() {
+    return subscriptions.size();
+  }
+
+  /**
+   * Marks the specified transaction as the first one the feed will record.
+   * Must be called before the first state the feed will record is published;
+   * calls after the first have no effect.
+   */
+  void start(long txid) {
+    if (firstTxid.get() < 0) {
+      firstTxid.compareAndSet(-1L, txid);
+    }
+  }
+
+  /**
+   * Records the changes of a newly committed transaction, and signals any
+   * subscribers waiting for them. Nothing is delivered on the calling thread.
+   */
+  void record(ChangeSet changes) {
+    var txid = changes.txid();
+    var slot = slot(txid);
+    while (true) {
+      var existing = ring.get(slot);
+      if (existing != null && existing.txid() >= txid) {
+        break;
+      }
+      if (ring.compareAndSet(slot, existing, changes)) {
+        break;
+      }
+    }
+    for (var subscription : subscriptions) {
+      subscription.signal();
+    }
+  }
+
+  /**
+   * @return The change sets of each transaction from the specified one
+   * onward, as they become available.
+   */
+  Flowable<ChangeSet> from(long txid) {
+    return new LiveChanges(txid);
+  }
+
+  // ------------------------------------------------------------
+  // Private
+
+  private int slot(long txid) {
+    return (int) (txid % ring.length());
+  }
+
+  private ChangeSet lookup(long txid) {
+    var changes = ring.get(slot(txid));
+    return changes != null && changes.txid() == txid ? changes : null;
+  }
+
+  /**
+   * @return true if the changes of the specified transaction are not in the
+   * ring and never will be.
+   */
+  private boolean isLost(long txid) {
+    var changes = ring.get(slot(txid));
+    if (changes != null && changes.txid() > txid) {
+      return true;
+    }
+    // read the committed txid first: the feed is started before anything it
+    // records is published, so if it's not started now, everything committed
+    // so far predates it
+    var committed = committedTxid.getAsLong();
+    var first = firstTxid.get();
+    return first < 0 ? txid <= committed : txid < first;
+  }
+
+  // ------------------------------------------------------------
+  // Helper classes
+
+  private final class LiveChanges extends Flowable<ChangeSet> {
+    private final long fromTxid;
+
+    private LiveChanges(long fromTxid) {
+      this.fromTxid = fromTxid;
+    }
+
+    @Override
+    protected void subscribeActual(Subscriber<? super ChangeSet> subscriber) {
+      var subscription = new ChangeSubscription(subscriber, fromTxid, scheduler.createWorker());
+      subscriber.onSubscribe(subscription);
+      subscriptions.add(subscription);
+      if (subscription.cancelled) {
+        subscriptions.remove(subscription);
+        return;
+      }
+      subscription.signal();
+    }
+  }
+
+  /**
+   * Emits from the ring as demand allows, on its own worker, using the usual
+   * work-in-progress counter so that only one drain is scheduled at a time,
+   * and a signal that arrives mid-drain causes another pass rather than
+   * being lost.
+   */
+  private final class ChangeSubscription extends AtomicInteger implements Subscription {
+    private final Subscriber<? super ChangeSet> downstream;
+    private final Scheduler.Worker worker;
+    private final AtomicLong requested = new AtomicLong();
+    private volatile boolean cancelled;
+
+    /** Only accessed while draining */
+    private long nextTxid;
+
+    private ChangeSubscription(Subscriber<? super ChangeSet> downstream, long fromTxid, Scheduler.Worker worker) {
+      this.downstream = downstream;
+      this.nextTxid = fromTxid;
+      this.worker = worker;
+    }
+
+    @Override
+    public void request(long n) {
+      if (n <= 0) {
+        cancel();
+        downstream.onError(new IllegalArgumentException("Request must be > 0: " + n));
+        return;
+      }
+      addRequested(n);
+      signal();
+    }
+
+    @Override
+    public void cancel() {
+      cancelled = true;
+      subscriptions.remove(this);
+      worker.dispose();
+    }
+
+    /**
+     * Schedules a drain, unless one is already scheduled or running.
+     */
+    private void signal() {
+      if (getAndIncrement() == 0) {
+        worker.schedule(this::drain);
+      }
+    }
+
+    private void drain() {
+      var missed = 1;
+      do {
+        var demand = requested.get();
+        var emitted = 0L;
+        while (emitted != demand) {
+          if (cancelled) {
+            return;
+          }
+          var changes = lookup(nextTxid);
+          if (changes == null) {
+            if (isLost(nextTxid)) {
+              cancel();
+              downstream.onError(new ChangesNotRetainedException(nextTxid));
+              return;
+            }
+            break;
+          }
+          try {
+            downstream.onNext(changes);
+          } catch (Throwable e) {
+            // a broken subscriber: stop delivering to it, and report it
+            // like any other undeliverable error
+            Exceptions.throwIfFatal(e);
+            cancel();
+            RxJavaPlugins.onError(e);
+            return;
+          }
+          nextTxid++;
+          emitted++;
+        }
+        if (emitted != 0) {
+          produced(emitted);
+        }
+        missed = addAndGet(-missed);
+      } while (missed != 0);
+    }
+
+    /**
+     * Adds to the outstanding demand, capping it at {@code Long.MAX_VALUE},
+     * which means unbounded.
+     */
+    private void addRequested(long n) {
+      requested.getAndUpdate(r -> {
+        var sum = r + n;
+        return sum < 0 ? Long.MAX_VALUE : sum;
+      });
+    }
+
+    /**
+     * Subtracts emitted items from the outstanding demand, unless it's unbounded.
+     */
+    private void produced(long n) {
+      requested.getAndUpdate(r -> r == Long.MAX_VALUE ? r : r - n);
+    }
+  }
+}
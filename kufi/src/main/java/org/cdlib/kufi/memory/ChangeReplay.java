@@ -0,0 +1,83 @@
+package org.cdlib.kufi.memory;
+
+import io.vavr.collection.Vector;
+import org.cdlib.kufi.Change;
+import org.cdlib.kufi.ChangesNotRetainedException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+
+/**
+ * Recomputes the changes of past transactions by replaying a
+ * {@link TransactionLog} on top of the state it was started from, for change
+ * subscribers that have fallen behind the {@link ChangeFeed}. Replay happens
+ * against a private copy of the state and doesn't affect the store.
+ */
+final class ChangeReplay implements Closeable {
+
+  // ------------------------------------------------------------
+  // Instance fields
+
+  private final MemoryStore store;
+  private final TransactionLog.Reader reader;
+  private final long fromTxid;
+
+  private StoreState state;
+
+  // ------------------------------------------------------------
+  // Constructor
+
+  /**
+   * @param initialState The state the log records follow, i.e. the last
+   *                     snapshot, or an empty state if there isn't one
+   * @throws ChangesNotRetainedException if {@code fromTxid} is already
+   *                                     covered by {@code initialState}
+   */
+  ChangeReplay(MemoryStore store, StoreState initialState, TransactionLog.Reader reader, long fromTxid) {
+    if (fromTxid <= initialState.transaction().txid()) {
+      throw new ChangesNotRetainedException(fromTxid);
+    }
+    this.store = store;
+    this.state = initialState;
+    this.reader = reader;
+    this.fromTxid = fromTxid;
+  }
+
+  // ------------------------------------------------------------
+  // Package-private
+
+  /**
+   * @return The changes of the next logged transaction at or after the
+   * starting transaction, or {@code null} if there are no more records.
+   * @throws ChangesNotRetainedException if the log doesn't pick up where the
+   *                                     initial state left off
+   */
+  ChangeSet next() throws IOException {
+    while (reader.next()) {
+      var tx = reader.transaction();
+      var txid = tx.txid();
+      var expected = state.transaction().txid() + 1;
+      if (txid < expected) {
+        // already reflected in the initial state
+        continue;
+      }
+      if (txid > expected) {
+        throw new ChangesNotRetainedException(expected);
+      }
+      if (txid < fromTxid) {
+        state = state.replay(store, tx, reader.mutations());
+        continue;
+      }
+      var changes = new ArrayList<Iterable<Change>>();
+      state = state.replay(store, tx, reader.mutations(), changes::add);
+      return new ChangeSet(tx, ChangeSet.concat(Vector.ofAll(changes)));
+    }
+    return null;
+  }
+
+  @Override
+  public void close() throws IOException {
+    reader.close();
+  }
+}
@@ -0,0 +1,48 @@
+package org.cdlib.kufi.memory;
+
+import io.vavr.collection.Seq;
+import org.cdlib.kufi.Change;
+import org.cdlib.kufi.Transaction;
+
+/**
+ * The changes made by a single committed transaction.
+ */
+final class ChangeSet {
+
+  // ------------------------------------------------------------
+  // Instance fields
+
+  private final Transaction tx;
+  private final Iterable<Change> changes;
+
+  // ------------------------------------------------------------
+  // Constructor
+
+  ChangeSet(Transaction tx, Iterable<Change> changes) {
+    this.tx = tx;
+    this.changes = changes;
+  }
+
+  // ------------------------------------------------------------
+  // Package-private
+
+  /**
+   * @return The changes of each of the specified operations, in order, as a
+   * single lazily-evaluated sequence.
+   */
+  static Iterable<Change> concat(Seq<Iterable<Change>> changes) {
+    return () -> changes.iterator().<Change>flatMap(c -> c);
+  }
+
+  long txid() {
+    return tx.txid();
+  }
+
+  Transaction transaction() {
+    return tx;
+  }
+
+  Iterable<Change> changes() {
+    return changes;
+  }
+}
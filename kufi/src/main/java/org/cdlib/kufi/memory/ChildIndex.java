@@ -0,0 +1,106 @@
+package org.cdlib.kufi.memory;
+
+import io.vavr.collection.HashMap;
+import io.vavr.collection.Map;
+import io.vavr.collection.Vector;
+import io.vavr.control.Option;
+import org.cdlib.kufi.Cursor;
+import org.cdlib.kufi.Page;
+import org.cdlib.kufi.Resource;
+import org.cdlib.kufi.ResourceType;
+
+import java.util.ArrayList;
+
+import static io.vavr.control.Option.none;
+import static io.vavr.control.Option.some;
+
+/**
+ * Live children of a single parent, partitioned by {@link ResourceType}, with
+ * a running count. Children are stored as the targets of their live
+ * {@code PARENT_OF} links, so lookups don't have to filter out deleted links.
+ * Each partition is a {@link ChildTree}, kept in creation order, so that
+ * pages can be read from any {@link Cursor} without scanning the children
+ * before it.
+ */
+final class ChildIndex {
+
+  // ------------------------------------------------------------
+  // Constants
+
+  static final ChildIndex EMPTY = new ChildIndex(HashMap.empty(), 0);
+
+  // ------------------------------------------------------------
+  // Instance fields
+
+  private final Map<ResourceType<?>, ChildTree> byType;
+  private final int count;
+
+  // ------------------------------------------------------------
+  // Constructor
+
+  private ChildIndex(Map<ResourceType<?>, ChildTree> byType, int count) {
+    this.byType = byType;
+    this.count = count;
+  }
+
+  // ------------------------------------------------------------
+  // Package-private
+
+  int count() {
+    return count;
+  }
+
+  @SuppressWarnings("unchecked")
+  <R extends Resource<R>> Iterable<R> ofType(ResourceType<R> type) {
+    // safe because each partition only holds resources of its own type
+    return (Iterable<R>) (Iterable<?>) partition(type);
+  }
+
+  /**
+   * @return Up to {@code limit} children of the specified type following the
+   * specified position, in creation order.
+   */
+  @SuppressWarnings("unchecked")
+  <R extends Resource<R>> Page<R> page(ResourceType<R> type, Cursor after, int limit) {
+    var children = partition(type);
+    var iterator = after.isStart() ? children.iterator() : children.iteratorAfter(after.txid(), after.id());
+
+    var items = new ArrayList<R>(Math.min(limit, children.size()));
+    MemoryResource<?> last = null;
+    while (items.size() < limit && iterator.hasNext()) {
+      last = iterator.next();
+      // safe because each partition only holds resources of its own type
+      items.add((R) last);
+    }
+    Option<Cursor> next = last != null && iterator.hasNext() ? some(Cursor.after(last.transaction().txid(), last.id())) : none();
+    return new Page<>(Vector.ofAll(items), next);
+  }
+
+  ChildIndex add(MemoryResource<?> child) {
+    var type = child.type();
+    var children = partition(type);
+    var childrenNext = children.add(child);
+    if (childrenNext == children) {
+      return this;
+    }
+    return new ChildIndex(byType.put(type, childrenNext), count + 1);
+  }
+
+  ChildIndex remove(MemoryResource<?> child) {
+    var type = child.type();
+    var children = partition(type);
+    var childrenNext = children.remove(child);
+    if (childrenNext == children) {
+      return this;
+    }
+    var byTypeNext = childrenNext.isEmpty() ? byType.remove(type) : byType.put(type, childrenNext);
+    return new ChildIndex(byTypeNext, count - 1);
+  }
+
+  // ------------------------------------------------------------
+  // Private
+
+  private ChildTree partition(ResourceType<?> type) {
+    return byType.getOrElse(type, ChildTree.EMPTY);
+  }
+}
@@ -0,0 +1,233 @@
+package org.cdlib.kufi.memory;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+
+/**
+ * Persistent set of child resources in creation order, i.e. ordered by the
+ * txid of the version stored (the version each child was created at), then
+ * by ID. Backed by an AVL tree with path copying, so adds and removes cost
+ * O(log n) and share all untouched nodes with the previous tree, and
+ * iteration can start from any position in O(log n).
+ */
+final class ChildTree implements Iterable<MemoryResource<?>> {
+
+  // ------------------------------------------------------------
+  // Constants
+
+  static final ChildTree EMPTY = new ChildTree(null, 0);
+
+  // ------------------------------------------------------------
+  // Instance fields
+
+  private final Node root;
+  private final int size;
+
+  // ------------------------------------------------------------
+  // Constructor
+
+  private ChildTree(Node root, int size) {
+    this.root = root;
+    this.size = size;
+  }
+
+  // ------------------------------------------------------------
+  // Package-private
+
+  int size() {
+    return size;
+  }
+
+  boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * @return A tree including the specified child, or this tree if it already does.
+   */
+  ChildTree add(MemoryResource<?> child) {
+    var rootNext = insert(root, child.transaction().txid(), child);
+    return rootNext == root ? this : new ChildTree(rootNext, size + 1);
+  }
+
+  /**
+   * @return A tree without the specified child, or this tree if it doesn't include it.
+   */
+  ChildTree remove(MemoryResource<?> child) {
+    var rootNext = delete(root, child.transaction().txid(), child.id());
+    return rootNext == root ? this : new ChildTree(rootNext, size - 1);
+  }
+
+  @Override
+  public Iterator<MemoryResource<?>> iterator() {
+    return new NodeIterator(root);
+  }
+
+  /**
+   * @return The children following the position of the specified key, in order.
+   */
+  Iterator<MemoryResource<?>> iteratorAfter(long txid, UUID id) {
+    return new NodeIterator(root, txid, id);
+  }
+
+  // ------------------------------------------------------------
+  // Private class methods
+
+  private static int compare(long txid, UUID id, Node node) {
+    var order = Long.compare(txid, node.txid);
+    if (order != 0) {
+      return order;
+    }
+    var nodeId = node.value.id();
+    order = Long.compare(id.getMostSignificantBits(), nodeId.getMostSignificantBits());
+    if (order != 0) {
+      return order;
+    }
+    return Long.compare(id.getLeastSignificantBits(), nodeId.getLeastSignificantBits());
+  }
+
+  private static Node insert(Node node, long txid, MemoryResource<?> value) {
+    if (node == null) {
+      return new Node(txid, value, null, null);
+    }
+    var order = compare(txid, value.id(), node);
+    if (order < 0) {
+      var left = insert(node.left, txid, value);
+      return left == node.left ? node : balance(node.with(left, node.right));
+    }
+    if (order > 0) {
+      var right = insert(node.right, txid, value);
+      return right == node.right ? node : balance(node.with(node.left, right));
+    }
+    return node;
+  }
+
+  private static Node delete(Node node, long txid, UUID id) {
+    if (node == null) {
+      return null;
+    }
+    var order = compare(txid, id, node);
+    if (order < 0) {
+      var left = delete(node.left, txid, id);
+      return left == node.left ? node : balance(node.with(left, node.right));
+    }
+    if (order > 0) {
+      var right = delete(node.right, txid, id);
+      return right == node.right ? node : balance(node.with(node.left, right));
+    }
+    if (node.left == null) {
+      return node.right;
+    }
+    if (node.right == null) {
+      return node.left;
+    }
+    var successor = node.right;
+    while (successor.left != null) {
+      successor = successor.left;
+    }
+    var right = delete(node.right, successor.txid, successor.value.id());
+    return balance(new Node(successor.txid, successor.value, node.left, right));
+  }
+
+  private static Node balance(Node node) {
+    var skew = height(node.left) - height(node.right);
+    if (skew > 1) {
+      var left = node.left;
+      if (height(left.left) < height(left.right)) {
+        left = rotateLeft(left);
+      }
+      return rotateRight(node.with(left, node.right));
+    }
+    if (skew < -1) {
+      var right = node.right;
+      if (height(right.right) < height(right.left)) {
+        right = rotateRight(right);
+      }
+      return rotateLeft(node.with(node.left, right));
+    }
+    return node;
+  }
+
+  private static Node rotateRight(Node node) {
+    var left = node.left;
+    return left.with(left.left, node.with(left.right, node.right));
+  }
+
+  private static Node rotateLeft(Node node) {
+    var right = node.right;
+    return right.with(node.with(node.left, right.left), right.right);
+  }
+
+  private static int height(Node node) {
+    return node == null ? 0 : node.height;
+  }
+
+  // ------------------------------------------------------------
+  // Helper classes
+
+  private static final class Node {
+    private final long txid;
+    private final MemoryResource<?> value;
+    private final Node left;
+    private final Node right;
+    private final int height;
+
+    private Node(long txid, MemoryResource<?> value, Node left, Node right) {
+      this.txid = txid;
+      this.value = value;
+      this.left = left;
+      this.right = right;
+      this.height = 1 + Math.max(height(left), height(right));
+    }
+
+    private Node with(Node left, Node right) {
+      return new Node(txid, value, left, right);
+    }
+  }
+
+  /**
+   * In-order traversal, holding the path of nodes still to be visited.
+   */
+  private static final class NodeIterator implements Iterator<MemoryResource<?>> {
+    private final ArrayDeque<Node> pending = new ArrayDeque<>();
+
+    private NodeIterator(Node root) {
+      pushLeft(root);
+    }
+
+    private NodeIterator(Node root, long txid, UUID id) {
+      var node = root;
+      while (node != null) {
+        if (compare(txid, id, node) < 0) {
+          pending.push(node);
+          node = node.left;
+        } else {
+          node = node.right;
+        }
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      return !pending.isEmpty();
+    }
+
+    @Override
+    public MemoryResource<?> next() {
+      if (pending.isEmpty()) {
+        throw new NoSuchElementException();
+      }
+      var node = pending.pop();
+      pushLeft(node.right);
+      return node.value;
+    }
+
+    private void pushLeft(Node node) {
+      for (var n = node; n != null; n = n.left) {
+        pending.push(n);
+      }
+    }
+  }
+}
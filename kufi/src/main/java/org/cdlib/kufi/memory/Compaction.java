@@ -0,0 +1,103 @@
+package org.cdlib.kufi.memory;
+
+import io.vavr.collection.Vector;
+import org.cdlib.kufi.Transaction;
+
+import java.util.UUID;
+
+/**
+ * Tombstones and dead links purged (or to be purged) from a {@link MemoryStore}
+ * by {@link MemoryStore#compact(long)}.
+ */
+public final class Compaction {
+
+  // ------------------------------------------------------------
+  // Constants
+
+  /**
+   * Approximate retained size of a tombstone: the resource, its UUID, version
+   * and deletion marker, plus its index entries, with compressed oops.
+   */
+  static final long TOMBSTONE_BYTES = 136;
+
+  /**
+   * Approximate retained size of a dead link: the link and its deletion marker,
+   * plus its entries in the by-source and by-target link sets.
+   */
+  static final long DEAD_LINK_BYTES = 112;
+
+  // ------------------------------------------------------------
+  // Instance fields
+
+  private final Transaction transaction;
+  private final long retainFromTxid;
+  private final Vector<UUID> tombstoneIds;
+  private final Vector<MemoryLink> deadLinks;
+
+  // ------------------------------------------------------------
+  // Constructor
+
+  Compaction(Transaction transaction, long retainFromTxid, Vector<UUID> tombstoneIds, Vector<MemoryLink> deadLinks) {
+    this.transaction = transaction;
+    this.retainFromTxid = retainFromTxid;
+    this.tombstoneIds = tombstoneIds;
+    this.deadLinks = deadLinks;
+  }
+
+  // ------------------------------------------------------------
+  // Accessors
+
+  /**
+   * @return The transaction of the state that was scanned for garbage.
+   */
+  public Transaction transaction() {
+    return transaction;
+  }
+
+  /**
+   * @return The oldest transaction whose deletions were retained; anything
+   * deleted before it was purged.
+   */
+  public long retainFromTxid() {
+    return retainFromTxid;
+  }
+
+  public int reclaimedTombstones() {
+    return tombstoneIds.size();
+  }
+
+  public int reclaimedLinks() {
+    return deadLinks.size();
+  }
+
+  /**
+   * @return An estimate of the heap reclaimed, once no older states are
+   * retained or pinned by snapshots.
+   */
+  public long reclaimedBytes() {
+    return tombstoneIds.size() * TOMBSTONE_BYTES + deadLinks.size() * DEAD_LINK_BYTES;
+  }
+
+  boolean isEmpty() {
+    return tombstoneIds.isEmpty() && deadLinks.isEmpty();
+  }
+
+  // ------------------------------------------------------------
+  // Package-private
+
+  Vector<UUID> tombstoneIds() {
+    return tombstoneIds;
+  }
+
+  Vector<MemoryLink> deadLinks() {
+    return deadLinks;
+  }
+
+  // ------------------------------------------------------------
+  // Object
+
+  @Override
+  public String toString() {
+    return String.format("Compaction(%s, retainFrom=%d, tombstones=%d, links=%d)", transaction, retainFromTxid, reclaimedTombstones(), reclaimedLinks());
+  }
+}
@@ -0,0 +1,65 @@
+package org.cdlib.kufi.memory;
+
+import io.vavr.collection.HashMap;
+import io.vavr.collection.Map;
+
+import java.util.Objects;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * {@link UuidMap} backed by a Vavr {@link HashMap}.
+ */
+final class HashUuidMap<V> implements UuidMap<V> {
+
+  // ------------------------------------------------------------
+  // Class fields
+
+  private static final HashUuidMap<?> EMPTY = new HashUuidMap<>(HashMap.empty());
+
+  // ------------------------------------------------------------
+  // Instance fields
+
+  private final Map<UUID, V> map;
+
+  // ------------------------------------------------------------
+  // Constructor
+
+  @SuppressWarnings("unchecked")
+  static <V> HashUuidMap<V> empty() {
+    return (HashUuidMap<V>) EMPTY;
+  }
+
+  private HashUuidMap(Map<UUID, V> map) {
+    this.map = map;
+  }
+
+  // ------------------------------------------------------------
+  // UuidMap
+
+  @Override
+  public V getOrNull(UUID key) {
+    return map.get(key).getOrNull();
+  }
+
+  @Override
+  public HashUuidMap<V> put(UUID key, V value) {
+    return new HashUuidMap<>(map.put(key, Objects.requireNonNull(value)));
+  }
+
+  @Override
+  public HashUuidMap<V> remove(UUID key) {
+    var mapNext = map.remove(key);
+    return mapNext == map ? this : new HashUuidMap<>(mapNext);
+  }
+
+  @Override
+  public int size() {
+    return map.size();
+  }
+
+  @Override
+  public void forEachValue(Consumer<? super V> action) {
+    map.values().forEach(action);
+  }
+}
@@ -0,0 +1,30 @@
+package org.cdlib.kufi.memory;
+
+/**
+ * Data structure used by a {@link MemoryStore} to index resources and links by ID.
+ */
+public enum IndexBackend {
+
+  /**
+   * Vavr persistent hash maps keyed by {@link java.util.UUID} objects.
+   */
+  HASH_MAP {
+    @Override
+    <V> UuidMap<V> emptyMap() {
+      return HashUuidMap.empty();
+    }
+  },
+
+  /**
+   * Persistent hash tries keyed by the primitive halves of each UUID. Lookups
+   * don't allocate, and leaves are compact arrays rather than per-entry nodes.
+   */
+  PRIMITIVE_TRIE {
+    @Override
+    <V> UuidMap<V> emptyMap() {
+      return TrieUuidMap.empty();
+    }
+  };
+
+  abstract <V> UuidMap<V> emptyMap();
+}
@@ -0,0 +1,98 @@
+package org.cdlib.kufi.memory;
+
+import io.reactivex.Observable;
+import io.vavr.collection.Seq;
+import io.vavr.collection.Vector;
+import org.cdlib.kufi.*;
+
+import java.util.UUID;
+
+import static org.cdlib.kufi.ResourceType.COLLECTION;
+
+class MemoryBatch implements Batch {
+
+  // ------------------------------------------------------------
+  // Instance fields
+
+  private final MemoryStore store;
+  private Vector<BatchOp> ops = Vector.empty();
+
+  // ------------------------------------------------------------
+  // Constructor
+
+  MemoryBatch(MemoryStore store) {
+    this.store = store;
+  }
+
+  // ------------------------------------------------------------
+  // Batch
+
+  @Override
+  public Batch createWorkspace() {
+    return add((s, txNext) -> s.createWorkspace(store, txNext));
+  }
+
+  @Override
+  public Batch createCollection(Workspace parent) {
+    return add((s, txNext) -> s.createChild(store, store.internalize(s, parent), COLLECTION, txNext));
+  }
+
+  @Override
+  public Batch createCollection(Collection parent) {
+    return add((s, txNext) -> s.createChild(store, store.internalize(s, parent), COLLECTION, txNext));
+  }
+
+  @Override
+  public Batch deleteWorkspace(Workspace ws, boolean recursive) {
+    return add((s, txNext) -> s.delete(store.internalize(s, ws), recursive, txNext));
+  }
+
+  @Override
+  public Batch deleteCollection(Collection coll, boolean recursive) {
+    return add((s, txNext) -> s.delete(store.internalize(s, coll), recursive, txNext));
+  }
+
+  @Override
+  public Observable<Resource<?>> commit() {
+    return store.commitBatch(ops);
+  }
+
+  // ------------------------------------------------------------
+  // Package-private
+
+  /**
+   * Like {@link #createWorkspace()}, but with the specified ID.
+   */
+  Batch createWorkspace(UUID id) {
+    return add((s, txNext) -> s.createWorkspace(store, id, txNext));
+  }
+
+  /**
+   * Like {@link #createCollection(Workspace)}, but with the specified ID.
+   */
+  Batch createCollection(Workspace parent, UUID id) {
+    return add((s, txNext) -> s.createChild(store, store.internalize(s, parent), COLLECTION, id, txNext));
+  }
+
+  /**
+   * Like {@link #createCollection(Collection)}, but with the specified ID.
+   */
+  Batch createCollection(Collection parent, UUID id) {
+    return add((s, txNext) -> s.createChild(store, store.internalize(s, parent), COLLECTION, id, txNext));
+  }
+
+  /**
+   * Like {@link #commit()}, but throws on failure.
+   */
+  Seq<MemoryResource<?>> apply() {
+    return store.applyBatch(ops);
+  }
+
+  // ------------------------------------------------------------
+  // Private
+
+  private Batch add(BatchOp op) {
+    ops = ops.append(op);
+    return this;
+  }
+}
@@ -1,12 +1,13 @@
 package org.cdlib.kufi.memory;
 
+import io.reactivex.Flowable;
 import io.reactivex.Observable;
 import io.reactivex.Single;
 import io.vavr.control.Either;
-import io.vavr.control.Option;
 import org.cdlib.kufi.Collection;
 import org.cdlib.kufi.Resource;
-import org.cdlib.kufi.Version;
+import org.cdlib.kufi.ResourceType;
+import org.cdlib.kufi.Transaction;
 import org.cdlib.kufi.Workspace;
 
 import java.util.UUID;
@@ -19,8 +20,24 @@ class MemoryCollection extends MemoryResource<Collection> implements Collection
   // ------------------------------------------------------------
   // Constructor
 
-  MemoryCollection(UUID id, Version currentVersion, Option<Version> deletedAt, MemoryStore store) {
-    super(COLLECTION, id, currentVersion, deletedAt, store);
+  MemoryCollection(UUID id, long vid, Transaction transaction, boolean deleted, MemoryStore store) {
+    super(id, vid, transaction, deleted, store);
+  }
+
+  // ------------------------------------------------------------
+  // MemoryResource
+
+  @Override
+  MemoryCollection withVersion(long vid, Transaction transaction, boolean deleted) {
+    return new MemoryCollection(id(), vid, transaction, deleted, store);
+  }
+
+  // ------------------------------------------------------------
+  // Resource
+
+  @Override
+  public ResourceType<Collection> type() {
+    return COLLECTION;
   }
 
   // ------------------------------------------------------------
@@ -36,6 +53,11 @@ class MemoryCollection extends MemoryResource<Collection> implements Collection
     return store.findChildrenOfType(this, COLLECTION);
   }
 
+  @Override
+  public Flowable<Collection> streamChildCollections() {
+    return store.streamChildren(id(), COLLECTION);
+  }
+
   // ------------------------------------------------------------
   // Class methods
 
@@ -41,6 +41,10 @@ public final class MemoryLink implements Link {
     );
   }
 
+  static MemoryLink restore(MemoryResource<?> source, LinkType type, MemoryResource<?> target, Transaction createdAt, Option<Transaction> deletedAt) {
+    return new MemoryLink(source, type, target, createdAt, deletedAt);
+  }
+
   private static MemoryLink create(MemoryResource<?> source, LinkType type, MemoryResource<?> target, Transaction createdAt, Transaction deletedAt) {
     return new MemoryLink(source, type, target, createdAt, some(deletedAt));
   }
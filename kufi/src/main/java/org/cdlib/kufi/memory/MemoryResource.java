@@ -1,43 +1,147 @@
 package org.cdlib.kufi.memory;
 
-import io.vavr.Lazy;
 import io.vavr.collection.Array;
-import io.vavr.collection.HashMap;
-import io.vavr.collection.Map;
 import io.vavr.control.Option;
 import org.cdlib.kufi.*;
 
+import java.util.Objects;
 import java.util.UUID;
 
-abstract class MemoryResource<R extends Resource<R>> extends AbstractResource<R> {
+import static io.vavr.control.Option.none;
+import static io.vavr.control.Option.some;
 
-  // ------------------------------------------------------------
-  // Class fields
-
-  private static final Lazy<Map<ResourceType<?>, ResourceConstructor<?>>> creators = Lazy.of(() -> HashMap.of(
-    ResourceType.WORKSPACE, (ResourceConstructor<Workspace>) MemoryWorkspace::new,
-    ResourceType.COLLECTION, (ResourceConstructor<Collection>) MemoryCollection::new
-  ));
+/**
+ * Compact record of one version of a resource. Rather than holding a
+ * {@link Version} and an {@code Option<Version>}, each record holds the
+ * primitive version number, the (shared) {@link Transaction}, and a deleted
+ * flag; {@link #currentVersion()} and {@link #deletedAt()} build the boxed
+ * forms only when a caller asks for them. The resource type is implied by
+ * the subclass rather than stored.
+ */
+abstract class MemoryResource<R extends Resource<R>> implements Resource<R> {
 
   // ------------------------------------------------------------
   // Instance fields
 
+  private final UUID id;
+  private final long vid;
+  private final Transaction transaction;
+  private final boolean deleted;
+
   final MemoryStore store;
 
   // ------------------------------------------------------------
   // Constructors
 
-  MemoryResource(ResourceType<R> type, UUID id, Version currentVersion, Option<Version> deletedAt, MemoryStore store) {
-    super(type, id, currentVersion, deletedAt);
+  MemoryResource(UUID id, long vid, Transaction transaction, boolean deleted, MemoryStore store) {
+    this.id = id;
+    this.vid = vid;
+    this.transaction = Objects.requireNonNull(transaction);
+    this.deleted = deleted;
     this.store = store;
   }
 
+  // ------------------------------------------------------------
+  // Abstract methods
+
+  /**
+   * @return A record of the same resource, with the specified version.
+   */
+  abstract MemoryResource<R> withVersion(long vid, Transaction transaction, boolean deleted);
+
   // ------------------------------------------------------------
   // Resource
 
+  @Override
+  public final UUID id() {
+    return id;
+  }
+
+  @Override
+  public final Version currentVersion() {
+    return new Version(vid, transaction);
+  }
+
+  @Override
+  public Option<Version> deletedAt() {
+    return deleted ? some(currentVersion()) : none();
+  }
+
+  @Override
+  public boolean isDeleted() {
+    return deleted;
+  }
+
+  @Override
+  public boolean isLive() {
+    return !deleted;
+  }
+
+  @Override
+  public final <R1 extends Resource<R1>> boolean hasType(ResourceType<R1> type) {
+    return Objects.requireNonNull(type) == type();
+  }
+
+  @Override
+  public final <R1 extends Resource<R1>> Option<R1> as(ResourceType<R1> type) {
+    if (hasType(type)) {
+      return some(type.cast(this));
+    }
+    return none();
+  }
+
+  @Override
+  public boolean isLaterVersionOf(Resource<?> r) {
+    if (r instanceof MemoryResource) {
+      var that = (MemoryResource<?>) r;
+      return id.equals(that.id) && compareVersion(that) > 0;
+    }
+    return Resource.super.isLaterVersionOf(r);
+  }
+
+  @Override
+  public boolean isEarlierVersionOf(Resource<?> r) {
+    if (r instanceof MemoryResource) {
+      var that = (MemoryResource<?>) r;
+      return id.equals(that.id) && compareVersion(that) < 0;
+    }
+    return Resource.super.isEarlierVersionOf(r);
+  }
+
+  // ------------------------------------------------------------
+  // Object
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+
+    var that = (MemoryResource<?>) o;
+    return vid == that.vid
+      && id.equals(that.id)
+      && transaction.equals(that.transaction);
+  }
+
+  /**
+   * Consistent with {@link AbstractResource#hashCode()}, without materializing the version.
+   */
+  @Override
+  public int hashCode() {
+    var versionHash = 31 * (int) (vid ^ (vid >>> 32)) + transaction.hashCode();
+    var result = type().hashCode();
+    result = 31 * result + id.hashCode();
+    result = 31 * result + versionHash;
+    return result;
+  }
+
   @Override
   public final String toString() {
-    return Array.of(id(), currentVersion(), store).mkString(getClass().getSimpleName() + "(", ", ", ")");
+    var version = "Version(" + vid + ", " + transaction + ")";
+    return Array.of(id, version, store).mkString(getClass().getSimpleName() + "(", ", ", ")");
   }
 
   // ------------------------------------------------------------
@@ -47,8 +151,37 @@ abstract class MemoryResource<R extends Resource<R>> extends AbstractResource<R>
     return store;
   }
 
+  long vid() {
+    return vid;
+  }
+
+  Transaction transaction() {
+    return transaction;
+  }
+
+  static <R extends Resource<R>> MemoryResource<R> create(ResourceType<R> type, UUID id, long vid, Transaction transaction, boolean deleted, MemoryStore store) {
+    return creatorFor(type).construct(id, vid, transaction, deleted, store);
+  }
+
   @SuppressWarnings("unchecked")
   static <R extends Resource<R>> ResourceConstructor<R> creatorFor(ResourceType<R> type) {
-    return creators.get().get(type).map(b -> (ResourceConstructor<R>) b).get();
+    if (type == ResourceType.WORKSPACE) {
+      return (ResourceConstructor<R>) (ResourceConstructor<Workspace>) MemoryWorkspace::new;
+    }
+    if (type == ResourceType.COLLECTION) {
+      return (ResourceConstructor<R>) (ResourceConstructor<Collection>) MemoryCollection::new;
+    }
+    throw new IllegalArgumentException("Unknown resource type: " + type);
+  }
+
+  // ------------------------------------------------------------
+  // Private
+
+  private int compareVersion(MemoryResource<?> that) {
+    var order = Long.compare(vid, that.vid);
+    if (order != 0) {
+      return order;
+    }
+    return transaction.compareTo(that.transaction);
   }
 }
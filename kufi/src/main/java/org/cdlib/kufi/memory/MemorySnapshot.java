@@ -0,0 +1,122 @@
+package org.cdlib.kufi.memory;
+
+import io.reactivex.Flowable;
+import io.reactivex.Maybe;
+import io.reactivex.Observable;
+import io.reactivex.Single;
+import org.cdlib.kufi.Cursor;
+import org.cdlib.kufi.Link;
+import org.cdlib.kufi.Page;
+import org.cdlib.kufi.Resource;
+import org.cdlib.kufi.ResourceType;
+import org.cdlib.kufi.Snapshot;
+import org.cdlib.kufi.Transaction;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static io.reactivex.Single.just;
+
+/**
+ * {@link Snapshot} of a {@link MemoryStore}, reading a single immutable
+ * {@link StoreState} that stays pinned in the store's {@link VersionHistory}
+ * until the snapshot is closed.
+ */
+final class MemorySnapshot implements Snapshot {
+
+  // ------------------------------------------------------------
+  // Instance fields
+
+  private final StoreState state;
+  private final VersionHistory history;
+  private final AtomicBoolean closed = new AtomicBoolean();
+
+  // ------------------------------------------------------------
+  // Constructor
+
+  MemorySnapshot(StoreState state, VersionHistory history) {
+    this.state = state;
+    this.history = history;
+  }
+
+  // ------------------------------------------------------------
+  // StoreView
+
+  @Override
+  public Single<Transaction> transaction() {
+    return just(state.transaction());
+  }
+
+  @Override
+  public Maybe<Resource<?>> find(UUID id) {
+    return StateFinders.find(state, id);
+  }
+
+  @Override
+  public Maybe<Resource<?>> findTombstone(UUID id) {
+    return StateFinders.findTombstone(state, id);
+  }
+
+  @Override
+  public <R extends Resource<R>> Maybe<R> find(UUID id, ResourceType<R> type) {
+    return StateFinders.find(state, id, type);
+  }
+
+  @Override
+  public <R extends Resource<R>> Maybe<R> findTombstone(UUID id, ResourceType<R> type) {
+    return StateFinders.findTombstone(state, id, type);
+  }
+
+  @Override
+  public Observable<Resource<?>> ancestorsOf(UUID id) {
+    return StateFinders.ancestorsOf(state, id);
+  }
+
+  @Override
+  public Observable<Link> linksFrom(UUID id) {
+    return StateFinders.linksFrom(state, id);
+  }
+
+  @Override
+  public Observable<Link> linksTo(UUID id) {
+    return StateFinders.linksTo(state, id);
+  }
+
+  @Override
+  public Flowable<Link> streamLinksFrom(UUID id) {
+    return StateFinders.streamLinksFrom(state, id);
+  }
+
+  @Override
+  public Flowable<Link> streamLinksTo(UUID id) {
+    return StateFinders.streamLinksTo(state, id);
+  }
+
+  @Override
+  public <R extends Resource<R>> Flowable<R> streamChildren(UUID parentId, ResourceType<R> type) {
+    return StateFinders.streamChildren(state, parentId, type);
+  }
+
+  @Override
+  public <R extends Resource<R>> Single<Page<R>> children(UUID parentId, ResourceType<R> type, Cursor after, int limit) {
+    return StateFinders.children(state, parentId, type, after, limit);
+  }
+
+  // ------------------------------------------------------------
+  // AutoCloseable
+
+  @Override
+  public void close() {
+    if (closed.compareAndSet(false, true)) {
+      history.unpin(state);
+    }
+  }
+
+  // ------------------------------------------------------------
+  // Object
+
+  @Override
+  public String toString() {
+    return "MemorySnapshot(" + state.transaction() + ")";
+  }
+}
@@ -1,26 +1,111 @@
 package org.cdlib.kufi.memory;
 
+import io.reactivex.Emitter;
+import io.reactivex.Flowable;
 import io.reactivex.Maybe;
 import io.reactivex.Observable;
 import io.reactivex.Single;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.plugins.RxJavaPlugins;
+import io.reactivex.schedulers.Schedulers;
+import io.vavr.collection.List;
+import io.vavr.collection.Seq;
 import org.cdlib.kufi.*;
-
+import org.cdlib.kufi.util.MonotonicClock;
+import org.cdlib.kufi.util.TransactionClock;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.NoSuchElementException;
+import java.util.Objects;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 import static io.reactivex.Single.just;
-import static io.vavr.control.Option.none;
-import static io.vavr.control.Option.some;
 import static org.cdlib.kufi.ResourceType.COLLECTION;
 import static org.cdlib.kufi.util.Preconditions.require;
 
+/**
+ * In-memory {@link Store} backed by a single immutable {@link StoreState}.
+ * Writers compute the next state from a snapshot of the current one without
+ * holding a lock, then publish it with a compare-and-set; a writer that loses
+ * the race recomputes its update against the new state and tries again.
+ *
+ * If the store is constructed with a {@link TransactionLog}, each commit is
+ * also appended to the log (in transaction order), and the store's initial
+ * state is recovered by replaying the log. Readers only see a commit once
+ * the log's {@link SyncPolicy} considers it durable: under group commit,
+ * once it's synced. (Under a policy that doesn't sync on commit, that's as
+ * soon as it's appended, so reads can include commits a crash would lose.)
+ * Writers build on the latest published state, so they don't wait for each
+ * other's syncs. A {@linkplain #checkpoint(Path) checkpoint} bounds recovery
+ * time by snapshotting the state and discarding the log records it covers;
+ * {@code RecoveryBenchmark} in {@code cursive-bench} measures recovery time
+ * for stores of up to ten million resources.
+ *
+ * The most recent states are retained in a bounded ring, so that
+ * {@link #at(Transaction)} can serve consistent reads of a recent
+ * transaction without copying anything.
+ *
+ * The changes made by the most recent transactions are likewise retained,
+ * so that {@linkplain #changes(long) change subscribers} can read them at
+ * their own pace, on their own threads; a subscriber that falls further
+ * behind than that is caught up by replaying the log. Changes are only
+ * delivered once they're durable.
+ *
+ * Deleted resources and links are kept as tombstones until purged by
+ * {@linkplain #compact(long) compaction}.
+ */
 public class MemoryStore implements Store {
 
+  // ------------------------------------------------------------
+  // Constants
+
+  /**
+   * Number of recent states retained for {@link #at(Transaction)} by default.
+   */
+  public static final int DEFAULT_RETAINED_VERSIONS = 64;
+
+  /**
+   * Number of recent transactions whose changes are retained for
+   * {@link #changes(long)}.
+   */
+  public static final int DEFAULT_RETAINED_CHANGES = 1024;
+
   // ------------------------------------------------------------
   // Instance fields
 
-  private final Object mutex = new Object();
-  private volatile StoreState state;
+  /** The most recently published state, which writers build on */
+  private final AtomicReference<StoreState> state;
+  /** The most recent state readers can see: once logged, the most recent durable one */
+  private final AtomicReference<StoreState> visible;
+  private final TransactionLog log;
+  private final TransactionClock clock;
+  private final VersionHistory history;
+  private final ChangeFeed feed = new ChangeFeed(DEFAULT_RETAINED_CHANGES, this::committedTxid, Schedulers.io());
+
+  /** The most recent snapshot the log follows, if any */
+  private volatile Path snapshotFile;
+
+  private final LongAdder commits = new LongAdder();
+  private final LongAdder contendedCommits = new LongAdder();
+  private final LongAdder retries = new LongAdder();
+
+  private final Object compactionLock = new Object();
+  private final LongAdder compactions = new LongAdder();
+  private final LongAdder reclaimedTombstones = new LongAdder();
+  private final LongAdder reclaimedLinks = new LongAdder();
+  private final LongAdder reclaimedBytes = new LongAdder();
+
+  private final LongAdder changeReplays = new LongAdder();
 
   // ------------------------------------------------------------
   // Constructor
@@ -29,8 +114,268 @@ public class MemoryStore implements Store {
     this(new StoreState());
   }
 
+  public MemoryStore(IndexBackend backend) {
+    this(new StoreState(backend));
+  }
+
+  /**
+   * @param retainedVersions The number of recent states to retain for
+   *                         {@link #at(Transaction)}; 0 to only allow
+   *                         snapshots of the current state
+   */
+  public MemoryStore(IndexBackend backend, int retainedVersions) {
+    this(backend, retainedVersions, MonotonicClock.system());
+  }
+
+  /**
+   * @param retainedVersions The number of recent states to retain for
+   *                         {@link #at(Transaction)}; 0 to only allow
+   *                         snapshots of the current state
+   * @param clock            The clock to timestamp transactions with
+   */
+  public MemoryStore(IndexBackend backend, int retainedVersions, TransactionClock clock) {
+    this(new StoreState(backend, clock), retainedVersions);
+  }
+
+  public MemoryStore(TransactionLog log) {
+    this(IndexBackend.HASH_MAP, log);
+  }
+
+  public MemoryStore(IndexBackend backend, TransactionLog log) {
+    this(backend, log, MonotonicClock.system());
+  }
+
+  /**
+   * @param clock The clock to timestamp new transactions with; replayed
+   *              transactions keep their logged timestamps
+   */
+  public MemoryStore(IndexBackend backend, TransactionLog log, TransactionClock clock) {
+    this.log = Objects.requireNonNull(log);
+    this.clock = Objects.requireNonNull(clock);
+    history = new VersionHistory(DEFAULT_RETAINED_VERSIONS);
+    state = new AtomicReference<>(log.replay(this, new StoreState(backend, clock)));
+    visible = new AtomicReference<>(state.get());
+  }
+
+  /**
+   * Recovers the store from the specified snapshot, if it exists, plus any
+   * records in the log written after it.
+   *
+   * @see #checkpoint(Path)
+   */
+  public MemoryStore(IndexBackend backend, Path snapshotFile, TransactionLog log) {
+    this(backend, snapshotFile, log, MonotonicClock.system());
+  }
+
+  /**
+   * Recovers the store from the specified snapshot, if it exists, plus any
+   * records in the log written after it.
+   *
+   * @param clock The clock to timestamp new transactions with; recovered
+   *              transactions keep their original timestamps
+   * @see #checkpoint(Path)
+   */
+  public MemoryStore(IndexBackend backend, Path snapshotFile, TransactionLog log, TransactionClock clock) {
+    this.log = Objects.requireNonNull(log);
+    this.snapshotFile = Objects.requireNonNull(snapshotFile);
+    this.clock = Objects.requireNonNull(clock);
+    history = new VersionHistory(DEFAULT_RETAINED_VERSIONS);
+    try {
+      var initialState = Files.exists(snapshotFile)
+        ? StoreSnapshot.read(this, backend, snapshotFile)
+        : new StoreState(backend, clock);
+      state = new AtomicReference<>(log.replay(this, initialState));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    visible = new AtomicReference<>(state.get());
+  }
+
   MemoryStore(StoreState initialState) {
-    state = initialState;
+    this(initialState, DEFAULT_RETAINED_VERSIONS);
+  }
+
+  MemoryStore(StoreState initialState, int retainedVersions) {
+    log = null;
+    clock = initialState.clock();
+    history = new VersionHistory(retainedVersions);
+    state = new AtomicReference<>(initialState);
+    // nothing to wait for, so writes are visible as soon as they're published
+    visible = state;
+  }
+
+  // ------------------------------------------------------------
+  // Metrics
+
+  /**
+   * @return The number of state transitions successfully published.
+   */
+  public long commitCount() {
+    return commits.sum();
+  }
+
+  /**
+   * @return The number of commits that had to be retried at least once
+   * because another writer published first.
+   */
+  public long contendedCommitCount() {
+    return contendedCommits.sum();
+  }
+
+  /**
+   * @return The total number of retries across all commits.
+   */
+  public long retryCount() {
+    return retries.sum();
+  }
+
+  /**
+   * @return The number of past states currently held in the ring of
+   * retained versions.
+   */
+  public int retainedVersionCount() {
+    return history.retainedVersionCount();
+  }
+
+  /**
+   * @return The number of distinct versions pinned by open snapshots. These
+   * stay in memory even if they've dropped out of the retained ring.
+   */
+  public int pinnedVersionCount() {
+    return history.pinnedVersionCount();
+  }
+
+  /**
+   * @return The number of snapshots opened with {@link #at(Transaction)} and
+   * not yet closed.
+   */
+  public int openSnapshotCount() {
+    return history.openSnapshotCount();
+  }
+
+  /**
+   * @return The number of compactions that reclaimed anything.
+   */
+  public long compactionCount() {
+    return compactions.sum();
+  }
+
+  /**
+   * @return The total number of tombstones purged by compaction.
+   */
+  public long reclaimedTombstoneCount() {
+    return reclaimedTombstones.sum();
+  }
+
+  /**
+   * @return The total number of dead links purged by compaction.
+   */
+  public long reclaimedLinkCount() {
+    return reclaimedLinks.sum();
+  }
+
+  /**
+   * @return An estimate of the total heap reclaimed by compaction.
+   * @see Compaction#reclaimedBytes()
+   */
+  public long reclaimedBytes() {
+    return reclaimedBytes.sum();
+  }
+
+  /**
+   * @return The number of change subscribers currently reading from the
+   * in-memory ring of recent changes.
+   */
+  public int changeSubscriberCount() {
+    return feed.subscriberCount();
+  }
+
+  /**
+   * @return The number of times a change subscriber has had to be caught up
+   * from the log.
+   */
+  public long changeReplayCount() {
+    return changeReplays.sum();
+  }
+
+  // ------------------------------------------------------------
+  // Compaction
+
+  /**
+   * Purges tombstones and dead links deleted before the specified transaction.
+   * Within the retention window, {@link #findTombstone(UUID)} and links are
+   * unaffected; outside it, purged resources are simply not found. Compaction
+   * does not create a new transaction, isn't logged, and doesn't affect
+   * snapshots already taken.
+   *
+   * The store is scanned without blocking writers; only the removal itself
+   * competes with commits.
+   *
+   * @return What was purged.
+   */
+  public Single<Compaction> compact(long retainFromTxid) {
+    return Single.fromCallable(() -> {
+      synchronized (compactionLock) {
+        var compaction = state.get().planCompaction(retainFromTxid);
+        if (compaction.isEmpty()) {
+          return compaction;
+        }
+        while (true) {
+          var current = state.get();
+          var compacted = current.compact(compaction);
+          if (replace(current, compacted)) {
+            revealCompacted(compacted);
+            break;
+          }
+          Thread.onSpinWait();
+        }
+        compactions.increment();
+        reclaimedTombstones.add(compaction.reclaimedTombstones());
+        reclaimedLinks.add(compaction.reclaimedLinks());
+        reclaimedBytes.add(compaction.reclaimedBytes());
+        return compaction;
+      }
+    });
+  }
+
+  /**
+   * Compacts the store in the background at the specified interval, keeping
+   * the specified number of most recent transactions' deletions.
+   *
+   * @return A handle for stopping compaction.
+   */
+  public Disposable compactPeriodically(Duration interval, long retainedTransactions) {
+    require(!interval.isNegative() && !interval.isZero(), () -> "Compaction interval must be positive: " + interval);
+    require(retainedTransactions >= 0, () -> "Retained transactions must be >= 0: " + retainedTransactions);
+    var intervalNanos = interval.toNanos();
+    return Schedulers.single().schedulePeriodicallyDirect(() -> {
+      var retainFromTxid = visible.get().transaction().txid() - retainedTransactions;
+      compact(retainFromTxid).subscribe(c -> { }, RxJavaPlugins::onError);
+    }, intervalNanos, intervalNanos, TimeUnit.NANOSECONDS);
+  }
+
+  // ------------------------------------------------------------
+  // Checkpoints
+
+  /**
+   * Writes a snapshot of the current state to the specified file, then
+   * discards log records covered by it. Writers are not blocked while the
+   * snapshot is written.
+   *
+   * @return The last transaction included in the snapshot.
+   */
+  public Single<Transaction> checkpoint(Path snapshotFile) {
+    Objects.requireNonNull(snapshotFile);
+    return Single.fromCallable(() -> {
+      var snapshot = visible.get();
+      var tx = snapshot.transaction();
+      StoreSnapshot.write(snapshot, snapshotFile);
+      this.snapshotFile = snapshotFile;
+      if (log != null) {
+        log.truncateThrough(tx.txid());
+      }
+      return tx;
+    });
   }
 
   // ------------------------------------------------------------
@@ -38,20 +383,45 @@ public class MemoryStore implements Store {
 
   @Override
   public Single<Transaction> transaction() {
-    return just(state.transaction());
+    return just(visible.get().transaction());
   }
 
   @Override
-  public Single<Workspace> createWorkspace() {
-    synchronized (mutex) {
-      try {
-        var result = state.createWorkspace(this);
-        state = result.stateNext();
-        return just(result.resource().self());
-      } catch (Exception e) {
-        return Single.error(e);
+  public Single<Snapshot> at(Transaction tx) {
+    Objects.requireNonNull(tx);
+    return Single.fromCallable(() -> {
+      var current = visible.get();
+      require(tx.txid() <= current.transaction().txid(), () -> String.format("Invalid transaction: %s must be <= %s", tx, current.transaction()));
+      var pinned = history.pin(tx.txid(), current);
+      if (pinned == null) {
+        throw new VersionNotRetainedException(tx);
+      }
+      // same txid, but a different transaction, e.g. from another store
+      if (!pinned.transaction().equals(tx)) {
+        history.unpin(pinned);
+        throw new VersionNotRetainedException(tx);
       }
+      return new MemorySnapshot(pinned, history);
+    });
+  }
+
+  @Override
+  public Flowable<Change> changes(long fromTxid) {
+    if (fromTxid < 0) {
+      return Flowable.error(new IllegalArgumentException("Invalid transaction: " + fromTxid));
     }
+    // the initial transaction doesn't change anything
+    return changeSets(Math.max(fromTxid, 1L)).flatMapIterable(ChangeSet::changes);
+  }
+
+  @Override
+  public Batch batch() {
+    return new MemoryBatch(this);
+  }
+
+  @Override
+  public Single<Workspace> createWorkspace() {
+    return commit(s -> s.createWorkspace(this));
   }
 
   @Override
@@ -59,6 +429,11 @@ public class MemoryStore implements Store {
     return delete(ws, recursive);
   }
 
+  @Override
+  public Single<Workspace> deleteWorkspace(Workspace ws, boolean recursive, Version expectedVersion) {
+    return delete(ws, recursive, expectedVersion);
+  }
+
   @Override
   public Single<Collection> createCollection(Workspace parent) {
     return create(parent, COLLECTION);
@@ -69,127 +444,168 @@ public class MemoryStore implements Store {
     return create(parent, COLLECTION);
   }
 
+  @Override
+  public Single<Collection> createCollection(Workspace parent, Version expectedVersion) {
+    return create(parent, COLLECTION, expectedVersion);
+  }
+
+  @Override
+  public Single<Collection> createCollection(Collection parent, Version expectedVersion) {
+    return create(parent, COLLECTION, expectedVersion);
+  }
+
   @Override
   public Single<Collection> deleteCollection(Collection coll, boolean recursive) {
     return delete(coll, recursive);
   }
 
+  @Override
+  public Single<Collection> deleteCollection(Collection coll, boolean recursive, Version expectedVersion) {
+    return delete(coll, recursive, expectedVersion);
+  }
+
   @Override
   public Maybe<Resource<?>> find(UUID id) {
-    try {
-      return state.find(id)
-        .<Maybe<Resource<?>>>map(Maybe::just)
-        .getOrElse(Maybe::empty);
-    } catch (Exception e) {
-      return Maybe.error(e);
-    }
+    return StateFinders.find(visible.get(), id);
   }
 
   @Override
   public Maybe<Resource<?>> findTombstone(UUID id) {
-    try {
-      return state.findTombstone(id)
-        .<Maybe<Resource<?>>>map(Maybe::just)
-        .getOrElse(Maybe::empty);
-    } catch (Exception e) {
-      return Maybe.error(e);
-    }
+    return StateFinders.findTombstone(visible.get(), id);
   }
 
   @Override
   public <R extends Resource<R>> Maybe<R> find(UUID id, ResourceType<R> type) {
-    try {
-      return state.find(id)
-        .flatMap(r1 -> r1.as(type))
-        .map(Maybe::just)
-        .getOrElse(Maybe::empty);
-    } catch (Exception e) {
-      return Maybe.error(e);
-    }
+    return StateFinders.find(visible.get(), id, type);
   }
 
   @Override
   public <R extends Resource<R>> Maybe<R> findTombstone(UUID id, ResourceType<R> type) {
-    try {
-      return state.findTombstone(id)
-        .flatMap(r1 -> r1.as(type))
-        .map(Maybe::just)
-        .getOrElse(Maybe::empty);
-    } catch (Exception e) {
-      return Maybe.error(e);
-    }
+    return StateFinders.findTombstone(visible.get(), id, type);
+  }
+
+  @Override
+  public Observable<Resource<?>> ancestorsOf(UUID id) {
+    return StateFinders.ancestorsOf(visible.get(), id);
   }
 
   @Override
   public Observable<Link> linksFrom(UUID id) {
-    return Observable.fromIterable(state.linksBySource(id));
+    return StateFinders.linksFrom(visible.get(), id);
   }
 
   @Override
   public Observable<Link> linksTo(UUID id) {
-    return Observable.fromIterable(state.linksByTarget(id));
+    return StateFinders.linksTo(visible.get(), id);
+  }
+
+  @Override
+  public Flowable<Link> streamLinksFrom(UUID id) {
+    return StateFinders.streamLinksFrom(visible.get(), id);
+  }
+
+  @Override
+  public Flowable<Link> streamLinksTo(UUID id) {
+    return StateFinders.streamLinksTo(visible.get(), id);
+  }
+
+  @Override
+  public <R extends Resource<R>> Flowable<R> streamChildren(UUID parentId, ResourceType<R> type) {
+    return StateFinders.streamChildren(visible.get(), parentId, type);
+  }
+
+  @Override
+  public <R extends Resource<R>> Single<Page<R>> children(UUID parentId, ResourceType<R> type, Cursor after, int limit) {
+    return StateFinders.children(visible.get(), parentId, type, after, limit);
   }
 
   // ------------------------------------------------------------
   // Package-private
 
   <R extends Resource<R>> Observable<R> findChildrenOfType(Resource<?> parent, ResourceType<R> type) {
-    var children = state.findChildrenOfType(parent.id(), type);
+    var children = visible.get().findChildrenOfType(parent.id(), type);
     return Observable.fromIterable(children);
   }
 
   Single<? extends Resource<?>> findParentOf(Resource<?> child) {
-    return state.findParent(child).map(Single::just)
+    return visible.get().findParent(child).map(Single::just)
       .getOrElse(() -> Single.error(new NoSuchElementException("No parent found for resource: " + child)));
   }
 
   <R extends Resource<R>> MemoryResource<R> createNew(ResourceType<R> type, UUID id, Transaction createdAtTx) {
-    return MemoryResource.creatorFor(type).construct(id, Version.initVersion(createdAtTx), none(), this);
+    return MemoryResource.create(type, id, 0L, createdAtTx, false, this);
   }
 
   <R extends Resource<R>> MemoryResource<R> nextVersion(MemoryResource<R> resource, Transaction tx) {
     require(resource.isLive(), () -> "Can't create new version of deleted resource " + resource);
-    return MemoryResource.creatorFor(resource.type()).construct(resource.id(), resource.currentVersion().next(tx), none(), this);
+    return resource.withVersion(resource.vid() + 1, tx, false);
   }
 
   <R extends Resource<R>> MemoryResource<R> delete(MemoryResource<R> resource, Transaction tx) {
     if (resource.isLive()) {
-      var type = resource.type();
-      var nextVersion = resource.currentVersion().next(tx);
-      return MemoryResource.creatorFor(type).construct(resource.id(), nextVersion, some(nextVersion), this);
+      return resource.withVersion(resource.vid() + 1, tx, true);
     }
     return resource;
   }
 
-  // ------------------------------------------------------------
-  // Private
-
-  private <P extends Resource<P>, C extends Resource<C>> Single<C> create(P parent, ResourceType<C> childType) {
-    synchronized (mutex) {
-      try {
-        var result = state.createChild(this, internalize(parent), childType);
-        state = result.stateNext();
-        return just(result.resource().self());
-      } catch (Exception e) {
-        return Single.error(e);
-      }
+  Observable<Resource<?>> commitBatch(Seq<BatchOp> ops) {
+    try {
+      return Observable.fromIterable(applyBatch(ops));
+    } catch (Exception e) {
+      return Observable.error(e);
     }
   }
 
-  private <R extends Resource<R>> Single<R> delete(R res, boolean recursive) {
-    synchronized (mutex) {
-      try {
-        var r = internalize(res);
-        var result = state.delete(r, recursive);
-        state = result.stateNext();
-        return Single.just(result.resource().self());
-      } catch (Exception e) {
-        return Single.error(e);
-      }
+  /**
+   * Like {@link #commitBatch(Seq)}, but throws on failure.
+   */
+  Seq<MemoryResource<?>> applyBatch(Seq<BatchOp> ops) {
+    if (ops.isEmpty()) {
+      return List.empty();
     }
+    return commit(s -> s.batch(ops), BatchUpdate::stateNext, BatchUpdate::mutations, BatchUpdate::changes).resources();
+  }
+
+  /**
+   * Creates a workspace with the specified ID, throwing on failure.
+   */
+  Workspace createWorkspace(UUID id) {
+    return commitOrThrow(s -> s.createWorkspace(this, id, s.nextTransaction()));
   }
 
-  private <R extends Resource<R>> MemoryResource<R> internalize(Resource<R> resource) {
+  /**
+   * Creates a child with the specified ID, throwing on failure.
+   */
+  <P extends Resource<P>, C extends Resource<C>> C createChild(P parent, ResourceType<C> childType, UUID childId) {
+    return commitOrThrow(s -> s.createChild(this, internalize(s, parent), childType, childId, s.nextTransaction()));
+  }
+
+  /**
+   * Creates a child with the specified ID if the parent is at the expected
+   * version, throwing on failure.
+   */
+  <P extends Resource<P>, C extends Resource<C>> C createChild(P parent, ResourceType<C> childType, UUID childId, Version expectedVersion) {
+    Objects.requireNonNull(expectedVersion);
+    return commitOrThrow(s -> s.createChild(this, s.requireVersion(internalize(s, parent), expectedVersion), childType, childId, s.nextTransaction()));
+  }
+
+  TransactionClock clock() {
+    return clock;
+  }
+
+  Transaction currentTransaction() {
+    return visible.get().transaction();
+  }
+
+  /**
+   * @return true if the specified transaction, including its timestamp, was
+   * committed by this store, and its state is still available to {@link #at(Transaction)}.
+   */
+  boolean retains(Transaction tx) {
+    return visible.get().transaction().equals(tx) || history.retains(tx);
+  }
+
+  <R extends Resource<R>> MemoryResource<R> internalize(StoreState state, Resource<R> resource) {
     var version = resource.currentVersion();
     var resourceTx = version.transaction();
     var currentTx = state.transaction();
@@ -197,7 +613,199 @@ public class MemoryStore implements Store {
     if (resource instanceof MemoryResource) {
       return (MemoryResource<R>) resource;
     }
-    var type = resource.type();
-    return MemoryResource.creatorFor(type).construct(resource.id(), resource.currentVersion(), resource.deletedAt(), this);
+    return MemoryResource.create(resource.type(), resource.id(), version.vid(), resourceTx, resource.isDeleted(), this);
+  }
+
+  // ------------------------------------------------------------
+  // Private
+
+  private <P extends Resource<P>, C extends Resource<C>> Single<C> create(P parent, ResourceType<C> childType) {
+    return commit(s -> s.createChild(this, internalize(s, parent), childType));
+  }
+
+  private <R extends Resource<R>> Single<R> delete(R res, boolean recursive) {
+    return commit(s -> s.delete(internalize(s, res), recursive));
+  }
+
+  private <P extends Resource<P>, C extends Resource<C>> Single<C> create(P parent, ResourceType<C> childType, Version expectedVersion) {
+    Objects.requireNonNull(expectedVersion);
+    return commit(s -> s.createChild(this, s.requireVersion(internalize(s, parent), expectedVersion), childType));
+  }
+
+  private <R extends Resource<R>> Single<R> delete(R res, boolean recursive, Version expectedVersion) {
+    Objects.requireNonNull(expectedVersion);
+    return commit(s -> s.delete(s.requireVersion(internalize(s, res), expectedVersion), recursive));
+  }
+
+  private <R extends Resource<R>> Single<R> commit(Function<StoreState, StoreUpdate<R>> update) {
+    try {
+      return just(commitOrThrow(update));
+    } catch (Exception e) {
+      return Single.error(e);
+    }
+  }
+
+  private <R extends Resource<R>> R commitOrThrow(Function<StoreState, StoreUpdate<R>> update) {
+    var result = commit(update, StoreUpdate::stateNext, u -> List.of(u.mutation()), StoreUpdate::changes);
+    return result.resource().self();
+  }
+
+  /**
+   * Applies {@code update} to the current state and publishes the result,
+   * recomputing against the latest state until no other writer has
+   * published in between.
+   */
+  private <U> U commit(Function<StoreState, U> update, Function<U, StoreState> stateNext, Function<U, Seq<Mutation>> mutations, Function<U, Iterable<Change>> changes) {
+    var attempts = 0;
+    while (true) {
+      var current = state.get();
+      var result = update.apply(current);
+      // current is already published, so it's safe to record even if we lose the race
+      history.record(current);
+      feed.start(current.transaction().txid() + 1);
+      var next = stateNext.apply(result);
+      var seq = publish(current, next, () -> mutations.apply(result));
+      if (seq >= 0) {
+        commits.increment();
+        if (attempts > 0) {
+          contendedCommits.increment();
+          retries.add(attempts);
+        }
+        if (log != null) {
+          log.awaitDurable(seq);
+          reveal(next);
+        }
+        // only once it's durable, so subscribers never see changes a crash
+        // could roll back; delivery happens on the subscribers' own threads
+        feed.record(new ChangeSet(next.transaction(), changes.apply(result)));
+        return result;
+      }
+      attempts++;
+      Thread.onSpinWait();
+    }
+  }
+
+  /**
+   * Makes the specified durable state visible to readers, unless they can
+   * already see a later one. Records are synced in order, so any earlier
+   * states are durable too.
+   */
+  private void reveal(StoreState durable) {
+    var txid = durable.transaction().txid();
+    visible.accumulateAndGet(durable, (v, d) -> v.transaction().txid() < txid ? d : v);
+  }
+
+  /**
+   * Makes a compacted state visible to readers, if they can see the state
+   * it replaced; otherwise, they'll see compaction when a later state is
+   * revealed.
+   */
+  private void revealCompacted(StoreState compacted) {
+    if (visible != state) {
+      var tx = compacted.transaction();
+      visible.accumulateAndGet(compacted, (v, c) -> v.transaction().equals(tx) ? c : v);
+    }
+  }
+
+  private long committedTxid() {
+    return visible.get().transaction().txid();
+  }
+
+  /**
+   * @return The change sets of each transaction from the specified one onward:
+   * from the feed, as long as it has them, and otherwise from the log.
+   */
+  private Flowable<ChangeSet> changeSets(long fromTxid) {
+    var live = feed.from(fromTxid);
+    if (log == null) {
+      return live;
+    }
+    return live.onErrorResumeNext(e -> {
+      if (!(e instanceof ChangesNotRetainedException)) {
+        return Flowable.<ChangeSet>error(e);
+      }
+      var missing = ((ChangesNotRetainedException) e).txid();
+      var last = new AtomicLong(missing - 1);
+      return replayChanges(missing)
+        .doOnNext(changes -> last.set(changes.txid()))
+        .concatWith(Flowable.defer(() ->
+          // the log didn't get us any further, so don't try again
+          last.get() < missing ? Flowable.<ChangeSet>error(e) : changeSets(last.get() + 1)
+        ));
+    });
+  }
+
+  /**
+   * Replays the log from the last snapshot, off the calling thread, to
+   * recompute the changes of each logged transaction from the specified one
+   * onward.
+   */
+  private Flowable<ChangeSet> replayChanges(long fromTxid) {
+    return Flowable.generate(
+      () -> {
+        changeReplays.increment();
+        // open the log first: if a checkpoint replaces the snapshot in the
+        // meantime, the log we have still covers everything after it
+        var reader = log.reader();
+        try {
+          var snapshot = snapshotFile;
+          var initialState = snapshot != null && Files.exists(snapshot)
+            ? StoreSnapshot.read(this, IndexBackend.HASH_MAP, snapshot)
+            : new StoreState(IndexBackend.HASH_MAP, clock);
+          return new ChangeReplay(this, initialState, reader, fromTxid);
+        } catch (IOException | RuntimeException e) {
+          reader.close();
+          throw e;
+        }
+      },
+      (ChangeReplay replay, Emitter<ChangeSet> emitter) -> {
+        var changes = replay.next();
+        if (changes == null) {
+          emitter.onComplete();
+        } else {
+          emitter.onNext(changes);
+        }
+      },
+      ChangeReplay::close
+    ).subscribeOn(Schedulers.io());
+  }
+
+  /**
+   * Replaces {@code current} with {@code next} at the same transaction,
+   * without logging.
+   *
+   * @return false if another writer published first.
+   */
+  private boolean replace(StoreState current, StoreState next) {
+    if (log == null) {
+      return state.compareAndSet(current, next);
+    }
+    synchronized (log) {
+      return state.compareAndSet(current, next);
+    }
+  }
+
+  /**
+   * Publishes {@code next} to writers if the current state is still
+   * {@code current}. When logging, publication happens under the log's lock
+   * so that records are appended in the same order their states are
+   * published; the next state is still computed outside the lock, and
+   * readers don't see it until it's {@linkplain #reveal(StoreState) revealed}.
+   *
+   * @return The log sequence number of the published state (0 if not logging),
+   * or -1 if another writer published first.
+   */
+  private long publish(StoreState current, StoreState next, Supplier<Seq<Mutation>> mutations) {
+    if (log == null) {
+      return state.compareAndSet(current, next) ? 0 : -1;
+    }
+    synchronized (log) {
+      if (state.get() != current) {
+        return -1;
+      }
+      var seq = log.append(next.transaction(), mutations.get());
+      state.set(next);
+      return seq;
+    }
   }
 }
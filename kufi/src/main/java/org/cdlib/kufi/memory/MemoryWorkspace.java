@@ -1,9 +1,10 @@
 package org.cdlib.kufi.memory;
 
+import io.reactivex.Flowable;
 import io.reactivex.Observable;
-import io.vavr.control.Option;
 import org.cdlib.kufi.Collection;
-import org.cdlib.kufi.Version;
+import org.cdlib.kufi.ResourceType;
+import org.cdlib.kufi.Transaction;
 import org.cdlib.kufi.Workspace;
 
 import java.util.UUID;
@@ -16,8 +17,24 @@ class MemoryWorkspace extends MemoryResource<Workspace> implements Workspace {
   // ------------------------------------------------------------
   // Constructor
 
-  MemoryWorkspace(UUID id, Version currentVersion, Option<Version> deletedAt, MemoryStore store) {
-    super(WORKSPACE, id, currentVersion, deletedAt, store);
+  MemoryWorkspace(UUID id, long vid, Transaction transaction, boolean deleted, MemoryStore store) {
+    super(id, vid, transaction, deleted, store);
+  }
+
+  // ------------------------------------------------------------
+  // MemoryResource
+
+  @Override
+  MemoryWorkspace withVersion(long vid, Transaction transaction, boolean deleted) {
+    return new MemoryWorkspace(id(), vid, transaction, deleted, store);
+  }
+
+  // ------------------------------------------------------------
+  // Resource
+
+  @Override
+  public ResourceType<Workspace> type() {
+    return WORKSPACE;
   }
 
   // ------------------------------------------------------------
@@ -27,4 +44,9 @@ class MemoryWorkspace extends MemoryResource<Workspace> implements Workspace {
   public Observable<Collection> childCollections() {
     return store.findChildrenOfType(this, COLLECTION);
   }
+
+  @Override
+  public Flowable<Collection> streamChildCollections() {
+    return store.streamChildren(id(), COLLECTION);
+  }
 }
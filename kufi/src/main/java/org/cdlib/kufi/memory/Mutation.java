@@ -0,0 +1,212 @@
+package org.cdlib.kufi.memory;
+
+import org.cdlib.kufi.ResourceType;
+import org.cdlib.kufi.Transaction;
+
+import java.nio.ByteBuffer;
+import java.util.Objects;
+import java.util.UUID;
+
+import static org.cdlib.kufi.ResourceType.COLLECTION;
+import static org.cdlib.kufi.ResourceType.WORKSPACE;
+
+/**
+ * Logical description of a single {@link StoreState} operation, with any generated
+ * IDs filled in, so that it can be written to a {@link TransactionLog} and replayed
+ * deterministically at the same transaction.
+ */
+abstract class Mutation {
+
+  // ------------------------------------------------------------
+  // Constants
+
+  private static final byte CREATE_WORKSPACE = 1;
+  private static final byte CREATE_CHILD = 2;
+  private static final byte DELETE = 3;
+
+  private static final int UUID_BYTES = 2 * Long.BYTES;
+
+  // ------------------------------------------------------------
+  // Factory methods
+
+  static Mutation createWorkspace(UUID id) {
+    return new CreateWorkspace(id);
+  }
+
+  static Mutation createChild(UUID parentId, ResourceType<?> parentType, ResourceType<?> childType, UUID childId) {
+    return new CreateChild(parentId, parentType, childType, childId);
+  }
+
+  static Mutation delete(UUID id, ResourceType<?> type, boolean recursive) {
+    return new Delete(id, type, recursive);
+  }
+
+  // ------------------------------------------------------------
+  // Constructor
+
+  private Mutation() {
+    // private to prevent subclassing outside this file
+  }
+
+  // ------------------------------------------------------------
+  // Abstract methods
+
+  abstract StoreUpdate<?> replay(MemoryStore store, StoreState state, Transaction tx);
+
+  /**
+   * @return The number of bytes written by {@link #writeTo(ByteBuffer)}.
+   */
+  abstract int encodedSize();
+
+  abstract void writeTo(ByteBuffer buffer);
+
+  // ------------------------------------------------------------
+  // Class methods
+
+  static Mutation readFrom(ByteBuffer buffer) {
+    var opcode = buffer.get();
+    switch (opcode) {
+      case CREATE_WORKSPACE:
+        return new CreateWorkspace(readUUID(buffer));
+      case CREATE_CHILD:
+        return new CreateChild(readUUID(buffer), readType(buffer), readType(buffer), readUUID(buffer));
+      case DELETE:
+        return new Delete(readUUID(buffer), readType(buffer), buffer.get() != 0);
+      default:
+        throw new IllegalArgumentException("Unknown mutation opcode: " + opcode);
+    }
+  }
+
+  private static void writeUUID(ByteBuffer buffer, UUID id) {
+    buffer.putLong(id.getMostSignificantBits());
+    buffer.putLong(id.getLeastSignificantBits());
+  }
+
+  private static UUID readUUID(ByteBuffer buffer) {
+    var msb = buffer.getLong();
+    var lsb = buffer.getLong();
+    return new UUID(msb, lsb);
+  }
+
+  private static void writeType(ByteBuffer buffer, ResourceType<?> type) {
+    buffer.put(typeCode(type));
+  }
+
+  private static ResourceType<?> readType(ByteBuffer buffer) {
+    return typeFor(buffer.get());
+  }
+
+  /**
+   * @return The code used for the specified resource type in logs and snapshots.
+   */
+  static byte typeCode(ResourceType<?> type) {
+    if (type == WORKSPACE) {
+      return 1;
+    }
+    if (type == COLLECTION) {
+      return 2;
+    }
+    throw new IllegalArgumentException("Unknown resource type: " + type);
+  }
+
+  static ResourceType<?> typeFor(byte code) {
+    switch (code) {
+      case 1:
+        return WORKSPACE;
+      case 2:
+        return COLLECTION;
+      default:
+        throw new IllegalArgumentException("Unknown resource type code: " + code);
+    }
+  }
+
+  // ------------------------------------------------------------
+  // Helper classes
+
+  private static final class CreateWorkspace extends Mutation {
+    private final UUID id;
+
+    private CreateWorkspace(UUID id) {
+      this.id = Objects.requireNonNull(id);
+    }
+
+    @Override
+    StoreUpdate<?> replay(MemoryStore store, StoreState state, Transaction tx) {
+      return state.createWorkspace(store, id, tx);
+    }
+
+    @Override
+    int encodedSize() {
+      return 1 + UUID_BYTES;
+    }
+
+    @Override
+    void writeTo(ByteBuffer buffer) {
+      buffer.put(CREATE_WORKSPACE);
+      writeUUID(buffer, id);
+    }
+  }
+
+  private static final class CreateChild extends Mutation {
+    private final UUID parentId;
+    private final ResourceType<?> parentType;
+    private final ResourceType<?> childType;
+    private final UUID childId;
+
+    private CreateChild(UUID parentId, ResourceType<?> parentType, ResourceType<?> childType, UUID childId) {
+      this.parentId = Objects.requireNonNull(parentId);
+      this.parentType = Objects.requireNonNull(parentType);
+      this.childType = Objects.requireNonNull(childType);
+      this.childId = Objects.requireNonNull(childId);
+    }
+
+    @Override
+    StoreUpdate<?> replay(MemoryStore store, StoreState state, Transaction tx) {
+      return state.createChild(store, state.current(parentId, parentType), childType, childId, tx);
+    }
+
+    @Override
+    int encodedSize() {
+      return 1 + UUID_BYTES + 1 + 1 + UUID_BYTES;
+    }
+
+    @Override
+    void writeTo(ByteBuffer buffer) {
+      buffer.put(CREATE_CHILD);
+      writeUUID(buffer, parentId);
+      writeType(buffer, parentType);
+      writeType(buffer, childType);
+      writeUUID(buffer, childId);
+    }
+  }
+
+  private static final class Delete extends Mutation {
+    private final UUID id;
+    private final ResourceType<?> type;
+    private final boolean recursive;
+
+    private Delete(UUID id, ResourceType<?> type, boolean recursive) {
+      this.id = Objects.requireNonNull(id);
+      this.type = Objects.requireNonNull(type);
+      this.recursive = recursive;
+    }
+
+    @Override
+    StoreUpdate<?> replay(MemoryStore store, StoreState state, Transaction tx) {
+      return state.delete(state.current(id, type), recursive, tx);
+    }
+
+    @Override
+    int encodedSize() {
+      return 1 + UUID_BYTES + 1 + 1;
+    }
+
+    @Override
+    void writeTo(ByteBuffer buffer) {
+      buffer.put(DELETE);
+      writeUUID(buffer, id);
+      writeType(buffer, type);
+      buffer.put(recursive ? (byte) 1 : (byte) 0);
+    }
+  }
+}
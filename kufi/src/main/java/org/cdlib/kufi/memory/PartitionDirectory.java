@@ -0,0 +1,85 @@
+package org.cdlib.kufi.memory;
+
+import it.unimi.dsi.fastutil.HashCommon;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Maps resource IDs to the partition of a {@link ShardedMemoryStore} that
+ * holds them.
+ *
+ * Entries are split by a hash of the ID across a fixed number of stripes,
+ * each an immutable {@link TrieUuidMap} published by compare-and-set, so
+ * lookups take no locks and neither box nor allocate, and writers only
+ * contend when they hit the same stripe. The tries key on the two
+ * {@code long} halves of each UUID and point straight at the partition, so
+ * an entry costs little more than its key.
+ */
+final class PartitionDirectory {
+
+  // ------------------------------------------------------------
+  // Constants
+
+  private static final int STRIPE_BITS = 6;
+
+  // ------------------------------------------------------------
+  // Instance fields
+
+  private final AtomicReferenceArray<UuidMap<MemoryStore>> stripes;
+
+  // ------------------------------------------------------------
+  // Constructor
+
+  PartitionDirectory() {
+    stripes = new AtomicReferenceArray<>(1 << STRIPE_BITS);
+    for (int i = 0, n = stripes.length(); i < n; i++) {
+      stripes.set(i, TrieUuidMap.empty());
+    }
+  }
+
+  // ------------------------------------------------------------
+  // Package-private
+
+  /**
+   * @return The partition holding the specified resource, or {@code null}
+   * if it's not in the directory.
+   */
+  MemoryStore partitionOf(UUID id) {
+    return stripes.get(stripe(id)).getOrNull(id);
+  }
+
+  void put(UUID id, MemoryStore partition) {
+    stripes.updateAndGet(stripe(id), m -> m.put(id, partition));
+  }
+
+  void remove(UUID id) {
+    stripes.updateAndGet(stripe(id), m -> m.remove(id));
+  }
+
+  int size() {
+    var size = 0;
+    for (int i = 0, n = stripes.length(); i < n; i++) {
+      size += stripes.get(i).size();
+    }
+    return size;
+  }
+
+  // ------------------------------------------------------------
+  // Class methods
+
+  static long hash(UUID id) {
+    return HashCommon.mix(id.getMostSignificantBits() ^ id.getLeastSignificantBits());
+  }
+
+  // ------------------------------------------------------------
+  // Private
+
+  /**
+   * The tries branch on the low bits of the same hash, so stripes are chosen
+   * by the high bits.
+   */
+  private static int stripe(UUID id) {
+    return (int) (hash(id) >>> (Long.SIZE - STRIPE_BITS));
+  }
+}
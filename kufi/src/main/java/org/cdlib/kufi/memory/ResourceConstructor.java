@@ -1,13 +1,11 @@
 package org.cdlib.kufi.memory;
 
-import io.vavr.control.Option;
 import org.cdlib.kufi.Resource;
-import org.cdlib.kufi.Version;
+import org.cdlib.kufi.Transaction;
 
 import java.util.UUID;
 
 @FunctionalInterface
 interface ResourceConstructor<C extends Resource<C>> {
-  MemoryResource<C> construct(UUID id, Version currentVersion, Option<Version> deletedAt, MemoryStore store);
+  MemoryResource<C> construct(UUID id, long vid, Transaction transaction, boolean deleted, MemoryStore store);
 }
-
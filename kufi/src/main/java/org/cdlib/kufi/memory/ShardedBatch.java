@@ -0,0 +1,113 @@
+package org.cdlib.kufi.memory;
+
+import io.reactivex.Observable;
+import io.vavr.collection.Vector;
+import org.cdlib.kufi.*;
+
+import java.util.ArrayList;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * {@link Batch} for a {@link ShardedMemoryStore}. Operations are recorded
+ * until commit, then replayed onto a {@link MemoryBatch} for the one
+ * partition holding every resource they refer to, and committed there.
+ * A batch that only creates workspaces is committed to a partition chosen
+ * the same way as for a single new workspace.
+ *
+ * IDs for new resources are minted and added to the store's directory
+ * before the batch is committed, so they can be found as soon as they
+ * exist, and removed again if the commit fails.
+ */
+class ShardedBatch implements Batch {
+
+  // ------------------------------------------------------------
+  // Instance fields
+
+  private final ShardedMemoryStore store;
+  private Vector<Op> ops = Vector.empty();
+  private Vector<Resource<?>> targets = Vector.empty();
+
+  // ------------------------------------------------------------
+  // Constructor
+
+  ShardedBatch(ShardedMemoryStore store) {
+    this.store = store;
+  }
+
+  // ------------------------------------------------------------
+  // Batch
+
+  @Override
+  public Batch createWorkspace() {
+    ops = ops.append((b, newId) -> b.createWorkspace(newId.get()));
+    return this;
+  }
+
+  @Override
+  public Batch createCollection(Workspace parent) {
+    return add(parent, (b, newId) -> b.createCollection(parent, newId.get()));
+  }
+
+  @Override
+  public Batch createCollection(Collection parent) {
+    return add(parent, (b, newId) -> b.createCollection(parent, newId.get()));
+  }
+
+  @Override
+  public Batch deleteWorkspace(Workspace ws, boolean recursive) {
+    return add(ws, (b, newId) -> b.deleteWorkspace(ws, recursive));
+  }
+
+  @Override
+  public Batch deleteCollection(Collection coll, boolean recursive) {
+    return add(coll, (b, newId) -> b.deleteCollection(coll, recursive));
+  }
+
+  @Override
+  public Observable<Resource<?>> commit() {
+    if (ops.isEmpty()) {
+      return Observable.empty();
+    }
+    var partitions = targets.map(store::partitionOf).distinct();
+    if (partitions.size() > 1) {
+      return Observable.error(new IllegalStateException("Batch spans " + partitions.size() + " partitions: " + targets));
+    }
+    var partition = partitions.headOption().getOrElse(store::partitionForNew);
+    var batch = new MemoryBatch(partition);
+    var reserved = new ArrayList<UUID>();
+    Supplier<UUID> newId = () -> {
+      var id = store.reserveId(partition);
+      reserved.add(id);
+      return id;
+    };
+    ops.forEach(op -> op.replay(batch, newId));
+    try {
+      return Observable.fromIterable(batch.apply());
+    } catch (Exception e) {
+      reserved.forEach(store::releaseId);
+      return Observable.error(e);
+    }
+  }
+
+  // ------------------------------------------------------------
+  // Private
+
+  private Batch add(Resource<?> target, Op op) {
+    targets = targets.append(target);
+    ops = ops.append(op);
+    return this;
+  }
+
+  // ------------------------------------------------------------
+  // Helper classes
+
+  @FunctionalInterface
+  private interface Op {
+    /**
+     * Replays the operation onto the partition's batch, taking the IDs of
+     * any resources it creates from {@code newId}.
+     */
+    void replay(MemoryBatch batch, Supplier<UUID> newId);
+  }
+}
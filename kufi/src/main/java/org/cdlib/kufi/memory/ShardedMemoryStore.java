@@ -0,0 +1,368 @@
+package org.cdlib.kufi.memory;
+
+import io.reactivex.Flowable;
+import io.reactivex.Maybe;
+import io.reactivex.Observable;
+import io.reactivex.Single;
+import io.vavr.collection.Seq;
+import io.vavr.collection.Vector;
+import org.cdlib.cursive.util.ids.IdGenerator;
+import org.cdlib.cursive.util.ids.IdGenerators;
+import org.cdlib.kufi.*;
+import org.cdlib.kufi.util.MonotonicClock;
+import org.cdlib.kufi.util.TransactionClock;
+
+import java.util.Comparator;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+import static io.reactivex.Single.just;
+import static org.cdlib.kufi.ResourceType.COLLECTION;
+import static org.cdlib.kufi.util.Preconditions.require;
+
+/**
+ * {@link Store} that spreads workspaces across several independent
+ * {@link MemoryStore} partitions. Since collections can only be created
+ * under a workspace or another collection, each workspace and everything
+ * below it forms a separate tree; the whole tree lives in one partition,
+ * chosen by hashing the workspace's ID, and has that partition's state and
+ * commit path to itself, and its own clock. Writers working in workspaces
+ * in different partitions don't contend on state or timestamps, though
+ * creates still briefly meet in the directory (see below).
+ *
+ * Finders are routed by a {@link PartitionDirectory} from resource ID to
+ * partition. Every create adds an entry, which is striped by ID, so
+ * concurrent creates only contend when they land on the same stripe. Entries
+ * stay until the resource's tombstone is purged by {@link #compact(long)};
+ * without compaction, the directory grows with every resource ever created. Resources returned by the store belong to their partition, so
+ * navigating from one (e.g. to its children) goes straight to the partition
+ * without consulting the directory.
+ *
+ * Each partition has its own sequence of transactions, so transaction IDs
+ * are only ordered within a partition. (Each partition's clock is one of a
+ * set of {@linkplain MonotonicClock#system(int, int) interleaved clocks},
+ * so no two partitions ever commit the same {@link Transaction}.)
+ * Accordingly:
+ *
+ * <ul>
+ *   <li>{@link #transaction()} is the most recent transaction in any partition</li>
+ *   <li>{@link #at(Transaction)} opens a snapshot of the partition that
+ *   committed the specified transaction, which sees only that partition's
+ *   workspaces</li>
+ *   <li>a {@link #batch() batch} is committed atomically in a single
+ *   partition, and can't refer to resources in more than one</li>
+ *   <li>{@link #changes(long)} merges the changes of each partition from
+ *   the specified transaction onward; changes are in transaction order
+ *   within each partition, but interleaved arbitrarily between them</li>
+ * </ul>
+ */
+public class ShardedMemoryStore implements Store {
+
+  // ------------------------------------------------------------
+  // Class fields
+
+  private static final IdGenerator generator = IdGenerators.defaultGenerator();
+
+  // ------------------------------------------------------------
+  // Instance fields
+
+  private final Vector<MemoryStore> partitions;
+  private final PartitionDirectory directory = new PartitionDirectory();
+
+  // ------------------------------------------------------------
+  // Constructors
+
+  /**
+   * Creates a store with one partition per available processor.
+   */
+  public ShardedMemoryStore() {
+    this(Runtime.getRuntime().availableProcessors());
+  }
+
+  public ShardedMemoryStore(int partitionCount) {
+    this(IndexBackend.HASH_MAP, partitionCount);
+  }
+
+  public ShardedMemoryStore(IndexBackend backend, int partitionCount) {
+    this(backend, partitionCount, index -> MonotonicClock.system(partitionCount, index));
+  }
+
+  /**
+   * @param clocks Creates the clock to timestamp each partition's transactions
+   *               with, given the partition's index. No two clocks should
+   *               ever read the same value.
+   */
+  public ShardedMemoryStore(IndexBackend backend, int partitionCount, IntFunction<TransactionClock> clocks) {
+    Objects.requireNonNull(backend);
+    Objects.requireNonNull(clocks);
+    require(partitionCount > 0, () -> "Partition count must be > 0: " + partitionCount);
+    partitions = Vector.tabulate(partitionCount, index -> new MemoryStore(backend, MemoryStore.DEFAULT_RETAINED_VERSIONS, clocks.apply(index)));
+  }
+
+  // ------------------------------------------------------------
+  // Metrics
+
+  public int partitionCount() {
+    return partitions.size();
+  }
+
+  /**
+   * @return The number of resources, live or deleted, in the directory.
+   */
+  public int directorySize() {
+    return directory.size();
+  }
+
+  /**
+   * @return The number of state transitions published, across all partitions.
+   * @see MemoryStore#commitCount()
+   */
+  public long commitCount() {
+    return partitions.map(MemoryStore::commitCount).sum().longValue();
+  }
+
+  /**
+   * @return The number of contended commits, across all partitions.
+   * @see MemoryStore#contendedCommitCount()
+   */
+  public long contendedCommitCount() {
+    return partitions.map(MemoryStore::contendedCommitCount).sum().longValue();
+  }
+
+  /**
+   * @return The number of commits in each partition, in partition order, to
+   * show how evenly workspaces are spread.
+   */
+  public Seq<Long> commitCountByPartition() {
+    return partitions.map(MemoryStore::commitCount);
+  }
+
+  // ------------------------------------------------------------
+  // Compaction
+
+  /**
+   * Compacts each partition in turn, keeping the specified number of its
+   * most recent transactions' deletions (transaction IDs aren't comparable
+   * across partitions), and drops purged tombstones from the directory.
+   *
+   * @return What was purged from each partition, in partition order.
+   * @see MemoryStore#compact(long)
+   */
+  public Single<Seq<Compaction>> compact(long retainedTransactions) {
+    require(retainedTransactions >= 0, () -> "Retained transactions must be >= 0: " + retainedTransactions);
+    return Observable.fromIterable(partitions)
+      .concatMap(p -> p.compact(p.currentTransaction().txid() - retainedTransactions)
+        .doOnSuccess(c -> c.tombstoneIds().forEach(directory::remove))
+        .toObservable())
+      .toList()
+      .<Seq<Compaction>>map(Vector::ofAll);
+  }
+
+  // ------------------------------------------------------------
+  // Store
+
+  @Override
+  public Single<Transaction> transaction() {
+    return just(latest().currentTransaction());
+  }
+
+  @Override
+  public Single<Snapshot> at(Transaction tx) {
+    Objects.requireNonNull(tx);
+    return partitions.find(p -> p.retains(tx))
+      .map(p -> p.at(tx))
+      .getOrElse(() -> Single.error(new VersionNotRetainedException(tx)));
+  }
+
+  @Override
+  public Flowable<Change> changes(long fromTxid) {
+    // partition change streams never complete, so subscribe to all of them at once
+    return Flowable.merge(partitions.map(p -> p.changes(fromTxid)), partitions.size());
+  }
+
+  @Override
+  public Batch batch() {
+    return new ShardedBatch(this);
+  }
+
+  @Override
+  public Single<Workspace> createWorkspace() {
+    var id = newId();
+    var partition = partitions.get((int) Long.remainderUnsigned(PartitionDirectory.hash(id), partitions.size()));
+    return register(id, partition, partition::createWorkspace);
+  }
+
+  @Override
+  public Single<Workspace> deleteWorkspace(Workspace ws, boolean recursive) {
+    return partitionOf(ws).deleteWorkspace(ws, recursive);
+  }
+
+  @Override
+  public Single<Workspace> deleteWorkspace(Workspace ws, boolean recursive, Version expectedVersion) {
+    return partitionOf(ws).deleteWorkspace(ws, recursive, expectedVersion);
+  }
+
+  @Override
+  public Single<Collection> createCollection(Workspace parent) {
+    return create(parent, COLLECTION);
+  }
+
+  @Override
+  public Single<Collection> createCollection(Collection parent) {
+    return create(parent, COLLECTION);
+  }
+
+  @Override
+  public Single<Collection> createCollection(Workspace parent, Version expectedVersion) {
+    var partition = partitionOf(parent);
+    return register(newId(), partition, id -> partition.createChild(parent, COLLECTION, id, expectedVersion));
+  }
+
+  @Override
+  public Single<Collection> createCollection(Collection parent, Version expectedVersion) {
+    var partition = partitionOf(parent);
+    return register(newId(), partition, id -> partition.createChild(parent, COLLECTION, id, expectedVersion));
+  }
+
+  @Override
+  public Single<Collection> deleteCollection(Collection coll, boolean recursive) {
+    return partitionOf(coll).deleteCollection(coll, recursive);
+  }
+
+  @Override
+  public Single<Collection> deleteCollection(Collection coll, boolean recursive, Version expectedVersion) {
+    return partitionOf(coll).deleteCollection(coll, recursive, expectedVersion);
+  }
+
+  @Override
+  public Maybe<Resource<?>> find(UUID id) {
+    return partitionOf(id).find(id);
+  }
+
+  @Override
+  public Maybe<Resource<?>> findTombstone(UUID id) {
+    return partitionOf(id).findTombstone(id);
+  }
+
+  @Override
+  public <R extends Resource<R>> Maybe<R> find(UUID id, ResourceType<R> type) {
+    return partitionOf(id).find(id, type);
+  }
+
+  @Override
+  public <R extends Resource<R>> Maybe<R> findTombstone(UUID id, ResourceType<R> type) {
+    return partitionOf(id).findTombstone(id, type);
+  }
+
+  @Override
+  public Observable<Resource<?>> ancestorsOf(UUID id) {
+    return partitionOf(id).ancestorsOf(id);
+  }
+
+  @Override
+  public Observable<Link> linksFrom(UUID id) {
+    return partitionOf(id).linksFrom(id);
+  }
+
+  @Override
+  public Observable<Link> linksTo(UUID id) {
+    return partitionOf(id).linksTo(id);
+  }
+
+  @Override
+  public Flowable<Link> streamLinksFrom(UUID id) {
+    return partitionOf(id).streamLinksFrom(id);
+  }
+
+  @Override
+  public Flowable<Link> streamLinksTo(UUID id) {
+    return partitionOf(id).streamLinksTo(id);
+  }
+
+  @Override
+  public <R extends Resource<R>> Flowable<R> streamChildren(UUID parentId, ResourceType<R> type) {
+    return partitionOf(parentId).streamChildren(parentId, type);
+  }
+
+  @Override
+  public <R extends Resource<R>> Single<Page<R>> children(UUID parentId, ResourceType<R> type, Cursor after, int limit) {
+    return partitionOf(parentId).children(parentId, type, after, limit);
+  }
+
+  // ------------------------------------------------------------
+  // Package-private
+
+  /**
+   * @return The partition holding the specified resource. A resource that
+   * isn't in the directory isn't in any partition; it's routed to the
+   * partition that committed most recently, which reports it as missing
+   * (or as invalid) just as an unpartitioned store would.
+   */
+  MemoryStore partitionOf(UUID id) {
+    var partition = id == null ? null : directory.partitionOf(id);
+    return partition == null ? latest() : partition;
+  }
+
+  MemoryStore partitionOf(Resource<?> resource) {
+    return partitionOf(resource.id());
+  }
+
+  /**
+   * Chooses a partition for a batch that only creates workspaces.
+   */
+  MemoryStore partitionForNew() {
+    return partitions.get((int) Long.remainderUnsigned(PartitionDirectory.hash(newId()), partitions.size()));
+  }
+
+  /**
+   * Mints an ID for a resource about to be created in the specified
+   * partition, and adds it to the directory.
+   *
+   * @see #register(UUID, MemoryStore, Function)
+   */
+  UUID reserveId(MemoryStore partition) {
+    var id = newId();
+    directory.put(id, partition);
+    return id;
+  }
+
+  /**
+   * Removes an ID from the directory after the create it was reserved for
+   * has failed.
+   */
+  void releaseId(UUID id) {
+    directory.remove(id);
+  }
+
+  // ------------------------------------------------------------
+  // Private
+
+  private <P extends Resource<P>, C extends Resource<C>> Single<C> create(P parent, ResourceType<C> childType) {
+    var partition = partitionOf(parent);
+    return register(newId(), partition, id -> partition.createChild(parent, childType, id));
+  }
+
+  /**
+   * Adds the resource to the directory before creating it, so it can be
+   * found as soon as it exists, and removes it again if the create fails.
+   */
+  private <R extends Resource<R>> Single<R> register(UUID id, MemoryStore partition, Function<UUID, R> create) {
+    directory.put(id, partition);
+    try {
+      return just(create.apply(id));
+    } catch (Exception e) {
+      directory.remove(id);
+      return Single.error(e);
+    }
+  }
+
+  private MemoryStore latest() {
+    return partitions.maxBy(Comparator.comparingLong(p -> p.currentTransaction().epochNanos())).get();
+  }
+
+  private static UUID newId() {
+    return generator.generate();
+  }
+}
@@ -0,0 +1,113 @@
+package org.cdlib.kufi.memory;
+
+import io.reactivex.Flowable;
+import io.reactivex.Maybe;
+import io.reactivex.Observable;
+import io.reactivex.Single;
+import org.cdlib.kufi.Cursor;
+import org.cdlib.kufi.Link;
+import org.cdlib.kufi.Page;
+import org.cdlib.kufi.Resource;
+import org.cdlib.kufi.ResourceType;
+
+import java.util.UUID;
+
+import static org.cdlib.kufi.util.Preconditions.require;
+
+/**
+ * {@link org.cdlib.kufi.StoreView} finders over a single {@link StoreState},
+ * shared by {@link MemoryStore} (reading its current state) and
+ * {@link MemorySnapshot} (reading a pinned one).
+ *
+ * Because states are immutable, the streaming finders can iterate the
+ * state's persistent collections lazily, one element per downstream
+ * request, without copying them first.
+ */
+class StateFinders {
+
+  // ------------------------------------------------------------
+  // Class methods
+
+  static Maybe<Resource<?>> find(StoreState state, UUID id) {
+    try {
+      return state.find(id)
+        .<Maybe<Resource<?>>>map(Maybe::just)
+        .getOrElse(Maybe::empty);
+    } catch (Exception e) {
+      return Maybe.error(e);
+    }
+  }
+
+  static Maybe<Resource<?>> findTombstone(StoreState state, UUID id) {
+    try {
+      return state.findTombstone(id)
+        .<Maybe<Resource<?>>>map(Maybe::just)
+        .getOrElse(Maybe::empty);
+    } catch (Exception e) {
+      return Maybe.error(e);
+    }
+  }
+
+  static <R extends Resource<R>> Maybe<R> find(StoreState state, UUID id, ResourceType<R> type) {
+    try {
+      return state.find(id)
+        .flatMap(r1 -> r1.as(type))
+        .map(Maybe::just)
+        .getOrElse(Maybe::empty);
+    } catch (Exception e) {
+      return Maybe.error(e);
+    }
+  }
+
+  static <R extends Resource<R>> Maybe<R> findTombstone(StoreState state, UUID id, ResourceType<R> type) {
+    try {
+      return state.findTombstone(id)
+        .flatMap(r1 -> r1.as(type))
+        .map(Maybe::just)
+        .getOrElse(Maybe::empty);
+    } catch (Exception e) {
+      return Maybe.error(e);
+    }
+  }
+
+  static Observable<Resource<?>> ancestorsOf(StoreState state, UUID id) {
+    try {
+      return Observable.fromIterable(state.findAncestors(id));
+    } catch (Exception e) {
+      return Observable.error(e);
+    }
+  }
+
+  static Observable<Link> linksFrom(StoreState state, UUID id) {
+    return Observable.fromIterable(state.linksBySource(id));
+  }
+
+  static Observable<Link> linksTo(StoreState state, UUID id) {
+    return Observable.fromIterable(state.linksByTarget(id));
+  }
+
+  static Flowable<Link> streamLinksFrom(StoreState state, UUID id) {
+    return Flowable.fromIterable(state.linksBySource(id));
+  }
+
+  static Flowable<Link> streamLinksTo(StoreState state, UUID id) {
+    return Flowable.fromIterable(state.linksByTarget(id));
+  }
+
+  static <R extends Resource<R>> Flowable<R> streamChildren(StoreState state, UUID parentId, ResourceType<R> type) {
+    return Flowable.fromIterable(state.findChildrenOfType(parentId, type));
+  }
+
+  static <R extends Resource<R>> Single<Page<R>> children(StoreState state, UUID parentId, ResourceType<R> type, Cursor after, int limit) {
+    try {
+      require(limit > 0, () -> "Page limit must be positive: " + limit);
+      return Single.just(state.findChildrenPage(parentId, type, after, limit));
+    } catch (Exception e) {
+      return Single.error(e);
+    }
+  }
+
+  private StateFinders() {
+    // private to prevent instantiation
+  }
+}
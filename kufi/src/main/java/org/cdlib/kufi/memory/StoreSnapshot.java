@@ -0,0 +1,278 @@
+package org.cdlib.kufi.memory;
+
+import io.vavr.collection.Set;
+import io.vavr.control.Option;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import org.cdlib.kufi.LinkType;
+import org.cdlib.kufi.Transaction;
+import org.cdlib.kufi.util.TimeUtil;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.UUID;
+
+import static io.vavr.control.Option.none;
+import static io.vavr.control.Option.some;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Reads and writes complete {@link StoreState}s in a compact binary format.
+ * Because states are immutable, a snapshot can be written from any thread
+ * while writers continue to commit.
+ *
+ * Each {@link Transaction} is written once, the first time it's referenced,
+ * and resources and links refer to it by txid thereafter. Snapshots are
+ * written to a temporary file and moved into place only once complete and
+ * synced, so a crash mid-write leaves the previous snapshot intact. Derived
+ * indexes, such as child and parent indexes, aren't written; they're
+ * rebuilt from the links on load.
+ */
+class StoreSnapshot {
+
+  // ------------------------------------------------------------
+  // Constants
+
+  private static final int MAGIC = 0x4b534e50; // "KSNP"
+  private static final int FORMAT_VERSION = 1;
+
+  private static final byte END = 0;
+  private static final byte TRANSACTION = 1;
+  private static final byte RESOURCE = 2;
+  private static final byte LINK = 3;
+
+  private static final int BUFFER_BYTES = 1 << 16;
+
+  // ------------------------------------------------------------
+  // Class methods
+
+  static void write(StoreState state, Path path) throws IOException {
+    var tmp = path.resolveSibling(path.getFileName() + ".tmp");
+    try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), BUFFER_BYTES))) {
+      new SnapshotWriter(out).write(state);
+    }
+    try (var channel = FileChannel.open(tmp, WRITE)) {
+      channel.force(true);
+    }
+    Files.move(tmp, path, ATOMIC_MOVE, REPLACE_EXISTING);
+  }
+
+  static StoreState read(MemoryStore store, IndexBackend backend, Path path) throws IOException {
+    try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), BUFFER_BYTES))) {
+      return new SnapshotReader(store, backend, in).read(path);
+    }
+  }
+
+  // ------------------------------------------------------------
+  // Helper classes
+
+  private static final class SnapshotWriter {
+    private final DataOutputStream out;
+    private final LongSet written = new LongOpenHashSet();
+
+    private SnapshotWriter(DataOutputStream out) {
+      this.out = out;
+    }
+
+    private void write(StoreState state) throws IOException {
+      out.writeInt(MAGIC);
+      out.writeInt(FORMAT_VERSION);
+
+      var tx = state.transaction();
+      writeTransaction(tx);
+      out.writeLong(tx.txid());
+
+      try {
+        state.forEachResource(r -> {
+          try {
+            writeResource(r);
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+        });
+        state.forEachLink(l -> {
+          try {
+            writeLink(l);
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+        });
+      } catch (UncheckedIOException e) {
+        throw e.getCause();
+      }
+      out.writeByte(END);
+    }
+
+    private void writeLink(MemoryLink link) throws IOException {
+      var deletedAt = link.deletedAt();
+      // transactions must precede the link that refers to them
+      writeTransaction(link.source().transaction());
+      writeTransaction(link.target().transaction());
+      writeTransaction(link.createdAt());
+      for (var tx : deletedAt) {
+        writeTransaction(tx);
+      }
+
+      out.writeByte(LINK);
+      out.writeByte(link.type().ordinal());
+      writeHandle(link.source());
+      writeHandle(link.target());
+      out.writeLong(link.createdAt().txid());
+      out.writeBoolean(deletedAt.isDefined());
+      if (deletedAt.isDefined()) {
+        out.writeLong(deletedAt.get().txid());
+      }
+    }
+
+    private void writeResource(MemoryResource<?> resource) throws IOException {
+      writeTransaction(resource.transaction());
+      out.writeByte(RESOURCE);
+      writeHandle(resource);
+    }
+
+    private void writeHandle(MemoryResource<?> resource) throws IOException {
+      var id = resource.id();
+      out.writeLong(id.getMostSignificantBits());
+      out.writeLong(id.getLeastSignificantBits());
+      out.writeByte(Mutation.typeCode(resource.type()));
+      out.writeLong(resource.vid());
+      out.writeLong(resource.transaction().txid());
+      out.writeBoolean(resource.isDeleted());
+    }
+
+    /**
+     * Writes the specified transaction, unless it's already been written.
+     */
+    private void writeTransaction(Transaction tx) throws IOException {
+      if (written.add(tx.txid())) {
+        out.writeByte(TRANSACTION);
+        out.writeLong(tx.txid());
+        out.writeLong(TimeUtil.epochSecond(tx.epochNanos()));
+        out.writeInt(TimeUtil.nanoOfSecond(tx.epochNanos()));
+      }
+    }
+  }
+
+  private static final class SnapshotReader {
+    private final MemoryStore store;
+    private final DataInputStream in;
+    private final Long2ObjectMap<Transaction> transactions = new Long2ObjectOpenHashMap<>();
+
+    private UuidMap<MemoryResource<?>> resources;
+    private UuidMap<Set<MemoryLink>> linksBySource;
+    private UuidMap<Set<MemoryLink>> linksByTarget;
+    private UuidMap<ChildIndex> children;
+    private UuidMap<MemoryResource<?>> parents;
+
+    private SnapshotReader(MemoryStore store, IndexBackend backend, DataInputStream in) {
+      this.store = store;
+      this.in = in;
+      resources = backend.emptyMap();
+      linksBySource = backend.emptyMap();
+      linksByTarget = backend.emptyMap();
+      children = backend.emptyMap();
+      parents = backend.emptyMap();
+    }
+
+    private StoreState read(Path path) throws IOException {
+      if (in.readInt() != MAGIC) {
+        throw new IOException("Not a snapshot: " + path);
+      }
+      var version = in.readInt();
+      if (version != FORMAT_VERSION) {
+        throw new IOException("Unsupported snapshot version " + version + ": " + path);
+      }
+
+      readTransaction(in.readByte());
+      var tx = transaction(in.readLong());
+
+      for (var tag = in.readByte(); tag != END; tag = in.readByte()) {
+        switch (tag) {
+          case TRANSACTION:
+            readTransaction(tag);
+            break;
+          case RESOURCE:
+            var resource = readHandle();
+            resources = resources.put(resource.id(), resource);
+            break;
+          case LINK:
+            var link = readLink();
+            linksBySource = StoreState.putLink(linksBySource, link.sourceId(), link);
+            linksByTarget = StoreState.putLink(linksByTarget, link.targetId(), link);
+            if (link.isLive()) {
+              if (link.type() == LinkType.PARENT_OF) {
+                children = StoreState.putChild(children, link.sourceId(), link.target());
+              } else if (link.type() == LinkType.CHILD_OF) {
+                parents = parents.put(link.sourceId(), link.target());
+              }
+            }
+            break;
+          default:
+            throw new IOException("Unexpected tag " + tag + " in snapshot: " + path);
+        }
+      }
+      return new StoreState(store.clock(), tx, resources, linksBySource, linksByTarget, children, parents);
+    }
+
+    private MemoryLink readLink() throws IOException {
+      var type = LinkType.values()[in.readByte()];
+      var source = intern(readHandle());
+      var target = intern(readHandle());
+      var createdAt = transaction(in.readLong());
+      Option<Transaction> deletedAt = in.readBoolean() ? some(transaction(in.readLong())) : none();
+      return MemoryLink.restore(source, type, target, createdAt, deletedAt);
+    }
+
+    private MemoryResource<?> readHandle() throws IOException {
+      var id = new UUID(in.readLong(), in.readLong());
+      var type = Mutation.typeFor(in.readByte());
+      var vid = in.readLong();
+      var tx = transaction(in.readLong());
+      return MemoryResource.create(type, id, vid, tx, in.readBoolean(), store);
+    }
+
+    /**
+     * Link endpoints are usually the current version of a resource; reuse the
+     * already-loaded object rather than keeping a duplicate.
+     */
+    private MemoryResource<?> intern(MemoryResource<?> handle) {
+      var current = resources.getOrNull(handle.id());
+      if (current != null && current.equals(handle) && current.isDeleted() == handle.isDeleted()) {
+        return current;
+      }
+      return handle;
+    }
+
+    private void readTransaction(byte tag) throws IOException {
+      if (tag != TRANSACTION) {
+        throw new IOException("Expected transaction, got tag " + tag);
+      }
+      var txid = in.readLong();
+      var epochNanos = TimeUtil.epochNanos(in.readLong(), in.readInt());
+      transactions.put(txid, new Transaction(txid, epochNanos));
+    }
+
+    private Transaction transaction(long txid) throws IOException {
+      var tx = transactions.get(txid);
+      if (tx == null) {
+        throw new IOException("Reference to unknown transaction " + txid);
+      }
+      return tx;
+    }
+  }
+
+  private StoreSnapshot() {
+    // private to prevent instantiation
+  }
+}
@@ -1,55 +1,76 @@
 package org.cdlib.kufi.memory;
 
-import com.fasterxml.uuid.Generators;
-import com.fasterxml.uuid.NoArgGenerator;
-import io.vavr.Tuple;
 import io.vavr.collection.*;
 import io.vavr.control.Option;
+import org.cdlib.cursive.util.ids.IdGenerator;
+import org.cdlib.cursive.util.ids.IdGenerators;
 import org.cdlib.kufi.*;
+import org.cdlib.kufi.util.MonotonicClock;
+import org.cdlib.kufi.util.TransactionClock;
 
-import java.security.SecureRandom;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.UUID;
+import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.stream.Stream;
 
 import static org.cdlib.kufi.LinkType.CHILD_OF;
 import static org.cdlib.kufi.LinkType.PARENT_OF;
 import static org.cdlib.kufi.ResourceType.WORKSPACE;
-import static org.cdlib.kufi.Transaction.initTransaction;
 
 class StoreState {
 
   // ------------------------------------------------------------
   // Class fields
 
-  /**
-   * Separate SecureRandom instance per thread to avoid contention
-   */
-  private static final ThreadLocal<NoArgGenerator> generator = ThreadLocal.withInitial(
-    () -> Generators.randomBasedGenerator(new SecureRandom())
-  );
+  private static final IdGenerator generator = IdGenerators.defaultGenerator();
 
   // ------------------------------------------------------------
   // Instance fields
 
+  private final TransactionClock clock;
   private final Transaction tx;
 
-  private final Map<UUID, MemoryResource<?>> resources;
+  private final UuidMap<MemoryResource<?>> resources;
 
-  private final Multimap<UUID, MemoryLink> linksBySource;
-  private final Multimap<UUID, MemoryLink> linksByTarget;
+  private final UuidMap<Set<MemoryLink>> linksBySource;
+  private final UuidMap<Set<MemoryLink>> linksByTarget;
+
+  /** Live children by parent ID, derived from live {@code PARENT_OF} links in {@link #linksBySource} */
+  private final UuidMap<ChildIndex> children;
+  /** Parent by child ID, derived from live {@code CHILD_OF} links in {@link #linksBySource} */
+  private final UuidMap<MemoryResource<?>> parents;
 
   // ------------------------------------------------------------
   // Constructors
 
   StoreState() {
-    this(initTransaction(), HashMap.empty(), HashMultimap.withSet().empty(), HashMultimap.withSet().empty());
+    this(IndexBackend.HASH_MAP);
+  }
+
+  StoreState(IndexBackend backend) {
+    this(backend, MonotonicClock.system());
+  }
+
+  /**
+   * @param clock The clock to timestamp this state's transactions, and those
+   *              of the states that follow it
+   */
+  StoreState(IndexBackend backend, TransactionClock clock) {
+    this(clock, new Transaction(0L, clock.epochNanos()), backend.emptyMap(), backend.emptyMap(), backend.emptyMap(), backend.emptyMap(), backend.emptyMap());
   }
 
-  private StoreState(Transaction tx, Map<UUID, MemoryResource<?>> resources, Multimap<UUID, MemoryLink> linksBySource, Multimap<UUID, MemoryLink> linksByTarget) {
+  StoreState(TransactionClock clock, Transaction tx, UuidMap<MemoryResource<?>> resources, UuidMap<Set<MemoryLink>> linksBySource, UuidMap<Set<MemoryLink>> linksByTarget, UuidMap<ChildIndex> children, UuidMap<MemoryResource<?>> parents) {
+    this.clock = clock;
     this.tx = tx;
     this.resources = resources;
     this.linksBySource = linksBySource;
     this.linksByTarget = linksByTarget;
+    this.children = children;
+    this.parents = parents;
   }
 
   // ------------------------------------------------------------
@@ -59,6 +80,17 @@ class StoreState {
     return tx;
   }
 
+  TransactionClock clock() {
+    return clock;
+  }
+
+  /**
+   * @return The transaction following this state's, timestamped from its clock.
+   */
+  Transaction nextTransaction() {
+    return tx.next(clock);
+  }
+
   // ------------------------------
   // Finders
 
@@ -70,42 +102,70 @@ class StoreState {
     return resources.get(id).filter(Resource::isDeleted);
   }
 
-  <R extends Resource<R>> Set<R> findChildrenOfType(UUID id, ResourceType<R> type) {
-    return findChildren(id)
-      .flatMap(r -> r.as(type))
-      .toSet();
+  <R extends Resource<R>> Iterable<R> findChildrenOfType(UUID id, ResourceType<R> type) {
+    return childIndex(id).ofType(type);
+  }
+
+  <R extends Resource<R>> Page<R> findChildrenPage(UUID id, ResourceType<R> type, Cursor after, int limit) {
+    return childIndex(id).page(type, after, limit);
   }
 
   Option<Resource<?>> findParent(Resource<?> child) {
-    return Option.narrow(linksBySource(child.id())
-      .filter(l -> l.type() == CHILD_OF)
-      .filter(Link::isLive)
-      .map(Link::target)
-      .headOption());
+    return Option.of(parents.getOrNull(child.id()));
+  }
+
+  /**
+   * @return The current version of each ancestor of the specified resource,
+   * nearest first, or an empty sequence if the resource doesn't exist or
+   * has no parent.
+   */
+  Seq<MemoryResource<?>> findAncestors(UUID id) {
+    var ancestors = Vector.<MemoryResource<?>>empty();
+    for (var parent = parents.getOrNull(id); parent != null; parent = parents.getOrNull(parent.id())) {
+      ancestors = ancestors.append(resources.getOrNull(parent.id()));
+    }
+    return ancestors;
   }
 
   // ------------------------------
   // Creators & Deletors
 
   StoreUpdate<Workspace> createWorkspace(MemoryStore store) {
-    var id = newId();
-    var txNext = tx.next();
+    return createWorkspace(store, nextTransaction());
+  }
+
+  StoreUpdate<Workspace> createWorkspace(MemoryStore store, Transaction txNext) {
+    return createWorkspace(store, newId(), txNext);
+  }
+
+  StoreUpdate<Workspace> createWorkspace(MemoryStore store, UUID id, Transaction txNext) {
     var ws = store.createNew(WORKSPACE, id, txNext);
     var lrNext = resources.put(id, ws);
 
-    var storeNext = new StoreState(txNext, lrNext, linksBySource, linksByTarget);
-    return StoreUpdate.of(ws, storeNext);
+    var storeNext = new StoreState(clock, txNext, lrNext, linksBySource, linksByTarget, children, parents);
+    return StoreUpdate.of(ws, storeNext, Mutation.createWorkspace(id), () -> Iterator.of(Change.created(ws)));
   }
 
   <P extends Resource<P>, C extends Resource<C>> StoreUpdate<C> createChild(MemoryStore store, MemoryResource<P> parent, ResourceType<C> childType) {
+    return createChild(store, parent, childType, nextTransaction());
+  }
+
+  /**
+   * Creates a child of the specified parent at the specified transaction. If the
+   * parent already has a version at that transaction (i.e., it's already been
+   * updated earlier in the same batch), that version is reused rather than
+   * bumped again.
+   */
+  <P extends Resource<P>, C extends Resource<C>> StoreUpdate<C> createChild(MemoryStore store, MemoryResource<P> parent, ResourceType<C> childType, Transaction txNext) {
+    return createChild(store, parent, childType, newId(), txNext);
+  }
+
+  <P extends Resource<P>, C extends Resource<C>> StoreUpdate<C> createChild(MemoryStore store, MemoryResource<P> parent, ResourceType<C> childType, UUID childId, Transaction txNext) {
     var parentId = parent.id();
     var parentCurrent = current(parent);
 
-    var childId = newId();
-    var txNext = tx.next();
-
     var child = store.createNew(childType, childId, txNext);
-    var parentNext = store.nextVersion(parentCurrent, txNext);
+    var parentNext = isLiveAt(parentCurrent, txNext) ? parentCurrent : store.nextVersion(parentCurrent, txNext);
 
     var p2c = MemoryLink.create(parentNext, PARENT_OF, child, txNext);
     var c2p = MemoryLink.create(child, CHILD_OF, parentNext, txNext);
@@ -114,27 +174,159 @@ class StoreState {
       .put(parentId, parentNext)
       .put(childId, child);
 
-    var lbsNext = linksBySource
-      .put(parentId, p2c)
-      .put(childId, c2p);
-
-    var lbtNext = linksByTarget
-      .put(childId, p2c)
-      .put(parentId, c2p);
+    var lbsNext = putLink(putLink(linksBySource, parentId, p2c), childId, c2p);
+    var lbtNext = putLink(putLink(linksByTarget, childId, p2c), parentId, c2p);
+    var chNext = putChild(children, parentId, child);
+    var psNext = parents.put(childId, parentNext);
 
-    var stateNext = new StoreState(txNext, lrNext, lbsNext, lbtNext);
-    return StoreUpdate.of(child, stateNext);
+    var stateNext = new StoreState(clock, txNext, lrNext, lbsNext, lbtNext, chNext, psNext);
+    Iterable<Change> changes = parentNext == parentCurrent
+      ? () -> Iterator.of(Change.created(child), Change.linkCreated(p2c), Change.linkCreated(c2p))
+      : () -> Iterator.of(Change.created(child), Change.versioned(parentNext), Change.linkCreated(p2c), Change.linkCreated(c2p));
+    return StoreUpdate.of(child, stateNext, Mutation.createChild(parentId, parent.type(), childType, childId), changes);
   }
 
   <R extends Resource<R>> StoreUpdate<R> delete(MemoryResource<R> r, boolean recursive) {
+    return delete(r, recursive, nextTransaction());
+  }
+
+  <R extends Resource<R>> StoreUpdate<R> delete(MemoryResource<R> r, boolean recursive, Transaction txNext) {
     if (!recursive) {
-      var childCount = countChildren(r.id());
+      var childCount = childIndex(r.id()).count();
       if (childCount > 0) {
         throw new IllegalStateException("Can't delete " + r + "; " + childCount + " children");
       }
     }
-    var txNext = tx.next();
-    return StoreUpdate.of(r.store().delete(r, txNext), deleteRecursive(r, txNext));
+    var mutation = Mutation.delete(r.id(), r.type(), recursive);
+    return deleteRecursive(r, mutation, txNext);
+  }
+
+  /**
+   * Applies all of the specified operations at a single new transaction.
+   *
+   * @param ops The operations to apply, in order.
+   * @return The resources produced by each operation, in order, along with the final state.
+   */
+  BatchUpdate batch(Seq<BatchOp> ops) {
+    var txNext = nextTransaction();
+    var stateNext = this;
+    var results = Vector.<MemoryResource<?>>empty();
+    var mutations = Vector.<Mutation>empty();
+    var changes = Vector.<Iterable<Change>>empty();
+    for (var op : ops) {
+      var update = op.apply(stateNext, txNext);
+      results = results.append(update.resource());
+      mutations = mutations.append(update.mutation());
+      changes = changes.append(update.changes());
+      stateNext = update.stateNext();
+    }
+    return BatchUpdate.of(results, mutations, ChangeSet.concat(changes), stateNext);
+  }
+
+  /**
+   * Re-applies previously logged mutations at their original transaction.
+   *
+   * @throws IllegalStateException if {@code tx} does not immediately follow the current transaction
+   */
+  StoreState replay(MemoryStore store, Transaction tx, Seq<Mutation> mutations) {
+    return replay(store, tx, mutations, changes -> { });
+  }
+
+  /**
+   * Re-applies previously logged mutations at their original transaction,
+   * passing the changes made by each to the specified consumer, in order.
+   *
+   * @throws IllegalStateException if {@code tx} does not immediately follow the current transaction
+   */
+  StoreState replay(MemoryStore store, Transaction tx, Seq<Mutation> mutations, Consumer<Iterable<Change>> changes) {
+    if (tx.txid() != this.tx.txid() + 1) {
+      throw new IllegalStateException("Can't replay " + tx + " after " + this.tx);
+    }
+    var stateNext = this;
+    for (var mutation : mutations) {
+      var update = mutation.replay(store, stateNext, tx);
+      changes.accept(update.changes());
+      stateNext = update.stateNext();
+    }
+    return stateNext;
+  }
+
+  // ------------------------------
+  // Compaction
+
+  /**
+   * Finds tombstones and dead links deleted before the specified transaction.
+   * Since nothing is ever undeleted, these remain garbage in every later state,
+   * so the scan can be done against this state and the result applied to a
+   * later one with {@link #compact(Compaction)}.
+   */
+  Compaction planCompaction(long retainFromTxid) {
+    var tombstoneIds = new ArrayList<UUID>();
+    resources.forEachValue(r -> {
+      if (r.isDeleted() && r.transaction().txid() < retainFromTxid) {
+        tombstoneIds.add(r.id());
+      }
+    });
+    var deadLinks = new ArrayList<MemoryLink>();
+    forEachLink(l -> {
+      if (l.isDeleted() && l.deletedAt().get().txid() < retainFromTxid) {
+        deadLinks.add(l);
+      }
+    });
+    return new Compaction(tx, retainFromTxid, Vector.ofAll(tombstoneIds), Vector.ofAll(deadLinks));
+  }
+
+  /**
+   * Removes the garbage found by {@link #planCompaction(long)} without
+   * incrementing the transaction.
+   */
+  StoreState compact(Compaction compaction) {
+    if (compaction.isEmpty()) {
+      return this;
+    }
+    var ids = compaction.tombstoneIds();
+    var dead = compaction.deadLinks();
+    var rsNext = resources.removeAll(ids);
+    var chNext = children.removeAll(ids);
+    var lbsNext = removeLinks(linksBySource, dead, MemoryLink::sourceId);
+    var lbtNext = removeLinks(linksByTarget, dead, MemoryLink::targetId);
+    return new StoreState(clock, tx, rsNext, lbsNext, lbtNext, chNext, parents);
+  }
+
+  /**
+   * Checks that the specified resource is at the expected version in this
+   * state. Since updates are applied to whatever state is current when they
+   * commit, checking here means a conditional update that has to be retried
+   * is checked again against the state it will replace.
+   *
+   * @return The resource, for chaining.
+   * @throws VersionConflictException if the resource is at some other version
+   * @throws ResourceNotFoundException if the resource doesn't exist in this state
+   */
+  <R extends Resource<R>> MemoryResource<R> requireVersion(MemoryResource<R> r, Version expectedVersion) {
+    var actual = current(r).currentVersion();
+    if (!actual.equals(expectedVersion)) {
+      throw new VersionConflictException(r.id(), r.type(), expectedVersion, actual);
+    }
+    return r;
+  }
+
+  MemoryResource<?> current(UUID id, ResourceType<?> type) {
+    return resources.get(id).filter(r -> r.hasType(type))
+      .getOrElseThrow(() ->
+        new ResourceNotFoundException(id, type)
+      );
+  }
+
+  void forEachResource(Consumer<? super MemoryResource<?>> action) {
+    resources.forEachValue(action);
+  }
+
+  /**
+   * Applies the specified action to each link, live or deleted, exactly once.
+   */
+  void forEachLink(Consumer<? super MemoryLink> action) {
+    linksBySource.forEachValue(links -> links.forEach(action));
   }
 
   Traversable<MemoryLink> linksBySource(UUID id) {
@@ -148,60 +340,141 @@ class StoreState {
   // ------------------------------------------------------------
   // Private instance methods
 
-  private Traversable<MemoryResource<?>> findChildren(UUID id) {
-    return linksBySource(id)
-      .filter(l -> l.type() == PARENT_OF)
-      .filter(Link::isLive)
-      .map(MemoryLink::target);
+  private ChildIndex childIndex(UUID id) {
+    return children.getOrElse(id, ChildIndex.EMPTY);
   }
 
   /**
-   * Recursively delete the specified resource and its children without incrementing
-   * the transaction.
+   * Delete the specified resource and all its descendants without incrementing
+   * the transaction. The subtree is walked iteratively, so depth is limited only
+   * by memory, and all tombstones and link replacements are collected first,
+   * then applied to each index in a single bulk update.
    *
    * @param r The resource to delete.
+   * @param mutation The mutation being applied.
    * @param txNext The final transaction.
-   * @return The final state.
+   * @return The deleted resource and the final state.
    */
-  private StoreState deleteRecursive(MemoryResource<?> r, Transaction txNext) {
-    var current = current(r);
-    var id = current.id();
-    var tombstone = current.store().delete(current, txNext);
+  private <R extends Resource<R>> StoreUpdate<R> deleteRecursive(MemoryResource<R> r, Mutation mutation, Transaction txNext) {
+    var tombstones = new HashMap<UUID, MemoryResource<?>>();
+    // live link -> deleted replacement; a link is replaced when the first of its endpoints is deleted
+    var liveToDead = new HashMap<MemoryLink, MemoryLink>();
+
+    var queue = new ArrayDeque<MemoryResource<?>>();
+    queue.add(r);
+    while (!queue.isEmpty()) {
+      var current = current(queue.remove());
+      var id = current.id();
+      var tombstone = current.store().delete(current, txNext);
+      tombstones.put(id, tombstone);
+
+      for (var l : linksBySource(id)) {
+        if (l.isLive() && !liveToDead.containsKey(l)) {
+          var target = l.target();
+          liveToDead.put(l, l.deleted(tombstone, target.store().nextVersion(target, txNext), txNext));
+          if (l.type() == PARENT_OF) {
+            queue.add(target);
+          }
+        }
+      }
+      for (var l : linksByTarget(id)) {
+        if (l.isLive() && !liveToDead.containsKey(l)) {
+          var source = l.source();
+          liveToDead.put(l, l.deleted(source.store().nextVersion(source, txNext), tombstone, txNext));
+        }
+      }
+    }
 
-    var liveBySource = linksBySource(id).filter(Link::isLive);
-    var liveByTarget = linksByTarget(id).filter(Link::isLive);
+    var rsNext = resources.putAll(tombstones);
+    var lbsNext = replaceLinks(linksBySource, liveToDead, MemoryLink::sourceId);
+    var lbtNext = replaceLinks(linksByTarget, liveToDead, MemoryLink::targetId);
+    var chNext = removeChildren(children, liveToDead.keySet());
+    var psNext = parents.removeAll(tombstones.keySet());
+    var stateNext = new StoreState(clock, txNext, rsNext, lbsNext, lbtNext, chNext, psNext);
+
+    // neither map is modified again, so they can back the change iterator
+    Iterable<Change> changes = () -> Stream.concat(
+      tombstones.values().stream().map(Change::tombstoned),
+      liveToDead.values().stream().map(Change::linkDeleted)
+    ).iterator();
+    return StoreUpdate.of(r.store().delete(r, txNext), stateNext, mutation, changes);
+  }
 
-    var rsNext = resources.put(id, tombstone);
+  private MemoryResource<?> current(MemoryResource<?> resource) {
+    return current(resource.id(), resource.type());
+  }
 
-    var l2dBySource = liveBySource.map(l -> Tuple.of(l, l.deleted(tombstone, l.target().store().nextVersion(l.target(), txNext), txNext)));
-    var l2dByTarget = liveByTarget.map(l -> Tuple.of(l, l.deleted(l.source().store().nextVersion(l.source(), txNext), tombstone, txNext)));
-    var liveToDead = List.of(l2dBySource, l2dByTarget).flatMap(Function.identity());
+  // ------------------------------------------------------------
+  // Private class methods
 
-    var lbsNext = liveToDead.foldLeft(linksBySource, (lbs, t) -> lbs.replace(t._1.sourceId(), t._1, t._2));
-    var lbtNext = liveToDead.foldLeft(linksByTarget, (lbt, t) -> lbt.replace(t._1.targetId(), t._1, t._2));
+  private static UUID newId() {
+    return generator.generate();
+  }
 
-    var stateNext = new StoreState(txNext, rsNext, lbsNext, lbtNext);
+  static UuidMap<Set<MemoryLink>> putLink(UuidMap<Set<MemoryLink>> links, UUID id, MemoryLink link) {
+    return links.put(id, links.getOrElse(id, HashSet.empty()).add(link));
+  }
 
-    var children = liveBySource.filter(l -> l.type() == PARENT_OF).map(MemoryLink::target);
-    return children.foldLeft(stateNext, (storeState, r1) -> storeState.deleteRecursive(r1, txNext));
+  static UuidMap<ChildIndex> putChild(UuidMap<ChildIndex> children, UUID parentId, MemoryResource<?> child) {
+    return children.put(parentId, children.getOrElse(parentId, ChildIndex.EMPTY).add(child));
   }
 
-  private MemoryResource<?> current(MemoryResource<?> resource) {
-    return resources.get(resource.id()).filter(r -> r.hasType(resource.type()))
-      .getOrElseThrow(() ->
-        new ResourceNotFoundException(resource.id(), resource.type())
-      );
+  /**
+   * Removes the targets of the specified links, where they're {@code PARENT_OF}
+   * links, from their parents' child indexes, updating each parent once.
+   */
+  private static UuidMap<ChildIndex> removeChildren(UuidMap<ChildIndex> children, Iterable<MemoryLink> links) {
+    var updated = new HashMap<UUID, ChildIndex>();
+    for (var l : links) {
+      if (l.type() == PARENT_OF) {
+        var parentId = l.sourceId();
+        var index = updated.computeIfAbsent(parentId, k -> children.getOrElse(k, ChildIndex.EMPTY));
+        updated.put(parentId, index.remove(l.target()));
+      }
+    }
+    return children.putAll(updated);
   }
 
-  private int countChildren(UUID id) {
-    return findChildren(id).size();
+  /**
+   * Removes each of the specified links from the index, dropping any link
+   * sets left empty.
+   */
+  private static UuidMap<Set<MemoryLink>> removeLinks(UuidMap<Set<MemoryLink>> links, Iterable<MemoryLink> dead, Function<MemoryLink, UUID> keyFn) {
+    var updated = new HashMap<UUID, Set<MemoryLink>>();
+    for (var l : dead) {
+      var id = keyFn.apply(l);
+      var linkSet = updated.computeIfAbsent(id, k -> links.getOrElse(k, HashSet.empty()));
+      updated.put(id, linkSet.remove(l));
+    }
+    var emptied = new ArrayList<UUID>();
+    updated.entrySet().removeIf(e -> {
+      if (e.getValue().isEmpty()) {
+        emptied.add(e.getKey());
+        return true;
+      }
+      return false;
+    });
+    return links.putAll(updated).removeAll(emptied);
   }
 
-  // ------------------------------------------------------------
-  // Private class methods
+  /**
+   * Replaces each of the specified links in the index, rebuilding each affected
+   * link set once.
+   *
+   * @param keyFn Gets the index key (source or target ID) for a link.
+   */
+  private static UuidMap<Set<MemoryLink>> replaceLinks(UuidMap<Set<MemoryLink>> links, Map<MemoryLink, MemoryLink> replacements, Function<MemoryLink, UUID> keyFn) {
+    var updated = new HashMap<UUID, Set<MemoryLink>>();
+    replacements.forEach((oldLink, newLink) -> {
+      var id = keyFn.apply(oldLink);
+      var linkSet = updated.computeIfAbsent(id, k -> links.getOrElse(k, HashSet.empty()));
+      updated.put(id, linkSet.remove(oldLink).add(newLink));
+    });
+    return links.putAll(updated);
+  }
 
-  private static UUID newId() {
-    return generator.get().generate();
+  private static boolean isLiveAt(MemoryResource<?> resource, Transaction tx) {
+    return resource.isLive() && resource.transaction().equals(tx);
   }
 
 }
@@ -1,5 +1,6 @@
 package org.cdlib.kufi.memory;
 
+import org.cdlib.kufi.Change;
 import org.cdlib.kufi.Resource;
 
 // TODO: can't we just get the new StoreState from the Resource somehow?
@@ -10,20 +11,28 @@ class StoreUpdate<R extends Resource<R>> {
 
   private final MemoryResource<R> resource;
   private final StoreState stateNext;
+  private final Mutation mutation;
+  private final Iterable<Change> changes;
 
   // ------------------------------------------------------------
   // Factory method
 
-  static <R extends Resource<R>> StoreUpdate<R> of(MemoryResource<R> resource, StoreState storeNext) {
-    return new StoreUpdate<>(resource, storeNext);
+  /**
+   * @param changes The changes made by the update. These are only needed if
+   *                someone's listening, so they're usually computed lazily.
+   */
+  static <R extends Resource<R>> StoreUpdate<R> of(MemoryResource<R> resource, StoreState storeNext, Mutation mutation, Iterable<Change> changes) {
+    return new StoreUpdate<>(resource, storeNext, mutation, changes);
   }
 
   // ------------------------------------------------------------
   // Constructor
 
-  private StoreUpdate(MemoryResource<R> resource, StoreState stateNext) {
+  private StoreUpdate(MemoryResource<R> resource, StoreState stateNext, Mutation mutation, Iterable<Change> changes) {
     this.resource = resource;
     this.stateNext = stateNext;
+    this.mutation = mutation;
+    this.changes = changes;
   }
 
   // ------------------------------------------------------------
@@ -37,4 +46,12 @@ class StoreUpdate<R extends Resource<R>> {
     return stateNext;
   }
 
+  Mutation mutation() {
+    return mutation;
+  }
+
+  Iterable<Change> changes() {
+    return changes;
+  }
+
 }
@@ -0,0 +1,90 @@
+package org.cdlib.kufi.memory;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * When a {@link TransactionLog} forces appended records to disk.
+ */
+public final class SyncPolicy {
+
+  // ------------------------------------------------------------
+  // Constants
+
+  private static final SyncPolicy GROUP_COMMIT = new SyncPolicy(Duration.ZERO);
+  private static final SyncPolicy NEVER = new SyncPolicy(null);
+
+  // ------------------------------------------------------------
+  // Fields
+
+  private final Duration interval;
+
+  // ------------------------------------------------------------
+  // Constructor
+
+  private SyncPolicy(Duration interval) {
+    this.interval = interval;
+  }
+
+  // ------------------------------------------------------------
+  // Factory methods
+
+  /**
+   * Each commit waits until its record is on disk, and isn't visible to
+   * readers until then. Commits that arrive while a sync is in progress share
+   * the next sync.
+   */
+  public static SyncPolicy groupCommit() {
+    return GROUP_COMMIT;
+  }
+
+  /**
+   * Commits return as soon as their record is buffered; a background thread
+   * syncs at the specified interval. A crash can lose up to one interval of
+   * commits.
+   */
+  public static SyncPolicy periodic(Duration interval) {
+    Objects.requireNonNull(interval);
+    if (interval.isNegative() || interval.isZero()) {
+      throw new IllegalArgumentException("Sync interval must be positive: " + interval);
+    }
+    return new SyncPolicy(interval);
+  }
+
+  /**
+   * Records are only synced by explicit calls to {@link TransactionLog#sync()},
+   * or when the log is closed.
+   */
+  public static SyncPolicy never() {
+    return NEVER;
+  }
+
+  // ------------------------------------------------------------
+  // Package-private
+
+  boolean syncsOnCommit() {
+    return this == GROUP_COMMIT;
+  }
+
+  boolean syncsPeriodically() {
+    return interval != null && !interval.isZero();
+  }
+
+  Duration interval() {
+    return interval;
+  }
+
+  // ------------------------------------------------------------
+  // Object
+
+  @Override
+  public String toString() {
+    if (syncsOnCommit()) {
+      return "SyncPolicy(groupCommit)";
+    }
+    if (syncsPeriodically()) {
+      return "SyncPolicy(periodic, " + interval + ")";
+    }
+    return "SyncPolicy(never)";
+  }
+}
@@ -0,0 +1,587 @@
+package org.cdlib.kufi.memory;
+
+import io.vavr.collection.Seq;
+import io.vavr.collection.Vector;
+import org.cdlib.kufi.Transaction;
+import org.cdlib.kufi.util.TimeUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Append-only write-ahead log of {@link MemoryStore} transactions. Each committed
+ * transaction is written as one binary record holding its txid, timestamp and
+ * {@link Mutation}s, framed by a length and CRC32 so that a torn write at the end
+ * of the file can be detected and discarded on recovery.
+ *
+ * Records are buffered in memory and written through a {@link FileChannel}; when
+ * they are forced to disk is determined by the {@link SyncPolicy}.
+ *
+ * A log is attached to a store by passing it to the {@link MemoryStore}
+ * constructor, which replays any existing records before accepting new writes.
+ * Records already covered by a snapshot can be discarded with
+ * {@link MemoryStore#checkpoint(Path)}.
+ */
+public final class TransactionLog implements Closeable {
+
+  // ------------------------------------------------------------
+  // Constants
+
+  private static final Logger log = LoggerFactory.getLogger(TransactionLog.class);
+
+  private static final int MAGIC = 0x4b554649; // "KUFI"
+  private static final int FORMAT_VERSION = 1;
+
+  private static final int FILE_HEADER_BYTES = 2 * Integer.BYTES;
+  private static final int RECORD_HEADER_BYTES = 2 * Integer.BYTES;
+  private static final int TX_HEADER_BYTES = Long.BYTES + Long.BYTES + Integer.BYTES + Integer.BYTES;
+
+  private static final int BUFFER_BYTES = 1 << 20;
+
+  // ------------------------------------------------------------
+  // Instance fields
+
+  private final Path path;
+  /** Guarded by {@code this}; replaced only while also holding {@code syncLock} */
+  private FileChannel channel;
+  private final SyncPolicy syncPolicy;
+  private final ScheduledExecutorService syncer;
+
+  /** Guarded by {@code this} */
+  private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+  /** Guarded by {@code this} */
+  private boolean replayed;
+  /** Guarded by {@code this} */
+  private boolean closed;
+  /** Guarded by {@code this} */
+  private long appended;
+
+  private final Object syncLock = new Object();
+  private volatile long synced;
+
+  private final LongAdder bytesAppended = new LongAdder();
+  private final LongAdder syncs = new LongAdder();
+
+  // ------------------------------------------------------------
+  // Factory methods
+
+  public static TransactionLog open(Path path) throws IOException {
+    return open(path, SyncPolicy.groupCommit());
+  }
+
+  public static TransactionLog open(Path path, SyncPolicy syncPolicy) throws IOException {
+    var channel = FileChannel.open(path, CREATE, READ, WRITE);
+    try {
+      if (channel.size() == 0) {
+        var header = ByteBuffer.allocate(FILE_HEADER_BYTES).putInt(MAGIC).putInt(FORMAT_VERSION);
+        header.flip();
+        writeFully(channel, header);
+      } else {
+        var header = ByteBuffer.allocate(FILE_HEADER_BYTES);
+        while (header.hasRemaining() && channel.read(header) >= 0) {
+          // keep reading
+        }
+        header.flip();
+        if (header.remaining() < FILE_HEADER_BYTES || header.getInt() != MAGIC) {
+          throw new IOException("Not a transaction log: " + path);
+        }
+        var version = header.getInt();
+        if (version != FORMAT_VERSION) {
+          throw new IOException("Unsupported transaction log version " + version + ": " + path);
+        }
+      }
+      return new TransactionLog(path, channel, syncPolicy);
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  // ------------------------------------------------------------
+  // Constructor
+
+  private TransactionLog(Path path, FileChannel channel, SyncPolicy syncPolicy) {
+    this.path = path;
+    this.channel = channel;
+    this.syncPolicy = syncPolicy;
+    if (syncPolicy.syncsPeriodically()) {
+      syncer = Executors.newSingleThreadScheduledExecutor(r -> {
+        var t = new Thread(r, "kufi-log-sync");
+        t.setDaemon(true);
+        return t;
+      });
+      var intervalNanos = syncPolicy.interval().toNanos();
+      syncer.scheduleWithFixedDelay(this::syncQuietly, intervalNanos, intervalNanos, TimeUnit.NANOSECONDS);
+    } else {
+      syncer = null;
+    }
+  }
+
+  // ------------------------------------------------------------
+  // Public API
+
+  public Path path() {
+    return path;
+  }
+
+  public SyncPolicy syncPolicy() {
+    return syncPolicy;
+  }
+
+  /**
+   * Forces all records appended so far to disk.
+   */
+  public void sync() {
+    long target;
+    synchronized (this) {
+      target = appended;
+    }
+    sync(target);
+  }
+
+  // ------------------------------
+  // Metrics
+
+  /**
+   * @return The number of records appended since the log was opened, including
+   * any replayed on startup.
+   */
+  public synchronized long appendedRecords() {
+    return appended;
+  }
+
+  /**
+   * @return The number of records known to be on disk.
+   */
+  public long syncedRecords() {
+    return synced;
+  }
+
+  /**
+   * @return The number of bytes appended since the log was opened.
+   */
+  public long bytesAppended() {
+    return bytesAppended.sum();
+  }
+
+  /**
+   * @return The number of times the log has been forced to disk since it was opened.
+   */
+  public long syncCount() {
+    return syncs.sum();
+  }
+
+  // ------------------------------
+  // Closeable
+
+  @Override
+  public void close() throws IOException {
+    if (syncer != null) {
+      syncer.shutdownNow();
+    }
+    synchronized (syncLock) {
+      synchronized (this) {
+        if (closed) {
+          return;
+        }
+        try {
+          flushBuffer();
+          channel.force(false);
+          synced = appended;
+        } finally {
+          closed = true;
+          channel.close();
+        }
+      }
+    }
+  }
+
+  // ------------------------------------------------------------
+  // Package-private
+
+  /**
+   * Rebuilds a store's state from the records in this log. Any incomplete or
+   * corrupt record at the end of the log, e.g. from a crash in the middle of a
+   * write, is truncated. Must be called exactly once, before any records are appended.
+   */
+  synchronized StoreState replay(MemoryStore store, StoreState initialState) {
+    if (replayed) {
+      throw new IllegalStateException("Log already replayed: " + path);
+    }
+    try {
+      var state = initialState;
+      var reader = new RecordReader(channel, FILE_HEADER_BYTES);
+      for (var payload = reader.next(); payload != null; payload = reader.next()) {
+        var txid = payload.getLong();
+        var epochSecond = payload.getLong();
+        var nanos = payload.getInt();
+        var count = payload.getInt();
+        appended++;
+        if (txid <= state.transaction().txid()) {
+          // already reflected in the snapshot the initial state was loaded from
+          continue;
+        }
+        var tx = new Transaction(txid, TimeUtil.epochNanos(epochSecond, nanos));
+        state = state.replay(store, tx, readMutations(payload, count));
+      }
+
+      var end = reader.position();
+      if (channel.size() > end) {
+        log.warn("Truncating {} bytes of incomplete or corrupt data at end of {}", channel.size() - end, path);
+        channel.truncate(end);
+      }
+      channel.position(end);
+
+      synced = appended;
+      replayed = true;
+      return state;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Opens an independent reader over the records written so far, so they
+   * can be read back (e.g. to catch up a lagging change subscriber) without
+   * disturbing writers. The reader sees the file as of when it was opened,
+   * even if the log is truncated in the meantime.
+   */
+  Reader reader() {
+    synchronized (this) {
+      if (closed) {
+        throw new IllegalStateException("Log closed: " + path);
+      }
+      try {
+        flushBuffer();
+        return new Reader(FileChannel.open(path, READ));
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+  }
+
+  /**
+   * Buffers a record of the specified transaction. The caller is responsible
+   * for ensuring records are appended in transaction order.
+   *
+   * @return The sequence number of the record, for {@link #awaitDurable(long)}.
+   */
+  synchronized long append(Transaction tx, Seq<Mutation> mutations) {
+    if (closed) {
+      throw new IllegalStateException("Log closed: " + path);
+    }
+    if (!replayed) {
+      throw new IllegalStateException("Log must be replayed before appending: " + path);
+    }
+    try {
+      int length = mutations.foldLeft(TX_HEADER_BYTES, (n, m) -> n + m.encodedSize());
+      var recordBytes = RECORD_HEADER_BYTES + length;
+      if (buffer.remaining() < recordBytes) {
+        flushBuffer();
+      }
+      if (recordBytes <= buffer.capacity()) {
+        encode(buffer, tx, mutations, length);
+      } else {
+        var oversize = ByteBuffer.allocate(recordBytes);
+        encode(oversize, tx, mutations, length);
+        oversize.flip();
+        writeFully(channel, oversize);
+      }
+      bytesAppended.add(recordBytes);
+      return ++appended;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Discards all records up to and including the specified transaction, e.g.
+   * because they're covered by a snapshot. The remaining records are copied
+   * to a new file, which atomically replaces the old one.
+   */
+  void truncateThrough(long txid) {
+    synchronized (syncLock) {
+      synchronized (this) {
+        if (closed) {
+          throw new IllegalStateException("Log closed: " + path);
+        }
+        try {
+          flushBuffer();
+
+          var reader = new RecordReader(channel, FILE_HEADER_BYTES);
+          var keepFrom = reader.position();
+          for (var payload = reader.next(); payload != null; payload = reader.next()) {
+            if (payload.getLong() > txid) {
+              break;
+            }
+            keepFrom = reader.position();
+          }
+          var end = channel.size();
+          if (keepFrom == FILE_HEADER_BYTES) {
+            channel.position(end);
+            return;
+          }
+
+          var tmp = path.resolveSibling(path.getFileName() + ".tmp");
+          try (var out = FileChannel.open(tmp, CREATE, TRUNCATE_EXISTING, WRITE)) {
+            var header = ByteBuffer.allocate(FILE_HEADER_BYTES).putInt(MAGIC).putInt(FORMAT_VERSION);
+            header.flip();
+            writeFully(out, header);
+            for (var pos = keepFrom; pos < end; ) {
+              pos += channel.transferTo(pos, end - pos, out);
+            }
+            out.force(true);
+          }
+          channel.close();
+          Files.move(tmp, path, ATOMIC_MOVE, REPLACE_EXISTING);
+          channel = FileChannel.open(path, READ, WRITE);
+          channel.position(channel.size());
+          synced = appended;
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      }
+    }
+  }
+
+  /**
+   * Blocks until the specified record is on disk, if the sync policy requires it.
+   */
+  void awaitDurable(long seq) {
+    if (syncPolicy.syncsOnCommit()) {
+      sync(seq);
+    }
+  }
+
+  // ------------------------------------------------------------
+  // Private
+
+  /**
+   * Group commit: whichever thread gets here first syncs everything appended
+   * so far, which usually covers the records of any threads queued behind it.
+   */
+  private void sync(long seq) {
+    if (synced >= seq) {
+      return;
+    }
+    synchronized (syncLock) {
+      if (synced >= seq) {
+        return;
+      }
+      try {
+        long target;
+        synchronized (this) {
+          if (closed) {
+            throw new IllegalStateException("Log closed: " + path);
+          }
+          flushBuffer();
+          target = appended;
+        }
+        channel.force(false);
+        synced = target;
+        syncs.increment();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+  }
+
+  private void syncQuietly() {
+    try {
+      sync();
+    } catch (RuntimeException e) {
+      log.error("Error syncing transaction log " + path, e);
+    }
+  }
+
+  /** Must hold {@code this} */
+  private void flushBuffer() throws IOException {
+    buffer.flip();
+    writeFully(channel, buffer);
+    buffer.clear();
+  }
+
+  private static void encode(ByteBuffer target, Transaction tx, Seq<Mutation> mutations, int length) {
+    var start = target.position();
+    var payloadStart = start + RECORD_HEADER_BYTES;
+    target.position(payloadStart);
+
+    target.putLong(tx.txid());
+    target.putLong(TimeUtil.epochSecond(tx.epochNanos()));
+    target.putInt(TimeUtil.nanoOfSecond(tx.epochNanos()));
+    target.putInt(mutations.size());
+    for (var mutation : mutations) {
+      mutation.writeTo(target);
+    }
+
+    var payload = target.duplicate();
+    payload.position(payloadStart);
+    payload.limit(payloadStart + length);
+    var crc = new CRC32();
+    crc.update(payload);
+
+    target.putInt(start, length);
+    target.putInt(start + Integer.BYTES, (int) crc.getValue());
+  }
+
+  private static Seq<Mutation> readMutations(ByteBuffer payload, int count) {
+    var mutations = Vector.<Mutation>empty();
+    for (var i = 0; i < count; i++) {
+      mutations = mutations.append(Mutation.readFrom(payload));
+    }
+    return mutations;
+  }
+
+  private static void writeFully(FileChannel channel, ByteBuffer src) throws IOException {
+    while (src.hasRemaining()) {
+      channel.write(src);
+    }
+  }
+
+  // ------------------------------------------------------------
+  // Helper classes
+
+  /**
+   * Reads the complete records in a log, in order, through its own channel.
+   */
+  static final class Reader implements Closeable {
+    private final FileChannel channel;
+    private final RecordReader records;
+
+    private Transaction tx;
+    private Seq<Mutation> mutations;
+
+    private Reader(FileChannel channel) throws IOException {
+      this.channel = channel;
+      try {
+        records = new RecordReader(channel, FILE_HEADER_BYTES);
+      } catch (IOException e) {
+        channel.close();
+        throw e;
+      }
+    }
+
+    /**
+     * Advances to the next record.
+     *
+     * @return false if there are no more complete records.
+     */
+    boolean next() throws IOException {
+      var payload = records.next();
+      if (payload == null) {
+        return false;
+      }
+      var txid = payload.getLong();
+      var epochSecond = payload.getLong();
+      var nanos = payload.getInt();
+      var count = payload.getInt();
+      tx = new Transaction(txid, TimeUtil.epochNanos(epochSecond, nanos));
+      mutations = readMutations(payload, count);
+      return true;
+    }
+
+    Transaction transaction() {
+      return tx;
+    }
+
+    Seq<Mutation> mutations() {
+      return mutations;
+    }
+
+    @Override
+    public void close() throws IOException {
+      channel.close();
+    }
+  }
+
+  private static final class RecordReader {
+    private final FileChannel channel;
+    private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+    private long position;
+
+    private RecordReader(FileChannel channel, long position) throws IOException {
+      this.channel = channel;
+      this.position = position;
+      channel.position(position);
+      buffer.flip();
+    }
+
+    /**
+     * @return The file position just past the last valid record read.
+     */
+    private long position() {
+      return position;
+    }
+
+    /**
+     * @return The payload of the next record, valid until the next call,
+     * or {@code null} if there are no more valid records.
+     */
+    private ByteBuffer next() throws IOException {
+      if (!fill(RECORD_HEADER_BYTES)) {
+        return null;
+      }
+      var length = buffer.getInt();
+      var expectedCrc = buffer.getInt();
+      if (length < TX_HEADER_BYTES || length > channel.size() - position - RECORD_HEADER_BYTES) {
+        return null;
+      }
+      if (!fill(length)) {
+        return null;
+      }
+
+      var payload = buffer.slice();
+      payload.limit(length);
+      buffer.position(buffer.position() + length);
+
+      var crc = new CRC32();
+      crc.update(payload.duplicate());
+      if ((int) crc.getValue() != expectedCrc) {
+        return null;
+      }
+
+      position += RECORD_HEADER_BYTES + length;
+      return payload;
+    }
+
+    private boolean fill(int needed) throws IOException {
+      if (buffer.remaining() >= needed) {
+        return true;
+      }
+      if (needed > buffer.capacity()) {
+        var larger = ByteBuffer.allocate(needed);
+        larger.put(buffer);
+        buffer = larger;
+      } else {
+        buffer.compact();
+      }
+      while (buffer.position() < needed) {
+        if (channel.read(buffer) < 0) {
+          buffer.flip();
+          return false;
+        }
+      }
+      buffer.flip();
+      return true;
+    }
+  }
+}
@@ -0,0 +1,384 @@
+package org.cdlib.kufi.memory;
+
+import it.unimi.dsi.fastutil.HashCommon;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * {@link UuidMap} keyed by the two {@code long} halves of each UUID, so lookups
+ * neither box nor allocate. Entries live in a copy-on-write hash trie: each
+ * branch node has 32 children selected by successive bits of a mixed hash of
+ * the key, and each leaf holds up to 16 entries in flat primitive arrays that
+ * are scanned linearly. An update copies only the nodes on the path to the
+ * affected leaf. Removal collapses empty branches, and branches left with a
+ * single leaf. Bulk {@link #putAll(Map)} and {@link #removeAll(Iterable)}
+ * copy each node at most once, then update the copy in place for the rest
+ * of the operation.
+ */
+final class TrieUuidMap<V> implements UuidMap<V> {
+
+  // ------------------------------------------------------------
+  // Constants
+
+  private static final int BITS = 5;
+  private static final int WIDTH = 1 << BITS;
+  private static final int MASK = WIDTH - 1;
+
+  private static final int LEAF_CAPACITY = 16;
+
+  private static final TrieUuidMap<?> EMPTY = new TrieUuidMap<>(null, 0);
+
+  // ------------------------------------------------------------
+  // Instance fields
+
+  /** A {@link Branch}, a {@link Leaf}, or {@code null} if the map is empty. */
+  private final Object root;
+  private final int size;
+
+  // ------------------------------------------------------------
+  // Constructor
+
+  @SuppressWarnings("unchecked")
+  static <V> TrieUuidMap<V> empty() {
+    return (TrieUuidMap<V>) EMPTY;
+  }
+
+  private TrieUuidMap(Object root, int size) {
+    this.root = root;
+    this.size = size;
+  }
+
+  // ------------------------------------------------------------
+  // UuidMap
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public V getOrNull(UUID key) {
+    var msb = key.getMostSignificantBits();
+    var lsb = key.getLeastSignificantBits();
+    var h = hash(msb, lsb);
+
+    var node = root;
+    var shift = 0;
+    while (node instanceof Branch) {
+      node = ((Branch) node).children[index(h, shift)];
+      shift += BITS;
+    }
+    return node == null ? null : (V) ((Leaf) node).get(msb, lsb);
+  }
+
+  @Override
+  public TrieUuidMap<V> put(UUID key, V value) {
+    Objects.requireNonNull(value);
+    var msb = key.getMostSignificantBits();
+    var lsb = key.getLeastSignificantBits();
+    var sizeNext = getOrNull(key) == null ? size + 1 : size;
+    return new TrieUuidMap<>(put(root, hash(msb, lsb), 0, msb, lsb, value), sizeNext);
+  }
+
+  @Override
+  public TrieUuidMap<V> putAll(Map<UUID, ? extends V> entries) {
+    if (entries.isEmpty()) {
+      return this;
+    }
+    var editor = new Editor(root, size);
+    for (var entry : entries.entrySet()) {
+      editor.put(entry.getKey(), Objects.requireNonNull(entry.getValue()));
+    }
+    return new TrieUuidMap<>(editor.root, editor.size);
+  }
+
+  @Override
+  public TrieUuidMap<V> remove(UUID key) {
+    if (getOrNull(key) == null) {
+      return this;
+    }
+    var msb = key.getMostSignificantBits();
+    var lsb = key.getLeastSignificantBits();
+    return new TrieUuidMap<>(remove(root, hash(msb, lsb), 0, msb, lsb), size - 1);
+  }
+
+  @Override
+  public TrieUuidMap<V> removeAll(Iterable<UUID> keys) {
+    var editor = new Editor(root, size);
+    for (var key : keys) {
+      editor.remove(key);
+    }
+    return editor.size == size ? this : new TrieUuidMap<>(editor.root, editor.size);
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public void forEachValue(Consumer<? super V> action) {
+    forEachValue(root, (Consumer<Object>) action);
+  }
+
+  // ------------------------------------------------------------
+  // Private class methods
+
+  private static Object put(Object node, long h, int shift, long msb, long lsb, Object value) {
+    if (node == null) {
+      return Leaf.of(msb, lsb, value);
+    }
+    if (node instanceof Branch) {
+      var branch = (Branch) node;
+      var i = index(h, shift);
+      return branch.with(i, put(branch.children[i], h, shift + BITS, msb, lsb, value));
+    }
+    var leaf = (Leaf) node;
+    var pos = leaf.indexOf(msb, lsb);
+    if (pos >= 0) {
+      return leaf.withValue(pos, value);
+    }
+    // once we've run out of hash bits, leaves just grow
+    if (leaf.size() < LEAF_CAPACITY || shift >= Long.SIZE) {
+      return leaf.with(msb, lsb, value);
+    }
+    return put(leaf.split(shift), h, shift, msb, lsb, value);
+  }
+
+  private static Object remove(Object node, long h, int shift, long msb, long lsb) {
+    if (node instanceof Branch) {
+      var branch = (Branch) node;
+      var i = index(h, shift);
+      var child = branch.children[i];
+      var childNext = remove(child, h, shift + BITS, msb, lsb);
+      return childNext == child ? branch : branch.with(i, childNext).compact();
+    }
+    if (node == null) {
+      return null;
+    }
+    var leaf = (Leaf) node;
+    var pos = leaf.indexOf(msb, lsb);
+    if (pos < 0) {
+      return leaf;
+    }
+    return leaf.size() == 1 ? null : leaf.without(pos);
+  }
+
+  private static void forEachValue(Object node, Consumer<Object> action) {
+    if (node instanceof Branch) {
+      for (var child : ((Branch) node).children) {
+        forEachValue(child, action);
+      }
+    } else if (node != null) {
+      for (var value : ((Leaf) node).values) {
+        action.accept(value);
+      }
+    }
+  }
+
+  private static long hash(long msb, long lsb) {
+    return HashCommon.mix(msb ^ lsb);
+  }
+
+  private static int index(long h, int shift) {
+    return (int) (h >>> shift) & MASK;
+  }
+
+  // ------------------------------------------------------------
+  // Helper classes
+
+  private static final class Branch {
+    private final Object[] children;
+
+    private Branch(Object[] children) {
+      this.children = children;
+    }
+
+    private Branch with(int i, Object child) {
+      var childrenNext = children.clone();
+      childrenNext[i] = child;
+      return new Branch(childrenNext);
+    }
+
+    /**
+     * @return {@code null} if this branch is empty; its only child, if that's
+     * a leaf (lookups stop at the first leaf, whatever its depth); otherwise
+     * this branch.
+     */
+    private Object compact() {
+      Object only = null;
+      for (var child : children) {
+        if (child != null) {
+          if (only != null) {
+            return this;
+          }
+          only = child;
+        }
+      }
+      return only instanceof Branch ? this : only;
+    }
+  }
+
+  /**
+   * Transient view of a trie for bulk updates. Nodes created by the editor are
+   * owned by it and can be mutated in place; nodes shared with the original
+   * map are copied (and thereby become owned) the first time they're touched.
+   * The editor must not be used once its root has been published.
+   */
+  private static final class Editor {
+    private final Set<Object> owned = Collections.newSetFromMap(new IdentityHashMap<>());
+    private Object root;
+    private int size;
+
+    private Editor(Object root, int size) {
+      this.root = root;
+      this.size = size;
+    }
+
+    private void put(UUID key, Object value) {
+      var msb = key.getMostSignificantBits();
+      var lsb = key.getLeastSignificantBits();
+      root = put(root, hash(msb, lsb), 0, msb, lsb, value);
+    }
+
+    private void remove(UUID key) {
+      var msb = key.getMostSignificantBits();
+      var lsb = key.getLeastSignificantBits();
+      root = remove(root, hash(msb, lsb), 0, msb, lsb);
+    }
+
+    private Object remove(Object node, long h, int shift, long msb, long lsb) {
+      if (node instanceof Branch) {
+        var i = index(h, shift);
+        var child = ((Branch) node).children[i];
+        var childNext = remove(child, h, shift + BITS, msb, lsb);
+        if (childNext == child) {
+          return node;
+        }
+        var branch = owned.contains(node) ? (Branch) node : own(new Branch(((Branch) node).children.clone()));
+        branch.children[i] = childNext;
+        return branch.compact();
+      }
+      if (node == null) {
+        return null;
+      }
+      var leaf = (Leaf) node;
+      var pos = leaf.indexOf(msb, lsb);
+      if (pos < 0) {
+        return leaf;
+      }
+      size--;
+      return leaf.size() == 1 ? null : own(leaf.without(pos));
+    }
+
+    private Object put(Object node, long h, int shift, long msb, long lsb, Object value) {
+      if (node == null) {
+        size++;
+        return own(Leaf.of(msb, lsb, value));
+      }
+      if (node instanceof Branch) {
+        var branch = owned.contains(node) ? (Branch) node : own(new Branch(((Branch) node).children.clone()));
+        var i = index(h, shift);
+        branch.children[i] = put(branch.children[i], h, shift + BITS, msb, lsb, value);
+        return branch;
+      }
+      var leaf = (Leaf) node;
+      var pos = leaf.indexOf(msb, lsb);
+      if (pos >= 0) {
+        if (owned.contains(leaf)) {
+          leaf.values[pos] = value;
+          return leaf;
+        }
+        return own(leaf.withValue(pos, value));
+      }
+      if (leaf.size() < LEAF_CAPACITY || shift >= Long.SIZE) {
+        size++;
+        return own(leaf.with(msb, lsb, value));
+      }
+      return put(leaf.split(shift), h, shift, msb, lsb, value);
+    }
+
+    private <N> N own(N node) {
+      owned.add(node);
+      return node;
+    }
+  }
+
+  private static final class Leaf {
+    /** Key halves, interleaved: {@code keys[2i]} is the MSB and {@code keys[2i + 1]} the LSB of entry {@code i}. */
+    private final long[] keys;
+    private final Object[] values;
+
+    private static Leaf of(long msb, long lsb, Object value) {
+      return new Leaf(new long[]{msb, lsb}, new Object[]{value});
+    }
+
+    private Leaf(long[] keys, Object[] values) {
+      this.keys = keys;
+      this.values = values;
+    }
+
+    private int size() {
+      return values.length;
+    }
+
+    private int indexOf(long msb, long lsb) {
+      for (int i = 0, n = values.length; i < n; i++) {
+        if (keys[2 * i] == msb && keys[2 * i + 1] == lsb) {
+          return i;
+        }
+      }
+      return -1;
+    }
+
+    private Object get(long msb, long lsb) {
+      var i = indexOf(msb, lsb);
+      return i < 0 ? null : values[i];
+    }
+
+    private Leaf withValue(int i, Object value) {
+      var valuesNext = values.clone();
+      valuesNext[i] = value;
+      // keys are never mutated, so they can be shared
+      return new Leaf(keys, valuesNext);
+    }
+
+    private Leaf with(long msb, long lsb, Object value) {
+      var n = values.length;
+      var keysNext = Arrays.copyOf(keys, 2 * (n + 1));
+      keysNext[2 * n] = msb;
+      keysNext[2 * n + 1] = lsb;
+      var valuesNext = Arrays.copyOf(values, n + 1);
+      valuesNext[n] = value;
+      return new Leaf(keysNext, valuesNext);
+    }
+
+    private Leaf without(int i) {
+      var n = values.length;
+      var keysNext = new long[2 * (n - 1)];
+      System.arraycopy(keys, 0, keysNext, 0, 2 * i);
+      System.arraycopy(keys, 2 * (i + 1), keysNext, 2 * i, 2 * (n - i - 1));
+      var valuesNext = new Object[n - 1];
+      System.arraycopy(values, 0, valuesNext, 0, i);
+      System.arraycopy(values, i + 1, valuesNext, i, n - i - 1);
+      return new Leaf(keysNext, valuesNext);
+    }
+
+    /**
+     * Redistributes the entries of this leaf into a new branch at the specified depth.
+     */
+    private Object split(int shift) {
+      Object branch = new Branch(new Object[WIDTH]);
+      for (int i = 0, n = values.length; i < n; i++) {
+        var msb = keys[2 * i];
+        var lsb = keys[2 * i + 1];
+        branch = put(branch, hash(msb, lsb), shift, msb, lsb, values[i]);
+      }
+      return branch;
+    }
+  }
+}
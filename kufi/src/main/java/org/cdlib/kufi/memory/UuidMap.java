@@ -0,0 +1,71 @@
+package org.cdlib.kufi.memory;
+
+import io.vavr.control.Option;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Persistent (immutable) map keyed by {@link UUID}. Updates return a new map
+ * and leave the original unchanged, so a {@link StoreState} can share
+ * structure with its predecessors.
+ *
+ * @param <V> The value type. Null values are not permitted.
+ */
+interface UuidMap<V> {
+
+  /**
+   * @return The value for the specified key, or {@code null} if there is none.
+   */
+  V getOrNull(UUID key);
+
+  default Option<V> get(UUID key) {
+    return Option.of(getOrNull(key));
+  }
+
+  default V getOrElse(UUID key, V defaultValue) {
+    var value = getOrNull(key);
+    return value == null ? defaultValue : value;
+  }
+
+  UuidMap<V> put(UUID key, V value);
+
+  /**
+   * Puts all of the specified entries at once. Implementations may use this
+   * to avoid allocating intermediate maps; the default just puts each entry
+   * in turn.
+   */
+  default UuidMap<V> putAll(Map<UUID, ? extends V> entries) {
+    UuidMap<V> result = this;
+    for (var entry : entries.entrySet()) {
+      result = result.put(entry.getKey(), entry.getValue());
+    }
+    return result;
+  }
+
+  /**
+   * @return A map without the specified key, or this map if the key isn't present.
+   */
+  UuidMap<V> remove(UUID key);
+
+  /**
+   * Removes all of the specified keys at once. Implementations may use this
+   * to avoid allocating intermediate maps; the default just removes each key
+   * in turn.
+   */
+  default UuidMap<V> removeAll(Iterable<UUID> keys) {
+    UuidMap<V> result = this;
+    for (var key : keys) {
+      result = result.remove(key);
+    }
+    return result;
+  }
+
+  int size();
+
+  /**
+   * Applies the specified action to each value, in no particular order.
+   */
+  void forEachValue(Consumer<? super V> action);
+}
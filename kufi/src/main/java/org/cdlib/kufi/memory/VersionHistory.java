@@ -0,0 +1,156 @@
+package org.cdlib.kufi.memory;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import org.cdlib.kufi.Transaction;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static org.cdlib.kufi.util.Preconditions.require;
+
+/**
+ * Recently published {@link StoreState}s, indexed by txid, for
+ * {@link MemoryStore#at(org.cdlib.kufi.Transaction) snapshot reads}. The
+ * store's current state is always readable, so the ring holds the states
+ * before it.
+ *
+ * States are kept in a fixed-size ring, so retained memory is bounded by the
+ * ring size (plus whatever is shared structurally between versions): the
+ * state for txid {@code t} lives in slot {@code t % capacity} until a later
+ * state overwrites it. Since each slot only ever moves forward, writers that
+ * record out of order don't clobber newer states. A state that's pinned by
+ * an open snapshot is also held in a side table, so it stays readable after
+ * it's been evicted from the ring.
+ */
+final class VersionHistory {
+
+  // ------------------------------------------------------------
+  // Instance fields
+
+  private final AtomicReferenceArray<StoreState> ring;
+
+  /** Guarded by {@code this} */
+  private final Long2ObjectMap<Pin> pins = new Long2ObjectOpenHashMap<>();
+  /** Guarded by {@code this} */
+  private int openSnapshots;
+
+  // ------------------------------------------------------------
+  // Constructor
+
+  VersionHistory(int capacity) {
+    require(capacity >= 0, () -> "Retained version count must be >= 0: " + capacity);
+    ring = new AtomicReferenceArray<>(capacity);
+  }
+
+  // ------------------------------------------------------------
+  // Package-private
+
+  int capacity() {
+    return ring.length();
+  }
+
+  void record(StoreState state) {
+    var capacity = ring.length();
+    if (capacity == 0) {
+      return;
+    }
+    var txid = state.transaction().txid();
+    var slot = (int) (txid % capacity);
+    while (true) {
+      var existing = ring.get(slot);
+      if (existing != null && existing.transaction().txid() >= txid) {
+        return;
+      }
+      if (ring.compareAndSet(slot, existing, state)) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * Pins the state at the specified transaction, if it's still available.
+   *
+   * @param current The store's current state, which is always available even
+   *                if it hasn't been recorded yet
+   * @return The pinned state, or {@code null} if it's no longer retained.
+   */
+  synchronized StoreState pin(long txid, StoreState current) {
+    var pin = pins.get(txid);
+    if (pin == null) {
+      var state = current.transaction().txid() == txid ? current : lookup(txid);
+      if (state == null) {
+        return null;
+      }
+      pin = new Pin(state);
+      pins.put(txid, pin);
+    }
+    pin.count++;
+    openSnapshots++;
+    return pin.state;
+  }
+
+  /**
+   * @return true if the ring holds the state at the specified transaction.
+   */
+  boolean retains(Transaction tx) {
+    var state = lookup(tx.txid());
+    return state != null && state.transaction().equals(tx);
+  }
+
+  synchronized void unpin(StoreState state) {
+    var txid = state.transaction().txid();
+    var pin = pins.get(txid);
+    if (pin == null) {
+      throw new IllegalStateException("State at transaction " + txid + " is not pinned");
+    }
+    openSnapshots--;
+    if (--pin.count == 0) {
+      pins.remove(txid);
+    }
+  }
+
+  // ------------------------------
+  // Metrics
+
+  int retainedVersionCount() {
+    var count = 0;
+    for (int i = 0, n = ring.length(); i < n; i++) {
+      if (ring.get(i) != null) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  synchronized int pinnedVersionCount() {
+    return pins.size();
+  }
+
+  synchronized int openSnapshotCount() {
+    return openSnapshots;
+  }
+
+  // ------------------------------------------------------------
+  // Private
+
+  private StoreState lookup(long txid) {
+    var capacity = ring.length();
+    if (capacity == 0 || txid < 0) {
+      return null;
+    }
+    var state = ring.get((int) (txid % capacity));
+    return state != null && state.transaction().txid() == txid ? state : null;
+  }
+
+  // ------------------------------------------------------------
+  // Helper classes
+
+  private static final class Pin {
+    private final StoreState state;
+    private int count;
+
+    private Pin(StoreState state) {
+      this.state = state;
+    }
+  }
+}
@@ -0,0 +1,99 @@
+package org.cdlib.kufi.util;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import static org.cdlib.kufi.util.Preconditions.require;
+
+/**
+ * {@link TransactionClock} whose readings strictly increase, even across
+ * threads: a reading that would repeat or go backwards is bumped to one
+ * nanosecond past the previous one.
+ *
+ * Clocks can also be {@linkplain #system(int, int) interleaved}: each of
+ * {@code n} clocks only reads values congruent to its own index modulo
+ * {@code n}, so they never read the same value, but each keeps its own
+ * state, so reading one never contends with reading another.
+ *
+ * The {@linkplain #system() system clock} reads {@link System#nanoTime()},
+ * anchored to the wall clock once at startup, so it neither allocates nor
+ * jumps when the wall clock is adjusted; the price is that it can drift from
+ * the wall clock over a long-running process.
+ */
+public final class MonotonicClock implements TransactionClock {
+
+  // ------------------------------------------------------------
+  // Constants
+
+  private static final LongSupplier SYSTEM_SOURCE = anchoredNanoTime();
+  private static final MonotonicClock SYSTEM = new MonotonicClock(SYSTEM_SOURCE);
+
+  // ------------------------------------------------------------
+  // Instance fields
+
+  private final LongSupplier source;
+  private final int stride;
+  private final int offset;
+  private final AtomicLong last = new AtomicLong(Long.MIN_VALUE);
+
+  // ------------------------------------------------------------
+  // Constructors
+
+  public static MonotonicClock system() {
+    return SYSTEM;
+  }
+
+  /**
+   * @return One of {@code count} interleaved clocks reading the same source
+   * as the {@linkplain #system() system clock}.
+   * @see #MonotonicClock(LongSupplier, int, int)
+   */
+  public static MonotonicClock system(int count, int index) {
+    return new MonotonicClock(SYSTEM_SOURCE, count, index);
+  }
+
+  /**
+   * @param source Source of the current time in nanoseconds since the epoch
+   */
+  public MonotonicClock(LongSupplier source) {
+    this(source, 1, 0);
+  }
+
+  /**
+   * Creates one of {@code count} interleaved clocks, whose readings are all
+   * congruent to {@code index} modulo {@code count}. Readings are rounded
+   * down to the nearest such value, and advance by at least {@code count}
+   * nanoseconds.
+   *
+   * @param source Source of the current time in nanoseconds since the epoch
+   * @param count  The number of interleaved clocks
+   * @param index  This clock's index, from 0 to {@code count - 1}
+   */
+  public MonotonicClock(LongSupplier source, int count, int index) {
+    require(count > 0, () -> "Clock count must be > 0: " + count);
+    require(index >= 0 && index < count, () -> "Clock index must be in [0, " + count + "): " + index);
+    this.source = source;
+    this.stride = count;
+    this.offset = index;
+  }
+
+  // ------------------------------------------------------------
+  // TransactionClock
+
+  @Override
+  public long epochNanos() {
+    var now = source.getAsLong();
+    var aligned = now - Math.floorMod(now - offset, (long) stride);
+    return last.accumulateAndGet(aligned, (prev, n) -> Math.max(prev + stride, n));
+  }
+
+  // ------------------------------------------------------------
+  // Private class methods
+
+  private static LongSupplier anchoredNanoTime() {
+    var baseEpochNanos = TimeUtil.epochNanos(Instant.now());
+    var baseNanoTime = System.nanoTime();
+    return () -> baseEpochNanos + (System.nanoTime() - baseNanoTime);
+  }
+}
@@ -1,5 +1,6 @@
 package org.cdlib.kufi.util;
 
+import java.time.Instant;
 import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 
@@ -7,6 +8,8 @@ import static java.util.Objects.requireNonNull;
 
 public class TimeUtil {
 
+  private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
   private TimeUtil() {
     // private to prevent instantiation
   }
@@ -22,4 +25,28 @@ public class TimeUtil {
     }
     return zdt;
   }
+
+  /**
+   * @throws ArithmeticException if the instant is too far from the epoch to
+   *   represent in nanoseconds (i.e., before 1677 or after 2262)
+   */
+  public static long epochNanos(Instant instant) {
+    return epochNanos(instant.getEpochSecond(), instant.getNano());
+  }
+
+  public static long epochSecond(long epochNanos) {
+    return Math.floorDiv(epochNanos, NANOS_PER_SECOND);
+  }
+
+  public static int nanoOfSecond(long epochNanos) {
+    return (int) Math.floorMod(epochNanos, NANOS_PER_SECOND);
+  }
+
+  public static long epochNanos(long epochSecond, int nanoOfSecond) {
+    return Math.addExact(Math.multiplyExact(epochSecond, NANOS_PER_SECOND), nanoOfSecond);
+  }
+
+  public static ZonedDateTime utcDateTime(long epochNanos) {
+    return Instant.ofEpochSecond(epochSecond(epochNanos), nanoOfSecond(epochNanos)).atZone(ZoneOffset.UTC);
+  }
 }
@@ -0,0 +1,11 @@
+package org.cdlib.kufi.util;
+
+/**
+ * Source of transaction timestamps, in nanoseconds since the epoch.
+ * Implementations should be cheap and allocation-free, since they're
+ * read once per commit.
+ */
+@FunctionalInterface
+public interface TransactionClock {
+  long epochNanos();
+}
@@ -30,4 +30,9 @@ public class ObservableAssert<T> extends AbstractAssert<ObservableAssert<T>, Obs
     observer.observed(t);
     return this;
   }
+
+  public ObservableAssert<T> emittedOneError() {
+    observer.observedOneError();
+    return this;
+  }
 }
@@ -1,6 +1,7 @@
 package org.cdlib.cursive.util;
 
 import io.reactivex.Completable;
+import io.reactivex.Flowable;
 import io.reactivex.Maybe;
 import io.reactivex.Observable;
 import io.reactivex.Single;
@@ -83,6 +84,13 @@ public class RxAssertions extends Assertions {
     return valuesObservedBy(observable.test());
   }
 
+  public static <T> List<T> valuesEmittedBy(Flowable<T> flowable) {
+    var subscriber = flowable.test();
+    subscriber.awaitTerminalEvent();
+    subscriber.assertNoErrors();
+    return List.ofAll(subscriber.values());
+  }
+
   private static <T> List<T> valuesObservedBy(TestObserver<T> observer) {
     assertThat(observer).isNotNull();
     observer.awaitTerminalEvent();
@@ -2,6 +2,7 @@ package org.cdlib.kufi;
 
 import io.reactivex.Single;
 import io.vavr.collection.Seq;
+import io.vavr.collection.Vector;
 import io.vavr.control.Either;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
@@ -10,6 +11,7 @@ import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
 
+import java.util.UUID;
 import java.util.function.Predicate;
 
 import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
@@ -158,6 +160,30 @@ public abstract class AbstractStoreTest<S extends Store> {
       assertThat(c1.childCollections()).emitted(c2);
     }
 
+    @Test
+    void deletedChildrenDisappearFromChildrenList() {
+      var ws = valueEmittedBy(store.createWorkspace());
+      var c1 = valueEmittedBy(store.createCollection(ws));
+      var c2 = valueEmittedBy(store.createCollection(ws));
+      var c3 = valueEmittedBy(store.createCollection(ws));
+      valueEmittedBy(store.deleteCollection(c1));
+      valueEmittedBy(store.deleteCollection(c3));
+
+      assertThat(ws.childCollections()).emitted(c2);
+    }
+
+    @Test
+    void parentCanBeDeletedOnceChildrenAreDeleted() {
+      var ws = valueEmittedBy(store.createWorkspace());
+      var c1 = valueEmittedBy(store.createCollection(ws));
+      var c2 = valueEmittedBy(store.createCollection(ws));
+      valueEmittedBy(store.deleteCollection(c1));
+      valueEmittedBy(store.deleteCollection(c2));
+
+      var wsCurrent = valueEmittedBy(store.find(ws.id(), WORKSPACE));
+      assertThat(store.deleteWorkspace(wsCurrent)).emittedValueThat(isTombstoneFor(ws));
+    }
+
     @Test
     void parentFindsParent() {
       var ws = valueEmittedBy(store.createWorkspace());
@@ -165,6 +191,36 @@ public abstract class AbstractStoreTest<S extends Store> {
       assertThat(col.parent().map(Either::getLeft)).emittedValueThat(isLaterVersionOf(ws));
     }
 
+    @Test
+    void ancestorsAreNearestFirst() {
+      var ws = valueEmittedBy(store.createWorkspace());
+      var c1 = valueEmittedBy(store.createCollection(ws));
+      var c2 = valueEmittedBy(store.createCollection(c1));
+      var c3 = valueEmittedBy(store.createCollection(c2));
+
+      var ancestors = valuesEmittedBy(store.ancestorsOf(c3.id()));
+      assertThat(ancestors.map(Resource::id)).containsExactly(c2.id(), c1.id(), ws.id());
+      assertThat(ancestors.get(0)).isEqualTo(valueEmittedBy(store.find(c2.id())));
+      assertThat(ancestors.get(2)).isEqualTo(valueEmittedBy(store.find(ws.id())));
+    }
+
+    @Test
+    void workspaceHasNoAncestors() {
+      var ws = valueEmittedBy(store.createWorkspace());
+      assertThat(valuesEmittedBy(store.ancestorsOf(ws.id()))).isEmpty();
+    }
+
+    @Test
+    void deletedResourceHasNoAncestors() {
+      var ws = valueEmittedBy(store.createWorkspace());
+      var c1 = valueEmittedBy(store.createCollection(ws));
+      var c2 = valueEmittedBy(store.createCollection(c1));
+      valueEmittedBy(store.deleteCollection(c1, true));
+
+      assertThat(valuesEmittedBy(store.ancestorsOf(c2.id()))).isEmpty();
+      assertThat(valuesEmittedBy(store.ancestorsOf(c1.id()))).isEmpty();
+    }
+
     @Test
     void parentIsNotConfusedByChildren() {
       var ws = valueEmittedBy(store.createWorkspace());
@@ -244,6 +300,408 @@ public abstract class AbstractStoreTest<S extends Store> {
     }
   }
 
+  @Nested
+  class Batches {
+    @Test
+    void batchCreatesShareOneTransaction() {
+      var ws = valueEmittedBy(store.createWorkspace());
+      var tx = valueEmittedBy(store.transaction());
+
+      var created = valuesEmittedBy(store.batch()
+        .createCollection(ws)
+        .createCollection(ws)
+        .createCollection(ws)
+        .commit());
+      assertThat(created).hasSize(3);
+
+      var txNext = valueEmittedBy(store.transaction());
+      assertThat(txNext.txid()).isEqualTo(tx.txid() + 1);
+      assertThat(created).allMatch(r -> r.currentVersion().transaction().equals(txNext));
+
+      var wsNext = valueEmittedBy(store.find(ws.id(), WORKSPACE));
+      assertThat(wsNext.currentVersion().vid()).isEqualTo(ws.currentVersion().vid() + 1);
+      assertThat(valuesEmittedBy(wsNext.childCollections())).hasSameElementsAs(created.map(COLLECTION::cast));
+    }
+
+    @Test
+    void batchResultsAreInOrder() {
+      var ws = valueEmittedBy(store.createWorkspace());
+      var c1 = valueEmittedBy(store.createCollection(ws));
+
+      var results = valuesEmittedBy(store.batch()
+        .createWorkspace()
+        .deleteCollection(c1)
+        .createCollection(ws)
+        .commit());
+
+      assertThat(results).hasSize(3);
+      assertThat(results.get(0).hasType(WORKSPACE)).isTrue();
+      assertThat(results.get(1)).matches(isTombstoneFor(c1));
+      assertThat(results.get(2).hasType(COLLECTION)).isTrue();
+    }
+
+    @Test
+    void failedBatchAppliesNothing() {
+      var ws = valueEmittedBy(store.createWorkspace());
+      var c1 = valueEmittedBy(store.createCollection(ws));
+      valueEmittedBy(store.createCollection(c1));
+      var tx = valueEmittedBy(store.transaction());
+
+      var batch = store.batch()
+        .createCollection(c1)
+        .deleteCollection(c1);
+      assertThat(batch.commit()).emittedOneError();
+
+      assertThat(store.transaction()).emitted(tx);
+      assertThat(valuesEmittedBy(c1.childCollections())).hasSize(1);
+    }
+
+    @Test
+    void emptyBatchDoesNothing() {
+      var tx = valueEmittedBy(store.transaction());
+      assertThat(valuesEmittedBy(store.batch().commit())).isEmpty();
+      assertThat(store.transaction()).emitted(tx);
+    }
+  }
+
+  @Nested
+  class ConditionalMutations {
+    @Test
+    void createWithCurrentVersionSucceeds() {
+      var ws = valueEmittedBy(store.createWorkspace());
+      var c1 = valueEmittedBy(store.createCollection(ws, ws.currentVersion()));
+      var c2 = valueEmittedBy(store.createCollection(c1, c1.currentVersion()));
+
+      var wsNext = valueEmittedBy(store.find(ws.id(), WORKSPACE));
+      assertThat(valuesEmittedBy(wsNext.childCollections())).containsExactly(c1);
+      var c1Next = valueEmittedBy(store.find(c1.id(), COLLECTION));
+      assertThat(valuesEmittedBy(c1Next.childCollections())).containsExactly(c2);
+    }
+
+    @Test
+    void createWithStaleVersionFails() {
+      var ws = valueEmittedBy(store.createWorkspace());
+      valueEmittedBy(store.createCollection(ws));
+      var wsNext = valueEmittedBy(store.find(ws.id(), WORKSPACE));
+      var tx = valueEmittedBy(store.transaction());
+
+      assertThat(store.createCollection(ws, ws.currentVersion())).emittedErrorThat(t -> {
+        if (!(t instanceof VersionConflictException)) {
+          return false;
+        }
+        var conflict = (VersionConflictException) t;
+        return conflict.id().equals(ws.id())
+          && conflict.expected().equals(ws.currentVersion())
+          && conflict.actual().equals(wsNext.currentVersion());
+      });
+      assertThat(store.transaction()).emitted(tx);
+      assertThat(valuesEmittedBy(wsNext.childCollections())).hasSize(1);
+    }
+
+    @Test
+    void createUnderDeletedParentFails() {
+      var ws = valueEmittedBy(store.createWorkspace());
+      var c1 = valueEmittedBy(store.createCollection(ws));
+      valueEmittedBy(store.deleteCollection(c1));
+      assertThat(store.createCollection(c1, c1.currentVersion())).emittedErrorOfType(VersionConflictException.class);
+    }
+
+    @Test
+    void deleteWithCurrentVersionSucceeds() {
+      var ws = valueEmittedBy(store.createWorkspace());
+      var c1 = valueEmittedBy(store.createCollection(ws));
+      assertThat(store.deleteCollection(c1, false, c1.currentVersion())).emittedValueThat(isTombstoneFor(c1));
+      var wsNext = valueEmittedBy(store.find(ws.id(), WORKSPACE));
+      assertThat(store.deleteWorkspace(wsNext, false, wsNext.currentVersion())).emittedValueThat(isTombstoneFor(wsNext));
+    }
+
+    @Test
+    void deleteWithStaleVersionFails() {
+      var ws = valueEmittedBy(store.createWorkspace());
+      var c1 = valueEmittedBy(store.createCollection(ws));
+      valueEmittedBy(store.createCollection(c1));
+      var tx = valueEmittedBy(store.transaction());
+
+      assertThat(store.deleteCollection(c1, true, c1.currentVersion())).emittedErrorOfType(VersionConflictException.class);
+      assertThat(store.deleteWorkspace(ws, true, ws.currentVersion())).emittedErrorOfType(VersionConflictException.class);
+      assertThat(store.transaction()).emitted(tx);
+      assertThat(store.find(c1.id(), COLLECTION).map(Resource::isLive)).emitted(true);
+    }
+  }
+
+  @Nested
+  class Snapshots {
+    @Test
+    void snapshotIsUnaffectedByLaterWrites() {
+      var ws = valueEmittedBy(store.createWorkspace());
+      var c1 = valueEmittedBy(store.createCollection(ws));
+      var tx = valueEmittedBy(store.transaction());
+
+      try (var snapshot = valueEmittedBy(store.at(tx))) {
+        var c2 = valueEmittedBy(store.createCollection(ws));
+        valueEmittedBy(store.deleteCollection(c1));
+
+        assertThat(snapshot.transaction()).emitted(tx);
+        assertThat(snapshot.find(c1.id(), COLLECTION)).emitted(c1);
+        assertThat(snapshot.findTombstone(c1.id(), COLLECTION)).wasEmpty();
+        assertThat(snapshot.find(c2.id())).wasEmpty();
+        assertThat(valuesEmittedBy(snapshot.linksFrom(ws.id()))).hasSize(1);
+
+        assertThat(store.findTombstone(c1.id(), COLLECTION)).emittedValueThat(isTombstoneFor(c1));
+        assertThat(store.find(c2.id(), COLLECTION)).emitted(c2);
+      }
+    }
+
+    @Test
+    void snapshotOfEarlierTransaction() {
+      var ws = valueEmittedBy(store.createWorkspace());
+      var tx = valueEmittedBy(store.transaction());
+      var c1 = valueEmittedBy(store.createCollection(ws));
+
+      try (var snapshot = valueEmittedBy(store.at(tx))) {
+        assertThat(snapshot.find(ws.id(), WORKSPACE)).emitted(ws);
+        assertThat(snapshot.find(c1.id())).wasEmpty();
+        assertThat(valuesEmittedBy(snapshot.linksTo(ws.id()))).isEmpty();
+      }
+    }
+
+    @Test
+    void snapshotOfFutureTransactionFails() {
+      var tx = valueEmittedBy(store.transaction());
+      assertThat(store.at(tx.next())).emittedOneError();
+    }
+  }
+
+  @Nested
+  class Streaming {
+    @Test
+    void streamedChildrenMatchChildrenList() {
+      var ws = valueEmittedBy(store.createWorkspace());
+      for (var i = 0; i < 10; i++) {
+        valueEmittedBy(store.createCollection(ws));
+      }
+      var children = valuesEmittedBy(ws.childCollections());
+      assertThat(valuesEmittedBy(ws.streamChildCollections())).hasSameElementsAs(children);
+      assertThat(valuesEmittedBy(store.streamChildren(ws.id(), COLLECTION))).hasSameElementsAs(children);
+      assertThat(valuesEmittedBy(store.streamChildren(ws.id(), WORKSPACE))).isEmpty();
+    }
+
+    @Test
+    void streamedLinksMatchLinks() {
+      var ws = valueEmittedBy(store.createWorkspace());
+      var c1 = valueEmittedBy(store.createCollection(ws));
+      valueEmittedBy(store.createCollection(ws));
+      assertThat(valuesEmittedBy(store.streamLinksFrom(ws.id()))).hasSameElementsAs(valuesEmittedBy(store.linksFrom(ws.id())));
+      assertThat(valuesEmittedBy(store.streamLinksTo(c1.id()))).hasSameElementsAs(valuesEmittedBy(store.linksTo(c1.id())));
+    }
+
+    @Test
+    void streamingHonorsDemand() {
+      var ws = valueEmittedBy(store.createWorkspace());
+      for (var i = 0; i < 10; i++) {
+        valueEmittedBy(store.createCollection(ws));
+      }
+      var subscriber = store.streamChildren(ws.id(), COLLECTION).test(0);
+      subscriber.assertNoValues();
+      subscriber.requestMore(3);
+      subscriber.assertValueCount(3);
+      subscriber.assertNotComplete();
+      subscriber.requestMore(Long.MAX_VALUE);
+      subscriber.assertValueCount(10);
+      subscriber.assertComplete();
+    }
+
+    @Test
+    void streamReadsStateAsOfCall() {
+      var ws = valueEmittedBy(store.createWorkspace());
+      var c1 = valueEmittedBy(store.createCollection(ws));
+      var stream = ws.streamChildCollections();
+      valueEmittedBy(store.createCollection(ws));
+      assertThat(valuesEmittedBy(stream)).containsExactly(c1);
+    }
+  }
+
+  @Nested
+  class Changes {
+    @Test
+    void changesIncludePastAndNewTransactions() {
+      var ws = valueEmittedBy(store.createWorkspace());
+      var subscriber = store.changes(0).test();
+      subscriber.awaitCount(1);
+      subscriber.assertValues(Change.created(ws));
+
+      var c1 = valueEmittedBy(store.createCollection(ws));
+      subscriber.awaitCount(5);
+      var wsNext = valueEmittedBy(store.find(ws.id(), WORKSPACE));
+      var changes = Vector.ofAll(subscriber.values()).drop(1);
+      assertThat(changes.map(Change::type)).containsExactly(
+        Change.Type.CREATED, Change.Type.VERSIONED, Change.Type.LINK_CREATED, Change.Type.LINK_CREATED
+      );
+      assertThat(changes.get(0)).isEqualTo(Change.created(c1));
+      assertThat(changes.get(1)).isEqualTo(Change.versioned(wsNext));
+      assertThat(changes.map(Change::transaction)).containsOnly(c1.currentVersion().transaction());
+      subscriber.assertNotComplete();
+      subscriber.dispose();
+    }
+
+    @Test
+    void changesStartAtRequestedTransaction() {
+      var ws = valueEmittedBy(store.createWorkspace());
+      valueEmittedBy(store.createCollection(ws));
+      var c2 = valueEmittedBy(store.createCollection(ws));
+      var txid = c2.currentVersion().transaction().txid();
+
+      var subscriber = store.changes(txid).test();
+      subscriber.awaitCount(4);
+      var changes = Vector.ofAll(subscriber.values());
+      assertThat(changes).hasSize(4);
+      assertThat(changes.head()).isEqualTo(Change.created(c2));
+      assertThat(changes).allMatch(c -> c.transaction().txid() == txid);
+      subscriber.dispose();
+    }
+
+    @Test
+    void recursiveDeleteTombstonesSubtreeAndDeletesLinks() {
+      var ws = valueEmittedBy(store.createWorkspace());
+      var c1 = valueEmittedBy(store.createCollection(ws));
+      var c2 = valueEmittedBy(store.createCollection(c1));
+      var c1Deleted = valueEmittedBy(store.deleteCollection(c1, true));
+
+      var subscriber = store.changes(c1Deleted.currentVersion().transaction().txid()).test();
+      // two tombstones, and both links between each parent and child
+      subscriber.awaitCount(6);
+      var changes = Vector.ofAll(subscriber.values());
+      var tombstoned = changes.filter(c -> c.type() == Change.Type.TOMBSTONED).flatMap(Change::resource).map(Resource::id);
+      assertThat(tombstoned).containsOnly(c1.id(), c2.id());
+      var deletedLinks = changes.filter(c -> c.type() == Change.Type.LINK_DELETED).flatMap(Change::link);
+      assertThat(deletedLinks).hasSize(4);
+      assertThat(deletedLinks).allMatch(Link::isDeleted);
+      subscriber.dispose();
+    }
+
+    @Test
+    void batchChangesShareOneTransaction() {
+      var ws = valueEmittedBy(store.createWorkspace());
+      var created = valuesEmittedBy(store.batch()
+        .createCollection(ws)
+        .createCollection(ws)
+        .commit());
+      var txNext = valueEmittedBy(store.transaction());
+
+      var subscriber = store.changes(txNext.txid()).test();
+      // two creates, one parent version, and two links per create
+      subscriber.awaitCount(7);
+      var changes = Vector.ofAll(subscriber.values());
+      assertThat(changes.filter(c -> c.type() == Change.Type.CREATED).flatMap(Change::resource)).containsExactlyElementsOf(created);
+      // the parent is only versioned once per batch
+      assertThat(changes.filter(c -> c.type() == Change.Type.VERSIONED)).hasSize(1);
+      assertThat(changes.map(Change::transaction)).containsOnly(txNext);
+      subscriber.dispose();
+    }
+
+    @Test
+    void changesHonorDemand() {
+      var ws = valueEmittedBy(store.createWorkspace());
+      var subscriber = store.changes(0).test(0);
+      subscriber.assertNoValues();
+      subscriber.requestMore(1);
+      subscriber.awaitCount(1);
+      subscriber.assertValueCount(1);
+
+      for (var i = 0; i < 10; i++) {
+        valueEmittedBy(store.createCollection(ws));
+      }
+      subscriber.assertValueCount(1);
+      subscriber.requestMore(5);
+      subscriber.awaitCount(6);
+      subscriber.assertValueCount(6);
+      subscriber.requestMore(Long.MAX_VALUE);
+      subscriber.awaitCount(41);
+      subscriber.assertValueCount(41);
+
+      valueEmittedBy(store.createWorkspace());
+      subscriber.awaitCount(42);
+      subscriber.assertValueCount(42);
+      subscriber.assertNotComplete();
+      subscriber.dispose();
+    }
+
+    @Test
+    void changesRejectNegativeTransaction() {
+      store.changes(-1).test().assertError(IllegalArgumentException.class);
+    }
+  }
+
+  @Nested
+  class Paging {
+    @Test
+    void pagesListChildrenInCreationOrder() {
+      var ws = valueEmittedBy(store.createWorkspace());
+      var created = Vector.<Collection>empty();
+      for (var i = 0; i < 10; i++) {
+        created = created.append(valueEmittedBy(store.createCollection(ws)));
+      }
+
+      var listed = Vector.<Collection>empty();
+      var cursor = Cursor.START;
+      var pages = 0;
+      while (true) {
+        var page = valueEmittedBy(store.children(ws.id(), COLLECTION, cursor, 3));
+        listed = listed.appendAll(page.items());
+        pages++;
+        if (page.isLast()) {
+          break;
+        }
+        cursor = page.next().get();
+      }
+      assertThat(pages).isEqualTo(4);
+      assertThat(listed).containsExactlyElementsOf(created);
+    }
+
+    @Test
+    void pagesAreStableAcrossWrites() {
+      var ws = valueEmittedBy(store.createWorkspace());
+      var c1 = valueEmittedBy(store.createCollection(ws));
+      var c2 = valueEmittedBy(store.createCollection(ws));
+      var c3 = valueEmittedBy(store.createCollection(ws));
+
+      var first = valueEmittedBy(store.children(ws.id(), COLLECTION, Cursor.START, 1));
+      assertThat(first.items()).containsExactly(c1);
+
+      valueEmittedBy(store.deleteCollection(c1));
+      valueEmittedBy(store.deleteCollection(c2));
+      var c4 = valueEmittedBy(store.createCollection(ws));
+
+      var rest = valueEmittedBy(store.children(ws.id(), COLLECTION, first.next().get(), 10));
+      assertThat(rest.items()).containsExactly(c3, c4);
+      assertThat(rest.isLast()).isTrue();
+    }
+
+    @Test
+    void cursorsSurviveTokenRoundTrip() {
+      var ws = valueEmittedBy(store.createWorkspace());
+      valueEmittedBy(store.createCollection(ws));
+      var c2 = valueEmittedBy(store.createCollection(ws));
+
+      var first = valueEmittedBy(store.children(ws.id(), COLLECTION, Cursor.START, 1));
+      var cursor = Cursor.parse(first.next().get().token());
+      assertThat(valueEmittedBy(store.children(ws.id(), COLLECTION, cursor, 1)).items()).containsExactly(c2);
+    }
+
+    @Test
+    void missingParentHasEmptyLastPage() {
+      var page = valueEmittedBy(store.children(UUID.randomUUID(), COLLECTION, Cursor.START, 10));
+      assertThat(page.items()).isEmpty();
+      assertThat(page.isLast()).isTrue();
+    }
+
+    @Test
+    void limitMustBePositive() {
+      var ws = valueEmittedBy(store.createWorkspace());
+      assertThat(store.children(ws.id(), COLLECTION, Cursor.START, 0)).emittedErrorOfType(IllegalArgumentException.class);
+    }
+  }
+
   @Nested
   class ResourceTypes {
     @ParameterizedTest
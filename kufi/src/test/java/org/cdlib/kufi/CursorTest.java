@@ -0,0 +1,32 @@
+package org.cdlib.kufi;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+class CursorTest {
+
+  @Test
+  void tokensRoundTrip() {
+    var cursor = Cursor.after(12345L, UUID.randomUUID());
+    assertThat(Cursor.parse(cursor.token())).isEqualTo(cursor);
+  }
+
+  @Test
+  void startHasEmptyToken() {
+    assertThat(Cursor.START.token()).isEmpty();
+    assertThat(Cursor.parse("")).isSameAs(Cursor.START);
+    assertThat(Cursor.START.isStart()).isTrue();
+  }
+
+  @Test
+  void parseRejectsInvalidTokens() {
+    assertThatIllegalArgumentException().isThrownBy(() -> Cursor.parse("nonsense"));
+    assertThatIllegalArgumentException().isThrownBy(() -> Cursor.parse("zz~" + UUID.randomUUID()));
+    assertThatIllegalArgumentException().isThrownBy(() -> Cursor.parse("1~not-a-uuid"));
+    assertThatIllegalArgumentException().isThrownBy(() -> Cursor.parse("ffffffffffffffff~" + UUID.randomUUID()));
+  }
+}
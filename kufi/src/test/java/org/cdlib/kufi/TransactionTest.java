@@ -6,10 +6,12 @@ import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 
 import java.security.SecureRandom;
+import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 import java.time.temporal.ChronoUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 import static org.assertj.core.api.Assertions.assertThatNullPointerException;
 import static org.cdlib.kufi.util.TimeUtil.utcNow;
 
@@ -133,4 +135,56 @@ class TransactionTest {
       assertThat(tx1).isNotEqualTo(tx0);
     }
   }
+
+  @Nested
+  class Timestamps {
+    @Test
+    void timestampRoundTripsThroughEpochNanos() {
+      var timestamp = utcNow();
+      var tx0 = new Transaction(r.nextLong(), timestamp);
+      var tx1 = new Transaction(tx0.txid(), tx0.epochNanos());
+      assertThat(tx1).isEqualTo(tx0);
+      assertThat(tx1.timestamp()).isEqualTo(timestamp);
+    }
+
+    @Test
+    void timestampIsMaterializedOnce() {
+      var tx = new Transaction(r.nextLong(), r.nextLong());
+      assertThat(tx.timestamp()).isSameAs(tx.timestamp());
+    }
+
+    @Test
+    void nextIsLaterThanClock() {
+      var tx = new Transaction(0L, 0L);
+      var txNext = tx.next(() -> 1_000_000L);
+      assertThat(txNext.txid()).isEqualTo(1L);
+      assertThat(txNext.epochNanos()).isEqualTo(1_000_000L);
+    }
+
+    @Test
+    void nextIsLaterEvenIfClockGoesBackwards() {
+      var tx = new Transaction(0L, 1_000_000L);
+      var txNext = tx.next(() -> 0L);
+      assertThat(txNext.epochNanos()).isEqualTo(1_000_001L);
+      assertThat(txNext.timestamp()).isAfter(tx.timestamp());
+    }
+
+    @Test
+    void timestampsOutsideEpochNanosRangeAreRejected() {
+      var tooEarly = ZonedDateTime.of(1677, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+      var tooLate = ZonedDateTime.of(2263, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+      assertThatExceptionOfType(ArithmeticException.class).isThrownBy(() -> new Transaction(0L, tooEarly));
+      assertThatExceptionOfType(ArithmeticException.class).isThrownBy(() -> new Transaction(0L, tooLate));
+    }
+
+    @Test
+    void successiveTransactionsHaveIncreasingTimestamps() {
+      var tx = Transaction.initTransaction();
+      for (var i = 0; i < 1000; i++) {
+        var txNext = tx.next();
+        assertThat(txNext.epochNanos()).isGreaterThan(tx.epochNanos());
+        tx = txNext;
+      }
+    }
+  }
 }
@@ -0,0 +1,56 @@
+package org.cdlib.kufi.memory;
+
+import org.cdlib.kufi.Transaction;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.cdlib.kufi.ResourceType.COLLECTION;
+import static org.cdlib.kufi.ResourceType.WORKSPACE;
+
+class ChildIndexTest {
+
+  private MemoryStore store;
+  private Transaction tx;
+
+  @BeforeEach
+  void setUp() {
+    store = new MemoryStore();
+    tx = Transaction.initTransaction().next();
+  }
+
+  @Test
+  void emptyIndexHasNoChildren() {
+    assertThat(ChildIndex.EMPTY.count()).isEqualTo(0);
+    assertThat(ChildIndex.EMPTY.ofType(COLLECTION)).isEmpty();
+  }
+
+  @Test
+  void partitionsChildrenByType() {
+    var c1 = store.createNew(COLLECTION, UUID.randomUUID(), tx);
+    var c2 = store.createNew(COLLECTION, UUID.randomUUID(), tx);
+    var ws = store.createNew(WORKSPACE, UUID.randomUUID(), tx);
+
+    var index = ChildIndex.EMPTY.add(c1).add(ws).add(c2);
+    assertThat(index.count()).isEqualTo(3);
+    assertThat(index.ofType(COLLECTION)).containsOnly(COLLECTION.cast(c1), COLLECTION.cast(c2));
+    assertThat(index.ofType(WORKSPACE)).containsOnly(WORKSPACE.cast(ws));
+  }
+
+  @Test
+  void addAndRemoveAreIdempotent() {
+    var c1 = store.createNew(COLLECTION, UUID.randomUUID(), tx);
+    var c2 = store.createNew(COLLECTION, UUID.randomUUID(), tx);
+
+    var index = ChildIndex.EMPTY.add(c1).add(c1);
+    assertThat(index.count()).isEqualTo(1);
+    assertThat(index.remove(c2)).isSameAs(index);
+
+    var empty = index.remove(c1);
+    assertThat(empty.count()).isEqualTo(0);
+    assertThat(empty.ofType(COLLECTION)).isEmpty();
+    assertThat(index.count()).isEqualTo(1);
+  }
+}
@@ -0,0 +1,133 @@
+package org.cdlib.kufi.memory;
+
+import io.vavr.collection.Vector;
+import org.cdlib.kufi.Transaction;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.cdlib.kufi.ResourceType.COLLECTION;
+
+class ChildTreeTest {
+
+  private MemoryStore store;
+  private Transaction tx;
+
+  @BeforeEach
+  void setUp() {
+    store = new MemoryStore();
+    tx = Transaction.initTransaction();
+  }
+
+  @Test
+  void emptyTreeIsEmpty() {
+    assertThat(ChildTree.EMPTY.size()).isEqualTo(0);
+    assertThat(ChildTree.EMPTY).isEmpty();
+    assertThat(ChildTree.EMPTY.iteratorAfter(0L, UUID.randomUUID()).hasNext()).isFalse();
+  }
+
+  @Test
+  void iteratesInCreationOrder() {
+    var children = createChildren(1_000);
+    var shuffled = new ArrayList<>(children.toJavaList());
+    Collections.shuffle(shuffled, new Random(0));
+
+    var tree = ChildTree.EMPTY;
+    for (var child : shuffled) {
+      tree = tree.add(child);
+    }
+    assertThat(tree.size()).isEqualTo(children.size());
+    assertThat(tree).containsExactlyElementsOf(children);
+  }
+
+  @Test
+  void addAndRemoveArePersistentAndIdempotent() {
+    var children = createChildren(2);
+    var c1 = children.get(0);
+    var c2 = children.get(1);
+
+    var tree1 = ChildTree.EMPTY.add(c1);
+    assertThat(tree1.add(c1)).isSameAs(tree1);
+    assertThat(tree1.remove(c2)).isSameAs(tree1);
+
+    var tree2 = tree1.add(c2);
+    var tree3 = tree2.remove(c1);
+    assertThat(tree1).containsExactly(c1);
+    assertThat(tree2).containsExactly(c1, c2);
+    assertThat(tree3).containsExactly(c2);
+  }
+
+  @Test
+  void removesFromAnywhere() {
+    var children = createChildren(1_000);
+    var tree = ChildTree.EMPTY;
+    for (var child : children) {
+      tree = tree.add(child);
+    }
+    var expected = children;
+    for (var i = 0; i < children.size(); i += 3) {
+      tree = tree.remove(children.get(i));
+      expected = expected.remove(children.get(i));
+    }
+    assertThat(tree.size()).isEqualTo(expected.size());
+    assertThat(tree).containsExactlyElementsOf(expected);
+  }
+
+  @Test
+  void iteratesFromAnyPosition() {
+    var children = createChildren(100);
+    var tree = ChildTree.EMPTY;
+    for (var child : children) {
+      tree = tree.add(child);
+    }
+    for (var i = 0; i < children.size(); i++) {
+      var after = children.get(i);
+      var iterator = tree.iteratorAfter(after.transaction().txid(), after.id());
+      var rest = new ArrayList<MemoryResource<?>>();
+      iterator.forEachRemaining(rest::add);
+      assertThat(rest).containsExactlyElementsOf(children.drop(i + 1));
+    }
+  }
+
+  @Test
+  void iteratesFromRemovedPosition() {
+    var children = createChildren(10);
+    var tree = ChildTree.EMPTY;
+    for (var child : children) {
+      tree = tree.add(child);
+    }
+    var removed = children.get(4);
+    tree = tree.remove(removed);
+
+    var rest = new ArrayList<MemoryResource<?>>();
+    tree.iteratorAfter(removed.transaction().txid(), removed.id()).forEachRemaining(rest::add);
+    assertThat(rest).containsExactlyElementsOf(children.drop(5));
+  }
+
+  /**
+   * @return Children created over several transactions, several per transaction, in creation order.
+   */
+  private Vector<MemoryResource<?>> createChildren(int count) {
+    var children = Vector.<MemoryResource<?>>empty();
+    for (var i = 0; i < count; i++) {
+      if (i % 4 == 0) {
+        tx = tx.next();
+      }
+      children = children.append(store.createNew(COLLECTION, UUID.randomUUID(), tx));
+    }
+    // within a transaction, children are ordered by ID
+    return children.sorted((a, b) -> {
+      var order = Long.compare(a.transaction().txid(), b.transaction().txid());
+      if (order != 0) {
+        return order;
+      }
+      order = Long.compare(a.id().getMostSignificantBits(), b.id().getMostSignificantBits());
+      return order != 0 ? order : Long.compare(a.id().getLeastSignificantBits(), b.id().getLeastSignificantBits());
+    });
+  }
+}
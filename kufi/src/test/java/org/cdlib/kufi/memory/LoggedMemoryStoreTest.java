@@ -0,0 +1,32 @@
+package org.cdlib.kufi.memory;
+
+import org.cdlib.kufi.AbstractStoreTest;
+import org.junit.jupiter.api.AfterEach;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+class LoggedMemoryStoreTest extends AbstractStoreTest<MemoryStore> {
+
+  private Path logFile;
+  private TransactionLog log;
+
+  @Override
+  protected MemoryStore newStore() {
+    try {
+      logFile = Files.createTempFile(getClass().getSimpleName(), ".log");
+      log = TransactionLog.open(logFile, SyncPolicy.never());
+      return new MemoryStore(log);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  @AfterEach
+  void tearDown() throws IOException {
+    log.close();
+    Files.deleteIfExists(logFile);
+  }
+}
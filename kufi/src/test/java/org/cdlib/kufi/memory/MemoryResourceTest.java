@@ -0,0 +1,65 @@
+package org.cdlib.kufi.memory;
+
+import org.cdlib.kufi.Transaction;
+import org.cdlib.kufi.Version;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.cdlib.kufi.ResourceType.COLLECTION;
+import static org.cdlib.kufi.ResourceType.WORKSPACE;
+
+class MemoryResourceTest {
+
+  private MemoryStore store;
+  private Transaction tx;
+
+  @BeforeEach
+  void setUp() {
+    store = new MemoryStore();
+    tx = Transaction.initTransaction();
+  }
+
+  @Test
+  void createUsesTypeSpecificClass() {
+    assertThat(MemoryResource.create(WORKSPACE, UUID.randomUUID(), 0L, tx, false, store)).isInstanceOf(MemoryWorkspace.class);
+    assertThat(MemoryResource.create(COLLECTION, UUID.randomUUID(), 0L, tx, false, store)).isInstanceOf(MemoryCollection.class);
+  }
+
+  @Test
+  void materializesVersionOnDemand() {
+    var r = MemoryResource.create(COLLECTION, UUID.randomUUID(), 3L, tx, false, store);
+    assertThat(r.currentVersion()).isEqualTo(new Version(3L, tx));
+    assertThat(r.deletedAt()).isEmpty();
+    assertThat(r.isLive()).isTrue();
+  }
+
+  @Test
+  void deletedAtIsCurrentVersion() {
+    var r = MemoryResource.create(COLLECTION, UUID.randomUUID(), 3L, tx, true, store);
+    assertThat(r.isDeleted()).isTrue();
+    assertThat(r.deletedAt()).contains(r.currentVersion());
+  }
+
+  @Test
+  void withVersionKeepsIdentity() {
+    var r0 = MemoryResource.create(COLLECTION, UUID.randomUUID(), 0L, tx, false, store);
+    var r1 = r0.withVersion(1L, tx.next(), false);
+    assertThat(r1).isInstanceOf(MemoryCollection.class);
+    assertThat(r1.id()).isEqualTo(r0.id());
+    assertThat(r1.isLaterVersionOf(r0)).isTrue();
+    assertThat(r0.isEarlierVersionOf(r1)).isTrue();
+    assertThat(r1).isNotEqualTo(r0);
+  }
+
+  @Test
+  void equalRecordsHaveEqualHashCodes() {
+    var id = UUID.randomUUID();
+    var r0 = MemoryResource.create(WORKSPACE, id, 2L, tx, false, store);
+    var r1 = MemoryResource.create(WORKSPACE, id, 2L, tx, false, store);
+    assertThat(r1).isEqualTo(r0);
+    assertThat(r1.hashCode()).isEqualTo(r0.hashCode());
+  }
+}
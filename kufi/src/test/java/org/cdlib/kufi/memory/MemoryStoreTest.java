@@ -1,17 +1,32 @@
 package org.cdlib.kufi.memory;
 
+import io.reactivex.plugins.RxJavaPlugins;
+import io.reactivex.subscribers.DefaultSubscriber;
+import io.vavr.collection.List;
 import org.cdlib.kufi.AbstractStoreTest;
+import org.cdlib.kufi.Change;
+import org.cdlib.kufi.ChangesNotRetainedException;
+import org.cdlib.kufi.Collection;
+import org.cdlib.kufi.Link;
 import org.cdlib.kufi.Resource;
 import org.cdlib.kufi.ResourceType;
+import org.cdlib.kufi.Transaction;
+import org.cdlib.kufi.VersionConflictException;
+import org.cdlib.kufi.VersionNotRetainedException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 
 import java.util.NoSuchElementException;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static io.vavr.control.Option.none;
-import static org.cdlib.cursive.util.RxAssertions.assertThat;
+import static org.cdlib.cursive.util.RxAssertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -22,6 +37,371 @@ public class MemoryStoreTest extends AbstractStoreTest<MemoryStore> {
     return new MemoryStore();
   }
 
+  @Nested
+  class Concurrency {
+    @Test
+    void concurrentCreatesAreAllCommitted() throws Exception {
+      var store = new MemoryStore();
+      var ws = valueEmittedBy(store.createWorkspace());
+
+      var threads = 8;
+      var perThread = 100;
+      Callable<Void> task = () -> {
+        for (var i = 0; i < perThread; i++) {
+          valueEmittedBy(store.createCollection(ws));
+        }
+        return null;
+      };
+
+      var executor = Executors.newFixedThreadPool(threads);
+      try {
+        for (var future : executor.invokeAll(List.fill(threads, () -> task).toJavaList())) {
+          future.get();
+        }
+      } finally {
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+      }
+
+      var wsNext = valueEmittedBy(store.find(ws.id(), ResourceType.WORKSPACE));
+      List<Collection> children = valuesEmittedBy(wsNext.childCollections());
+      assertThat(children).hasSize(threads * perThread);
+      assertThat(wsNext.currentVersion().vid()).isEqualTo(threads * perThread);
+      assertThat(store.commitCount()).isEqualTo(1 + threads * perThread);
+      assertThat(store.retryCount()).isGreaterThanOrEqualTo(store.contendedCommitCount());
+    }
+
+    @Test
+    void onlyOneConcurrentConditionalCreateWins() throws Exception {
+      var store = new MemoryStore();
+      var ws = valueEmittedBy(store.createWorkspace());
+      var expected = ws.currentVersion();
+
+      var threads = 8;
+      Callable<Object> task = () -> store.createCollection(ws, expected)
+        .<Object>map(c -> c)
+        .onErrorReturn(t -> t)
+        .blockingGet();
+
+      var executor = Executors.newFixedThreadPool(threads);
+      var results = List.empty();
+      try {
+        for (var future : executor.invokeAll(List.fill(threads, () -> task).toJavaList())) {
+          results = results.append(future.get());
+        }
+      } finally {
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+      }
+
+      assertThat(results.count(r -> r instanceof Collection)).isEqualTo(1);
+      assertThat(results.count(r -> r instanceof VersionConflictException)).isEqualTo(threads - 1);
+      var wsNext = valueEmittedBy(store.find(ws.id(), ResourceType.WORKSPACE));
+      assertThat(wsNext.currentVersion().vid()).isEqualTo(expected.vid() + 1);
+      assertThat(store.commitCount()).isEqualTo(2);
+    }
+  }
+
+  @Nested
+  class Clocks {
+    @Test
+    void transactionsAreTimestampedFromTheStoreClock() {
+      var now = new AtomicLong(1_000_000L);
+      var store = new MemoryStore(IndexBackend.HASH_MAP, MemoryStore.DEFAULT_RETAINED_VERSIONS, now::get);
+      assertThat(store.currentTransaction().epochNanos()).isEqualTo(1_000_000L);
+
+      now.set(5_000_000L);
+      var ws = valueEmittedBy(store.createWorkspace());
+      assertThat(ws.currentVersion().transaction().epochNanos()).isEqualTo(5_000_000L);
+
+      // a clock that stalls still gets strictly increasing timestamps
+      var coll = valueEmittedBy(store.createCollection(ws));
+      assertThat(coll.currentVersion().transaction().epochNanos()).isEqualTo(5_000_001L);
+    }
+  }
+
+  @Nested
+  class RecursiveDelete {
+    @Test
+    void deletesDeepTreesWithoutRecursion() {
+      var store = new MemoryStore();
+      var ws = valueEmittedBy(store.createWorkspace());
+      var root = valueEmittedBy(store.createCollection(ws));
+
+      var depth = 10_000;
+      var leaf = root;
+      for (var i = 0; i < depth; i++) {
+        leaf = valueEmittedBy(store.createCollection(leaf));
+      }
+
+      var tombstone = valueEmittedBy(store.deleteCollection(root, true));
+      assertThat(tombstone.isDeleted()).isTrue();
+      assertThat(store.find(leaf.id())).wasEmpty();
+      assertThat(store.findTombstone(leaf.id(), ResourceType.COLLECTION)).emittedValueThat(Resource::isDeleted);
+      assertThat(valuesEmittedBy(store.linksTo(leaf.id()))).allMatch(Link::isDeleted);
+      assertThat(valuesEmittedBy(store.linksFrom(ws.id()))).allMatch(Link::isDeleted);
+    }
+  }
+
+  @Nested
+  class Compactions {
+    @Test
+    void purgesOnlyDeletionsOutsideRetentionWindow() {
+      var store = new MemoryStore();
+      var ws = valueEmittedBy(store.createWorkspace());
+      var c1 = valueEmittedBy(store.createCollection(ws));
+      var c2 = valueEmittedBy(store.createCollection(c1));
+      var c3 = valueEmittedBy(store.createCollection(ws));
+      valueEmittedBy(store.deleteCollection(c1, true));
+      var retainFrom = valueEmittedBy(store.transaction()).txid() + 1;
+      valueEmittedBy(store.deleteCollection(c3));
+
+      var compaction = valueEmittedBy(store.compact(retainFrom));
+      assertThat(compaction.reclaimedTombstones()).isEqualTo(2);
+      // ws -> c1 and c1 -> c2, in both directions
+      assertThat(compaction.reclaimedLinks()).isEqualTo(4);
+      assertThat(compaction.reclaimedBytes()).isGreaterThan(0);
+
+      assertThat(store.findTombstone(c1.id())).wasEmpty();
+      assertThat(store.findTombstone(c2.id())).wasEmpty();
+      assertThat(valuesEmittedBy(store.linksFrom(c1.id()))).isEmpty();
+      assertThat(valuesEmittedBy(store.linksTo(c2.id()))).isEmpty();
+
+      // inside the window
+      assertThat(store.findTombstone(c3.id(), ResourceType.COLLECTION)).emittedValueThat(Resource::isDeleted);
+      assertThat(valuesEmittedBy(store.linksFrom(ws.id()))).hasSize(1).allMatch(Link::isDeleted);
+
+      assertThat(store.find(ws.id())).emittedValueThat(Resource::isLive);
+      assertThat(store.compactionCount()).isEqualTo(1);
+      assertThat(store.reclaimedTombstoneCount()).isEqualTo(2);
+      assertThat(store.reclaimedLinkCount()).isEqualTo(4);
+      assertThat(store.reclaimedBytes()).isEqualTo(compaction.reclaimedBytes());
+    }
+
+    @Test
+    void compactionDoesNotCreateTransaction() {
+      var store = new MemoryStore();
+      var ws = valueEmittedBy(store.createWorkspace());
+      valueEmittedBy(store.deleteWorkspace(ws));
+      var tx = valueEmittedBy(store.transaction());
+
+      valueEmittedBy(store.compact(tx.txid() + 1));
+      assertThat(store.transaction()).emitted(tx);
+      assertThat(store.findTombstone(ws.id())).wasEmpty();
+
+      var again = valueEmittedBy(store.compact(tx.txid() + 1));
+      assertThat(again.reclaimedTombstones()).isEqualTo(0);
+      assertThat(store.compactionCount()).isEqualTo(1);
+    }
+
+    @Test
+    void snapshotsKeepPurgedTombstones() {
+      var store = new MemoryStore();
+      var ws = valueEmittedBy(store.createWorkspace());
+      valueEmittedBy(store.deleteWorkspace(ws));
+      var tx = valueEmittedBy(store.transaction());
+
+      try (var snapshot = valueEmittedBy(store.at(tx))) {
+        valueEmittedBy(store.compact(tx.txid() + 1));
+        assertThat(store.findTombstone(ws.id())).wasEmpty();
+        assertThat(snapshot.findTombstone(ws.id())).emittedValueThat(Resource::isDeleted);
+      }
+    }
+
+    @Test
+    void storeRemainsWritableAfterCompaction() {
+      var store = new MemoryStore(IndexBackend.PRIMITIVE_TRIE);
+      var ws = valueEmittedBy(store.createWorkspace());
+      for (var i = 0; i < 100; i++) {
+        var c = valueEmittedBy(store.createCollection(ws));
+        valueEmittedBy(store.deleteCollection(c));
+      }
+      var tx = valueEmittedBy(store.transaction());
+      var compaction = valueEmittedBy(store.compact(tx.txid() + 1));
+      assertThat(compaction.reclaimedTombstones()).isEqualTo(100);
+
+      var wsCurrent = valueEmittedBy(store.find(ws.id(), ResourceType.WORKSPACE));
+      var c = valueEmittedBy(store.createCollection(wsCurrent));
+      assertThat(wsCurrent.childCollections()).emitted(c);
+      assertThat(valuesEmittedBy(store.linksFrom(ws.id()))).hasSize(1);
+    }
+  }
+
+  @Nested
+  class VersionRetention {
+    @Test
+    void evictedVersionsAreNotRetained() {
+      var store = new MemoryStore(IndexBackend.HASH_MAP, 4);
+      var tx0 = valueEmittedBy(store.transaction());
+      var ws = valueEmittedBy(store.createWorkspace());
+      var txs = List.<Transaction>empty();
+      for (var i = 0; i < 4; i++) {
+        txs = txs.append(valueEmittedBy(store.createCollection(ws)).currentVersion().transaction());
+      }
+      assertThat(store.retainedVersionCount()).isEqualTo(4);
+
+      assertThat(store.at(tx0)).emittedErrorOfType(VersionNotRetainedException.class);
+
+      var retained = txs.get(0);
+      try (var snapshot = valueEmittedBy(store.at(retained))) {
+        assertThat(snapshot.transaction()).emitted(retained);
+      }
+    }
+
+    @Test
+    void transactionsFromOtherStoresAreNotRetained() {
+      var store = new MemoryStore(IndexBackend.HASH_MAP, 4);
+      var other = new MemoryStore(IndexBackend.HASH_MAP, 4);
+      var ws = valueEmittedBy(store.createWorkspace());
+      valueEmittedBy(store.createCollection(ws));
+      valueEmittedBy(other.createWorkspace());
+
+      // same txid, different timestamp
+      var otherTx = valueEmittedBy(other.transaction());
+      assertThat(store.at(otherTx)).emittedErrorOfType(VersionNotRetainedException.class);
+      var current = valueEmittedBy(store.transaction());
+      var forged = new Transaction(current.txid(), current.timestamp().plusNanos(1));
+      assertThat(store.at(forged)).emittedErrorOfType(VersionNotRetainedException.class);
+      assertThat(store.pinnedVersionCount()).isZero();
+      assertThat(store.openSnapshotCount()).isZero();
+    }
+
+    @Test
+    void pinnedVersionsOutliveTheRing() {
+      var store = new MemoryStore(IndexBackend.HASH_MAP, 2);
+      var ws = valueEmittedBy(store.createWorkspace());
+      var tx = valueEmittedBy(store.transaction());
+
+      var s1 = valueEmittedBy(store.at(tx));
+      var s2 = valueEmittedBy(store.at(tx));
+      assertThat(store.pinnedVersionCount()).isEqualTo(1);
+      assertThat(store.openSnapshotCount()).isEqualTo(2);
+
+      for (var i = 0; i < 4; i++) {
+        valueEmittedBy(store.createCollection(ws));
+      }
+
+      // evicted from the ring, but still pinned
+      try (var s3 = valueEmittedBy(store.at(tx))) {
+        assertThat(s3.find(ws.id(), ResourceType.WORKSPACE)).emitted(ws);
+      }
+
+      s1.close();
+      s1.close();
+      assertThat(store.pinnedVersionCount()).isEqualTo(1);
+      s2.close();
+      assertThat(store.pinnedVersionCount()).isEqualTo(0);
+      assertThat(store.openSnapshotCount()).isEqualTo(0);
+
+      assertThat(store.at(tx)).emittedErrorOfType(VersionNotRetainedException.class);
+    }
+
+    @Test
+    void zeroRetentionAllowsCurrentOnly() {
+      var store = new MemoryStore(IndexBackend.HASH_MAP, 0);
+      var tx0 = valueEmittedBy(store.transaction());
+      valueEmittedBy(store.createWorkspace());
+      var tx1 = valueEmittedBy(store.transaction());
+
+      assertThat(store.retainedVersionCount()).isEqualTo(0);
+      assertThat(store.at(tx0)).emittedErrorOfType(VersionNotRetainedException.class);
+      try (var snapshot = valueEmittedBy(store.at(tx1))) {
+        assertThat(snapshot.transaction()).emitted(tx1);
+      }
+    }
+  }
+
+  @Nested
+  class ChangeRetention {
+    @Test
+    void evictedChangesAreNotRetained() {
+      var store = new MemoryStore();
+      var ws = valueEmittedBy(store.createWorkspace());
+      for (var i = 0; i < MemoryStore.DEFAULT_RETAINED_CHANGES; i++) {
+        valueEmittedBy(store.createCollection(ws));
+      }
+      var evicted = store.changes(1).test();
+      evicted.awaitTerminalEvent(5, TimeUnit.SECONDS);
+      evicted.assertError(ChangesNotRetainedException.class);
+
+      var txid = valueEmittedBy(store.transaction()).txid();
+      var subscriber = store.changes(txid - MemoryStore.DEFAULT_RETAINED_CHANGES + 1).test();
+      subscriber.awaitCount(4 * MemoryStore.DEFAULT_RETAINED_CHANGES);
+      subscriber.assertNoErrors();
+      subscriber.assertValueCount(4 * MemoryStore.DEFAULT_RETAINED_CHANGES);
+      subscriber.dispose();
+    }
+
+    @Test
+    void slowSubscriberFailsWithoutLog() {
+      var store = new MemoryStore();
+      var ws = valueEmittedBy(store.createWorkspace());
+      var subscriber = store.changes(0).test(1);
+      subscriber.awaitCount(1);
+      for (var i = 0; i < 2 * MemoryStore.DEFAULT_RETAINED_CHANGES; i++) {
+        valueEmittedBy(store.createCollection(ws));
+      }
+      subscriber.assertNoErrors();
+      subscriber.requestMore(Long.MAX_VALUE);
+      subscriber.awaitTerminalEvent(5, TimeUnit.SECONDS);
+      subscriber.assertError(ChangesNotRetainedException.class);
+      assertThat(store.changeSubscriberCount()).isZero();
+    }
+
+    @Test
+    void changesAreNotDeliveredOnTheCommittingThread() {
+      var store = new MemoryStore();
+      var threads = new ConcurrentLinkedQueue<Thread>();
+      var subscriber = store.changes(1).doOnNext(c -> threads.add(Thread.currentThread())).test();
+      valueEmittedBy(store.createWorkspace());
+      subscriber.awaitCount(1);
+      assertThat(threads).hasSize(1).doesNotContain(Thread.currentThread());
+      subscriber.dispose();
+    }
+
+    @Test
+    void failingSubscriberDoesNotFailCommits() throws InterruptedException {
+      var errors = new ConcurrentLinkedQueue<Throwable>();
+      RxJavaPlugins.setErrorHandler(errors::add);
+      try {
+        var store = new MemoryStore();
+        store.changes(1).subscribe(new DefaultSubscriber<Change>() {
+          @Override
+          public void onNext(Change change) {
+            throw new IllegalStateException("Broken subscriber");
+          }
+
+          @Override
+          public void onError(Throwable t) {
+          }
+
+          @Override
+          public void onComplete() {
+          }
+        });
+
+        var ws = valueEmittedBy(store.createWorkspace());
+        assertThat(store.find(ws.id())).emitted(ws);
+        for (var i = 0; i < 500 && errors.isEmpty(); i++) {
+          Thread.sleep(10);
+        }
+        assertThat(errors).hasOnlyElementsOfType(IllegalStateException.class).hasSize(1);
+        assertThat(store.changeSubscriberCount()).isZero();
+      } finally {
+        RxJavaPlugins.reset();
+      }
+    }
+
+    @Test
+    void cancelledSubscribersAreRemoved() {
+      var store = new MemoryStore();
+      var subscriber = store.changes(0).test();
+      assertThat(store.changeSubscriberCount()).isEqualTo(1);
+      subscriber.dispose();
+      assertThat(store.changeSubscriberCount()).isZero();
+    }
+  }
+
   @Nested
   class ErrorHandling {
 
@@ -0,0 +1,12 @@
+package org.cdlib.kufi.memory;
+
+import org.cdlib.kufi.AbstractStoreTest;
+
+import static org.cdlib.kufi.memory.IndexBackend.PRIMITIVE_TRIE;
+
+class PrimitiveTrieMemoryStoreTest extends AbstractStoreTest<MemoryStore> {
+  @Override
+  protected MemoryStore newStore() {
+    return new MemoryStore(PRIMITIVE_TRIE);
+  }
+}
@@ -0,0 +1,207 @@
+package org.cdlib.kufi.memory;
+
+import io.vavr.collection.List;
+import org.cdlib.kufi.AbstractStoreTest;
+import org.cdlib.kufi.Collection;
+import org.cdlib.kufi.ResourceType;
+import org.cdlib.kufi.Transaction;
+import org.cdlib.kufi.VersionNotRetainedException;
+import org.cdlib.kufi.Workspace;
+import org.cdlib.kufi.util.MonotonicClock;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.cdlib.cursive.util.RxAssertions.*;
+import static org.cdlib.kufi.ResourceType.COLLECTION;
+import static org.cdlib.kufi.ResourceType.WORKSPACE;
+
+class ShardedMemoryStoreTest extends AbstractStoreTest<ShardedMemoryStore> {
+  @Override
+  protected ShardedMemoryStore newStore() {
+    return new ShardedMemoryStore(4);
+  }
+
+  @Nested
+  class Partitioning {
+    @Test
+    void workspacesAreSpreadAcrossPartitions() {
+      var store = new ShardedMemoryStore(4);
+      for (var i = 0; i < 100; i++) {
+        valueEmittedBy(store.createWorkspace());
+      }
+      assertThat(store.commitCount()).isEqualTo(100);
+      assertThat(store.commitCountByPartition()).allMatch(c -> c > 0);
+    }
+
+    @Test
+    void descendantsLiveWithTheirWorkspace() {
+      var store = new ShardedMemoryStore(4);
+      var ws = valueEmittedBy(store.createWorkspace());
+      var c1 = valueEmittedBy(store.createCollection(ws));
+      var c2 = valueEmittedBy(store.createCollection(c1));
+
+      var partition = store.partitionOf(ws);
+      assertThat(store.partitionOf(c1)).isSameAs(partition);
+      assertThat(store.partitionOf(c2)).isSameAs(partition);
+      assertThat(partition.find(c2.id(), COLLECTION)).emitted(c2);
+      assertThat(store.find(c2.id(), COLLECTION)).emitted(c2);
+      assertThat(store.directorySize()).isEqualTo(3);
+    }
+
+    @Test
+    void tombstonesAreStillRouted() {
+      var store = new ShardedMemoryStore(4);
+      var ws = valueEmittedBy(store.createWorkspace());
+      var c1 = valueEmittedBy(store.createCollection(ws));
+      valueEmittedBy(store.deleteCollection(c1));
+      assertThat(store.find(c1.id())).wasEmpty();
+      assertThat(store.findTombstone(c1.id(), COLLECTION)).emittedValueThat(Collection::isDeleted);
+    }
+
+    @Test
+    void batchAcrossPartitionsFails() {
+      var store = new ShardedMemoryStore(4);
+      var workspaces = List.fill(32, () -> valueEmittedBy(store.createWorkspace()));
+      var ws1 = workspaces.head();
+      var ws2 = workspaces.find(ws -> store.partitionOf(ws) != store.partitionOf(ws1)).get();
+      var tx = valueEmittedBy(store.transaction());
+
+      var batch = store.batch()
+        .createCollection(ws1)
+        .createCollection(ws2);
+      batch.commit().test().assertError(IllegalStateException.class);
+      assertThat(store.transaction()).emitted(tx);
+    }
+
+    @Test
+    void batchResultsAreRouted() {
+      var store = new ShardedMemoryStore(4);
+      var results = valuesEmittedBy(store.batch().createWorkspace().createWorkspace().commit());
+      assertThat(results).hasSize(2);
+      for (var ws : results) {
+        assertThat(store.find(ws.id(), WORKSPACE)).emitted(WORKSPACE.cast(ws));
+      }
+    }
+
+    @Test
+    void failedBatchReleasesItsIds() {
+      var store = new ShardedMemoryStore(4);
+      var ws = valueEmittedBy(store.createWorkspace());
+
+      // the workspace has children by the time it's deleted
+      var batch = store.batch()
+        .createCollection(ws)
+        .createCollection(ws)
+        .deleteWorkspace(ws, false);
+      batch.commit().test().assertError(IllegalStateException.class);
+      assertThat(store.directorySize()).isEqualTo(1);
+    }
+
+    @Test
+    void compactionPrunesTheDirectory() {
+      var store = new ShardedMemoryStore(4);
+      var ws = valueEmittedBy(store.createWorkspace());
+      var c1 = valueEmittedBy(store.createCollection(ws));
+      valueEmittedBy(store.deleteCollection(c1));
+      valueEmittedBy(store.createCollection(ws));
+      assertThat(store.directorySize()).isEqualTo(3);
+
+      var compactions = valueEmittedBy(store.compact(0));
+      assertThat(compactions.map(Compaction::reclaimedTombstones).sum().intValue()).isEqualTo(1);
+      assertThat(store.directorySize()).isEqualTo(2);
+      assertThat(store.findTombstone(c1.id())).wasEmpty();
+    }
+
+    @Test
+    void partitionsNeverShareATimestamp() {
+      var store = new ShardedMemoryStore(IndexBackend.HASH_MAP, 4, index -> new MonotonicClock(() -> 0L, 4, index));
+      var workspaces = List.fill(32, () -> valueEmittedBy(store.createWorkspace()));
+      var timestamps = workspaces.map(ws -> ws.currentVersion().transaction().epochNanos());
+      assertThat(timestamps.distinct()).hasSize(workspaces.size());
+    }
+
+    @Test
+    void snapshotSeesOnlyItsPartition() {
+      var store = new ShardedMemoryStore(4);
+      var workspaces = List.fill(32, () -> valueEmittedBy(store.createWorkspace()));
+      var last = workspaces.last();
+      var other = workspaces.find(ws -> store.partitionOf(ws) != store.partitionOf(last)).get();
+      var tx = valueEmittedBy(store.transaction());
+      assertThat(tx).isEqualTo(last.currentVersion().transaction());
+
+      try (var snapshot = valueEmittedBy(store.at(tx))) {
+        assertThat(snapshot.find(last.id(), WORKSPACE)).emitted(last);
+        assertThat(snapshot.find(other.id())).wasEmpty();
+      }
+      try (var snapshot = valueEmittedBy(store.at(other.currentVersion().transaction()))) {
+        assertThat(snapshot.find(other.id(), WORKSPACE)).emitted(other);
+      }
+    }
+
+    @Test
+    void snapshotOfUnknownTransactionFails() {
+      var store = new ShardedMemoryStore(4);
+      var ws = valueEmittedBy(store.createWorkspace());
+      var tx = ws.currentVersion().transaction();
+      var forged = new Transaction(tx.txid(), tx.epochNanos() + 1);
+      assertThat(store.at(forged)).emittedErrorOfType(VersionNotRetainedException.class);
+    }
+  }
+
+  @Nested
+  class PartitionChanges {
+    @Test
+    void changesIncludeEveryPartition() {
+      // more partitions than Flowable.merge() subscribes to by default
+      var store = new ShardedMemoryStore(200);
+      var subscriber = store.changes(1).test();
+
+      var workspaces = 0;
+      while (!store.commitCountByPartition().forAll(c -> c > 0)) {
+        valueEmittedBy(store.createWorkspace());
+        workspaces++;
+      }
+
+      subscriber.awaitCount(workspaces);
+      subscriber.assertValueCount(workspaces);
+      subscriber.dispose();
+    }
+  }
+
+  @Nested
+  class Concurrency {
+    @Test
+    void concurrentCreatesInSeparateWorkspacesAreAllCommitted() throws Exception {
+      var store = new ShardedMemoryStore(4);
+
+      var threads = 8;
+      var perThread = 100;
+      Callable<Workspace> task = () -> {
+        var ws = valueEmittedBy(store.createWorkspace());
+        for (var i = 0; i < perThread; i++) {
+          valueEmittedBy(store.createCollection(ws));
+        }
+        return ws;
+      };
+
+      var executor = Executors.newFixedThreadPool(threads);
+      try {
+        for (var future : executor.invokeAll(List.fill(threads, () -> task).toJavaList())) {
+          var ws = future.get();
+          var wsNext = valueEmittedBy(store.find(ws.id(), ResourceType.WORKSPACE));
+          assertThat(valuesEmittedBy(wsNext.childCollections())).hasSize(perThread);
+        }
+      } finally {
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+      }
+
+      assertThat(store.commitCount()).isEqualTo(threads * (1 + perThread));
+      assertThat(store.directorySize()).isEqualTo(threads * (1 + perThread));
+    }
+  }
+}
@@ -0,0 +1,188 @@
+package org.cdlib.kufi.memory;
+
+import org.cdlib.kufi.Change;
+import org.cdlib.kufi.ChangesNotRetainedException;
+import org.cdlib.kufi.Collection;
+import org.cdlib.kufi.Link;
+import org.cdlib.kufi.Workspace;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import static org.cdlib.cursive.util.RxAssertions.*;
+import static org.cdlib.kufi.ResourceType.COLLECTION;
+import static org.cdlib.kufi.ResourceType.WORKSPACE;
+
+class StoreSnapshotTest {
+
+  private Path logFile;
+  private Path snapshotFile;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    logFile = Files.createTempFile(getClass().getSimpleName(), ".log");
+    snapshotFile = logFile.resolveSibling(logFile.getFileName() + ".snapshot");
+    Files.delete(logFile);
+  }
+
+  @AfterEach
+  void tearDown() throws IOException {
+    Files.deleteIfExists(logFile);
+    Files.deleteIfExists(snapshotFile);
+  }
+
+  @Test
+  void snapshotRestoresState() throws IOException {
+    var store = new MemoryStore();
+    var ws = valueEmittedBy(store.createWorkspace());
+    var c1 = valueEmittedBy(store.createCollection(ws));
+    var c2 = valueEmittedBy(store.createCollection(c1));
+    var c3 = valueEmittedBy(store.createCollection(ws));
+    valueEmittedBy(store.deleteCollection(c1, true));
+
+    var tx = valueEmittedBy(store.checkpoint(snapshotFile));
+    assertThat(tx.txid()).isEqualTo(5);
+
+    try (var log = TransactionLog.open(logFile)) {
+      var restored = new MemoryStore(IndexBackend.HASH_MAP, snapshotFile, log);
+      assertThat(valueEmittedBy(restored.transaction())).isEqualTo(tx);
+
+      var wsNext = valueEmittedBy(restored.find(ws.id(), WORKSPACE));
+      assertThat(wsNext.isLaterVersionOf(ws)).isTrue();
+      assertThat(wsNext.childCollections()).emitted(c3);
+
+      assertThat(restored.findTombstone(c1.id(), COLLECTION)).emittedValueThat(t -> t.isLaterVersionOf(c1));
+      assertThat(restored.findTombstone(c2.id(), COLLECTION)).emittedValueThat(t -> t.isLaterVersionOf(c2));
+      assertThat(valuesEmittedBy(restored.linksFrom(c2.id()))).allMatch(Link::isDeleted);
+      assertThat(valuesEmittedBy(restored.linksFrom(ws.id()))).hasSameSizeAs(valuesEmittedBy(store.linksFrom(ws.id())));
+    }
+  }
+
+  @Test
+  void snapshotRestoresTrieBackend() throws IOException {
+    var store = new MemoryStore(IndexBackend.PRIMITIVE_TRIE);
+    var ws = valueEmittedBy(store.createWorkspace());
+    for (var i = 0; i < 100; i++) {
+      valueEmittedBy(store.createCollection(ws));
+    }
+    valueEmittedBy(store.checkpoint(snapshotFile));
+
+    try (var log = TransactionLog.open(logFile)) {
+      var restored = new MemoryStore(IndexBackend.PRIMITIVE_TRIE, snapshotFile, log);
+      var wsNext = valueEmittedBy(restored.find(ws.id(), WORKSPACE));
+      assertThat(valuesEmittedBy(wsNext.childCollections())).hasSize(100);
+    }
+  }
+
+  @Test
+  void checkpointTruncatesLog() throws IOException {
+    Workspace ws;
+    Collection c1;
+    Collection c2;
+    try (var log = TransactionLog.open(logFile, SyncPolicy.never())) {
+      var store = new MemoryStore(log);
+      ws = valueEmittedBy(store.createWorkspace());
+      for (var i = 0; i < 10; i++) {
+        valueEmittedBy(store.createCollection(ws));
+      }
+      var sizeBefore = Files.size(logFile);
+
+      valueEmittedBy(store.checkpoint(snapshotFile));
+      assertThat(Files.size(logFile)).isLessThan(sizeBefore);
+
+      // writes after the checkpoint go to the truncated log
+      c1 = valueEmittedBy(store.createCollection(ws));
+      c2 = valueEmittedBy(store.createCollection(c1));
+    }
+
+    try (var log = TransactionLog.open(logFile)) {
+      var restored = new MemoryStore(IndexBackend.HASH_MAP, snapshotFile, log);
+      assertThat(valueEmittedBy(restored.transaction()).txid()).isEqualTo(13);
+      assertThat(log.appendedRecords()).isEqualTo(2);
+
+      var wsNext = valueEmittedBy(restored.find(ws.id(), WORKSPACE));
+      assertThat(valuesEmittedBy(wsNext.childCollections())).hasSize(11);
+      var c1Next = valueEmittedBy(restored.find(c1.id(), COLLECTION));
+      assertThat(c1Next.childCollections()).emitted(c2);
+    }
+  }
+
+  @Test
+  void recoversWithoutSnapshot() throws IOException {
+    Workspace ws;
+    try (var log = TransactionLog.open(logFile)) {
+      ws = valueEmittedBy(new MemoryStore(log).createWorkspace());
+    }
+    try (var log = TransactionLog.open(logFile)) {
+      var restored = new MemoryStore(IndexBackend.HASH_MAP, snapshotFile, log);
+      assertThat(restored.find(ws.id(), WORKSPACE)).emitted(ws);
+    }
+  }
+
+  @Test
+  void laggingChangeSubscriberCatchesUpFromLog() throws IOException {
+    try (var log = TransactionLog.open(logFile, SyncPolicy.never())) {
+      var store = new MemoryStore(log);
+      var ws = valueEmittedBy(store.createWorkspace());
+      var subscriber = store.changes(0).test(1);
+      subscriber.awaitCount(1);
+      subscriber.assertValueCount(1);
+
+      // enough to overwrite whatever the subscriber has already buffered
+      var creates = 2 * MemoryStore.DEFAULT_RETAINED_CHANGES;
+      for (var i = 0; i < creates; i++) {
+        valueEmittedBy(store.createCollection(ws));
+      }
+      subscriber.requestMore(Long.MAX_VALUE);
+      var expected = 1 + 4 * creates;
+      subscriber.awaitCount(expected);
+      subscriber.assertNoErrors();
+      subscriber.assertValueCount(expected);
+      assertThat(store.changeReplayCount()).isEqualTo(1);
+
+      var txids = subscriber.values().stream().mapToLong(c -> c.transaction().txid()).distinct().toArray();
+      assertThat(txids).hasSize(1 + creates);
+      assertThat(txids).isSorted();
+
+      // and then picks up new transactions as they're committed
+      var c = valueEmittedBy(store.createCollection(ws));
+      subscriber.awaitCount(expected + 4);
+      assertThat(subscriber.values().get(expected)).isEqualTo(Change.created(c));
+      subscriber.dispose();
+    }
+  }
+
+  @Test
+  void changeReplayStartsFromCheckpoint() throws IOException {
+    try (var log = TransactionLog.open(logFile, SyncPolicy.never())) {
+      var store = new MemoryStore(log);
+      var ws = valueEmittedBy(store.createWorkspace());
+      var tx = valueEmittedBy(store.checkpoint(snapshotFile));
+      for (var i = 0; i < MemoryStore.DEFAULT_RETAINED_CHANGES + 10; i++) {
+        valueEmittedBy(store.createCollection(ws));
+      }
+
+      var covered = store.changes(tx.txid()).test();
+      covered.awaitTerminalEvent(10, TimeUnit.SECONDS);
+      covered.assertError(ChangesNotRetainedException.class);
+
+      var replayed = store.changes(tx.txid() + 1).test(4);
+      replayed.awaitCount(4);
+      replayed.assertNoErrors();
+      assertThat(replayed.values()).allMatch(change -> change.transaction().txid() == tx.txid() + 1);
+      replayed.dispose();
+    }
+  }
+
+  @Test
+  void readRejectsNonSnapshot() throws IOException {
+    Files.write(snapshotFile, new byte[]{1, 2, 3, 4, 5, 6, 7, 8});
+    assertThatExceptionOfType(IOException.class)
+      .isThrownBy(() -> StoreSnapshot.read(new MemoryStore(), IndexBackend.HASH_MAP, snapshotFile));
+  }
+}
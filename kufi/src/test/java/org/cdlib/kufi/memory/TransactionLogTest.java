@@ -0,0 +1,145 @@
+package org.cdlib.kufi.memory;
+
+import io.vavr.collection.List;
+import org.cdlib.kufi.Collection;
+import org.cdlib.kufi.Link;
+import org.cdlib.kufi.Resource;
+import org.cdlib.kufi.Workspace;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static java.nio.file.StandardOpenOption.APPEND;
+import static org.cdlib.cursive.util.RxAssertions.*;
+import static org.cdlib.kufi.ResourceType.COLLECTION;
+import static org.cdlib.kufi.ResourceType.WORKSPACE;
+
+class TransactionLogTest {
+
+  private Path logFile;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    logFile = Files.createTempFile(getClass().getSimpleName(), ".log");
+    Files.delete(logFile);
+  }
+
+  @AfterEach
+  void tearDown() throws IOException {
+    Files.deleteIfExists(logFile);
+  }
+
+  @Test
+  void replayRestoresState() throws IOException {
+    Workspace ws;
+    Collection c1;
+    Collection c2;
+    Collection c3;
+    try (var log = TransactionLog.open(logFile)) {
+      var store = new MemoryStore(log);
+      ws = valueEmittedBy(store.createWorkspace());
+      c1 = valueEmittedBy(store.createCollection(ws));
+      c2 = valueEmittedBy(store.createCollection(c1));
+      c3 = valueEmittedBy(store.createCollection(ws));
+      valueEmittedBy(store.deleteCollection(c1, true));
+      assertThat(log.appendedRecords()).isEqualTo(5);
+      assertThat(log.syncedRecords()).isEqualTo(5);
+    }
+
+    try (var log = TransactionLog.open(logFile)) {
+      var store = new MemoryStore(log);
+      assertThat(valueEmittedBy(store.transaction()).txid()).isEqualTo(5);
+
+      var wsNext = valueEmittedBy(store.find(ws.id(), WORKSPACE));
+      assertThat(wsNext.isLaterVersionOf(ws)).isTrue();
+      assertThat(wsNext.childCollections()).emitted(c3);
+
+      assertThat(store.findTombstone(c1.id(), COLLECTION)).emittedValueThat(t -> t.isLaterVersionOf(c1));
+      assertThat(store.findTombstone(c2.id(), COLLECTION)).emittedValueThat(t -> t.isLaterVersionOf(c2));
+      assertThat(valuesEmittedBy(store.linksFrom(c2.id()))).allMatch(Link::isDeleted);
+
+      // new writes continue from the recovered transaction
+      var c4 = valueEmittedBy(store.createCollection(c3));
+      assertThat(c4.currentVersion().transaction().txid()).isEqualTo(6);
+    }
+  }
+
+  @Test
+  void replayRestoresBatches() throws IOException {
+    Workspace ws;
+    List<Resource<?>> created;
+    try (var log = TransactionLog.open(logFile)) {
+      var store = new MemoryStore(log);
+      ws = valueEmittedBy(store.createWorkspace());
+      created = valuesEmittedBy(store.batch().createCollection(ws).createCollection(ws).commit());
+    }
+
+    try (var log = TransactionLog.open(logFile)) {
+      var store = new MemoryStore(log);
+      var wsNext = valueEmittedBy(store.find(ws.id(), WORKSPACE));
+      assertThat(wsNext.currentVersion().vid()).isEqualTo(1);
+      assertThat(valuesEmittedBy(wsNext.childCollections())).hasSameElementsAs(created.map(COLLECTION::cast));
+    }
+  }
+
+  @Test
+  void replayDiscardsTornTail() throws IOException {
+    Workspace ws;
+    try (var log = TransactionLog.open(logFile)) {
+      var store = new MemoryStore(log);
+      ws = valueEmittedBy(store.createWorkspace());
+    }
+    var validSize = Files.size(logFile);
+
+    // simulate a crash partway through writing a record
+    try (var channel = FileChannel.open(logFile, APPEND)) {
+      channel.write(ByteBuffer.wrap(new byte[]{0, 0, 0, 100, 1, 2, 3}));
+    }
+
+    try (var log = TransactionLog.open(logFile)) {
+      var store = new MemoryStore(log);
+      assertThat(store.find(ws.id())).emitted(ws);
+      assertThat(Files.size(logFile)).isEqualTo(validSize);
+
+      valueEmittedBy(store.createCollection(ws));
+    }
+
+    try (var log = TransactionLog.open(logFile)) {
+      var store = new MemoryStore(log);
+      assertThat(valueEmittedBy(store.transaction()).txid()).isEqualTo(2);
+    }
+  }
+
+  @Test
+  void groupCommitSyncsEachCommit() throws IOException {
+    try (var log = TransactionLog.open(logFile, SyncPolicy.groupCommit())) {
+      var store = new MemoryStore(log);
+      valueEmittedBy(store.createWorkspace());
+      assertThat(log.syncedRecords()).isEqualTo(1);
+      assertThat(log.syncCount()).isEqualTo(1);
+    }
+  }
+
+  @Test
+  void neverDefersSync() throws IOException {
+    try (var log = TransactionLog.open(logFile, SyncPolicy.never())) {
+      var store = new MemoryStore(log);
+      valueEmittedBy(store.createWorkspace());
+      assertThat(log.syncedRecords()).isEqualTo(0);
+      log.sync();
+      assertThat(log.syncedRecords()).isEqualTo(1);
+    }
+  }
+
+  @Test
+  void rejectsNonLogFiles() throws IOException {
+    Files.write(logFile, new byte[]{1, 2, 3, 4, 5, 6, 7, 8});
+    assertThatExceptionOfType(IOException.class).isThrownBy(() -> TransactionLog.open(logFile));
+  }
+}
@@ -0,0 +1,160 @@
+package org.cdlib.kufi.memory;
+
+import io.vavr.collection.Stream;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatNullPointerException;
+
+class TrieUuidMapTest {
+
+  @Test
+  void emptyMapFindsNothing() {
+    UuidMap<String> map = TrieUuidMap.empty();
+    assertThat(map.size()).isEqualTo(0);
+    assertThat(map.getOrNull(UUID.randomUUID())).isNull();
+    assertThat(map.get(UUID.randomUUID())).isEmpty();
+  }
+
+  @Test
+  void putIsPersistent() {
+    var id = UUID.randomUUID();
+    UuidMap<String> map0 = TrieUuidMap.empty();
+    var map1 = map0.put(id, "a");
+    var map2 = map1.put(id, "b");
+
+    assertThat(map0.getOrNull(id)).isNull();
+    assertThat(map1.getOrNull(id)).isEqualTo("a");
+    assertThat(map2.getOrNull(id)).isEqualTo("b");
+
+    assertThat(map0.size()).isEqualTo(0);
+    assertThat(map1.size()).isEqualTo(1);
+    assertThat(map2.size()).isEqualTo(1);
+  }
+
+  @Test
+  void findsManyEntries() {
+    var ids = Stream.continually(UUID::randomUUID).take(10_000).toVector();
+    UuidMap<UUID> map = TrieUuidMap.empty();
+    for (var id : ids) {
+      map = map.put(id, id);
+    }
+    assertThat(map.size()).isEqualTo(ids.size());
+    for (var id : ids) {
+      assertThat(map.getOrNull(id)).isSameAs(id);
+    }
+    assertThat(map.getOrNull(UUID.randomUUID())).isNull();
+  }
+
+  @Test
+  void distinguishesKeysWithCollidingHashes() {
+    // msb ^ lsb is the same for all of these
+    UuidMap<Long> map = TrieUuidMap.empty();
+    for (var i = 0L; i < 100; i++) {
+      map = map.put(new UUID(i, i), i);
+    }
+    assertThat(map.size()).isEqualTo(100);
+    for (var i = 0L; i < 100; i++) {
+      assertThat(map.getOrNull(new UUID(i, i))).isEqualTo(i);
+    }
+  }
+
+  @Test
+  void putAllIsPersistent() {
+    var ids = Stream.continually(UUID::randomUUID).take(10_000).toVector();
+    UuidMap<UUID> map0 = TrieUuidMap.empty();
+    for (var id : ids.take(5_000)) {
+      map0 = map0.put(id, id);
+    }
+
+    var entries = new HashMap<UUID, UUID>();
+    for (var id : ids.drop(2_500)) {
+      entries.put(id, UUID.randomUUID());
+    }
+    var map1 = map0.putAll(entries);
+
+    assertThat(map0.size()).isEqualTo(5_000);
+    assertThat(map1.size()).isEqualTo(ids.size());
+    for (var id : ids.take(5_000)) {
+      assertThat(map0.getOrNull(id)).isSameAs(id);
+    }
+    for (var id : ids.drop(5_000)) {
+      assertThat(map0.getOrNull(id)).isNull();
+    }
+    for (var id : ids.take(2_500)) {
+      assertThat(map1.getOrNull(id)).isSameAs(id);
+    }
+    for (var id : ids.drop(2_500)) {
+      assertThat(map1.getOrNull(id)).isSameAs(entries.get(id));
+    }
+  }
+
+  @Test
+  void removeIsPersistent() {
+    var ids = Stream.continually(UUID::randomUUID).take(1_000).toVector();
+    UuidMap<UUID> map0 = TrieUuidMap.empty();
+    for (var id : ids) {
+      map0 = map0.put(id, id);
+    }
+
+    var map1 = map0;
+    for (var id : ids.take(999)) {
+      map1 = map1.remove(id);
+    }
+    assertThat(map0.size()).isEqualTo(1_000);
+    assertThat(map1.size()).isEqualTo(1);
+    assertThat(map1.getOrNull(ids.last())).isSameAs(ids.last());
+    for (var id : ids) {
+      assertThat(map0.getOrNull(id)).isSameAs(id);
+    }
+    for (var id : ids.take(999)) {
+      assertThat(map1.getOrNull(id)).isNull();
+    }
+
+    // re-adding after branches have collapsed
+    for (var id : ids.take(500)) {
+      map1 = map1.put(id, id);
+    }
+    assertThat(map1.size()).isEqualTo(501);
+    for (var id : ids.take(500)) {
+      assertThat(map1.getOrNull(id)).isSameAs(id);
+    }
+  }
+
+  @Test
+  void removeMissingKeyReturnsSameMap() {
+    UuidMap<String> map = TrieUuidMap.<String>empty().put(UUID.randomUUID(), "a");
+    assertThat(map.remove(UUID.randomUUID())).isSameAs(map);
+  }
+
+  @Test
+  void removeAllIsPersistent() {
+    var ids = Stream.continually(UUID::randomUUID).take(10_000).toVector();
+    UuidMap<UUID> map0 = TrieUuidMap.empty();
+    for (var id : ids) {
+      map0 = map0.put(id, id);
+    }
+
+    var map1 = map0.removeAll(ids.drop(100).append(UUID.randomUUID()));
+    assertThat(map0.size()).isEqualTo(10_000);
+    assertThat(map1.size()).isEqualTo(100);
+    for (var id : ids) {
+      assertThat(map0.getOrNull(id)).isSameAs(id);
+    }
+    for (var id : ids.take(100)) {
+      assertThat(map1.getOrNull(id)).isSameAs(id);
+    }
+    for (var id : ids.drop(100)) {
+      assertThat(map1.getOrNull(id)).isNull();
+    }
+  }
+
+  @Test
+  void rejectsNullValues() {
+    UuidMap<String> map = TrieUuidMap.empty();
+    assertThatNullPointerException().isThrownBy(() -> map.put(UUID.randomUUID(), null));
+  }
+}
@@ -0,0 +1,91 @@
+package org.cdlib.kufi.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MonotonicClockTest {
+
+  @Test
+  void followsSource() {
+    var source = new AtomicLong(100L);
+    var clock = new MonotonicClock(source::get);
+    assertThat(clock.epochNanos()).isEqualTo(100L);
+    source.set(200L);
+    assertThat(clock.epochNanos()).isEqualTo(200L);
+  }
+
+  @Test
+  void neverRepeats() {
+    var clock = new MonotonicClock(() -> 100L);
+    assertThat(clock.epochNanos()).isEqualTo(100L);
+    assertThat(clock.epochNanos()).isEqualTo(101L);
+    assertThat(clock.epochNanos()).isEqualTo(102L);
+  }
+
+  @Test
+  void neverGoesBackwards() {
+    var source = new AtomicLong(100L);
+    var clock = new MonotonicClock(source::get);
+    assertThat(clock.epochNanos()).isEqualTo(100L);
+    source.set(50L);
+    assertThat(clock.epochNanos()).isEqualTo(101L);
+  }
+
+  @Test
+  void isUniqueAcrossThreads() throws InterruptedException {
+    var clock = new MonotonicClock(() -> 0L);
+    var readings = ConcurrentHashMap.<Long>newKeySet();
+    var threads = 4;
+    var perThread = 10_000;
+    var executor = Executors.newFixedThreadPool(threads);
+    try {
+      for (var t = 0; t < threads; t++) {
+        executor.execute(() -> {
+          for (var i = 0; i < perThread; i++) {
+            readings.add(clock.epochNanos());
+          }
+        });
+      }
+    } finally {
+      executor.shutdown();
+    }
+    assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+    assertThat(readings).hasSize(threads * perThread);
+  }
+
+  @Test
+  void interleavedClocksNeverReadTheSameValue() {
+    var source = new AtomicLong(100L);
+    var first = new MonotonicClock(source::get, 3, 0);
+    var second = new MonotonicClock(source::get, 3, 1);
+    assertThat(first.epochNanos()).isEqualTo(99L);
+    assertThat(second.epochNanos()).isEqualTo(100L);
+    assertThat(first.epochNanos()).isEqualTo(102L);
+    assertThat(second.epochNanos()).isEqualTo(103L);
+    source.set(200L);
+    assertThat(first.epochNanos()).isEqualTo(198L);
+    assertThat(second.epochNanos()).isEqualTo(199L);
+  }
+
+  @Test
+  void rejectsInvalidIndexes() {
+    assertThatThrownBy(() -> new MonotonicClock(() -> 0L, 3, 3)).isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> new MonotonicClock(() -> 0L, 0, 0)).isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  void systemClockIsCloseToWallClock() {
+    var expected = TimeUtil.epochNanos(Instant.now());
+    var actual = MonotonicClock.system().epochNanos();
+    assertThat(Math.abs(actual - expected)).isLessThan(Duration.ofSeconds(1).toNanos());
+  }
+}
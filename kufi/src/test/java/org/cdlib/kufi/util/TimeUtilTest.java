@@ -2,15 +2,20 @@ package org.cdlib.kufi.util;
 
 import io.vavr.collection.List;
 import org.assertj.core.api.ThrowableAssert.ThrowingCallable;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.MethodSource;
 
+import java.time.Instant;
 import java.time.ZoneId;
 import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.cdlib.kufi.util.TimeUtil.utcNow;
 
 class TimeUtilTest {
 
@@ -30,4 +35,27 @@ class TimeUtilTest {
       assertThatIllegalArgumentException().isThrownBy(callingRequireUTC);
     }
   }
+
+  @Test
+  void epochNanosRoundTrip() {
+    var now = utcNow();
+    var epochNanos = TimeUtil.epochNanos(now.toInstant());
+    assertThat(TimeUtil.utcDateTime(epochNanos)).isEqualTo(now);
+    assertThat(TimeUtil.epochNanos(TimeUtil.epochSecond(epochNanos), TimeUtil.nanoOfSecond(epochNanos))).isEqualTo(epochNanos);
+  }
+
+  @Test
+  void epochNanosHandlesPreEpochInstants() {
+    var instant = Instant.ofEpochSecond(-2, 250_000_000);
+    var epochNanos = TimeUtil.epochNanos(instant);
+    assertThat(epochNanos).isEqualTo(-1_750_000_000L);
+    assertThat(TimeUtil.epochSecond(epochNanos)).isEqualTo(-2L);
+    assertThat(TimeUtil.nanoOfSecond(epochNanos)).isEqualTo(250_000_000);
+    assertThat(TimeUtil.utcDateTime(epochNanos).toInstant()).isEqualTo(instant);
+  }
+
+  @Test
+  void epochNanosRejectsUnrepresentableInstants() {
+    assertThatExceptionOfType(ArithmeticException.class).isThrownBy(() -> TimeUtil.epochNanos(Instant.MAX));
+  }
 }